@@ -14,17 +14,16 @@
 package io.github.msdk.alignment.joinaligner;
 
 import java.util.ArrayList;
-import java.util.Hashtable;
-import java.util.Iterator;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
-import com.google.common.collect.Range;
-
 import io.github.msdk.MSDKException;
 import io.github.msdk.MSDKMethod;
+import io.github.msdk.datamodel.Feature;
 import io.github.msdk.datamodel.FeatureTable;
 import io.github.msdk.datamodel.FeatureTableRow;
 import io.github.msdk.datamodel.Sample;
@@ -37,6 +36,13 @@ import io.github.msdk.util.tolerances.RTTolerance;
 /**
  * This class aligns feature tables based on a match score. The score is calculated based on the
  * mass and retention time of each peak using a set of tolerances.
+ *
+ * <p>
+ * The tables are added to the aligned table one after another. The rows of each table are
+ * assigned to the aligned rows greedily, best score first, so that every row and every aligned
+ * row is used at most once. The features of an assigned row are added to its aligned row, the
+ * other rows become new aligned rows.
+ * </p>
  */
 public class JoinAlignerMethod implements MSDKMethod<FeatureTable> {
 
@@ -92,18 +98,24 @@ public class JoinAlignerMethod implements MSDKMethod<FeatureTable> {
     // Iterate through all feature tables
     for (FeatureTable featureTable : featureTables) {
 
-      // Create a sorted array of matching scores between two rows
-      List<RowVsRowScore> scoreSet = new ArrayList<RowVsRowScore>();
+      // Scores between the rows of this table and the candidate rows of the aligned table. The
+      // candidate rows get an index on their first occurrence.
+      List<FeatureTableRow> rows = featureTable.getRows();
+      RowVsRowScores scores = new RowVsRowScores();
+      List<SimpleFeatureTableRow> alignedRows = new ArrayList<>();
+      Map<FeatureTableRow, Integer> alignedRowIndices = new IdentityHashMap<>();
 
       // Calculate scores for all possible alignments of this row
-      for (FeatureTableRow row : featureTable.getRows()) {
+      for (int rowIndex = 0; rowIndex < rows.size(); rowIndex++) {
+        FeatureTableRow row = rows.get(rowIndex);
 
         final Double mz = row.getMz();
         if (mz == null)
           continue;
 
         // Calculate the m/z range limit for the current row
-        Range<Double> mzRange = mzTolerance.getToleranceRange(mz);
+        final double mzLower = mzTolerance.lowerBound(mz);
+        final double mzUpper = mzTolerance.upperBound(mz);
 
         // Continue if no chromatography info is available
         Float rt = row.getRT();
@@ -111,12 +123,13 @@ public class JoinAlignerMethod implements MSDKMethod<FeatureTable> {
           continue;
 
         // Calculate the RT range limit for the current row
-        Range<Float> rtRange = rtTolerance.getToleranceRange(rt);
+        final float rtLower = rtTolerance.lowerBound(rt);
+        final float rtUpper = rtTolerance.upperBound(rt);
 
         // Get all rows of the aligned feature table within the m/z and
         // RT limits
         List<FeatureTableRow> candidateRows =
-            FeatureTableUtil.getRowsInsideRange(result, rtRange, mzRange);
+            FeatureTableUtil.getRowsInsideRange(result, rtLower, rtUpper, mzLower, mzUpper);
 
         // Calculate scores and store them
         for (FeatureTableRow candidateRow : candidateRows) {
@@ -128,13 +141,19 @@ public class JoinAlignerMethod implements MSDKMethod<FeatureTable> {
             continue;
 
           // Calculate score
-          double mzLength = mzRange.upperEndpoint() - mzRange.lowerEndpoint();
-          double rtLength = rtRange.upperEndpoint() - rtRange.lowerEndpoint();
-          RowVsRowScore score = new RowVsRowScore(row, (SimpleFeatureTableRow) candidateRow, mzLength / 2.0, mzWeight,
-              rtLength / 2.0, rtWeight);
+          double mzLength = mzUpper - mzLower;
+          double rtLength = rtUpper - rtLower;
+          double score = RowVsRowScores.calculateScore(row, candidateRow, mzLength / 2.0,
+              mzWeight, rtLength / 2.0, rtWeight);
 
           // Add the score to the array
-          scoreSet.add(score);
+          Integer alignedRowIndex = alignedRowIndices.get(candidateRow);
+          if (alignedRowIndex == null) {
+            alignedRowIndex = alignedRows.size();
+            alignedRowIndices.put(candidateRow, alignedRowIndex);
+            alignedRows.add((SimpleFeatureTableRow) candidateRow);
+          }
+          scores.add(rowIndex, alignedRowIndex, score);
 
         }
 
@@ -145,27 +164,32 @@ public class JoinAlignerMethod implements MSDKMethod<FeatureTable> {
       }
 
       // Create a table of mappings for best scores
-      Hashtable<FeatureTableRow, SimpleFeatureTableRow> alignmentMapping = new Hashtable<>();
+      SimpleFeatureTableRow alignmentMapping[] = new SimpleFeatureTableRow[rows.size()];
+      boolean alignedRowMapped[] = new boolean[alignedRows.size()];
 
-      // Iterate scores by descending order
-      Iterator<RowVsRowScore> scoreIterator = scoreSet.iterator();
-      while (scoreIterator.hasNext()) {
-        RowVsRowScore score = scoreIterator.next();
+      // Iterate scores by descending order, and map each row to the best aligned row which is
+      // still free
+      for (int scoreIndex : scores.getIndicesByDescendingScore()) {
+        int rowIndex = scores.getRow(scoreIndex);
+        int alignedRowIndex = scores.getAlignedRow(scoreIndex);
 
         // Check if the row is already mapped
-        if (alignmentMapping.containsKey(score.getFeatureTableRow()))
+        if (alignmentMapping[rowIndex] != null)
           continue;
 
         // Check if the aligned row is already filled
-        if (alignmentMapping.containsValue(score.getAlignedRow()))
+        if (alignedRowMapped[alignedRowIndex])
           continue;
 
-        alignmentMapping.put(score.getFeatureTableRow(), score.getAlignedRow());
+        alignmentMapping[rowIndex] = alignedRows.get(alignedRowIndex);
+        alignedRowMapped[alignedRowIndex] = true;
       }
 
       // Align all rows using the mapping
-      for (FeatureTableRow sourceRow : featureTable.getRows()) {
-        SimpleFeatureTableRow targetRow = alignmentMapping.get(sourceRow);
+      List<Sample> samples = featureTable.getSamples();
+      for (int rowIndex = 0; rowIndex < rows.size(); rowIndex++) {
+        FeatureTableRow sourceRow = rows.get(rowIndex);
+        SimpleFeatureTableRow targetRow = alignmentMapping[rowIndex];
 
         // If we have no mapping for this row, add a new one
         if (targetRow == null) {
@@ -177,14 +201,16 @@ public class JoinAlignerMethod implements MSDKMethod<FeatureTable> {
           if (sourceCharge != null)
             targetRow.setCharge(sourceCharge);
 
-          List<Sample> samples = featureTable.getSamples();
-          for (Sample s : samples) {
-            targetRow.setFeature(s, sourceRow.getFeature(s));
-          }
-
           newRowID++;
         }
 
+        // Add the features of the row to the aligned row
+        for (Sample s : samples) {
+          Feature feature = sourceRow.getFeature(s);
+          if (feature != null)
+            targetRow.setFeature(s, feature);
+        }
+
         processedFeatures++;
       }
 
@@ -0,0 +1,114 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+package io.github.msdk.alignment.joinaligner;
+
+import java.util.Arrays;
+
+import io.github.msdk.datamodel.FeatureTableRow;
+
+/**
+ * This class holds the scores between the rows of a feature table and the rows of the aligned
+ * feature table, in primitive arrays. The rows are identified by their index in the lists kept by
+ * the caller.
+ */
+class RowVsRowScores {
+
+  private int rows[] = new int[16];
+  private int alignedRows[] = new int[16];
+  private double scores[] = new double[16];
+  private int size = 0;
+
+  /**
+   * This method calculates the score between a feature table row and a row of the aligned feature
+   * table (the higher score, the better the match)
+   */
+  static double calculateScore(FeatureTableRow featureTableRow, FeatureTableRow alignedRow,
+      double mzMaxDiff, double mzWeight, double rtMaxDiff, double rtWeight) {
+
+    // Get m/z and RT values
+    Double mz1 = featureTableRow.getMz();
+    Double mz2 = alignedRow.getMz();
+    Float rt1 = featureTableRow.getRT();
+    Float rt2 = alignedRow.getRT();
+
+    // Calculate difference between m/z
+    double mzDiff = 999;
+    if (mz1 != null && mz2 != null)
+      mzDiff = Math.abs(mz1 - mz2);
+
+    // Calculate difference between RT values
+    double rtDiff = 999;
+    if (rt1 != null && rt2 != null)
+      rtDiff = Math.abs(rt1 - rt2);
+
+    return ((1 - mzDiff / mzMaxDiff) * mzWeight) + ((1 - rtDiff / rtMaxDiff) * rtWeight);
+  }
+
+  /**
+   * This method adds the score between the row with index <code>row</code> and the aligned row
+   * with index <code>alignedRow</code>
+   */
+  void add(int row, int alignedRow, double score) {
+    if (size == scores.length) {
+      int newLength = size * 2;
+      rows = Arrays.copyOf(rows, newLength);
+      alignedRows = Arrays.copyOf(alignedRows, newLength);
+      scores = Arrays.copyOf(scores, newLength);
+    }
+    rows[size] = row;
+    alignedRows[size] = alignedRow;
+    scores[size] = score;
+    size++;
+  }
+
+  int getRow(int index) {
+    return rows[index];
+  }
+
+  int getAlignedRow(int index) {
+    return alignedRows[index];
+  }
+
+  /**
+   * This method returns the indices of the scores ordered by descending score. Equal scores keep
+   * the order in which they were added.
+   */
+  int[] getIndicesByDescendingScore() {
+    int indices[] = new int[size];
+    for (int i = 0; i < size; i++)
+      indices[i] = i;
+    mergeSort(indices, new int[size], 0, size);
+    return indices;
+  }
+
+  private void mergeSort(int indices[], int buffer[], int from, int to) {
+    if (to - from < 2)
+      return;
+    int middle = (from + to) >>> 1;
+    mergeSort(indices, buffer, from, middle);
+    mergeSort(indices, buffer, middle, to);
+    if (!(scores[indices[middle]] > scores[indices[middle - 1]]))
+      return;
+    System.arraycopy(indices, from, buffer, from, to - from);
+    int left = from, right = middle;
+    for (int i = from; i < to; i++) {
+      if (right >= to
+          || (left < middle && !(scores[buffer[right]] > scores[buffer[left]])))
+        indices[i] = buffer[left++];
+      else
+        indices[i] = buffer[right++];
+    }
+  }
+
+}
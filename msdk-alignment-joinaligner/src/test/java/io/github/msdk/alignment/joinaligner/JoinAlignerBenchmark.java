@@ -0,0 +1,96 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+package io.github.msdk.alignment.joinaligner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.github.msdk.MSDKException;
+import io.github.msdk.datamodel.FeatureTable;
+import io.github.msdk.datamodel.Sample;
+import io.github.msdk.datamodel.SimpleFeature;
+import io.github.msdk.datamodel.SimpleFeatureTable;
+import io.github.msdk.datamodel.SimpleFeatureTableRow;
+import io.github.msdk.datamodel.SimpleSample;
+import io.github.msdk.util.tolerances.MaximumMzTolerance;
+import io.github.msdk.util.tolerances.RTTolerance;
+
+/**
+ * Measures the run time of {@link JoinAlignerMethod} on synthetic feature tables. Each table
+ * contains a random 90% of a common set of compounds, with small m/z and RT deviations. Usage:
+ * <code>JoinAlignerBenchmark [numberOfSamples] [numberOfCompounds]</code>
+ */
+public class JoinAlignerBenchmark {
+
+  public static void main(String[] args) throws MSDKException {
+
+    Logger logger = LoggerFactory.getLogger(JoinAlignerBenchmark.class);
+
+    int numberOfSamples = 50;
+    int numberOfCompounds = 5000;
+    if (args.length > 0)
+      numberOfSamples = Integer.valueOf(args[0]);
+    if (args.length > 1)
+      numberOfCompounds = Integer.valueOf(args[1]);
+
+    Random random = new Random(1);
+    double compoundMz[] = new double[numberOfCompounds];
+    float compoundRt[] = new float[numberOfCompounds];
+    for (int i = 0; i < numberOfCompounds; i++) {
+      compoundMz[i] = 100.0 + random.nextDouble() * 900.0;
+      compoundRt[i] = 60f + random.nextFloat() * 1740f;
+    }
+
+    List<FeatureTable> featureTables = new ArrayList<>();
+    for (int i = 0; i < numberOfSamples; i++)
+      featureTables.add(createFeatureTable("Sample " + i, compoundMz, compoundRt, random));
+
+    // Warm up
+    new JoinAlignerMethod(featureTables.subList(0, Math.min(5, numberOfSamples)),
+        new MaximumMzTolerance(0.003, 5.0), new RTTolerance(10f, true)).execute();
+
+    long startTime = System.currentTimeMillis();
+    FeatureTable result = new JoinAlignerMethod(featureTables,
+        new MaximumMzTolerance(0.003, 5.0), new RTTolerance(10f, true)).execute();
+    long endTime = System.currentTimeMillis();
+
+    logger.info("Aligned " + numberOfSamples + " samples with " + numberOfCompounds
+        + " compounds into " + result.getRows().size() + " rows in " + (endTime - startTime)
+        + "ms");
+  }
+
+  private static FeatureTable createFeatureTable(String name, double compoundMz[],
+      float compoundRt[], Random random) {
+    SimpleFeatureTable featureTable = new SimpleFeatureTable();
+    Sample sample = new SimpleSample(name);
+    featureTable.setSamples(Collections.singletonList(sample));
+    for (int i = 0; i < compoundMz.length; i++) {
+      if (random.nextInt(10) == 0)
+        continue;
+      SimpleFeature feature = new SimpleFeature();
+      feature.setMz(compoundMz[i] * (1.0 + (random.nextDouble() - 0.5) * 2e-6));
+      feature.setRetentionTime(compoundRt[i] + (random.nextFloat() - 0.5f) * 4f);
+      SimpleFeatureTableRow row = new SimpleFeatureTableRow(featureTable);
+      row.setFeature(sample, feature);
+      featureTable.addRow(row);
+    }
+    return featureTable;
+  }
+
+}
@@ -15,6 +15,8 @@ package io.github.msdk.alignment.joinaligner;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import org.junit.Assert;
@@ -23,6 +25,12 @@ import org.junit.Test;
 
 import io.github.msdk.alignment.joinaligner.JoinAlignerMethod;
 import io.github.msdk.datamodel.FeatureTable;
+import io.github.msdk.datamodel.FeatureTableRow;
+import io.github.msdk.datamodel.Sample;
+import io.github.msdk.datamodel.SimpleFeature;
+import io.github.msdk.datamodel.SimpleFeatureTable;
+import io.github.msdk.datamodel.SimpleFeatureTableRow;
+import io.github.msdk.datamodel.SimpleSample;
 import io.github.msdk.io.mztab.MzTabFileImportMethod;
 import io.github.msdk.util.tolerances.MaximumMzTolerance;
 import io.github.msdk.util.tolerances.MzTolerance;
@@ -64,4 +72,45 @@ public class JoinAlignerMethodTest {
 
     featureTable.dispose();
   }
+
+  @Test
+  public void testBestScoreFirst() throws Exception {
+
+    // Row 2 of the second table is closer to row 1 of the first table than row 1
+    Sample sample1 = new SimpleSample("Sample 1"), sample2 = new SimpleSample("Sample 2");
+    FeatureTable featureTable1 = createFeatureTable(sample1, new double[] {500.0, 700.0},
+        new float[] {100f, 200f});
+    FeatureTable featureTable2 = createFeatureTable(sample2, new double[] {500.001, 500.0005},
+        new float[] {101f, 100.2f});
+
+    MzTolerance mzTolerance = new MaximumMzTolerance(0.003, 5.0);
+    RTTolerance rtTolerance = new RTTolerance(5f, true);
+    JoinAlignerMethod method = new JoinAlignerMethod(Arrays.asList(featureTable1, featureTable2),
+        mzTolerance, rtTolerance);
+    FeatureTable featureTable = method.execute();
+    Assert.assertEquals(1.0, method.getFinishedPercentage(), 0.0001);
+
+    List<FeatureTableRow> rows = featureTable.getRows();
+    Assert.assertEquals(3, rows.size());
+    Assert.assertEquals(500.0, rows.get(0).getFeature(sample1).getMz(), 0.0);
+    Assert.assertEquals(500.0005, rows.get(0).getFeature(sample2).getMz(), 0.0);
+    Assert.assertNull(rows.get(1).getFeature(sample2));
+    Assert.assertNull(rows.get(2).getFeature(sample1));
+    Assert.assertEquals(500.001, rows.get(2).getFeature(sample2).getMz(), 0.0);
+  }
+
+  private static FeatureTable createFeatureTable(Sample sample, double mzValues[],
+      float rtValues[]) {
+    SimpleFeatureTable featureTable = new SimpleFeatureTable();
+    featureTable.setSamples(Collections.singletonList(sample));
+    for (int i = 0; i < mzValues.length; i++) {
+      SimpleFeature feature = new SimpleFeature();
+      feature.setMz(mzValues[i]);
+      feature.setRetentionTime(rtValues[i]);
+      SimpleFeatureTableRow row = new SimpleFeatureTableRow(featureTable);
+      row.setFeature(sample, feature);
+      featureTable.addRow(row);
+    }
+    return featureTable;
+  }
 }
@@ -117,14 +117,15 @@ public class RansacAlignerMethod implements MSDKMethod<FeatureTable> {
       for (FeatureTableRow row : featureTable.getRows()) {
 
         final Double mz = row.getMz();
-        if (mz == null)
+        final Float rt = row.getRT();
+        if (mz == null || rt == null)
           continue;
 
         // Calculate the m/z range limit for the current row
         Range<Double> mzRange = mzTolerance.getToleranceRange(mz);
 
         // Calculate the RT range limit for the current row
-        Range<Float> rtRange = rtTolerance.getToleranceRange(row.getRT());
+        Range<Float> rtRange = rtTolerance.getToleranceRange(rt);
 
 
 
@@ -210,6 +211,10 @@ public class RansacAlignerMethod implements MSDKMethod<FeatureTable> {
     List<FeatureTableRow> allRows = featureTable.getRows();
 
     for (FeatureTableRow row : allRows) {
+      // Rows without features can't be aligned
+      if (row.getMz() == null || row.getRT() == null)
+        continue;
+
       // Calculate limits for a row with which the row can be aligned
       Range<Double> mzRange = mzTolerance.getToleranceRange(row.getMz());
 
@@ -363,6 +368,10 @@ public class RansacAlignerMethod implements MSDKMethod<FeatureTable> {
     List<AlignStructMol> alignMol = new ArrayList<AlignStructMol>();
     for (FeatureTableRow row : peakListX.getRows()) {
 
+      // Rows without features can't be aligned
+      if (row.getMz() == null || row.getRT() == null)
+        continue;
+
       // Calculate limits for a row with which the row can be aligned
       Range<Double> mzRange = mzTolerance.getToleranceRange(row.getMz());
       Range<Float> rtRange = rtTolerance.getToleranceRange(row.getRT());
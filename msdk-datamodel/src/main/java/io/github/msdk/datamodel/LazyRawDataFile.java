@@ -0,0 +1,535 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+package io.github.msdk.datamodel;
+
+import java.io.File;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.function.Function;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Range;
+
+import io.github.msdk.util.tolerances.MzTolerance;
+
+/**
+ * <p>
+ * A raw data file whose scans are computed from the scans of another raw data file on access. Each
+ * scan of the source file is passed through a chain of stages, typically the
+ * <code>performFilter</code> method of a filtering algorithm or the <code>centroidScan</code>
+ * method of a centroiding algorithm. A stage may return null to drop a scan. The computed scans
+ * are not retained, except for the <code>cacheSize</code> most recently used ones.
+ * </p>
+ *
+ * <p>
+ * Iterating over the scans processes them in a single pass, so a chain of processing steps
+ * followed by e.g. chromatogram building only holds the source file and the cache in memory.
+ * Since stages may drop scans, the scan list finds out which scans remain by processing the
+ * source scans in order: <code>get(i)</code> processes the scans up to the i-th remaining one and
+ * <code>size()</code> processes all of them, unless an earlier iteration or call already did. A
+ * consumer should therefore iterate once rather than call <code>size()</code> and then iterate,
+ * which processes every scan twice without a cache. Views can be stacked, and
+ * {@link #materialize()} copies the processed scans into a
+ * {@link io.github.msdk.datamodel.SimpleRawDataFile SimpleRawDataFile} when they are needed
+ * repeatedly.
+ * </p>
+ *
+ * <p>
+ * The stages are only ever called by one thread at a time, so algorithms keeping scratch buffers
+ * between scans can be used as stages. Threads reading cached scans don't wait for the stages.
+ * </p>
+ */
+public class LazyRawDataFile implements RawDataFile {
+
+  private final @Nonnull RawDataFile source;
+  private final @Nonnull List<Function<MsScan, MsScan>> stages;
+  private final int cacheSize;
+
+  private final @Nonnull Map<Integer, MsScan> cache;
+  private final @Nonnull List<MsScan> scans = new LazyScanList();
+
+  // Held while the stages run. The other fields are guarded by this.
+  private final @Nonnull Object stageLock = new Object();
+
+  /** Scans of the source file, taken on first access */
+  private List<MsScan> sourceScans;
+  /** Source indices of the remaining scans among the first indexedSourceScans source scans */
+  private int[] remainingScans = new int[16];
+  private int remainingCount = 0;
+  private int indexedSourceScans = 0;
+  private boolean disposed = false;
+
+  /** Index of the remaining scans, built on first request and reset by dispose() */
+  private volatile ScanIndex scanIndex;
+
+  /**
+   * <p>
+   * Constructor for LazyRawDataFile.
+   * </p>
+   *
+   * @param source the {@link io.github.msdk.datamodel.RawDataFile} providing the input scans
+   * @param stages the functions applied to each scan, in order. A function may return null to
+   *        drop the scan.
+   * @param cacheSize the maximum number of computed scans kept in memory, or 0 to keep none
+   */
+  public LazyRawDataFile(@Nonnull RawDataFile source,
+      @Nonnull List<? extends Function<MsScan, MsScan>> stages, int cacheSize) {
+    Preconditions.checkNotNull(source);
+    Preconditions.checkNotNull(stages);
+    Preconditions.checkArgument(cacheSize >= 0, "cacheSize must not be negative");
+    this.source = source;
+    this.stages = ImmutableList.copyOf(stages);
+    this.cacheSize = cacheSize;
+    this.cache = new LinkedHashMap<Integer, MsScan>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Integer, MsScan> eldest) {
+        return size() > LazyRawDataFile.this.cacheSize;
+      }
+    };
+  }
+
+  /**
+   * <p>
+   * Returns a new view which applies one more stage to the scans of this one. The new view shares
+   * the source file, but has a cache of its own.
+   * </p>
+   *
+   * @param stage the function applied to each scan after the stages of this view
+   * @param cacheSize the maximum number of computed scans kept in memory by the new view
+   * @return a new {@link io.github.msdk.datamodel.LazyRawDataFile}
+   */
+  @Nonnull
+  public LazyRawDataFile then(@Nonnull Function<MsScan, MsScan> stage, int cacheSize) {
+    List<Function<MsScan, MsScan>> newStages = new ArrayList<>(stages);
+    newStages.add(stage);
+    return new LazyRawDataFile(source, newStages, cacheSize);
+  }
+
+  /**
+   * <p>
+   * Processes all scans and copies them into a new raw data file. The chromatograms of the source
+   * file are added as they are.
+   * </p>
+   *
+   * @return a new {@link io.github.msdk.datamodel.SimpleRawDataFile}
+   */
+  @Nonnull
+  public SimpleRawDataFile materialize() {
+    SimpleRawDataFile result =
+        new SimpleRawDataFile(getName(), getOriginalFile(), getRawDataFileType());
+    for (MsScan scan : scans)
+      result.addScan(scan);
+    for (Chromatogram chromatogram : getChromatograms())
+      result.addChromatogram(chromatogram);
+    return result;
+  }
+
+  /**
+   * <p>
+   * Getter for the field <code>source</code>.
+   * </p>
+   *
+   * @return the {@link io.github.msdk.datamodel.RawDataFile} providing the input scans
+   */
+  @Nonnull
+  public RawDataFile getSource() {
+    return source;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nonnull
+  public String getName() {
+    return source.getName();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nonnull
+  public Optional<File> getOriginalFile() {
+    return source.getOriginalFile();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nonnull
+  public String getOriginalFilename() {
+    return source.getOriginalFilename();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nonnull
+  public FileType getRawDataFileType() {
+    return source.getRawDataFileType();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nonnull
+  public List<String> getMsFunctions() {
+    return source.getMsFunctions();
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>
+   * The returned list computes its scans on access.
+   * </p>
+   */
+  @Override
+  @Nonnull
+  public List<MsScan> getScans() {
+    return scans;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>
+   * The index is built on the first call, which processes the source scans that are not indexed
+   * yet, like <code>getScans().size()</code>, and is cached until the file is disposed. It holds
+   * one scan per remaining scan, which takes its scan number, retention time, MS level, MS function
+   * and other header fields from the source scan, and computes its data points through this view
+   * on access. The index thus keeps no processed scan in memory, but assumes that the stages keep
+   * the header fields of the scans.
+   * </p>
+   */
+  @Override
+  @Nonnull
+  public ScanIndex getScanIndex() {
+    ScanIndex result = scanIndex;
+    if (result == null) {
+      final int count = getRemainingCount();
+      synchronized (this) {
+        result = scanIndex;
+        if (result == null) {
+          final List<MsScan> sourceScans = getSourceScans();
+          final List<MsScan> indexedScans = new ArrayList<>(count);
+          for (int i = 0; i < count; i++)
+            indexedScans.add(
+                new IndexedScan(remainingScans[i], sourceScans.get(remainingScans[i])));
+          result = new ScanIndex(indexedScans);
+          scanIndex = result;
+        }
+      }
+    }
+    return result;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nonnull
+  public List<Chromatogram> getChromatograms() {
+    return source.getChromatograms();
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>
+   * Only the computed scans are released, the source file is not disposed.
+   * </p>
+   */
+  @Override
+  public synchronized void dispose() {
+    cache.clear();
+    sourceScans = null;
+    remainingCount = 0;
+    indexedSourceScans = 0;
+    scanIndex = null;
+    disposed = true;
+  }
+
+  private synchronized List<MsScan> getSourceScans() {
+    if (disposed)
+      throw new IllegalStateException("The raw data file has been disposed");
+    if (sourceScans == null)
+      sourceScans = source.getScans();
+    return sourceScans;
+  }
+
+  /**
+   * Returns the processed scan at the given source index, or null if it was dropped.
+   */
+  private MsScan getProcessedScan(int sourceIndex) {
+    MsScan scan;
+    synchronized (this) {
+      scan = cache.get(sourceIndex);
+      if (scan != null) {
+        indexProcessedScan(sourceIndex, true);
+        return scan;
+      }
+      scan = getSourceScans().get(sourceIndex);
+    }
+
+    synchronized (stageLock) {
+      for (Function<MsScan, MsScan> stage : stages) {
+        if (scan == null)
+          break;
+        scan = stage.apply(scan);
+      }
+    }
+
+    synchronized (this) {
+      if (scan != null && cacheSize > 0 && !disposed)
+        cache.put(sourceIndex, scan);
+      indexProcessedScan(sourceIndex, scan != null);
+    }
+    return scan;
+  }
+
+  /**
+   * Records whether the scan at the given source index remains, if it is the next source scan to
+   * index. Scans processed out of order are indexed again when their turn comes.
+   */
+  private void indexProcessedScan(int sourceIndex, boolean remains) {
+    if (disposed || sourceIndex != indexedSourceScans)
+      return;
+    if (remains) {
+      if (remainingCount == remainingScans.length)
+        remainingScans = Arrays.copyOf(remainingScans, remainingCount * 2);
+      remainingScans[remainingCount++] = sourceIndex;
+    }
+    indexedSourceScans++;
+  }
+
+  /**
+   * Returns the processed scan at the given index of the remaining scans, processing the source
+   * scans which are not indexed yet up to this one.
+   */
+  private MsScan getRemainingScan(int index) {
+    if (index < 0)
+      throw new IndexOutOfBoundsException("Index: " + index);
+    while (true) {
+      int sourceIndex;
+      synchronized (this) {
+        if (index < remainingCount) {
+          sourceIndex = remainingScans[index];
+        } else {
+          if (indexedSourceScans == getSourceScans().size())
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + remainingCount);
+          sourceIndex = -1;
+        }
+      }
+      if (sourceIndex >= 0)
+        return getProcessedScan(sourceIndex);
+
+      // Process the next source scan, which is the requested one if it remains
+      int nextSourceIndex;
+      synchronized (this) {
+        nextSourceIndex = indexedSourceScans;
+      }
+      MsScan scan = getProcessedScan(nextSourceIndex);
+      synchronized (this) {
+        if (scan != null && index < remainingCount && remainingScans[index] == nextSourceIndex)
+          return scan;
+      }
+    }
+  }
+
+  /**
+   * Returns the number of remaining scans, processing the source scans which are not indexed yet.
+   */
+  private int getRemainingCount() {
+    while (true) {
+      int nextSourceIndex;
+      synchronized (this) {
+        if (indexedSourceScans == getSourceScans().size())
+          return remainingCount;
+        nextSourceIndex = indexedSourceScans;
+      }
+      getProcessedScan(nextSourceIndex);
+    }
+  }
+
+  /**
+   * A remaining scan of the index, with the header fields of its source scan. The data points come
+   * from the processed scan, which is computed again when it is not cached.
+   */
+  private class IndexedScan implements MsScan {
+
+    private final int sourceIndex;
+    private final @Nonnull MsScan sourceScan;
+
+    IndexedScan(int sourceIndex, @Nonnull MsScan sourceScan) {
+      this.sourceIndex = sourceIndex;
+      this.sourceScan = sourceScan;
+    }
+
+    private MsScan getProcessedScan() {
+      MsScan scan = LazyRawDataFile.this.getProcessedScan(sourceIndex);
+      if (scan == null)
+        throw new IllegalStateException(
+            "Scan #" + sourceScan.getScanNumber() + " was dropped when processed again");
+      return scan;
+    }
+
+    @Override
+    public RawDataFile getRawDataFile() {
+      return LazyRawDataFile.this;
+    }
+
+    @Override
+    public Integer getScanNumber() {
+      return sourceScan.getScanNumber();
+    }
+
+    @Override
+    public String getScanDefinition() {
+      return sourceScan.getScanDefinition();
+    }
+
+    @Override
+    public String getMsFunction() {
+      return sourceScan.getMsFunction();
+    }
+
+    @Override
+    public Integer getMsLevel() {
+      return sourceScan.getMsLevel();
+    }
+
+    @Override
+    public MsScanType getMsScanType() {
+      return sourceScan.getMsScanType();
+    }
+
+    @Override
+    public Float getRetentionTime() {
+      return sourceScan.getRetentionTime();
+    }
+
+    @Override
+    public Range<Double> getScanningRange() {
+      return sourceScan.getScanningRange();
+    }
+
+    @Override
+    public PolarityType getPolarity() {
+      return sourceScan.getPolarity();
+    }
+
+    @Override
+    public ActivationInfo getSourceInducedFragmentation() {
+      return sourceScan.getSourceInducedFragmentation();
+    }
+
+    @Override
+    public List<IsolationInfo> getIsolations() {
+      return sourceScan.getIsolations();
+    }
+
+    @Override
+    public MsSpectrumType getSpectrumType() {
+      return getProcessedScan().getSpectrumType();
+    }
+
+    @Override
+    public Integer getNumberOfDataPoints() {
+      return getProcessedScan().getNumberOfDataPoints();
+    }
+
+    @Override
+    public double[] getMzValues(double[] array) {
+      return getProcessedScan().getMzValues(array);
+    }
+
+    @Override
+    public float[] getIntensityValues(float[] array) {
+      return getProcessedScan().getIntensityValues(array);
+    }
+
+    @Override
+    public Float getTIC() {
+      return getProcessedScan().getTIC();
+    }
+
+    @Override
+    public Range<Double> getMzRange() {
+      return getProcessedScan().getMzRange();
+    }
+
+    @Override
+    public MzTolerance getMzTolerance() {
+      return getProcessedScan().getMzTolerance();
+    }
+
+  }
+
+  /**
+   * Unmodifiable list of the processed scans. Iterating processes the scans in order without
+   * finding out the size of the list first.
+   */
+  private class LazyScanList extends AbstractList<MsScan> {
+
+    @Override
+    public MsScan get(int index) {
+      return getRemainingScan(index);
+    }
+
+    @Override
+    public int size() {
+      return getRemainingCount();
+    }
+
+    @Override
+    public boolean isEmpty() {
+      return !iterator().hasNext();
+    }
+
+    @Override
+    public Iterator<MsScan> iterator() {
+      final int sourceSize = getSourceScans().size();
+      return new Iterator<MsScan>() {
+
+        private int sourceIndex = 0;
+        private MsScan next;
+
+        @Override
+        public boolean hasNext() {
+          while (next == null && sourceIndex < sourceSize)
+            next = getProcessedScan(sourceIndex++);
+          return next != null;
+        }
+
+        @Override
+        public MsScan next() {
+          if (!hasNext())
+            throw new NoSuchElementException();
+          MsScan scan = next;
+          next = null;
+          return scan;
+        }
+
+      };
+    }
+
+  }
+
+}
@@ -0,0 +1,600 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+package io.github.msdk.datamodel;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Range;
+
+import io.github.msdk.MSDKException;
+import io.github.msdk.MSDKRuntimeException;
+import io.github.msdk.util.MsSpectrumUtil;
+import io.github.msdk.util.tolerances.MzTolerance;
+
+/**
+ * <p>
+ * Implementation of the RawDataFile interface which keeps the data points of its scans outside of
+ * the Java heap. The m/z values and the intensity values of all scans are stored in two columns,
+ * each in a memory-mapped temporary file, and an offset table gives the first data point of each
+ * scan. The scans are views which read their data points straight from the mapping, only their
+ * meta-data is kept on the heap.
+ * </p>
+ *
+ * <p>
+ * Scans are added by copying them with {@link #addScan(MsScan)}, so an importer only needs to keep
+ * the scan it is currently reading. The temporary files are deleted by {@link #dispose()}.
+ * </p>
+ */
+public class MappedRawDataFile implements RawDataFile {
+
+  private @Nonnull String rawDataFileName;
+  private final @Nonnull Optional<File> originalRawDataFile;
+  private final @Nonnull FileType rawDataFileType;
+
+  private final @Nonnull MappedColumn mzColumn;
+  private final @Nonnull MappedColumn intensityColumn;
+
+  private final @Nonnull ArrayList<MsScan> scans = new ArrayList<>();
+  private final @Nonnull ArrayList<Chromatogram> chromatograms = new ArrayList<>();
+
+  // Caches, reset whenever a scan is added
+  private volatile List<MsScan> scanList;
+  private volatile ScanIndex scanIndex;
+
+  /** Index of the first data point of each scan, followed by the total number of data points */
+  private long scanOffsets[] = new long[1025];
+
+  private double mzBuffer[] = new double[10000];
+  private float intensityBuffer[] = new float[10000];
+
+  private volatile boolean disposed = false;
+
+  /**
+   * <p>
+   * Constructor for MappedRawDataFile. The temporary files are created in the default temporary
+   * directory.
+   * </p>
+   *
+   * @param rawDataFileName a {@link java.lang.String} object.
+   * @param originalRawDataFile a {@link java.util.Optional} object.
+   * @param rawDataFileType a {@link io.github.msdk.datamodel.FileType} object.
+   * @throws io.github.msdk.MSDKException if the temporary files cannot be created
+   */
+  public MappedRawDataFile(@Nonnull String rawDataFileName,
+      @Nonnull Optional<File> originalRawDataFile, @Nonnull FileType rawDataFileType)
+      throws MSDKException {
+    this(rawDataFileName, originalRawDataFile, rawDataFileType, null);
+  }
+
+  /**
+   * <p>
+   * Constructor for MappedRawDataFile.
+   * </p>
+   *
+   * @param rawDataFileName a {@link java.lang.String} object.
+   * @param originalRawDataFile a {@link java.util.Optional} object.
+   * @param rawDataFileType a {@link io.github.msdk.datamodel.FileType} object.
+   * @param directory the directory of the temporary files, or null to use the default temporary
+   *        directory
+   * @throws io.github.msdk.MSDKException if the temporary files cannot be created
+   */
+  public MappedRawDataFile(@Nonnull String rawDataFileName,
+      @Nonnull Optional<File> originalRawDataFile, @Nonnull FileType rawDataFileType,
+      @Nullable File directory) throws MSDKException {
+    this(rawDataFileName, originalRawDataFile, rawDataFileType, directory,
+        MappedColumn.DEFAULT_SEGMENT_SIZE);
+  }
+
+  MappedRawDataFile(@Nonnull String rawDataFileName, @Nonnull Optional<File> originalRawDataFile,
+      @Nonnull FileType rawDataFileType, @Nullable File directory, int segmentSize)
+      throws MSDKException {
+    Preconditions.checkNotNull(rawDataFileName);
+    Preconditions.checkArgument(segmentSize > 0 && segmentSize % Double.BYTES == 0,
+        "segmentSize must be a positive multiple of 8");
+    Preconditions.checkNotNull(rawDataFileType);
+    this.rawDataFileName = rawDataFileName;
+    this.originalRawDataFile = originalRawDataFile;
+    this.rawDataFileType = rawDataFileType;
+    try {
+      this.mzColumn = new MappedColumn(File.createTempFile("msdk", ".mz", directory), segmentSize);
+    } catch (IOException e) {
+      throw new MSDKException(e);
+    }
+    try {
+      this.intensityColumn =
+          new MappedColumn(File.createTempFile("msdk", ".intensity", directory), segmentSize);
+    } catch (IOException e) {
+      mzColumn.delete();
+      throw new MSDKException(e);
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nonnull
+  public String getName() {
+    return rawDataFileName;
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>rawDataFileName</code>.
+   * </p>
+   *
+   * @param name a {@link java.lang.String} object.
+   */
+  public void setName(@Nonnull String name) {
+    Preconditions.checkNotNull(name);
+    this.rawDataFileName = name;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nonnull
+  public Optional<File> getOriginalFile() {
+    return originalRawDataFile;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nonnull
+  public String getOriginalFilename() {
+    if (originalRawDataFile.isPresent())
+      return originalRawDataFile.get().getName();
+    return "Unknown";
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nonnull
+  public FileType getRawDataFileType() {
+    return rawDataFileType;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nonnull
+  public List<String> getMsFunctions() {
+    ArrayList<String> msFunctionList = new ArrayList<>();
+    synchronized (scans) {
+      for (MsScan scan : scans) {
+        String f = scan.getMsFunction();
+        if ((f != null) && (!msFunctionList.contains(f)))
+          msFunctionList.add(f);
+      }
+    }
+    return msFunctionList;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nonnull
+  public List<MsScan> getScans() {
+    List<MsScan> result = scanList;
+    if (result == null) {
+      synchronized (scans) {
+        result = ImmutableList.copyOf(scans);
+        scanList = result;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>
+   * The index is cached until a scan is added.
+   * </p>
+   */
+  @Override
+  @Nonnull
+  public ScanIndex getScanIndex() {
+    ScanIndex result = scanIndex;
+    if (result == null) {
+      synchronized (scans) {
+        result = new ScanIndex(getScans());
+        scanIndex = result;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * <p>
+   * Copies the data points and the meta-data of a scan into this file. The given scan is not
+   * referenced afterwards.
+   * </p>
+   *
+   * @param scan the {@link io.github.msdk.datamodel.MsScan} to copy
+   * @return the stored scan, whose data points are read from the mapped files
+   */
+  @Nonnull
+  public MsScan addScan(@Nonnull MsScan scan) {
+    Preconditions.checkNotNull(scan);
+    checkNotDisposed();
+    synchronized (scans) {
+      final int numOfDataPoints = scan.getNumberOfDataPoints();
+      mzBuffer = scan.getMzValues(mzBuffer);
+      intensityBuffer = scan.getIntensityValues(intensityBuffer);
+
+      final int index = scans.size();
+      final long offset = scanOffsets[index];
+      mzColumn.putDoubles(offset, mzBuffer, numOfDataPoints);
+      intensityColumn.putFloats(offset, intensityBuffer, numOfDataPoints);
+
+      if (index + 2 > scanOffsets.length)
+        scanOffsets = Arrays.copyOf(scanOffsets, scanOffsets.length * 2);
+      scanOffsets[index + 1] = offset + numOfDataPoints;
+
+      MappedMsScan newScan = new MappedMsScan(scan, offset, numOfDataPoints,
+          MsSpectrumUtil.getMzRange(mzBuffer, numOfDataPoints),
+          MsSpectrumUtil.getTIC(intensityBuffer, numOfDataPoints));
+      scans.add(newScan);
+      scanList = null;
+      scanIndex = null;
+      return newScan;
+    }
+  }
+
+  /**
+   * <p>
+   * Returns the total number of data points stored in this file.
+   * </p>
+   *
+   * @return a long.
+   */
+  public long getNumberOfDataPoints() {
+    synchronized (scans) {
+      return scanOffsets[scans.size()];
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nonnull
+  public List<Chromatogram> getChromatograms() {
+    synchronized (chromatograms) {
+      return ImmutableList.copyOf(chromatograms);
+    }
+  }
+
+  /**
+   * <p>
+   * addChromatogram.
+   * </p>
+   *
+   * @param chromatogram a {@link io.github.msdk.datamodel.Chromatogram} object.
+   */
+  public void addChromatogram(@Nonnull Chromatogram chromatogram) {
+    Preconditions.checkNotNull(chromatogram);
+    synchronized (chromatograms) {
+      chromatograms.add(chromatogram);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>
+   * Deletes the temporary files.
+   * </p>
+   */
+  @Override
+  public void dispose() {
+    synchronized (scans) {
+      if (disposed)
+        return;
+      disposed = true;
+      mzColumn.delete();
+      intensityColumn.delete();
+    }
+  }
+
+  private void checkNotDisposed() {
+    if (disposed)
+      throw new IllegalStateException("The raw data file has been disposed");
+  }
+
+  /**
+   * A column of primitive values in a temporary file. The file is mapped in segments, which are
+   * created as the column grows. A segment size divisible by 8 ensures that no value spans two
+   * segments. Buffer positions are set through the Buffer class, so that the code also runs on
+   * Java 8.
+   */
+  private static class MappedColumn {
+
+    static final int DEFAULT_SEGMENT_SIZE = 1 << 27;
+
+    private final File file;
+    private final int segmentSize;
+    private final RandomAccessFile randomAccessFile;
+    private final FileChannel channel;
+    private ByteBuffer segments[] = new ByteBuffer[16];
+
+    MappedColumn(File file, int segmentSize) throws IOException {
+      this.file = file;
+      this.segmentSize = segmentSize;
+      file.deleteOnExit();
+      this.randomAccessFile = new RandomAccessFile(file, "rw");
+      this.channel = randomAccessFile.getChannel();
+    }
+
+    /**
+     * Returns an independent buffer for the given segment, positioned at its start.
+     */
+    private ByteBuffer getSegment(int segmentIndex) {
+      ByteBuffer segment;
+      synchronized (this) {
+        if (segmentIndex >= segments.length)
+          segments = Arrays.copyOf(segments, Math.max(segmentIndex + 1, segments.length * 2));
+        segment = segments[segmentIndex];
+        if (segment == null) {
+          try {
+            segment = channel.map(FileChannel.MapMode.READ_WRITE,
+                (long) segmentIndex * segmentSize, segmentSize);
+          } catch (IOException e) {
+            throw new MSDKRuntimeException(e);
+          }
+          segments[segmentIndex] = segment;
+        }
+      }
+      return segment.duplicate().order(ByteOrder.nativeOrder());
+    }
+
+    void putDoubles(long index, double values[], int size) {
+      long position = index * Double.BYTES;
+      int done = 0;
+      while (done < size) {
+        ByteBuffer segment = getSegment((int) (position / segmentSize));
+        ((Buffer) segment).position((int) (position % segmentSize));
+        int count = Math.min(size - done, segment.remaining() / Double.BYTES);
+        segment.asDoubleBuffer().put(values, done, count);
+        done += count;
+        position += (long) count * Double.BYTES;
+      }
+    }
+
+    void getDoubles(long index, double values[], int size) {
+      long position = index * Double.BYTES;
+      int done = 0;
+      while (done < size) {
+        ByteBuffer segment = getSegment((int) (position / segmentSize));
+        ((Buffer) segment).position((int) (position % segmentSize));
+        int count = Math.min(size - done, segment.remaining() / Double.BYTES);
+        segment.asDoubleBuffer().get(values, done, count);
+        done += count;
+        position += (long) count * Double.BYTES;
+      }
+    }
+
+    void putFloats(long index, float values[], int size) {
+      long position = index * Float.BYTES;
+      int done = 0;
+      while (done < size) {
+        ByteBuffer segment = getSegment((int) (position / segmentSize));
+        ((Buffer) segment).position((int) (position % segmentSize));
+        int count = Math.min(size - done, segment.remaining() / Float.BYTES);
+        segment.asFloatBuffer().put(values, done, count);
+        done += count;
+        position += (long) count * Float.BYTES;
+      }
+    }
+
+    void getFloats(long index, float values[], int size) {
+      long position = index * Float.BYTES;
+      int done = 0;
+      while (done < size) {
+        ByteBuffer segment = getSegment((int) (position / segmentSize));
+        ((Buffer) segment).position((int) (position % segmentSize));
+        int count = Math.min(size - done, segment.remaining() / Float.BYTES);
+        segment.asFloatBuffer().get(values, done, count);
+        done += count;
+        position += (long) count * Float.BYTES;
+      }
+    }
+
+    /**
+     * The mapped segments stay valid until they are garbage collected, so the file is only
+     * deleted here. On systems which do not allow deleting a mapped file, it is deleted on exit.
+     */
+    synchronized void delete() {
+      segments = new ByteBuffer[0];
+      try {
+        randomAccessFile.close();
+      } catch (IOException e) {
+        // Nothing to do, the file is deleted anyway
+      }
+      file.delete();
+    }
+
+  }
+
+  /**
+   * A scan whose data points are stored in the mapped columns.
+   */
+  private class MappedMsScan implements MsScan {
+
+    private final long dataOffset;
+    private final int numOfDataPoints;
+    private final @Nullable Range<Double> mzRange;
+    private final @Nonnull Float totalIonCurrent;
+
+    private final @Nonnull MsSpectrumType spectrumType;
+    private final @Nullable MzTolerance mzTolerance;
+    private final @Nonnull Integer scanNumber;
+    private final @Nullable String scanDefinition;
+    private final @Nullable String msFunction;
+    private final @Nonnull Integer msLevel;
+    private final @Nonnull MsScanType msScanType;
+    private final @Nullable Float rt;
+    private final @Nullable Range<Double> scanningRange;
+    private final @Nonnull PolarityType polarity;
+    private final @Nullable ActivationInfo sourceInducedFragInfo;
+    private final @Nonnull List<IsolationInfo> isolations;
+
+    MappedMsScan(MsScan scan, long dataOffset, int numOfDataPoints, Range<Double> mzRange,
+        Float totalIonCurrent) {
+      this.dataOffset = dataOffset;
+      this.numOfDataPoints = numOfDataPoints;
+      this.mzRange = mzRange;
+      this.totalIonCurrent = totalIonCurrent;
+      this.spectrumType = scan.getSpectrumType();
+      this.mzTolerance = scan.getMzTolerance();
+      this.scanNumber = scan.getScanNumber();
+      this.scanDefinition = scan.getScanDefinition();
+      this.msFunction = scan.getMsFunction();
+      this.msLevel = scan.getMsLevel();
+      this.msScanType = scan.getMsScanType();
+      this.rt = scan.getRetentionTime();
+      this.scanningRange = scan.getScanningRange();
+      this.polarity = scan.getPolarity();
+      this.sourceInducedFragInfo = scan.getSourceInducedFragmentation();
+      this.isolations = ImmutableList.copyOf(scan.getIsolations());
+    }
+
+    @Override
+    @Nonnull
+    public MsSpectrumType getSpectrumType() {
+      return spectrumType;
+    }
+
+    @Override
+    @Nonnull
+    public Integer getNumberOfDataPoints() {
+      return numOfDataPoints;
+    }
+
+    @Override
+    @Nonnull
+    public double[] getMzValues(@Nullable double array[]) {
+      checkNotDisposed();
+      if ((array == null) || (array.length < numOfDataPoints))
+        array = new double[numOfDataPoints];
+      mzColumn.getDoubles(dataOffset, array, numOfDataPoints);
+      return array;
+    }
+
+    @Override
+    @Nonnull
+    public float[] getIntensityValues(@Nullable float array[]) {
+      checkNotDisposed();
+      if ((array == null) || (array.length < numOfDataPoints))
+        array = new float[numOfDataPoints];
+      intensityColumn.getFloats(dataOffset, array, numOfDataPoints);
+      return array;
+    }
+
+    @Override
+    @Nonnull
+    public Float getTIC() {
+      return totalIonCurrent;
+    }
+
+    @Override
+    @Nullable
+    public Range<Double> getMzRange() {
+      return mzRange;
+    }
+
+    @Override
+    @Nullable
+    public MzTolerance getMzTolerance() {
+      return mzTolerance;
+    }
+
+    @Override
+    @Nonnull
+    public RawDataFile getRawDataFile() {
+      return MappedRawDataFile.this;
+    }
+
+    @Override
+    @Nonnull
+    public Integer getScanNumber() {
+      return scanNumber;
+    }
+
+    @Override
+    @Nullable
+    public String getScanDefinition() {
+      return scanDefinition;
+    }
+
+    @Override
+    @Nullable
+    public String getMsFunction() {
+      return msFunction;
+    }
+
+    @Override
+    @Nonnull
+    public Integer getMsLevel() {
+      return msLevel;
+    }
+
+    @Override
+    @Nonnull
+    public MsScanType getMsScanType() {
+      return msScanType;
+    }
+
+    @Override
+    @Nullable
+    public Float getRetentionTime() {
+      return rt;
+    }
+
+    @Override
+    @Nullable
+    public Range<Double> getScanningRange() {
+      return scanningRange;
+    }
+
+    @Override
+    @Nonnull
+    public PolarityType getPolarity() {
+      return polarity;
+    }
+
+    @Override
+    @Nullable
+    public ActivationInfo getSourceInducedFragmentation() {
+      return sourceInducedFragInfo;
+    }
+
+    @Override
+    @Nonnull
+    public List<IsolationInfo> getIsolations() {
+      return isolations;
+    }
+
+  }
+
+}
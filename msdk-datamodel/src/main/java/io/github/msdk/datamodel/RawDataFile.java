@@ -78,6 +78,18 @@ public interface RawDataFile {
   @Nonnull
   List<MsScan> getScans();
 
+  /**
+   * Returns an index of all scans, for looking up scans by retention time, scan number, MS level
+   * or MS function. Implementations should cache the index until their scans change. The default
+   * implementation builds a new index on each call.
+   *
+   * @return An index of all scans.
+   */
+  @Nonnull
+  default ScanIndex getScanIndex() {
+    return new ScanIndex(getScans());
+  }
+
   /**
    * Returns an immutable list of all chromatograms. The list can be safely iterated over, as it
    * cannot be modified by another thread.
@@ -0,0 +1,339 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+package io.github.msdk.datamodel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.BoundType;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Range;
+
+/**
+ * <p>
+ * An immutable index of the scans of a raw data file. The retention times and scan numbers of the
+ * scans are kept in sorted primitive arrays, so that scans can be looked up by retention time
+ * range or by scan number with a binary search. The scans of each MS level and of each MS function
+ * are indexed separately on first request.
+ * </p>
+ *
+ * <p>
+ * Raw data files cache their index, see {@link io.github.msdk.datamodel.RawDataFile#getScanIndex()
+ * RawDataFile.getScanIndex()}.
+ * </p>
+ */
+public class ScanIndex {
+
+  private final @Nonnull List<MsScan> scans;
+
+  /** Retention times in the order of the scans, NaN for scans without a retention time */
+  private final @Nonnull float retentionTimes[];
+
+  /** Positions of the scans which have a retention time, ordered by retention time */
+  private final @Nonnull int rtOrder[];
+  private final @Nonnull float sortedRetentionTimes[];
+  private final boolean sortedByRetentionTime;
+
+  /** Positions of the scans ordered by scan number */
+  private final @Nonnull int scanNumberOrder[];
+  private final @Nonnull int sortedScanNumbers[];
+
+  private final @Nonnull ConcurrentMap<Integer, ScanIndex> msLevelIndices =
+      new ConcurrentHashMap<>();
+  private final @Nonnull ConcurrentMap<String, ScanIndex> msFunctionIndices =
+      new ConcurrentHashMap<>();
+
+  /**
+   * <p>
+   * Constructor for ScanIndex.
+   * </p>
+   *
+   * @param scans the {@link io.github.msdk.datamodel.MsScan}s to index. The list is copied.
+   */
+  public ScanIndex(@Nonnull List<MsScan> scans) {
+    Preconditions.checkNotNull(scans);
+    this.scans = ImmutableList.copyOf(scans);
+    final int size = this.scans.size();
+
+    retentionTimes = new float[size];
+    int rtCount = 0;
+    boolean rtSorted = true;
+    for (int i = 0; i < size; i++) {
+      Float rt = this.scans.get(i).getRetentionTime();
+      retentionTimes[i] = rt == null ? Float.NaN : rt;
+      if (rt == null)
+        rtSorted = false;
+      else {
+        if (rtCount > 0 && rt < retentionTimes[i - 1])
+          rtSorted = false;
+        rtCount++;
+      }
+    }
+    sortedByRetentionTime = rtSorted;
+    if (rtSorted) {
+      rtOrder = IntStream.range(0, size).toArray();
+      sortedRetentionTimes = retentionTimes;
+    } else {
+      rtOrder = IntStream.range(0, size).filter(i -> !Float.isNaN(retentionTimes[i])).boxed()
+          .sorted((i, j) -> Float.compare(retentionTimes[i], retentionTimes[j]))
+          .mapToInt(Integer::intValue).toArray();
+      sortedRetentionTimes = new float[rtOrder.length];
+      for (int i = 0; i < rtOrder.length; i++)
+        sortedRetentionTimes[i] = retentionTimes[rtOrder[i]];
+    }
+
+    final int scanNumbers[] = new int[size];
+    boolean scanNumbersSorted = true;
+    for (int i = 0; i < size; i++) {
+      scanNumbers[i] = this.scans.get(i).getScanNumber();
+      if (i > 0 && scanNumbers[i] < scanNumbers[i - 1])
+        scanNumbersSorted = false;
+    }
+    if (scanNumbersSorted) {
+      scanNumberOrder = IntStream.range(0, size).toArray();
+      sortedScanNumbers = scanNumbers;
+    } else {
+      scanNumberOrder = IntStream.range(0, size).boxed()
+          .sorted((i, j) -> Integer.compare(scanNumbers[i], scanNumbers[j]))
+          .mapToInt(Integer::intValue).toArray();
+      sortedScanNumbers = new int[size];
+      for (int i = 0; i < size; i++)
+        sortedScanNumbers[i] = scanNumbers[scanNumberOrder[i]];
+    }
+  }
+
+  /**
+   * <p>
+   * Returns an immutable list of the indexed scans, in their original order.
+   * </p>
+   *
+   * @return a {@link java.util.List} of {@link io.github.msdk.datamodel.MsScan}s.
+   */
+  @Nonnull
+  public List<MsScan> getScans() {
+    return scans;
+  }
+
+  /**
+   * <p>
+   * Returns the number of indexed scans.
+   * </p>
+   *
+   * @return an int.
+   */
+  public int size() {
+    return scans.size();
+  }
+
+  /**
+   * <p>
+   * Returns the retention time of the scan at the given position of {@link #getScans()}.
+   * </p>
+   *
+   * @param index the position of the scan
+   * @return the retention time, or NaN if the scan has none
+   */
+  public float getRetentionTime(int index) {
+    return retentionTimes[index];
+  }
+
+  /**
+   * <p>
+   * Returns the retention times of all scans, in the order of {@link #getScans()}. Scans without a
+   * retention time have the value NaN.
+   * </p>
+   *
+   * @return a new array of float.
+   */
+  @Nonnull
+  public float[] getRetentionTimes() {
+    return retentionTimes.clone();
+  }
+
+  /**
+   * <p>
+   * Returns true if all scans have a retention time, and the retention times are non-decreasing.
+   * In that case the positions returned by {@link #getFirstScanIndex(float)} and
+   * {@link #getEndScanIndex(float)} are positions in {@link #getScans()}.
+   * </p>
+   *
+   * @return a boolean.
+   */
+  public boolean isSortedByRetentionTime() {
+    return sortedByRetentionTime;
+  }
+
+  /**
+   * <p>
+   * Returns the position of the first scan whose retention time is at least
+   * <code>lowerRt</code>, among the scans with a retention time ordered by retention time.
+   * </p>
+   *
+   * @param lowerRt a float.
+   * @return an int.
+   */
+  public int getFirstScanIndex(float lowerRt) {
+    return search(sortedRetentionTimes, lowerRt, false);
+  }
+
+  /**
+   * <p>
+   * Returns the position after the last scan whose retention time is at most
+   * <code>upperRt</code>, among the scans with a retention time ordered by retention time.
+   * </p>
+   *
+   * @param upperRt a float.
+   * @return an int.
+   */
+  public int getEndScanIndex(float upperRt) {
+    return search(sortedRetentionTimes, upperRt, true);
+  }
+
+  /**
+   * <p>
+   * Returns the scans whose retention time is within the given bounds, both inclusive, in their
+   * original order.
+   * </p>
+   *
+   * @param lowerRt a float.
+   * @param upperRt a float.
+   * @return an immutable {@link java.util.List} of {@link io.github.msdk.datamodel.MsScan}s.
+   */
+  @Nonnull
+  public List<MsScan> getScans(float lowerRt, float upperRt) {
+    return getScansInRtOrder(getFirstScanIndex(lowerRt), getEndScanIndex(upperRt));
+  }
+
+  /**
+   * <p>
+   * Returns the scans whose retention time is within the given range, in their original order.
+   * </p>
+   *
+   * @param rtRange a {@link com.google.common.collect.Range} of retention times.
+   * @return an immutable {@link java.util.List} of {@link io.github.msdk.datamodel.MsScan}s.
+   */
+  @Nonnull
+  public List<MsScan> getScans(@Nonnull Range<Float> rtRange) {
+    int from = 0, to = sortedRetentionTimes.length;
+    if (rtRange.hasLowerBound())
+      from = search(sortedRetentionTimes, rtRange.lowerEndpoint(),
+          rtRange.lowerBoundType() == BoundType.OPEN);
+    if (rtRange.hasUpperBound())
+      to = search(sortedRetentionTimes, rtRange.upperEndpoint(),
+          rtRange.upperBoundType() == BoundType.CLOSED);
+    return getScansInRtOrder(from, to);
+  }
+
+  /**
+   * <p>
+   * Returns the scan with the given scan number.
+   * </p>
+   *
+   * @param scanNumber an int.
+   * @return the first {@link io.github.msdk.datamodel.MsScan} with the scan number, or null if
+   *         there is none
+   */
+  @Nullable
+  public MsScan getScan(int scanNumber) {
+    int position = Arrays.binarySearch(sortedScanNumbers, scanNumber);
+    if (position < 0)
+      return null;
+    // Several scans may share the number, return the first one
+    while (position > 0 && sortedScanNumbers[position - 1] == scanNumber)
+      position--;
+    return scans.get(scanNumberOrder[position]);
+  }
+
+  /**
+   * <p>
+   * Returns the index of the scans with the given MS level.
+   * </p>
+   *
+   * @param msLevel an int.
+   * @return a {@link io.github.msdk.datamodel.ScanIndex}.
+   */
+  @Nonnull
+  public ScanIndex getMsLevel(int msLevel) {
+    return msLevelIndices.computeIfAbsent(msLevel,
+        level -> createPartition(scan -> scan.getMsLevel().equals(level)));
+  }
+
+  /**
+   * <p>
+   * Returns the index of the scans with the given MS function.
+   * </p>
+   *
+   * @param msFunction a {@link java.lang.String} object.
+   * @return a {@link io.github.msdk.datamodel.ScanIndex}.
+   */
+  @Nonnull
+  public ScanIndex getMsFunction(@Nonnull String msFunction) {
+    Preconditions.checkNotNull(msFunction);
+    return msFunctionIndices.computeIfAbsent(msFunction,
+        function -> createPartition(scan -> Objects.equals(scan.getMsFunction(), function)));
+  }
+
+  private ScanIndex createPartition(Predicate<MsScan> predicate) {
+    List<MsScan> partition = new ArrayList<>();
+    for (MsScan scan : scans) {
+      if (predicate.test(scan))
+        partition.add(scan);
+    }
+    return new ScanIndex(partition);
+  }
+
+  /**
+   * Returns the scans between the given positions in retention time order, in their original
+   * order.
+   */
+  private List<MsScan> getScansInRtOrder(int from, int to) {
+    if (from >= to)
+      return ImmutableList.of();
+    if (sortedByRetentionTime)
+      return scans.subList(from, to);
+    int positions[] = Arrays.copyOfRange(rtOrder, from, to);
+    Arrays.sort(positions);
+    ImmutableList.Builder<MsScan> result = ImmutableList.builder();
+    for (int position : positions)
+      result.add(scans.get(position));
+    return result.build();
+  }
+
+  /**
+   * Returns the number of values smaller than <code>value</code>, or smaller or equal if
+   * <code>inclusive</code>.
+   */
+  private static int search(float values[], float value, boolean inclusive) {
+    int low = 0, high = values.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (values[mid] < value || (inclusive && values[mid] == value))
+        low = mid + 1;
+      else
+        high = mid;
+    }
+    return low;
+  }
+
+}
@@ -14,20 +14,76 @@
 package io.github.msdk.datamodel;
 
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
 
 import javax.annotation.Nonnull;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.BoundType;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Range;
 
 /**
  * Implementation of the FeatureTable interface.
+ *
+ * <p>
+ * The rows are indexed by their m/z value and retention time, to answer
+ * {@link #getRowsInsideRange(Range, Range)} without checking every row. The index is a grid of m/z
+ * cells of {@value #MZ_CELL_WIDTH} m/z, each cell sorting its rows by retention time: a query only
+ * checks the m/z values of the rows of the cells it overlaps which are within its retention time
+ * range. The index is kept up to date as rows are added and removed, and as features are set on
+ * its {@link io.github.msdk.datamodel.SimpleFeatureTableRow SimpleFeatureTableRow}s. Changed rows
+ * are only re-indexed on the next query, so rows may be filled after they are added to the table.
+ * Rows of other types, or which belong to another table, are not indexed and are checked one by
+ * one.
+ * </p>
+ * <p>
+ * Queries return each matching row once, even if it was added several times to the table, and
+ * skip rows without m/z value or retention time.
+ * </p>
  */
 public class SimpleFeatureTable implements FeatureTable {
 
   private final @Nonnull ArrayList<FeatureTableRow> featureTableRows = new ArrayList<>();
   private final @Nonnull ArrayList<Sample> featureTableSamples = new ArrayList<>();
+  private final @Nonnull Set<Sample> featureTableSampleSet = new HashSet<>();
+
+  // Width of the m/z cells of the index
+  private static final double MZ_CELL_WIDTH = 1.0;
+
+  // Index of the rows by m/z cell, then by RT, guarded by featureTableRows
+  private final @Nonnull Map<FeatureTableRow, IndexedRow> indexedRows = new IdentityHashMap<>();
+  private final @Nonnull TreeMap<Long, TreeMap<Float, List<IndexedRow>>> rowsByCell =
+      new TreeMap<>();
+  private final @Nonnull Set<IndexedRow> changedRows = new LinkedHashSet<>();
+  private final @Nonnull Set<IndexedRow> unindexedRows = new LinkedHashSet<>();
+  private long nextRowOrder = 0;
+
+  /**
+   * The indexed values of a row. The order is used to return query results in the order of the
+   * rows in the table.
+   */
+  private static class IndexedRow {
+    private final @Nonnull FeatureTableRow row;
+    private final long order;
+    private double mz;
+    private float rt;
+    private boolean inIndex = false;
+
+    IndexedRow(@Nonnull FeatureTableRow row, long order) {
+      this.row = row;
+      this.order = order;
+    }
+  }
 
   /** {@inheritDoc} */
   @Override
@@ -38,12 +94,25 @@ public class SimpleFeatureTable implements FeatureTable {
   /**
    * <p>addRow.</p>
    *
+   * <p>
+   * A row added several times is listed several times by {@link #getRows()}, but indexed, and
+   * returned by {@link #getRowsInsideRange(Range, Range)}, only once.
+   * </p>
+   *
    * @param row a {@link io.github.msdk.datamodel.FeatureTableRow} object.
    */
   public void addRow(@Nonnull FeatureTableRow row) {
     Preconditions.checkNotNull(row);
     synchronized (featureTableRows) {
       featureTableRows.add(row);
+      if (indexedRows.containsKey(row))
+        return;
+      IndexedRow indexedRow = new IndexedRow(row, nextRowOrder++);
+      indexedRows.put(row, indexedRow);
+      if (row instanceof SimpleFeatureTableRow && row.getFeatureTable() == this)
+        changedRows.add(indexedRow);
+      else
+        unindexedRows.add(indexedRow);
     }
   }
 
@@ -56,9 +125,174 @@ public class SimpleFeatureTable implements FeatureTable {
     Preconditions.checkNotNull(row);
     synchronized (featureTableRows) {
       featureTableRows.remove(row);
+      if (featureTableRows.contains(row))
+        return;
+      IndexedRow indexedRow = indexedRows.remove(row);
+      if (indexedRow != null) {
+        removeFromIndex(indexedRow);
+        changedRows.remove(indexedRow);
+        unindexedRows.remove(indexedRow);
+      }
+    }
+  }
+
+  /**
+   * <p>
+   * Returns the rows whose retention time is within <code>rtRange</code> and whose m/z value is
+   * within <code>mzRange</code>, in the order of the table.
+   * </p>
+   *
+   * @param rtRange a {@link com.google.common.collect.Range} object.
+   * @param mzRange a {@link com.google.common.collect.Range} object.
+   * @return a {@link java.util.List} object.
+   */
+  public @Nonnull List<FeatureTableRow> getRowsInsideRange(@Nonnull Range<Float> rtRange,
+      @Nonnull Range<Double> mzRange) {
+    Preconditions.checkNotNull(rtRange);
+    Preconditions.checkNotNull(mzRange);
+    synchronized (featureTableRows) {
+      updateIndex();
+
+      NavigableMap<Long, TreeMap<Float, List<IndexedRow>>> cells = rowsByCell;
+      if (mzRange.hasLowerBound())
+        cells = cells.tailMap(getCell(mzRange.lowerEndpoint()), true);
+      if (mzRange.hasUpperBound())
+        cells = cells.headMap(getCell(mzRange.upperEndpoint()), true);
+
+      List<IndexedRow> matchingRows = new ArrayList<>();
+      for (TreeMap<Float, List<IndexedRow>> cell : cells.values()) {
+        NavigableMap<Float, List<IndexedRow>> candidates = cell;
+        if (rtRange.hasLowerBound())
+          candidates = candidates.tailMap(rtRange.lowerEndpoint(),
+              rtRange.lowerBoundType() == BoundType.CLOSED);
+        if (rtRange.hasUpperBound())
+          candidates = candidates.headMap(rtRange.upperEndpoint(),
+              rtRange.upperBoundType() == BoundType.CLOSED);
+        for (List<IndexedRow> rowsWithRT : candidates.values()) {
+          for (IndexedRow indexedRow : rowsWithRT) {
+            if (mzRange.contains(indexedRow.mz))
+              matchingRows.add(indexedRow);
+          }
+        }
+      }
+      for (IndexedRow indexedRow : unindexedRows) {
+        Float rowRT = indexedRow.row.getRT();
+        if (rowRT == null || !rtRange.contains(rowRT))
+          continue;
+        Double rowMz = indexedRow.row.getMz();
+        if (rowMz != null && mzRange.contains(rowMz))
+          matchingRows.add(indexedRow);
+      }
+
+      return toRows(matchingRows);
     }
   }
 
+  /**
+   * <p>
+   * Returns the rows whose retention time and m/z value are within the given closed bounds, in
+   * the order of the table.
+   * </p>
+   *
+   * @param rtLower the lowest retention time.
+   * @param rtUpper the highest retention time.
+   * @param mzLower the lowest m/z value.
+   * @param mzUpper the highest m/z value.
+   * @return a {@link java.util.List} object.
+   */
+  public @Nonnull List<FeatureTableRow> getRowsInsideRange(float rtLower, float rtUpper,
+      double mzLower, double mzUpper) {
+    synchronized (featureTableRows) {
+      updateIndex();
+
+      List<IndexedRow> matchingRows = new ArrayList<>();
+      if (mzLower <= mzUpper && rtLower <= rtUpper) {
+        for (TreeMap<Float, List<IndexedRow>> cell : rowsByCell
+            .subMap(getCell(mzLower), true, getCell(mzUpper), true).values()) {
+          for (List<IndexedRow> rowsWithRT : cell.subMap(rtLower, true, rtUpper, true)
+              .values()) {
+            for (IndexedRow indexedRow : rowsWithRT) {
+              if (indexedRow.mz >= mzLower && indexedRow.mz <= mzUpper)
+                matchingRows.add(indexedRow);
+            }
+          }
+        }
+      }
+      for (IndexedRow indexedRow : unindexedRows) {
+        Float rowRT = indexedRow.row.getRT();
+        if (rowRT == null || rowRT < rtLower || rowRT > rtUpper)
+          continue;
+        Double rowMz = indexedRow.row.getMz();
+        if (rowMz != null && rowMz >= mzLower && rowMz <= mzUpper)
+          matchingRows.add(indexedRow);
+      }
+
+      return toRows(matchingRows);
+    }
+  }
+
+  /**
+   * Called by {@link SimpleFeatureTableRow#setFeature(Sample, Feature)}, after the features of a
+   * row of this table have changed.
+   */
+  void rowChanged(@Nonnull SimpleFeatureTableRow row) {
+    synchronized (featureTableRows) {
+      IndexedRow indexedRow = indexedRows.get(row);
+      if (indexedRow == null || unindexedRows.contains(indexedRow))
+        return;
+      removeFromIndex(indexedRow);
+      changedRows.add(indexedRow);
+    }
+  }
+
+  /**
+   * Indexes the rows which changed since the last query. Rows without features stay in
+   * changedRows, and are not returned by queries.
+   */
+  private void updateIndex() {
+    Iterator<IndexedRow> iterator = changedRows.iterator();
+    while (iterator.hasNext()) {
+      IndexedRow indexedRow = iterator.next();
+      Double mz = indexedRow.row.getMz();
+      Float rt = indexedRow.row.getRT();
+      if (mz == null || rt == null)
+        continue;
+      indexedRow.mz = mz;
+      indexedRow.rt = rt;
+      rowsByCell.computeIfAbsent(getCell(indexedRow.mz), key -> new TreeMap<>())
+          .computeIfAbsent(indexedRow.rt, key -> new ArrayList<>(1)).add(indexedRow);
+      indexedRow.inIndex = true;
+      iterator.remove();
+    }
+  }
+
+  private void removeFromIndex(@Nonnull IndexedRow indexedRow) {
+    if (!indexedRow.inIndex)
+      return;
+    long cellKey = getCell(indexedRow.mz);
+    TreeMap<Float, List<IndexedRow>> cell = rowsByCell.get(cellKey);
+    List<IndexedRow> rowsWithRT = cell.get(indexedRow.rt);
+    rowsWithRT.remove(indexedRow);
+    if (rowsWithRT.isEmpty()) {
+      cell.remove(indexedRow.rt);
+      if (cell.isEmpty())
+        rowsByCell.remove(cellKey);
+    }
+    indexedRow.inIndex = false;
+  }
+
+  private static long getCell(double mz) {
+    return (long) Math.floor(mz / MZ_CELL_WIDTH);
+  }
+
+  private static @Nonnull List<FeatureTableRow> toRows(@Nonnull List<IndexedRow> indexedRows) {
+    indexedRows.sort(Comparator.comparingLong(indexedRow -> indexedRow.order));
+    List<FeatureTableRow> rows = new ArrayList<>(indexedRows.size());
+    for (IndexedRow indexedRow : indexedRows)
+      rows.add(indexedRow.row);
+    return rows;
+  }
+
 
   /** {@inheritDoc} */
   @Override
@@ -74,6 +308,15 @@ public class SimpleFeatureTable implements FeatureTable {
   public @Nonnull void setSamples(List<Sample> samples) {
     this.featureTableSamples.clear();
     this.featureTableSamples.addAll(samples);
+    this.featureTableSampleSet.clear();
+    this.featureTableSampleSet.addAll(samples);
+  }
+
+  /**
+   * Returns true if the table contains the given sample, without copying the list of samples.
+   */
+  boolean containsSample(@Nonnull Sample sample) {
+    return featureTableSampleSet.contains(sample);
   }
 
 
@@ -13,7 +13,7 @@
 
 package io.github.msdk.datamodel;
 
-import java.util.Collection;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -27,6 +27,13 @@ import io.github.msdk.MSDKRuntimeException;
 
 /**
  * Implementation of FeatureTableRow. Backed by a non-thread safe Map.
+ *
+ * <p>
+ * The sums of the m/z values and retention times of the features are kept, so the averages are
+ * updated incrementally when features are added. The values of a feature are read on the first
+ * access to the average after the feature was set, and later changes to them are not reflected
+ * until the feature is set again. Replacing the feature of a sample recalculates the sums.
+ * </p>
  */
 public class SimpleFeatureTableRow implements FeatureTableRow {
 
@@ -34,6 +41,12 @@ public class SimpleFeatureTableRow implements FeatureTableRow {
   private final @Nonnull Map<Sample, Feature> features = new HashMap<>();
   private @Nullable Integer charge;
 
+  // Features in the order they were added. The first mzCount and rtCount of them are included in
+  // mzSum and rtSum.
+  private final @Nonnull List<Feature> addedFeatures = new ArrayList<>();
+  private double mzSum, rtSum;
+  private int mzCount, rtCount;
+
   /**
    * <p>Constructor for SimpleFeatureTableRow.</p>
    *
@@ -53,19 +66,24 @@ public class SimpleFeatureTableRow implements FeatureTableRow {
   /** {@inheritDoc} */
   @Override
   public Double getMz() {
-    Collection<Feature> allFeatures = features.values();
-    double averageMz = allFeatures.stream().mapToDouble(Feature::getMz).average().getAsDouble();
-    return averageMz;
+    synchronized (features) {
+      if (addedFeatures.isEmpty())
+        return null;
+      for (; mzCount < addedFeatures.size(); mzCount++)
+        mzSum += addedFeatures.get(mzCount).getMz();
+      return mzSum / mzCount;
+    }
   }
 
   /** {@inheritDoc} */
   @Override
   public Float getRT() {
     synchronized (features) {
-      Collection<Feature> allFeatures = features.values();
-      float averageRt = (float) allFeatures.stream().mapToDouble(Feature::getRetentionTime)
-          .average().getAsDouble();
-      return averageRt;
+      if (addedFeatures.isEmpty())
+        return null;
+      for (; rtCount < addedFeatures.size(); rtCount++)
+        rtSum += addedFeatures.get(rtCount).getRetentionTime();
+      return (float) (rtSum / rtCount);
     }
   }
 
@@ -111,15 +129,29 @@ public class SimpleFeatureTableRow implements FeatureTableRow {
   public void setFeature(@Nonnull Sample sample, @Nonnull Feature feature) {
     synchronized (features) {
       if (featureTable != null) {
-        List<Sample> allSamples = featureTable.getSamples();
-        if (!allSamples.contains(sample)) {
+        boolean containsSample = featureTable instanceof SimpleFeatureTable
+            ? ((SimpleFeatureTable) featureTable).containsSample(sample)
+            : featureTable.getSamples().contains(sample);
+        if (!containsSample) {
           throw new MSDKRuntimeException(
               "Cannot add feature, because the feature table does not contain sample "
                   + sample.getName());
         }
       }
-      features.put(sample, feature);
+      Feature previousFeature = features.put(sample, feature);
+      if (previousFeature == null) {
+        addedFeatures.add(feature);
+      } else {
+        addedFeatures.clear();
+        addedFeatures.addAll(features.values());
+        mzSum = rtSum = 0.0;
+        mzCount = rtCount = 0;
+      }
     }
+
+    // Outside of the synchronized block, as the table locks its rows before their features
+    if (featureTable instanceof SimpleFeatureTable)
+      ((SimpleFeatureTable) featureTable).rowChanged(this);
   }
 
 
@@ -35,6 +35,10 @@ public class SimpleRawDataFile implements RawDataFile {
   private final @Nonnull ArrayList<MsScan> scans;
   private final @Nonnull ArrayList<Chromatogram> chromatograms;
 
+  // Caches, reset whenever a scan is added or removed
+  private volatile List<MsScan> scanList;
+  private volatile ScanIndex scanIndex;
+
   /**
    * <p>
    * Constructor for SimpleRawDataFile.
@@ -134,7 +138,34 @@ public class SimpleRawDataFile implements RawDataFile {
   /** {@inheritDoc} */
   @Override
   public @Nonnull List<MsScan> getScans() {
-    return ImmutableList.copyOf(scans);
+    List<MsScan> result = scanList;
+    if (result == null) {
+      synchronized (scans) {
+        result = ImmutableList.copyOf(scans);
+        scanList = result;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>
+   * The index is cached until a scan is added or removed.
+   * </p>
+   */
+  @Override
+  @Nonnull
+  public ScanIndex getScanIndex() {
+    ScanIndex result = scanIndex;
+    if (result == null) {
+      synchronized (scans) {
+        result = new ScanIndex(getScans());
+        scanIndex = result;
+      }
+    }
+    return result;
   }
 
   /**
@@ -146,6 +177,8 @@ public class SimpleRawDataFile implements RawDataFile {
     Preconditions.checkNotNull(scan);
     synchronized (scans) {
       scans.add(scan);
+      scanList = null;
+      scanIndex = null;
     }
   }
 
@@ -158,6 +191,8 @@ public class SimpleRawDataFile implements RawDataFile {
     Preconditions.checkNotNull(scan);
     synchronized (scans) {
       scans.remove(scan);
+      scanList = null;
+      scanIndex = null;
     }
   }
 
@@ -21,6 +21,7 @@ import com.google.common.collect.Range;
 
 import io.github.msdk.datamodel.FeatureTable;
 import io.github.msdk.datamodel.FeatureTableRow;
+import io.github.msdk.datamodel.SimpleFeatureTable;
 
 /**
  * <p>
@@ -32,6 +33,11 @@ public class FeatureTableUtil {
   /**
    * <p>getRowsInsideRange.</p>
    *
+   * <p>
+   * The rows of a {@link io.github.msdk.datamodel.SimpleFeatureTable} are looked up in its m/z
+   * index, other tables are searched row by row.
+   * </p>
+   *
    * @param table a {@link io.github.msdk.datamodel.FeatureTable} object.
    * @param rtRange a {@link com.google.common.collect.Range} object.
    * @param mzRange a {@link com.google.common.collect.Range} object.
@@ -39,6 +45,8 @@ public class FeatureTableUtil {
    */
   public static @Nonnull List<FeatureTableRow> getRowsInsideRange(@Nonnull FeatureTable table,
       @Nonnull Range<Float> rtRange, @Nonnull Range<Double> mzRange) {
+    if (table instanceof SimpleFeatureTable)
+      return ((SimpleFeatureTable) table).getRowsInsideRange(rtRange, mzRange);
     List<FeatureTableRow> featureTableRows = table.getRows();
     List<FeatureTableRow> result = new ArrayList<>();
     for (FeatureTableRow row : featureTableRows) {
@@ -49,4 +57,34 @@ public class FeatureTableUtil {
     return result;
   }
 
+  /**
+   * <p>
+   * getRowsInsideRange. Returns the rows whose retention time and m/z value are within the given
+   * closed bounds.
+   * </p>
+   *
+   * @param table a {@link io.github.msdk.datamodel.FeatureTable} object.
+   * @param rtLower the lowest retention time.
+   * @param rtUpper the highest retention time.
+   * @param mzLower the lowest m/z value.
+   * @param mzUpper the highest m/z value.
+   * @return a {@link java.util.List} object.
+   */
+  public static @Nonnull List<FeatureTableRow> getRowsInsideRange(@Nonnull FeatureTable table,
+      float rtLower, float rtUpper, double mzLower, double mzUpper) {
+    if (table instanceof SimpleFeatureTable)
+      return ((SimpleFeatureTable) table).getRowsInsideRange(rtLower, rtUpper, mzLower, mzUpper);
+    List<FeatureTableRow> featureTableRows = table.getRows();
+    List<FeatureTableRow> result = new ArrayList<>();
+    for (FeatureTableRow row : featureTableRows) {
+      Float rowRT = row.getRT();
+      if (rowRT == null || rowRT < rtLower || rowRT > rtUpper)
+        continue;
+      Double rowMz = row.getMz();
+      if (rowMz != null && rowMz >= mzLower && rowMz <= mzUpper)
+        result.add(row);
+    }
+    return result;
+  }
+
 }
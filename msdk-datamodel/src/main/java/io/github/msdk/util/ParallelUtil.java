@@ -0,0 +1,105 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+package io.github.msdk.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import javax.annotation.Nonnull;
+
+import io.github.msdk.MSDKException;
+
+/**
+ * Parallel processing utilities
+ */
+public class ParallelUtil {
+
+  /**
+   * Processes the elements <code>from</code> (inclusive) to <code>to</code> (exclusive) of a
+   * chunk.
+   *
+   * @param <T> the type of the chunk results
+   */
+  @FunctionalInterface
+  public interface ChunkFunction<T> {
+    T apply(int from, int to) throws Exception;
+  }
+
+  /**
+   * <p>
+   * Returns the number of consecutive elements processed together by
+   * {@link #mapChunks(int, int, ChunkFunction) mapChunks()}. There are a few chunks per thread,
+   * so that threads finishing early can take over the remaining ones.
+   * </p>
+   *
+   * @param total the number of elements
+   * @param parallelism the number of threads
+   * @return the chunk size, at least 1
+   */
+  public static int getChunkSize(int total, int parallelism) {
+    return Math.max(1, (total + parallelism * 4 - 1) / (parallelism * 4));
+  }
+
+  /**
+   * <p>
+   * Splits the elements <code>0</code> to <code>total - 1</code> into chunks of consecutive
+   * elements, applies <code>function</code> to each chunk on a pool of <code>parallelism</code>
+   * threads, and returns the results in the order of the chunks. The pool is shut down before
+   * returning.
+   * </p>
+   *
+   * @param total the number of elements
+   * @param parallelism the number of threads
+   * @param function processes a chunk. It is called from several threads at the same time, and
+   *        from the same thread for several chunks, so per-thread state can be kept in a
+   *        {@link java.lang.ThreadLocal}.
+   * @param <T> the type of the chunk results
+   * @return the results of the chunks, in the order of the elements
+   * @throws io.github.msdk.MSDKException if a chunk throws an exception, or if the calling thread
+   *         is interrupted
+   */
+  public static @Nonnull <T> List<T> mapChunks(int total, int parallelism,
+      @Nonnull ChunkFunction<T> function) throws MSDKException {
+    if (parallelism < 1)
+      throw new IllegalArgumentException("parallelism must be positive");
+    final int chunkSize = getChunkSize(total, parallelism);
+
+    final ForkJoinPool pool = new ForkJoinPool(parallelism);
+    try {
+      final List<Future<T>> chunks = new ArrayList<>();
+      for (int from = 0; from < total; from += chunkSize) {
+        final int start = from;
+        final int end = Math.min(from + chunkSize, total);
+        chunks.add(pool.submit(() -> function.apply(start, end)));
+      }
+
+      final List<T> results = new ArrayList<>(chunks.size());
+      for (Future<T> chunk : chunks)
+        results.add(chunk.get());
+      return results;
+
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new MSDKException(e);
+    } catch (ExecutionException e) {
+      throw new MSDKException(e.getCause());
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+}
@@ -13,10 +13,10 @@
 
 package io.github.msdk.util;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import com.google.common.collect.Range;
 
@@ -42,18 +42,7 @@ public class RawDataFileUtil {
    */
   @Nonnull
   static public List<MsScan> getScans(RawDataFile rawDataFile, String msFunction) {
-    ArrayList<MsScan> msScanList = new ArrayList<MsScan>();
-    List<MsScan> scans = rawDataFile.getScans();
-    synchronized (scans) {
-      for (MsScan scan : scans) {
-        String scanMsFunction = scan.getMsFunction();
-        if (scanMsFunction == null)
-          continue;
-        if (scanMsFunction.equals(msFunction))
-          msScanList.add(scan);
-      }
-    }
-    return msScanList;
+    return rawDataFile.getScanIndex().getMsFunction(msFunction).getScans();
   }
 
   /**
@@ -67,18 +56,7 @@ public class RawDataFileUtil {
    */
   @Nonnull
   static public List<MsScan> getScans(RawDataFile rawDataFile, Range<Float> rtRange) {
-    ArrayList<MsScan> msScanList = new ArrayList<MsScan>();
-    List<MsScan> scans = rawDataFile.getScans();
-    synchronized (scans) {
-      for (MsScan scan : scans) {
-        Float scanRT = scan.getRetentionTime();
-        if (scanRT != null) {
-          if (rtRange.contains(scanRT))
-            msScanList.add(scan);
-        }
-      }
-    }
-    return new ArrayList<MsScan>();
+    return rawDataFile.getScanIndex().getScans(rtRange);
   }
 
   /**
@@ -94,19 +72,37 @@ public class RawDataFileUtil {
   @Nonnull
   static public List<MsScan> getScans(RawDataFile rawDataFile, String msFunction,
       Range<Float> rtRange) {
-    ArrayList<MsScan> msScanList = new ArrayList<MsScan>();
-    List<MsScan> scans = rawDataFile.getScans();
-    synchronized (scans) {
-      for (MsScan scan : scans) {
-        Float scanRT = scan.getRetentionTime();
-        String scanMsFunction = scan.getMsFunction();
-        if (scanRT == null || scanMsFunction == null)
-          continue;
-        if (scanMsFunction.equals(msFunction) && rtRange.contains(scanRT))
-          msScanList.add(scan);
-      }
-    }
-    return new ArrayList<MsScan>();
+    return rawDataFile.getScanIndex().getMsFunction(msFunction).getScans(rtRange);
+  }
+
+  /**
+   * <p>
+   * getScans.
+   * </p>
+   *
+   * @param rawDataFile a {@link io.github.msdk.datamodel.RawDataFile} object.
+   * @param msLevel the MS level of the scans
+   * @param rtRange a {@link com.google.common.collect.Range} object.
+   * @return a {@link java.util.List} object.
+   */
+  @Nonnull
+  static public List<MsScan> getScans(RawDataFile rawDataFile, int msLevel,
+      Range<Float> rtRange) {
+    return rawDataFile.getScanIndex().getMsLevel(msLevel).getScans(rtRange);
+  }
+
+  /**
+   * <p>
+   * getScan.
+   * </p>
+   *
+   * @param rawDataFile a {@link io.github.msdk.datamodel.RawDataFile} object.
+   * @param scanNumber the number of the scan
+   * @return the {@link io.github.msdk.datamodel.MsScan}, or null if the file has no such scan
+   */
+  @Nullable
+  static public MsScan getScan(RawDataFile rawDataFile, int scanNumber) {
+    return rawDataFile.getScanIndex().getScan(scanNumber);
   }
 
   /**
@@ -0,0 +1,395 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+package io.github.msdk.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.annotation.Nonnull;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Range;
+
+import io.github.msdk.MSDKException;
+import io.github.msdk.datamodel.ChromatogramType;
+import io.github.msdk.datamodel.MsScan;
+import io.github.msdk.datamodel.ScanIndex;
+import io.github.msdk.datamodel.SimpleChromatogram;
+
+/**
+ * <p>
+ * Extracts many ion chromatograms (XICs) in a single pass over the scans of a raw data file. Each
+ * query is a m/z window and a retention time window. Its chromatogram has one data point for
+ * every scan within the retention time window, holding the highest data point of the scan within
+ * the m/z window, or an intensity of 0 if there is none.
+ * </p>
+ *
+ * <p>
+ * The scans are visited in retention time order. The queries are sorted by the first scan of their
+ * retention time window, and a sweep over the scans keeps the set of queries whose window contains
+ * the current scan. Within a scan, the data points of each active query are found by a binary
+ * search on the m/z values, so each data point is only compared with the queries overlapping it.
+ * Scans whose m/z values are not sorted are scanned linearly instead. The scans may be split into
+ * blocks which are processed on several threads, the parts of each chromatogram are then joined in
+ * retention time order.
+ * </p>
+ *
+ * <p>
+ * The m/z of each chromatogram is the center of its m/z window. If the window is only bounded on
+ * one side, it is that bound, and if the window is unbounded the m/z is not set.
+ * </p>
+ */
+public class XICExtractor {
+
+  private final @Nonnull double lowerMzs[], upperMzs[];
+  private final @Nonnull float lowerRts[], upperRts[];
+
+  /**
+   * <p>
+   * Constructor for XICExtractor. All bounds are inclusive, and the arrays must have the same
+   * length.
+   * </p>
+   *
+   * @param lowerMzs the lower m/z bound of each query
+   * @param upperMzs the upper m/z bound of each query
+   * @param lowerRts the lower retention time bound of each query
+   * @param upperRts the upper retention time bound of each query
+   */
+  public XICExtractor(@Nonnull double lowerMzs[], @Nonnull double upperMzs[],
+      @Nonnull float lowerRts[], @Nonnull float upperRts[]) {
+    Preconditions.checkArgument(lowerMzs.length == upperMzs.length
+        && lowerMzs.length == lowerRts.length && lowerMzs.length == upperRts.length,
+        "All bounds must be given for each query");
+    this.lowerMzs = lowerMzs.clone();
+    this.upperMzs = upperMzs.clone();
+    this.lowerRts = lowerRts.clone();
+    this.upperRts = upperRts.clone();
+  }
+
+  /**
+   * <p>
+   * Constructor for XICExtractor. Unbounded ranges match all m/z values or retention times, and
+   * the bounds of the ranges are treated as inclusive.
+   * </p>
+   *
+   * @param mzRanges the m/z window of each query
+   * @param rtRanges the retention time window of each query
+   */
+  public XICExtractor(@Nonnull List<Range<Double>> mzRanges,
+      @Nonnull List<Range<Float>> rtRanges) {
+    Preconditions.checkArgument(mzRanges.size() == rtRanges.size(),
+        "All bounds must be given for each query");
+    final int queryCount = mzRanges.size();
+    lowerMzs = new double[queryCount];
+    upperMzs = new double[queryCount];
+    lowerRts = new float[queryCount];
+    upperRts = new float[queryCount];
+    for (int i = 0; i < queryCount; i++) {
+      Range<Double> mzRange = mzRanges.get(i);
+      lowerMzs[i] = mzRange.hasLowerBound() ? mzRange.lowerEndpoint() : Double.NEGATIVE_INFINITY;
+      upperMzs[i] = mzRange.hasUpperBound() ? mzRange.upperEndpoint() : Double.POSITIVE_INFINITY;
+      Range<Float> rtRange = rtRanges.get(i);
+      lowerRts[i] = rtRange.hasLowerBound() ? rtRange.lowerEndpoint() : Float.NEGATIVE_INFINITY;
+      upperRts[i] = rtRange.hasUpperBound() ? rtRange.upperEndpoint() : Float.POSITIVE_INFINITY;
+    }
+  }
+
+  /**
+   * <p>
+   * Returns the number of queries.
+   * </p>
+   *
+   * @return an int.
+   */
+  public int getNumberOfQueries() {
+    return lowerMzs.length;
+  }
+
+  /**
+   * <p>
+   * Extracts the chromatograms of all queries on the current thread.
+   * </p>
+   *
+   * @param scanIndex the {@link io.github.msdk.datamodel.ScanIndex} of the scans, typically of one
+   *        MS level. Scans without a retention time are ignored.
+   * @return the chromatograms, in the order of the queries
+   */
+  @Nonnull
+  public List<SimpleChromatogram> extract(@Nonnull ScanIndex scanIndex) {
+    ScanIndex sortedIndex = sortByRetentionTime(scanIndex);
+    QueryWindows windows = new QueryWindows(sortedIndex);
+    ChromatogramBuffer[] buffers = extractBlock(sortedIndex, windows, 0, sortedIndex.size());
+    return createChromatograms(Collections.singletonList(buffers));
+  }
+
+  /**
+   * <p>
+   * Extracts the chromatograms of all queries, processing blocks of scans on
+   * <code>parallelism</code> threads.
+   * </p>
+   *
+   * @param scanIndex the {@link io.github.msdk.datamodel.ScanIndex} of the scans, typically of one
+   *        MS level. Scans without a retention time are ignored.
+   * @param parallelism the number of threads
+   * @return the chromatograms, in the order of the queries
+   * @throws io.github.msdk.MSDKException if the extraction of a block fails
+   */
+  @Nonnull
+  public List<SimpleChromatogram> extract(@Nonnull ScanIndex scanIndex, int parallelism)
+      throws MSDKException {
+    if (parallelism < 1)
+      throw new IllegalArgumentException("parallelism must be positive");
+    if (parallelism == 1)
+      return extract(scanIndex);
+
+    final ScanIndex sortedIndex = sortByRetentionTime(scanIndex);
+    final QueryWindows windows = new QueryWindows(sortedIndex);
+    return createChromatograms(ParallelUtil.mapChunks(sortedIndex.size(), parallelism,
+        (from, to) -> extractBlock(sortedIndex, windows, from, to)));
+  }
+
+  /**
+   * Returns an index of the scans with a retention time, ordered by retention time.
+   */
+  private static ScanIndex sortByRetentionTime(ScanIndex scanIndex) {
+    if (scanIndex.isSortedByRetentionTime())
+      return scanIndex;
+    List<MsScan> sortedScans = scanIndex.getScans().stream()
+        .filter(scan -> scan.getRetentionTime() != null)
+        .sorted(Comparator.comparing(MsScan::getRetentionTime)).collect(Collectors.toList());
+    return new ScanIndex(sortedScans);
+  }
+
+  /**
+   * The range of scans in the retention time window of each query, and the queries ordered by the
+   * first scan of their window.
+   */
+  private class QueryWindows {
+
+    final int firstScans[], endScans[];
+    final int queryOrder[];
+
+    QueryWindows(ScanIndex sortedIndex) {
+      final int queryCount = lowerMzs.length;
+      firstScans = new int[queryCount];
+      endScans = new int[queryCount];
+      Integer order[] = new Integer[queryCount];
+      for (int i = 0; i < queryCount; i++) {
+        firstScans[i] = sortedIndex.getFirstScanIndex(lowerRts[i]);
+        endScans[i] = sortedIndex.getEndScanIndex(upperRts[i]);
+        order[i] = i;
+      }
+      Arrays.sort(order, Comparator.comparingInt(i -> firstScans[i]));
+      queryOrder = new int[queryCount];
+      for (int i = 0; i < queryCount; i++)
+        queryOrder[i] = order[i];
+    }
+
+  }
+
+  /**
+   * Extracts the data points of the scans from <code>from</code> to <code>to</code> (exclusive).
+   * Queries without scans in the block have no buffer.
+   */
+  private ChromatogramBuffer[] extractBlock(ScanIndex sortedIndex, QueryWindows windows, int from,
+      int to) {
+    final int queryCount = lowerMzs.length;
+    final ChromatogramBuffer buffers[] = new ChromatogramBuffer[queryCount];
+    final int firstScans[] = windows.firstScans, endScans[] = windows.endScans;
+    final int queryOrder[] = windows.queryOrder;
+    final int activeQueries[] = new int[queryCount];
+    int activeCount = 0, nextQuery = 0;
+
+    double mzBuffer[] = new double[10000];
+    float intensityBuffer[] = new float[10000];
+
+    for (int scanIndex = from; scanIndex < to; scanIndex++) {
+
+      // Activate the queries whose window starts at this scan, or before the block
+      while (nextQuery < queryCount && firstScans[queryOrder[nextQuery]] <= scanIndex) {
+        int query = queryOrder[nextQuery++];
+        if (endScans[query] > scanIndex)
+          activeQueries[activeCount++] = query;
+      }
+
+      // Deactivate the queries whose window ended
+      for (int i = activeCount - 1; i >= 0; i--) {
+        if (endScans[activeQueries[i]] <= scanIndex)
+          activeQueries[i] = activeQueries[--activeCount];
+      }
+
+      if (activeCount == 0) {
+        if (nextQuery == queryCount)
+          break;
+        continue;
+      }
+
+      final MsScan scan = sortedIndex.getScans().get(scanIndex);
+      final float rt = sortedIndex.getRetentionTime(scanIndex);
+      mzBuffer = scan.getMzValues(mzBuffer);
+      intensityBuffer = scan.getIntensityValues(intensityBuffer);
+      final int numOfDataPoints = scan.getNumberOfDataPoints();
+      final boolean sorted = isSorted(mzBuffer, numOfDataPoints);
+
+      for (int i = 0; i < activeCount; i++) {
+        final int query = activeQueries[i];
+        if (buffers[query] == null)
+          buffers[query] = new ChromatogramBuffer();
+        final int topIndex = sorted
+            ? findBasePeak(mzBuffer, intensityBuffer, numOfDataPoints, lowerMzs[query],
+                upperMzs[query])
+            : findBasePeakUnsorted(mzBuffer, intensityBuffer, numOfDataPoints, lowerMzs[query],
+                upperMzs[query]);
+        if (topIndex >= 0)
+          buffers[query].add(rt, mzBuffer[topIndex], intensityBuffer[topIndex]);
+        else
+          buffers[query].add(rt, 0.0, 0f);
+      }
+    }
+    return buffers;
+  }
+
+  /**
+   * Returns true if the first <code>size</code> m/z values are in ascending order.
+   */
+  private static boolean isSorted(double mzValues[], int size) {
+    for (int i = 1; i < size; i++) {
+      if (mzValues[i] < mzValues[i - 1])
+        return false;
+    }
+    return true;
+  }
+
+  /**
+   * Returns the index of the highest data point with a m/z between <code>lowerMz</code> and
+   * <code>upperMz</code>, or -1. The m/z values must be sorted, so only the data points within the
+   * range are visited.
+   */
+  private static int findBasePeak(double mzValues[], float intensityValues[], int size,
+      double lowerMz, double upperMz) {
+    assert isSorted(mzValues, size);
+    int low = 0, high = size;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (mzValues[mid] < lowerMz)
+        low = mid + 1;
+      else
+        high = mid;
+    }
+    int topIndex = -1;
+    for (int i = low; i < size && mzValues[i] <= upperMz; i++) {
+      if (topIndex < 0 || intensityValues[i] > intensityValues[topIndex])
+        topIndex = i;
+    }
+    return topIndex;
+  }
+
+  /**
+   * Same as {@link #findBasePeak(double[], float[], int, double, double) findBasePeak()}, for m/z
+   * values in any order. Every data point is visited, and the first of equally high data points is
+   * returned.
+   */
+  private static int findBasePeakUnsorted(double mzValues[], float intensityValues[], int size,
+      double lowerMz, double upperMz) {
+    int topIndex = -1;
+    for (int i = 0; i < size; i++) {
+      if (mzValues[i] < lowerMz || mzValues[i] > upperMz)
+        continue;
+      if (topIndex < 0 || intensityValues[i] > intensityValues[topIndex])
+        topIndex = i;
+    }
+    return topIndex;
+  }
+
+  /**
+   * Returns the m/z of the chromatogram of a query, or null if its m/z window is unbounded.
+   */
+  private Double getChromatogramMz(int query) {
+    final boolean hasLowerBound = !Double.isInfinite(lowerMzs[query]);
+    final boolean hasUpperBound = !Double.isInfinite(upperMzs[query]);
+    if (hasLowerBound && hasUpperBound)
+      return (lowerMzs[query] + upperMzs[query]) / 2;
+    if (hasLowerBound)
+      return lowerMzs[query];
+    if (hasUpperBound)
+      return upperMzs[query];
+    return null;
+  }
+
+  /**
+   * Joins the parts of each chromatogram, in the order of the blocks.
+   */
+  private List<SimpleChromatogram> createChromatograms(List<ChromatogramBuffer[]> blockBuffers) {
+    final int queryCount = lowerMzs.length;
+    final List<SimpleChromatogram> chromatograms = new ArrayList<>(queryCount);
+    for (int query = 0; query < queryCount; query++) {
+      ChromatogramBuffer joined = new ChromatogramBuffer();
+      for (ChromatogramBuffer[] buffers : blockBuffers) {
+        if (buffers[query] != null)
+          joined.addAll(buffers[query]);
+      }
+
+      SimpleChromatogram chromatogram = new SimpleChromatogram();
+      chromatogram.setChromatogramNumber(query + 1);
+      chromatogram.setChromatogramType(ChromatogramType.XIC);
+      chromatogram.setMz(getChromatogramMz(query));
+      chromatogram.setDataPoints(joined.rtValues, joined.mzValues, joined.intensityValues,
+          joined.size);
+      chromatograms.add(chromatogram);
+    }
+    return chromatograms;
+  }
+
+  /**
+   * Growing arrays of the data points of a chromatogram.
+   */
+  private static class ChromatogramBuffer {
+
+    float rtValues[] = new float[16];
+    double mzValues[] = new double[16];
+    float intensityValues[] = new float[16];
+    int size = 0;
+
+    void add(float rt, double mz, float intensity) {
+      ensureCapacity(size + 1);
+      rtValues[size] = rt;
+      mzValues[size] = mz;
+      intensityValues[size] = intensity;
+      size++;
+    }
+
+    void addAll(ChromatogramBuffer other) {
+      ensureCapacity(size + other.size);
+      System.arraycopy(other.rtValues, 0, rtValues, size, other.size);
+      System.arraycopy(other.mzValues, 0, mzValues, size, other.size);
+      System.arraycopy(other.intensityValues, 0, intensityValues, size, other.size);
+      size += other.size;
+    }
+
+    private void ensureCapacity(int capacity) {
+      if (capacity <= rtValues.length)
+        return;
+      int newLength = Math.max(capacity, rtValues.length * 2);
+      rtValues = Arrays.copyOf(rtValues, newLength);
+      mzValues = Arrays.copyOf(mzValues, newLength);
+      intensityValues = Arrays.copyOf(intensityValues, newLength);
+    }
+
+  }
+
+}
@@ -56,7 +56,25 @@ public class ConstantDaTolerance implements MzTolerance {
    * </p>
    */
   public @Nonnull Range<Double> getToleranceRange(final @Nonnull Double mzValue) {
-    return Range.closed(mzValue - mzTolerance, mzValue + mzTolerance);
+    return Range.closed(lowerBound(mzValue), upperBound(mzValue));
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public double lowerBound(final double mzValue) {
+    return mzValue - mzTolerance;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public double upperBound(final double mzValue) {
+    return mzValue + mzTolerance;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public boolean contains(final double center, final double mzValue) {
+    return mzValue >= center - mzTolerance && mzValue <= center + mzTolerance;
   }
 
   /** {@inheritDoc} */
@@ -26,7 +26,7 @@ import com.google.common.collect.Range;
 public class MaximumMzTolerance implements MzTolerance {
 
   // PPM conversion factor.
-  private static final Double MILLION = 1000000.0;
+  private static final double MILLION = 1000000.0;
 
   // Tolerance has absolute (in m/z) and relative (in ppm) values
   private final @Nonnull Double mzTolerance;
@@ -75,9 +75,30 @@ public class MaximumMzTolerance implements MzTolerance {
    * </p>
    */
   public @Nonnull Range<Double> getToleranceRange(final @Nonnull Double mzValue) {
-    final @Nonnull Double absoluteTolerance =
-        Math.max(mzTolerance, mzValue / MILLION * ppmTolerance);
-    return Range.closed(mzValue - absoluteTolerance, mzValue + absoluteTolerance);
+    return Range.closed(lowerBound(mzValue), upperBound(mzValue));
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public double lowerBound(final double mzValue) {
+    return mzValue - getAbsoluteTolerance(mzValue);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public double upperBound(final double mzValue) {
+    return mzValue + getAbsoluteTolerance(mzValue);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public boolean contains(final double center, final double mzValue) {
+    final double absoluteTolerance = getAbsoluteTolerance(center);
+    return mzValue >= center - absoluteTolerance && mzValue <= center + absoluteTolerance;
+  }
+
+  private double getAbsoluteTolerance(final double mzValue) {
+    return Math.max(mzTolerance, mzValue / MILLION * ppmTolerance);
   }
 
   /** {@inheritDoc} */
@@ -21,6 +21,14 @@ import com.google.common.collect.Range;
  * <p>
  * MzTolerance interface.
  * </p>
+ *
+ * <p>
+ * Besides the {@link com.google.common.collect.Range} returned by
+ * {@link #getToleranceRange(Double)}, the bounds of the tolerance range are available as
+ * primitive values through {@link #lowerBound(double)}, {@link #upperBound(double)} and
+ * {@link #contains(double, double)}. These do not allocate any objects and should be preferred in
+ * inner loops. The default implementations fall back to {@link #getToleranceRange(Double)}.
+ * </p>
  */
 public interface MzTolerance {
 
@@ -33,4 +41,42 @@ public interface MzTolerance {
    * @return a {@link com.google.common.collect.Range} object.
    */
   public @Nonnull Range<Double> getToleranceRange(final @Nonnull Double mzValue);
+
+  /**
+   * <p>
+   * Get the lower bound of the m/z tolerance range for a given m/z.
+   * </p>
+   *
+   * @param mzValue a double.
+   * @return the lowest m/z value within the tolerance.
+   */
+  default double lowerBound(final double mzValue) {
+    return getToleranceRange(mzValue).lowerEndpoint();
+  }
+
+  /**
+   * <p>
+   * Get the upper bound of the m/z tolerance range for a given m/z.
+   * </p>
+   *
+   * @param mzValue a double.
+   * @return the highest m/z value within the tolerance.
+   */
+  default double upperBound(final double mzValue) {
+    return getToleranceRange(mzValue).upperEndpoint();
+  }
+
+  /**
+   * <p>
+   * Check whether a m/z value lies within the tolerance range of another m/z value. This is
+   * equivalent to <code>getToleranceRange(center).contains(mzValue)</code>.
+   * </p>
+   *
+   * @param center the m/z value the tolerance range is built around.
+   * @param mzValue the m/z value to test.
+   * @return true if <code>mzValue</code> is within the tolerance range of <code>center</code>.
+   */
+  default boolean contains(final double center, final double mzValue) {
+    return mzValue >= lowerBound(center) && mzValue <= upperBound(center);
+  }
 }
@@ -13,7 +13,6 @@
 
 package io.github.msdk.util.tolerances;
 
-import javax.annotation.Nonnull;
 import javax.annotation.concurrent.Immutable;
 
 import com.google.common.collect.Range;
@@ -26,7 +25,7 @@ import com.google.common.collect.Range;
 public class RTTolerance {
 
   // Tolerance can be either absolute (sec) or relative (%).
-  private final @Nonnull Float rtTolerance;
+  private final float rtTolerance;
   private final boolean isAbsolute;
 
   /**
@@ -73,8 +72,52 @@ public class RTTolerance {
    * @return a {@link com.google.common.collect.Range} object.
    */
   public Range<Float> getToleranceRange(final float rtValue) {
-    final float absoluteTolerance = isAbsolute ? rtTolerance : rtValue * rtTolerance;
-    return Range.closed(rtValue - absoluteTolerance, rtValue + absoluteTolerance);
+    return Range.closed(lowerBound(rtValue), upperBound(rtValue));
+  }
+
+  /**
+   * <p>
+   * Get the lower bound of the tolerance range, without allocating a
+   * {@link com.google.common.collect.Range}.
+   * </p>
+   *
+   * @param rtValue a float.
+   * @return the lowest retention time within the tolerance.
+   */
+  public float lowerBound(final float rtValue) {
+    return rtValue - getAbsoluteTolerance(rtValue);
+  }
+
+  /**
+   * <p>
+   * Get the upper bound of the tolerance range, without allocating a
+   * {@link com.google.common.collect.Range}.
+   * </p>
+   *
+   * @param rtValue a float.
+   * @return the highest retention time within the tolerance.
+   */
+  public float upperBound(final float rtValue) {
+    return rtValue + getAbsoluteTolerance(rtValue);
+  }
+
+  /**
+   * <p>
+   * Check whether a retention time lies within the tolerance range of another retention time. This
+   * is equivalent to <code>getToleranceRange(center).contains(rtValue)</code>.
+   * </p>
+   *
+   * @param center the retention time the tolerance range is built around.
+   * @param rtValue the retention time to test.
+   * @return true if <code>rtValue</code> is within the tolerance range of <code>center</code>.
+   */
+  public boolean contains(final float center, final float rtValue) {
+    final float absoluteTolerance = getAbsoluteTolerance(center);
+    return rtValue >= center - absoluteTolerance && rtValue <= center + absoluteTolerance;
+  }
+
+  private float getAbsoluteTolerance(final float rtValue) {
+    return isAbsolute ? rtTolerance : rtValue * rtTolerance;
   }
 
   /**
@@ -87,7 +130,7 @@ public class RTTolerance {
    * @return a boolean.
    */
   public boolean checkWithinTolerance(final float rt1, final float rt2) {
-    return getToleranceRange(rt1).contains(rt2);
+    return contains(rt1, rt2);
   }
 
   /** {@inheritDoc} */
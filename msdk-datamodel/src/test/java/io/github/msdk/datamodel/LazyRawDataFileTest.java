@@ -0,0 +1,199 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+package io.github.msdk.datamodel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.Range;
+
+import io.github.msdk.util.MsScanUtil;
+import io.github.msdk.util.RawDataFileUtil;
+
+/**
+ * Tests for LazyRawDataFile
+ */
+public class LazyRawDataFileTest {
+
+  private static SimpleRawDataFile createRawDataFile(int numberOfScans) {
+    SimpleRawDataFile rawFile = new SimpleRawDataFile("test", Optional.empty(), FileType.MZML);
+    for (int i = 1; i <= numberOfScans; i++) {
+      SimpleMsScan scan = new SimpleMsScan(i);
+      scan.setRetentionTime((float) i);
+      scan.setDataPoints(new double[] {100.0, 200.0}, new float[] {i, 2 * i}, 2);
+      rawFile.addScan(scan);
+    }
+    return rawFile;
+  }
+
+  /**
+   * Doubles the intensities, and counts how often it is called.
+   */
+  private static Function<MsScan, MsScan> doubleIntensities(AtomicInteger calls) {
+    return scan -> {
+      calls.incrementAndGet();
+      SimpleMsScan newScan = MsScanUtil.clone(scan, false);
+      float intensities[] = scan.getIntensityValues();
+      for (int i = 0; i < intensities.length; i++)
+        intensities[i] *= 2;
+      newScan.setDataPoints(scan.getMzValues(), intensities, scan.getNumberOfDataPoints());
+      return newScan;
+    };
+  }
+
+  @Test
+  public void testStreaming() {
+    RawDataFile rawFile = createRawDataFile(10);
+    AtomicInteger calls = new AtomicInteger();
+    Function<MsScan, MsScan> dropOdd = scan -> scan.getScanNumber() % 2 == 0 ? scan : null;
+
+    LazyRawDataFile lazyFile =
+        new LazyRawDataFile(rawFile, Arrays.asList(dropOdd, doubleIntensities(calls)), 0);
+    Assert.assertEquals(0, calls.get());
+
+    // Iterating processes each remaining scan once
+    List<Integer> scanNumbers = new ArrayList<>();
+    for (MsScan scan : lazyFile.getScans()) {
+      scanNumbers.add(scan.getScanNumber());
+      Assert.assertEquals(4f * scan.getScanNumber(), scan.getIntensityValues()[1], 0f);
+    }
+    Assert.assertEquals(Arrays.asList(2, 4, 6, 8, 10), scanNumbers);
+    Assert.assertEquals(5, calls.get());
+
+    // The iteration found the remaining scans, so only the requested scan is processed again
+    Assert.assertEquals(5, lazyFile.getScans().size());
+    Assert.assertEquals(5, calls.get());
+    Assert.assertEquals(Integer.valueOf(6), lazyFile.getScans().get(2).getScanNumber());
+    Assert.assertEquals(6, calls.get());
+
+    // The source file is not modified
+    Assert.assertEquals(10, rawFile.getScans().size());
+    Assert.assertEquals(2f, rawFile.getScans().get(0).getIntensityValues()[1], 0f);
+  }
+
+  @Test
+  public void testRandomAccess() {
+    RawDataFile rawFile = createRawDataFile(10);
+    AtomicInteger calls = new AtomicInteger();
+    Function<MsScan, MsScan> dropOdd = scan -> scan.getScanNumber() % 2 == 0 ? scan : null;
+
+    LazyRawDataFile lazyFile =
+        new LazyRawDataFile(rawFile, Arrays.asList(dropOdd, doubleIntensities(calls)), 0);
+    List<MsScan> scans = lazyFile.getScans();
+
+    // Scans are processed up to the requested one, and only once
+    Assert.assertEquals(Integer.valueOf(4), scans.get(1).getScanNumber());
+    Assert.assertEquals(2, calls.get());
+    Assert.assertEquals(Integer.valueOf(2), scans.get(0).getScanNumber());
+    Assert.assertEquals(3, calls.get());
+
+    Assert.assertEquals(5, scans.size());
+    Assert.assertEquals(6, calls.get());
+    try {
+      scans.get(5);
+      Assert.fail();
+    } catch (IndexOutOfBoundsException e) {
+      // expected
+    }
+    Assert.assertEquals(6, calls.get());
+  }
+
+  @Test
+  public void testCache() {
+    RawDataFile rawFile = createRawDataFile(10);
+    AtomicInteger calls = new AtomicInteger();
+
+    LazyRawDataFile lazyFile =
+        new LazyRawDataFile(rawFile, Collections.singletonList(doubleIntensities(calls)), 3);
+    List<MsScan> scans = lazyFile.getScans();
+    MsScan scan = scans.get(9);
+    Assert.assertEquals(10, calls.get());
+    Assert.assertSame(scan, scans.get(9));
+    Assert.assertEquals(10, calls.get());
+
+    scans.get(0);
+    Assert.assertEquals(11, calls.get());
+
+    lazyFile.dispose();
+    try {
+      scans.get(0);
+      Assert.fail();
+    } catch (IllegalStateException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testScanIndex() {
+    RawDataFile rawFile = createRawDataFile(10);
+    AtomicInteger calls = new AtomicInteger();
+    Function<MsScan, MsScan> dropOdd = scan -> scan.getScanNumber() % 2 == 0 ? scan : null;
+
+    LazyRawDataFile lazyFile =
+        new LazyRawDataFile(rawFile, Arrays.asList(dropOdd, doubleIntensities(calls)), 0);
+    ScanIndex scanIndex = lazyFile.getScanIndex();
+    Assert.assertEquals(5, scanIndex.size());
+    Assert.assertEquals(5, calls.get());
+    Assert.assertSame(scanIndex, lazyFile.getScanIndex());
+    Assert.assertEquals(5, calls.get());
+
+    MsScan scan = RawDataFileUtil.getScan(lazyFile, 4);
+    Assert.assertNotNull(scan);
+    Assert.assertSame(lazyFile, scan.getRawDataFile());
+    Assert.assertEquals(4f, scan.getRetentionTime(), 0f);
+    Assert.assertEquals(8f, scan.getIntensityValues()[0], 0f);
+    Assert.assertEquals(6, calls.get());
+    Assert.assertNull(RawDataFileUtil.getScan(lazyFile, 5));
+
+    List<MsScan> scans = RawDataFileUtil.getScans(lazyFile, Range.closed(3f, 7f));
+    Assert.assertEquals(2, scans.size());
+    Assert.assertEquals(Integer.valueOf(4), scans.get(0).getScanNumber());
+    Assert.assertEquals(Integer.valueOf(6), scans.get(1).getScanNumber());
+
+    lazyFile.dispose();
+    try {
+      lazyFile.getScanIndex();
+      Assert.fail();
+    } catch (IllegalStateException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testChainAndMaterialize() {
+    RawDataFile rawFile = createRawDataFile(4);
+    AtomicInteger calls = new AtomicInteger();
+
+    LazyRawDataFile lazyFile =
+        new LazyRawDataFile(rawFile, Collections.singletonList(doubleIntensities(calls)), 0)
+            .then(doubleIntensities(calls), 0);
+    SimpleRawDataFile materialized = lazyFile.materialize();
+    Assert.assertEquals(8, calls.get());
+
+    List<MsScan> scans = materialized.getScans();
+    Assert.assertEquals(4, scans.size());
+    for (MsScan scan : scans)
+      Assert.assertEquals(4f * scan.getScanNumber(), scan.getIntensityValues()[0], 0f);
+    Assert.assertEquals("test", materialized.getName());
+  }
+
+}
@@ -0,0 +1,123 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+package io.github.msdk.datamodel;
+
+import java.io.File;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.Range;
+
+import io.github.msdk.MSDKException;
+
+/**
+ * Tests for MappedRawDataFile
+ */
+public class MappedRawDataFileTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private static SimpleMsScan createScan(int scanNumber, int numOfDataPoints) {
+    double mzValues[] = new double[numOfDataPoints];
+    float intensityValues[] = new float[numOfDataPoints];
+    for (int i = 0; i < numOfDataPoints; i++) {
+      mzValues[i] = 100.0 + scanNumber + i * 0.01;
+      intensityValues[i] = scanNumber * 1000f + i;
+    }
+    SimpleMsScan scan = new SimpleMsScan(scanNumber, "MS" + (scanNumber % 2 + 1));
+    scan.setMsLevel(scanNumber % 2 + 1);
+    scan.setRetentionTime(scanNumber * 0.5f);
+    scan.setPolarity(PolarityType.POSITIVE);
+    scan.setSpectrumType(MsSpectrumType.PROFILE);
+    scan.setScanningRange(Range.closed(100.0, 2000.0));
+    scan.setDataPoints(mzValues, intensityValues, numOfDataPoints);
+    return scan;
+  }
+
+  private static void assertSameScan(MsScan expected, MsScan actual) {
+    Assert.assertEquals(expected.getScanNumber(), actual.getScanNumber());
+    Assert.assertEquals(expected.getMsFunction(), actual.getMsFunction());
+    Assert.assertEquals(expected.getMsLevel(), actual.getMsLevel());
+    Assert.assertEquals(expected.getRetentionTime(), actual.getRetentionTime());
+    Assert.assertEquals(expected.getPolarity(), actual.getPolarity());
+    Assert.assertEquals(expected.getSpectrumType(), actual.getSpectrumType());
+    Assert.assertEquals(expected.getScanningRange(), actual.getScanningRange());
+    Assert.assertEquals(expected.getMzRange(), actual.getMzRange());
+    Assert.assertEquals(expected.getTIC(), actual.getTIC(), 0.001f);
+    Assert.assertEquals(expected.getNumberOfDataPoints(), actual.getNumberOfDataPoints());
+    Assert.assertArrayEquals(expected.getMzValues(), actual.getMzValues(), 0.0);
+    Assert.assertArrayEquals(expected.getIntensityValues(), actual.getIntensityValues(), 0f);
+  }
+
+  @Test
+  public void testScans() throws MSDKException {
+    MappedRawDataFile rawFile = new MappedRawDataFile("test", Optional.empty(), FileType.MZML,
+        folder.getRoot());
+    Assert.assertEquals(2, folder.getRoot().listFiles().length);
+
+    SimpleMsScan scans[] = new SimpleMsScan[20];
+    for (int i = 0; i < scans.length; i++) {
+      scans[i] = createScan(i + 1, i * 50);
+      MsScan stored = rawFile.addScan(scans[i]);
+      Assert.assertSame(rawFile, stored.getRawDataFile());
+    }
+
+    List<MsScan> storedScans = rawFile.getScans();
+    Assert.assertEquals(scans.length, storedScans.size());
+    for (int i = 0; i < scans.length; i++)
+      assertSameScan(scans[i], storedScans.get(i));
+    Assert.assertEquals(9500, rawFile.getNumberOfDataPoints());
+    Assert.assertEquals(2, rawFile.getMsFunctions().size());
+
+    // A large enough array is filled and returned
+    double mzBuffer[] = new double[2000];
+    Assert.assertSame(mzBuffer, storedScans.get(5).getMzValues(mzBuffer));
+    Assert.assertEquals(106.0, mzBuffer[0], 0.0);
+
+    rawFile.dispose();
+    Assert.assertEquals(0, folder.getRoot().listFiles().length);
+    try {
+      storedScans.get(0).getMzValues();
+      Assert.fail();
+    } catch (IllegalStateException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testSegments() throws MSDKException {
+    // Segments of 1 kB hold 128 m/z values, so most scans span two or more segments
+    File directory = folder.getRoot();
+    MappedRawDataFile rawFile =
+        new MappedRawDataFile("test", Optional.empty(), FileType.MZML, directory, 1024);
+
+    SimpleMsScan scans[] = new SimpleMsScan[30];
+    for (int i = 0; i < scans.length; i++) {
+      scans[i] = createScan(i + 1, (i * 37) % 300);
+      rawFile.addScan(scans[i]);
+    }
+
+    List<MsScan> storedScans = rawFile.getScans();
+    for (int i = 0; i < scans.length; i++)
+      assertSameScan(scans[i], storedScans.get(i));
+    rawFile.dispose();
+  }
+
+}
@@ -0,0 +1,100 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+package io.github.msdk.datamodel;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.Range;
+
+import io.github.msdk.util.RawDataFileUtil;
+
+/**
+ * Tests for ScanIndex
+ */
+public class ScanIndexTest {
+
+  private static SimpleMsScan createScan(int scanNumber, Float rt, int msLevel) {
+    SimpleMsScan scan = new SimpleMsScan(scanNumber, "MS" + msLevel);
+    scan.setMsLevel(msLevel);
+    scan.setRetentionTime(rt);
+    return scan;
+  }
+
+  private static List<Integer> scanNumbers(List<MsScan> scans) {
+    return scans.stream().map(MsScan::getScanNumber).collect(Collectors.toList());
+  }
+
+  @Test
+  public void testSortedScans() {
+    SimpleRawDataFile rawFile = new SimpleRawDataFile("test", Optional.empty(), FileType.MZML);
+    for (int i = 1; i <= 10; i++)
+      rawFile.addScan(createScan(i, i * 1.0f, i % 3 == 0 ? 2 : 1));
+
+    ScanIndex index = rawFile.getScanIndex();
+    Assert.assertSame(index, rawFile.getScanIndex());
+    Assert.assertTrue(index.isSortedByRetentionTime());
+    Assert.assertEquals(Arrays.asList(3, 4, 5, 6), scanNumbers(index.getScans(3f, 6f)));
+    Assert.assertEquals(Arrays.asList(4, 5),
+        scanNumbers(index.getScans(Range.open(3f, 6f))));
+    Assert.assertEquals(Arrays.asList(9, 10),
+        scanNumbers(index.getScans(Range.atLeast(8.5f))));
+    Assert.assertTrue(index.getScans(20f, 30f).isEmpty());
+    Assert.assertEquals(2, index.getFirstScanIndex(2.5f));
+    Assert.assertEquals(6, index.getEndScanIndex(6f));
+
+    Assert.assertEquals(Integer.valueOf(7), index.getScan(7).getScanNumber());
+    Assert.assertNull(index.getScan(11));
+
+    ScanIndex ms2Index = index.getMsLevel(2);
+    Assert.assertSame(ms2Index, index.getMsLevel(2));
+    Assert.assertEquals(Arrays.asList(3, 6, 9), scanNumbers(ms2Index.getScans()));
+    Assert.assertArrayEquals(new float[] {3f, 6f, 9f}, ms2Index.getRetentionTimes(), 0f);
+    Assert.assertEquals(Arrays.asList(6, 9), scanNumbers(ms2Index.getScans(4f, 10f)));
+    Assert.assertEquals(Arrays.asList(6, 9),
+        scanNumbers(RawDataFileUtil.getScans(rawFile, "MS2", Range.closed(4f, 10f))));
+    Assert.assertEquals(Arrays.asList(4, 5),
+        scanNumbers(RawDataFileUtil.getScans(rawFile, 1, Range.closed(3f, 6f))));
+
+    // Adding a scan resets the index
+    rawFile.addScan(createScan(11, 11f, 1));
+    Assert.assertNotSame(index, rawFile.getScanIndex());
+    Assert.assertEquals(Integer.valueOf(11),
+        RawDataFileUtil.getScan(rawFile, 11).getScanNumber());
+  }
+
+  @Test
+  public void testUnsortedScans() {
+    ScanIndex index = new ScanIndex(Arrays.asList(createScan(5, 5f, 1), createScan(2, 2f, 1),
+        createScan(9, null, 1), createScan(4, 4f, 1), createScan(1, 4f, 1)));
+
+    Assert.assertFalse(index.isSortedByRetentionTime());
+    Assert.assertTrue(Float.isNaN(index.getRetentionTime(2)));
+
+    // Scans are returned in their original order, scans without RT are never in a RT range
+    Assert.assertEquals(Arrays.asList(5, 4, 1), scanNumbers(index.getScans(3f, 100f)));
+    Assert.assertEquals(Arrays.asList(5, 2, 4, 1), scanNumbers(index.getScans(Range.all())));
+    Assert.assertEquals(Arrays.asList(4, 1), scanNumbers(index.getScans(4f, 4f)));
+
+    Assert.assertEquals(Integer.valueOf(9), index.getScan(9).getScanNumber());
+    Assert.assertEquals(Integer.valueOf(1), index.getScan(1).getScanNumber());
+    Assert.assertNull(index.getScan(3));
+  }
+
+}
@@ -0,0 +1,166 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+package io.github.msdk.datamodel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.Range;
+
+import io.github.msdk.util.FeatureTableUtil;
+
+/**
+ * Tests for the m/z and RT index of SimpleFeatureTable
+ */
+public class SimpleFeatureTableTest {
+
+  private static SimpleFeature createFeature(double mz, float rt) {
+    SimpleFeature feature = new SimpleFeature();
+    feature.setMz(mz);
+    feature.setRetentionTime(rt);
+    return feature;
+  }
+
+  private static List<FeatureTableRow> getRowsInsideRangeByScan(FeatureTable table,
+      Range<Float> rtRange, Range<Double> mzRange) {
+    List<FeatureTableRow> result = new ArrayList<>();
+    for (FeatureTableRow row : table.getRows()) {
+      if (rtRange.contains(row.getRT()) && mzRange.contains(row.getMz()))
+        result.add(row);
+    }
+    return result;
+  }
+
+  @Test
+  public void testRowsInsideRange() {
+    Random random = new Random(3);
+    SimpleFeatureTable table = new SimpleFeatureTable();
+    Sample sample1 = new SimpleSample("sample1"), sample2 = new SimpleSample("sample2");
+    table.setSamples(Arrays.asList(sample1, sample2));
+
+    List<SimpleFeatureTableRow> rows = new ArrayList<>();
+    for (int i = 0; i < 2000; i++) {
+      SimpleFeatureTableRow row = new SimpleFeatureTableRow(table);
+      // Rows may be added before or after their features are set
+      if (i % 2 == 0)
+        table.addRow(row);
+      // Some rows share the same m/z value
+      double mz = i % 10 == 0 ? 500.0 : 100.0 + random.nextInt(100000) / 100.0;
+      row.setFeature(sample1, createFeature(mz, random.nextFloat() * 600f));
+      if (i % 2 == 1)
+        table.addRow(row);
+      rows.add(row);
+    }
+
+    // Move some rows by adding features, and remove some
+    for (int i = 0; i < 300; i++) {
+      SimpleFeatureTableRow row = rows.get(random.nextInt(rows.size()));
+      row.setFeature(sample2,
+          createFeature(100.0 + random.nextInt(100000) / 100.0, random.nextFloat() * 600f));
+    }
+    Collections.shuffle(rows, random);
+    for (int i = 0; i < 200; i++)
+      table.removeRow(rows.get(i));
+
+    for (int i = 0; i < 500; i++) {
+      double mz = i % 10 == 0 ? 500.0 : 100.0 + random.nextDouble() * 1000.0;
+      float rt = random.nextFloat() * 600f;
+      double mzTolerance = random.nextDouble() * 5.0;
+      float rtTolerance = random.nextFloat() * 60f;
+      Range<Double> mzRange = Range.closed(mz - mzTolerance, mz + mzTolerance);
+      Range<Float> rtRange = Range.closed(rt - rtTolerance, rt + rtTolerance);
+
+      List<FeatureTableRow> expected = getRowsInsideRangeByScan(table, rtRange, mzRange);
+      Assert.assertEquals(expected, FeatureTableUtil.getRowsInsideRange(table, rtRange, mzRange));
+      Assert.assertEquals(expected, FeatureTableUtil.getRowsInsideRange(table,
+          rtRange.lowerEndpoint(), rtRange.upperEndpoint(), mzRange.lowerEndpoint(),
+          mzRange.upperEndpoint()));
+
+      Range<Double> openMzRange = Range.open(mz - mzTolerance, mz);
+      Assert.assertEquals(getRowsInsideRangeByScan(table, rtRange, openMzRange),
+          FeatureTableUtil.getRowsInsideRange(table, rtRange, openMzRange));
+    }
+  }
+
+  @Test
+  public void testRowWithoutFeatures() {
+    SimpleFeatureTable table = new SimpleFeatureTable();
+    Sample sample = new SimpleSample("sample");
+    table.setSamples(Collections.singletonList(sample));
+
+    SimpleFeatureTableRow row = new SimpleFeatureTableRow(table);
+    table.addRow(row);
+    Assert.assertTrue(table.getRowsInsideRange(Range.all(), Range.all()).isEmpty());
+
+    row.setFeature(sample, createFeature(300.0, 60f));
+    Assert.assertEquals(Collections.singletonList(row),
+        table.getRowsInsideRange(59f, 61f, 299.9, 300.1));
+    Assert.assertTrue(table.getRowsInsideRange(59f, 61f, 300.1, 300.2).isEmpty());
+  }
+
+  @Test
+  public void testDuplicateAndUnindexedRows() {
+    SimpleFeatureTable table = new SimpleFeatureTable();
+    Sample sample = new SimpleSample("sample");
+    table.setSamples(Collections.singletonList(sample));
+
+    // A row added twice is returned once
+    SimpleFeatureTableRow row = new SimpleFeatureTableRow(table);
+    row.setFeature(sample, createFeature(300.0, 60f));
+    table.addRow(row);
+    table.addRow(row);
+    Assert.assertEquals(2, table.getRows().size());
+    Assert.assertEquals(Collections.singletonList(row),
+        table.getRowsInsideRange(Range.all(), Range.all()));
+
+    // Rows of other types are checked one by one, and skipped without m/z value
+    FeatureTableRow rowWithoutMz = new FeatureTableRow() {
+      public FeatureTable getFeatureTable() {
+        return table;
+      }
+
+      public Double getMz() {
+        return null;
+      }
+
+      public Float getRT() {
+        return 60f;
+      }
+
+      public Integer getCharge() {
+        return null;
+      }
+
+      public Feature getFeature(Sample sample) {
+        return null;
+      }
+
+      public Feature getFeature(Integer index) {
+        return null;
+      }
+    };
+    table.addRow(rowWithoutMz);
+    Assert.assertEquals(Collections.singletonList(row),
+        table.getRowsInsideRange(Range.closed(59f, 61f), Range.closed(299.9, 300.1)));
+    Assert.assertEquals(Collections.singletonList(row),
+        table.getRowsInsideRange(59f, 61f, 299.9, 300.1));
+  }
+
+}
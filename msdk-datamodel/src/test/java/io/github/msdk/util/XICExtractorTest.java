@@ -0,0 +1,188 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+package io.github.msdk.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.Range;
+
+import io.github.msdk.MSDKException;
+import io.github.msdk.datamodel.ChromatogramType;
+import io.github.msdk.datamodel.MsScan;
+import io.github.msdk.datamodel.ScanIndex;
+import io.github.msdk.datamodel.SimpleChromatogram;
+import io.github.msdk.datamodel.SimpleMsScan;
+
+public class XICExtractorTest {
+
+  private static List<MsScan> createScans(Random random, int numberOfScans) {
+    List<MsScan> scans = new ArrayList<>();
+    for (int i = 0; i < numberOfScans; i++) {
+      int size = random.nextInt(500);
+      double mzValues[] = new double[size];
+      float intensityValues[] = new float[size];
+      for (int j = 0; j < size; j++) {
+        mzValues[j] = 100.0 + 900.0 * random.nextDouble();
+        intensityValues[j] = random.nextInt(1000);
+      }
+      Arrays.sort(mzValues);
+      SimpleMsScan scan = new SimpleMsScan(i + 1);
+      scan.setRetentionTime(i * 0.5f);
+      scan.setDataPoints(mzValues, intensityValues, size);
+      scans.add(scan);
+    }
+    return scans;
+  }
+
+  /**
+   * Extracts a chromatogram by visiting every data point of every scan.
+   */
+  private static void assertChromatogram(List<MsScan> scans, Range<Double> mzRange,
+      Range<Float> rtRange, SimpleChromatogram chromatogram) {
+    List<Float> rts = new ArrayList<>();
+    List<Float> intensities = new ArrayList<>();
+    for (MsScan scan : scans) {
+      if (!rtRange.contains(scan.getRetentionTime()))
+        continue;
+      double mzValues[] = scan.getMzValues();
+      float intensityValues[] = scan.getIntensityValues();
+      float intensity = 0f;
+      for (int i = 0; i < scan.getNumberOfDataPoints(); i++) {
+        if (mzRange.contains(mzValues[i]))
+          intensity = Math.max(intensity, intensityValues[i]);
+      }
+      rts.add(scan.getRetentionTime());
+      intensities.add(intensity);
+    }
+
+    Assert.assertEquals(rts.size(), (int) chromatogram.getNumberOfDataPoints());
+    float chromatogramRts[] = chromatogram.getRetentionTimes();
+    float chromatogramIntensities[] = chromatogram.getIntensityValues();
+    for (int i = 0; i < rts.size(); i++) {
+      Assert.assertEquals(rts.get(i), chromatogramRts[i], 0f);
+      Assert.assertEquals(intensities.get(i), chromatogramIntensities[i], 0f);
+    }
+  }
+
+  @Test
+  public void testExtract() throws MSDKException {
+    Random random = new Random(7);
+    List<MsScan> scans = createScans(random, 200);
+
+    List<Range<Double>> mzRanges = new ArrayList<>();
+    List<Range<Float>> rtRanges = new ArrayList<>();
+    for (int i = 0; i < 300; i++) {
+      double mz = 100.0 + 900.0 * random.nextDouble();
+      mzRanges.add(Range.closed(mz - 0.5, mz + 0.5));
+      float rt = 100f * random.nextFloat();
+      rtRanges.add(Range.closed(rt - 10f * random.nextFloat(), rt + 10f * random.nextFloat()));
+    }
+    mzRanges.add(Range.all());
+    rtRanges.add(Range.atMost(5f));
+
+    XICExtractor extractor = new XICExtractor(mzRanges, rtRanges);
+    Assert.assertEquals(301, extractor.getNumberOfQueries());
+    ScanIndex scanIndex = new ScanIndex(scans);
+    List<SimpleChromatogram> sequential = extractor.extract(scanIndex);
+    List<SimpleChromatogram> parallel = extractor.extract(scanIndex, 4);
+
+    Assert.assertEquals(301, sequential.size());
+    Assert.assertEquals(301, parallel.size());
+    for (int i = 0; i < mzRanges.size(); i++) {
+      assertChromatogram(scans, mzRanges.get(i), rtRanges.get(i), sequential.get(i));
+      assertChromatogram(scans, mzRanges.get(i), rtRanges.get(i), parallel.get(i));
+      Assert.assertEquals(ChromatogramType.XIC, parallel.get(i).getChromatogramType());
+      Assert.assertEquals(Integer.valueOf(i + 1), parallel.get(i).getChromatogramNumber());
+    }
+  }
+
+  @Test
+  public void testChromatogramMz() {
+    XICExtractor extractor = new XICExtractor(
+        Arrays.asList(Range.closed(300.0, 301.0), Range.atLeast(300.0), Range.lessThan(301.0),
+            Range.all()),
+        Arrays.asList(Range.all(), Range.all(), Range.all(), Range.all()));
+    List<SimpleChromatogram> chromatograms =
+        extractor.extract(new ScanIndex(createScans(new Random(3), 10)));
+
+    // Unbounded windows don't give an infinite or NaN m/z
+    Assert.assertEquals(300.5, chromatograms.get(0).getMz(), 0.0);
+    Assert.assertEquals(300.0, chromatograms.get(1).getMz(), 0.0);
+    Assert.assertEquals(301.0, chromatograms.get(2).getMz(), 0.0);
+    Assert.assertNull(chromatograms.get(3).getMz());
+  }
+
+  @Test
+  public void testUnsortedMzValues() {
+    // A scan whose data points are not sorted by m/z
+    SimpleMsScan scan = new SimpleMsScan(1) {
+      @Override
+      public double[] getMzValues(double array[]) {
+        return new double[] {350.0, 320.0, 390.0, 310.0, 330.0};
+      }
+
+      @Override
+      public float[] getIntensityValues(float array[]) {
+        return new float[] {10f, 30f, 20f, 30f, 5f};
+      }
+
+      @Override
+      public Integer getNumberOfDataPoints() {
+        return 5;
+      }
+    };
+    scan.setRetentionTime(1f);
+
+    XICExtractor extractor = new XICExtractor(new double[] {300.0, 340.0, 325.0, 400.0},
+        new double[] {360.0, 400.0, 340.0, 500.0}, new float[] {0f, 0f, 0f, 0f},
+        new float[] {2f, 2f, 2f, 2f});
+    List<SimpleChromatogram> chromatograms =
+        extractor.extract(new ScanIndex(Collections.singletonList(scan)));
+
+    // The first of equally high data points is taken
+    Assert.assertEquals(320.0, chromatograms.get(0).getMzValues()[0], 0.0);
+    Assert.assertEquals(30f, chromatograms.get(0).getIntensityValues()[0], 0f);
+    Assert.assertEquals(390.0, chromatograms.get(1).getMzValues()[0], 0.0);
+    Assert.assertEquals(20f, chromatograms.get(1).getIntensityValues()[0], 0f);
+    Assert.assertEquals(330.0, chromatograms.get(2).getMzValues()[0], 0.0);
+    Assert.assertEquals(5f, chromatograms.get(2).getIntensityValues()[0], 0f);
+    Assert.assertEquals(0f, chromatograms.get(3).getIntensityValues()[0], 0f);
+  }
+
+  @Test
+  public void testUnsortedScans() {
+    Random random = new Random(11);
+    List<MsScan> scans = createScans(random, 50);
+    List<MsScan> shuffled = new ArrayList<>(scans);
+    Collections.shuffle(shuffled, random);
+    SimpleMsScan noRt = new SimpleMsScan(51);
+    shuffled.add(noRt);
+
+    XICExtractor extractor = new XICExtractor(new double[] {300.0}, new double[] {400.0},
+        new float[] {2f}, new float[] {12f});
+    List<SimpleChromatogram> chromatograms = extractor.extract(new ScanIndex(shuffled));
+
+    // The data points are in retention time order, as for the sorted scans
+    assertChromatogram(scans, Range.closed(300.0, 400.0), Range.closed(2f, 12f),
+        chromatograms.get(0));
+  }
+
+}
@@ -0,0 +1,113 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+package io.github.msdk.util.tolerances;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compares the time, allocated memory and garbage collections of m/z matching with
+ * {@link MzTolerance#getToleranceRange(Double)} and with {@link MzTolerance#contains(double, double)}.
+ * Usage: <code>ToleranceBenchmark [numberOfRuns]</code>
+ */
+public class ToleranceBenchmark {
+
+  private static final int NUMBER_OF_VALUES = 1_000_000;
+
+  public static void main(String[] args) {
+
+    Logger logger = LoggerFactory.getLogger(ToleranceBenchmark.class);
+
+    int numberOfRuns = 20;
+    if (args.length > 0)
+      numberOfRuns = Integer.valueOf(args[0]);
+
+    Random random = new Random(1);
+    double centers[] = new double[NUMBER_OF_VALUES];
+    double values[] = new double[NUMBER_OF_VALUES];
+    for (int i = 0; i < NUMBER_OF_VALUES; i++) {
+      centers[i] = 100.0 + random.nextDouble() * 1900.0;
+      values[i] = centers[i] + (random.nextDouble() - 0.5) * 0.02;
+    }
+
+    // Several tolerance types, so that the calls are not inlined as they would be in a
+    // micro-benchmark with a single type, and the Range objects are not optimized away
+    MzTolerance mzTolerances[] = {new ConstantPpmTolerance(5.0), new ConstantDaTolerance(0.005),
+        new MaximumMzTolerance(0.002, 5.0)};
+
+    // Warm up
+    runRange(mzTolerances, centers, values);
+    runPrimitive(mzTolerances, centers, values);
+
+    for (boolean primitive : new boolean[] {false, true}) {
+      long allocatedBefore = getAllocatedBytes();
+      long collectionsBefore = getCollectionCount();
+      long startTime = System.currentTimeMillis();
+      int matches = 0;
+      for (int i = 0; i < numberOfRuns; i++)
+        matches += primitive ? runPrimitive(mzTolerances, centers, values)
+            : runRange(mzTolerances, centers, values);
+      long endTime = System.currentTimeMillis();
+      long allocated = getAllocatedBytes() - allocatedBefore;
+      long collections = getCollectionCount() - collectionsBefore;
+
+      logger.info((primitive ? "contains(double, double)" : "getToleranceRange(Double)") + ": "
+          + (endTime - startTime) / numberOfRuns + "ms, "
+          + allocated / ((long) numberOfRuns * NUMBER_OF_VALUES) + " bytes allocated per call, "
+          + collections + " garbage collections, " + matches / numberOfRuns + " matches");
+    }
+  }
+
+  private static int runRange(MzTolerance mzTolerances[], double centers[], double values[]) {
+    int matches = 0;
+    for (int i = 0; i < centers.length; i++) {
+      if (mzTolerances[i % mzTolerances.length].getToleranceRange(centers[i]).contains(values[i]))
+        matches++;
+    }
+    return matches;
+  }
+
+  private static int runPrimitive(MzTolerance mzTolerances[], double centers[], double values[]) {
+    int matches = 0;
+    for (int i = 0; i < centers.length; i++) {
+      if (mzTolerances[i % mzTolerances.length].contains(centers[i], values[i]))
+        matches++;
+    }
+    return matches;
+  }
+
+  /**
+   * Returns the number of bytes allocated by the current thread, or 0 if the JVM does not report
+   * it
+   */
+  private static long getAllocatedBytes() {
+    java.lang.management.ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    if (threadBean instanceof com.sun.management.ThreadMXBean)
+      return ((com.sun.management.ThreadMXBean) threadBean)
+          .getThreadAllocatedBytes(Thread.currentThread().getId());
+    return 0;
+  }
+
+  private static long getCollectionCount() {
+    long collections = 0;
+    for (GarbageCollectorMXBean gcBean : ManagementFactory.getGarbageCollectorMXBeans())
+      collections += Math.max(0, gcBean.getCollectionCount());
+    return collections;
+  }
+
+}
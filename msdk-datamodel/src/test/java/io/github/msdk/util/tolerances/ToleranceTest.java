@@ -0,0 +1,77 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+package io.github.msdk.util.tolerances;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.Range;
+
+/**
+ * Tests that the primitive bounds of the tolerances match their tolerance ranges
+ */
+public class ToleranceTest {
+
+  private static final MzTolerance mzTolerances[] = {new ConstantPpmTolerance(5.0),
+      new ConstantDaTolerance(0.003), new MaximumMzTolerance(0.002, 10.0),
+      new MaximumMzTolerance(0.0, 3.0)};
+
+  @Test
+  public void testMzToleranceBounds() {
+    Random random = new Random(7);
+    for (MzTolerance mzTolerance : mzTolerances) {
+      for (int i = 0; i < 10000; i++) {
+        double center = random.nextDouble() * 2000.0;
+        Range<Double> range = mzTolerance.getToleranceRange(center);
+        Assert.assertEquals(range.lowerEndpoint(), mzTolerance.lowerBound(center), 0.0);
+        Assert.assertEquals(range.upperEndpoint(), mzTolerance.upperBound(center), 0.0);
+
+        double mz = center + (random.nextDouble() - 0.5) * 0.02;
+        Assert.assertEquals(range.contains(mz), mzTolerance.contains(center, mz));
+        Assert.assertTrue(mzTolerance.contains(center, range.lowerEndpoint()));
+        Assert.assertTrue(mzTolerance.contains(center, range.upperEndpoint()));
+      }
+    }
+  }
+
+  @Test
+  public void testDefaultMzToleranceBounds() {
+    MzTolerance mzTolerance = mzValue -> Range.closed(mzValue - 0.5, mzValue + 1.0);
+    Assert.assertEquals(99.5, mzTolerance.lowerBound(100.0), 0.0);
+    Assert.assertEquals(101.0, mzTolerance.upperBound(100.0), 0.0);
+    Assert.assertTrue(mzTolerance.contains(100.0, 100.75));
+    Assert.assertFalse(mzTolerance.contains(100.0, 99.25));
+  }
+
+  @Test
+  public void testRTToleranceBounds() {
+    Random random = new Random(7);
+    RTTolerance rtTolerances[] = {new RTTolerance(6f, true), new RTTolerance(0.02f, false)};
+    for (RTTolerance rtTolerance : rtTolerances) {
+      for (int i = 0; i < 10000; i++) {
+        float center = random.nextFloat() * 3600f;
+        Range<Float> range = rtTolerance.getToleranceRange(center);
+        Assert.assertEquals(range.lowerEndpoint(), rtTolerance.lowerBound(center), 0f);
+        Assert.assertEquals(range.upperEndpoint(), rtTolerance.upperBound(center), 0f);
+
+        float rt = center + (random.nextFloat() - 0.5f) * 40f;
+        Assert.assertEquals(range.contains(rt), rtTolerance.contains(center, rt));
+        Assert.assertEquals(range.contains(rt), rtTolerance.checkWithinTolerance(center, rt));
+      }
+    }
+  }
+
+}
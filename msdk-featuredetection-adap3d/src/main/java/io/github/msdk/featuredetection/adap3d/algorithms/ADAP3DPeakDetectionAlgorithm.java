@@ -261,8 +261,8 @@ public class ADAP3DPeakDetectionAlgorithm {
 
   /**
    * <p>
-   * This method removes data point in loop by calling removeDataPoints method from
-   * SliceSparseMatrix.
+   * This method removes data points in the given m/z and scan range by calling removeDataPoints
+   * method of SliceSparseMatrix.
    * </p>
    * 
    * @param lowerMZ a {@link java.lang.Integer} object. This is the lower m/z boundary from which
@@ -276,15 +276,13 @@ public class ADAP3DPeakDetectionAlgorithm {
    * 
    */
   private void removeDataPoints(int lowerMZ, int upperMZ, int lowerScanBound, int upperScanBound) {
-    for (int i = lowerMZ; i <= upperMZ; i++) {
-      objSliceSparseMatrix.removeDataPoints(i, lowerScanBound, upperScanBound);
-    }
+    objSliceSparseMatrix.removeDataPoints(lowerMZ, upperMZ, lowerScanBound, upperScanBound);
   }
 
   /**
    * <p>
-   * This method restores data point in loop by calling restoreDataPoints method from
-   * SliceSparseMatrix.
+   * This method restores data points in the given m/z and scan range by calling restoreDataPoints
+   * method of SliceSparseMatrix.
    * </p>
    * 
    * @param lowerMZ a {@link java.lang.Integer} object. This is the lower m/z boundary from which
@@ -297,9 +295,7 @@ public class ADAP3DPeakDetectionAlgorithm {
    *        which data point restoration ends.
    */
   private void restoreDataPoints(int lowerMZ, int upperMZ, int lowerScanBound, int upperScanBound) {
-    for (int i = lowerMZ; i <= upperMZ; i++) {
-      objSliceSparseMatrix.restoreDataPoints(i, lowerScanBound, upperScanBound);
-    }
+    objSliceSparseMatrix.restoreDataPoints(lowerMZ, upperMZ, lowerScanBound, upperScanBound);
   }
 
   /**
@@ -18,7 +18,14 @@ import java.util.Arrays;
 import static java.util.Arrays.fill;
 
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentMap;
 
+import org.apache.commons.math3.transform.DftNormalization;
+import org.apache.commons.math3.transform.FastFourierTransformer;
+import org.apache.commons.math3.transform.TransformType;
+
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Range;
 
 import io.github.msdk.featuredetection.adap3d.datamodel.Result;
@@ -34,6 +41,24 @@ import java.util.HashMap;
  * @author owen myers Modified by Dharak Shah to include in MSDK
  */
 public class ContinuousWaveletTransform {
+
+  // Kernels wider than this are convolved with the signal through the FFT, narrower ones directly
+  private static final int FFT_MIN_KERNEL_WIDTH = 32;
+
+  // Bounds of the kernel caches: number of kernels, and bytes of kernel spectra
+  private static final int MAX_CACHED_KERNELS = 256;
+  private static final int MAX_CACHED_KERNEL_SPECTRA_SIZE = 16 << 20;
+
+  // Ricker wavelets sampled at integer offsets, and their spectra, shared by all instances. For
+  // uniformly spaced signals they only depend on the scale (and on the FFT size), the average
+  // spacing of the signal is applied as a constant factor.
+  private static final ConcurrentMap<Double, double[]> rickerKernels = CacheBuilder.newBuilder()
+      .maximumSize(MAX_CACHED_KERNELS).<Double, double[]>build().asMap();
+  private static final ConcurrentMap<KernelSpectrumKey, double[][]> rickerKernelSpectra =
+      CacheBuilder.newBuilder().maximumWeight(MAX_CACHED_KERNEL_SPECTRA_SIZE)
+          .weigher((KernelSpectrumKey key, double[][] spectrum) -> 16 * key.fftSize).build()
+          .asMap();
+
   // all scales will mbe measured in units of scans (indecies)
   private double smallScale;
   private double largeScale;
@@ -47,6 +72,9 @@ public class ContinuousWaveletTransform {
   private ArrayList<Ridgeline> ridgeLineArr = new ArrayList<Ridgeline>();
   private Range<Double> peakWidth;
   private double coefAreaRatioTolerance;
+  private double maxXSpaceDeviation;
+  private double uniformSpacingTolerance = 1e-4;
+  private double[][] signalSpectrum;
 
   /**
    * <p>
@@ -124,6 +152,20 @@ public class ContinuousWaveletTransform {
     coefAreaRatioTolerance = userInputCoefAreaRatioTolerance;
   }
 
+  /**
+   * <p>
+   * Setter for the field <code>uniformSpacingTolerance</code>. Signals whose spacing between
+   * consecutive retention times deviates from the average spacing by at most this fraction are
+   * treated as uniformly spaced, and transformed by convolution with a precomputed wavelet. Other
+   * signals are transformed point by point. The default is 1e-4.
+   * </p>
+   *
+   * @param uniformSpacingTolerance a double.
+   */
+  public void setUniformSpacingTolerance(double uniformSpacingTolerance) {
+    this.uniformSpacingTolerance = uniformSpacingTolerance;
+  }
+
   ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
   /////////////////////////// Cropped Peak
   //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////// width/////////////////////////////////////////////////////////////////////////////
@@ -468,6 +510,9 @@ public class ContinuousWaveletTransform {
    * @return an array of double.
    */
   public double[] getCoefficientsForThisScale(double waveletScale) {
+    if (x.length > 1 && maxXSpaceDeviation <= uniformSpacingTolerance * avgXSpace)
+      return getUniformCoefficientsForThisScale(waveletScale);
+
     double[] coefficientsForThisScale = new double[x.length];
     for (int i = 0; i < x.length; i++) {
 
@@ -479,6 +524,126 @@ public class ContinuousWaveletTransform {
   }
 
 
+  // For uniformly spaced signals the wavelet only depends on the distance in indices, so the
+  // coefficients are the correlation of the signal with the wavelet sampled once per scale. The
+  // integration bounds of signalWaveletInnerProductOnePoint() become the ends of the kernel, and
+  // the boundaries of the signal act as zero padding.
+  private double[] getUniformCoefficientsForThisScale(double waveletScale) {
+    final int n = x.length;
+    final int leftReach = getLeftReach(waveletScale);
+    final double[] kernel = getRickerKernel(waveletScale);
+    final double factor = 1.0 / Math.sqrt(avgXSpace);
+    double[] coefficientsForThisScale = new double[n];
+
+    if (kernel.length < FFT_MIN_KERNEL_WIDTH) {
+      for (int i = 0; i < n; i++) {
+        int from = Math.max(0, i - leftReach);
+        int to = Math.min(n - 1, i - leftReach + kernel.length - 1);
+        double innerProduct = 0.0;
+        for (int j = from; j <= to; j++)
+          innerProduct += signal[j] * kernel[j - i + leftReach];
+        coefficientsForThisScale[i] = innerProduct * factor;
+      }
+      return coefficientsForThisScale;
+    }
+
+    final int fftSize = getFftSize(Math.max(waveletScale, largeScale));
+    final double[][] signalSpectrum = getSignalSpectrum(fftSize);
+    final double[][] kernelSpectrum = getRickerKernelSpectrum(waveletScale, fftSize);
+    final double[][] product = new double[2][fftSize];
+    for (int k = 0; k < fftSize; k++) {
+      double re1 = signalSpectrum[0][k], im1 = signalSpectrum[1][k];
+      double re2 = kernelSpectrum[0][k], im2 = kernelSpectrum[1][k];
+      product[0][k] = re1 * re2 - im1 * im2;
+      product[1][k] = re1 * im2 + im1 * re2;
+    }
+    FastFourierTransformer.transformInPlace(product, DftNormalization.STANDARD,
+        TransformType.INVERSE);
+    for (int i = 0; i < n; i++)
+      coefficientsForThisScale[i] = product[0][i] * factor;
+    return coefficientsForThisScale;
+  }
+
+  // Number of samples the integration of signalWaveletInnerProductOnePoint() reaches to the left
+  // and to the right of the wavelet maximum
+  private int getLeftReach(double waveletScale) {
+    return (int) -Math.round(-scaleCoefHowFarOut * waveletScale - 1.0);
+  }
+
+  private int getRightReach(double waveletScale) {
+    return (int) Math.round(scaleCoefHowFarOut * waveletScale + 1.0);
+  }
+
+  private int getFftSize(double waveletScale) {
+    int minSize = x.length + getLeftReach(waveletScale) + getRightReach(waveletScale);
+    return Integer.highestOneBit(minSize - 1) << 1;
+  }
+
+  // The Ricker wavelet for a signal with an average spacing of 1, sampled from getLeftReach() to
+  // the left to getRightReach() to the right of its maximum
+  private double[] getRickerKernel(double waveletScale) {
+    return rickerKernels.computeIfAbsent(waveletScale, scale -> {
+      int leftReach = getLeftReach(scale);
+      double[] kernel = new double[leftReach + getRightReach(scale) + 1];
+      double a = 2.0 / Math.sqrt(3.0 * scale * Math.sqrt(Math.PI));
+      for (int i = 0; i < kernel.length; i++) {
+        double d = i - leftReach;
+        double ratio = d * d / (scale * scale);
+        kernel[i] = a * (1.0 - ratio) * Math.exp(-ratio / 2.0);
+      }
+      return kernel;
+    });
+  }
+
+  // The spectrum of the kernel reversed around its maximum, so that the convolution with the
+  // signal gives the correlation
+  private double[][] getRickerKernelSpectrum(double waveletScale, int fftSize) {
+    return rickerKernelSpectra.computeIfAbsent(new KernelSpectrumKey(waveletScale, fftSize),
+        key -> {
+          double[] kernel = getRickerKernel(waveletScale);
+          int leftReach = getLeftReach(waveletScale);
+          double[][] spectrum = new double[2][fftSize];
+          for (int i = 0; i < kernel.length; i++)
+            spectrum[0][Math.floorMod(leftReach - i, fftSize)] = kernel[i];
+          FastFourierTransformer.transformInPlace(spectrum, DftNormalization.STANDARD,
+              TransformType.FORWARD);
+          return spectrum;
+        });
+  }
+
+  private double[][] getSignalSpectrum(int fftSize) {
+    if (signalSpectrum == null || signalSpectrum[0].length != fftSize) {
+      signalSpectrum = new double[2][fftSize];
+      System.arraycopy(signal, 0, signalSpectrum[0], 0, signal.length);
+      FastFourierTransformer.transformInPlace(signalSpectrum, DftNormalization.STANDARD,
+          TransformType.FORWARD);
+    }
+    return signalSpectrum;
+  }
+
+  private static final class KernelSpectrumKey {
+    private final double waveletScale;
+    private final int fftSize;
+
+    KernelSpectrumKey(double waveletScale, int fftSize) {
+      this.waveletScale = waveletScale;
+      this.fftSize = fftSize;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof KernelSpectrumKey))
+        return false;
+      KernelSpectrumKey other = (KernelSpectrumKey) o;
+      return Double.compare(waveletScale, other.waveletScale) == 0 && fftSize == other.fftSize;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(waveletScale, fftSize);
+    }
+  }
+
   // This cfunciton needs to be carful with two things: 1) the boundries of the signal
   // were it needs to either pad or pretend to pad values below off the boundry. 2) The location
   // of the wavelet has to be set correctly.
@@ -542,6 +707,7 @@ public class ContinuousWaveletTransform {
     for (int i = 0; i < listOfDataPoint.size(); i++) {
       signal[i] = listOfDataPoint.get(i).intensity;
     }
+    signalSpectrum = null;
   }
 
   /**
@@ -560,6 +726,11 @@ public class ContinuousWaveletTransform {
     }
 
     avgXSpace = curSumSpacing / ((double) (listOfDataPoint.size() - 1));
+
+    maxXSpaceDeviation = 0.0;
+    for (int i = 0; i < x.length - 1; i++) {
+      maxXSpaceDeviation = Math.max(maxXSpaceDeviation, Math.abs(x[i + 1] - x[i] - avgXSpace));
+    }
   }
 
   /**
@@ -12,18 +12,20 @@
  */
 package io.github.msdk.featuredetection.adap3d.algorithms;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Set;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.lang.Math;
 
+import com.google.common.primitives.Ints;
+
 import io.github.msdk.datamodel.MsScan;
 import io.github.msdk.datamodel.RawDataFile;
 import io.github.msdk.featuredetection.adap3d.algorithms.ADAP3DPeakDetectionAlgorithm.GoodPeakInfo;
@@ -33,38 +35,55 @@ import io.github.msdk.featuredetection.adap3d.algorithms.ADAP3DPeakDetectionAlgo
 /**
  * <p>
  * SliceSparseMatrix class is used for slicing the sparse matrix of raw data as per given mz value.
- * slice contains intensities for one mz value for different scans. In this class sparse matrix has
- * been implemented in the form of multikey map. Mz and scan number are keys and object containing
- * Intensities along information like retention time and whether the value is still in matrix or not
- * is the value. Consider Scan numbers as column index and mz values as row index. cell values as
- * object containing Intensities along with other information like retention time and whether the
- * value is still in matrix or not.
+ * slice contains intensities for one mz value for different scans. Consider Scan numbers as column
+ * index and mz values as row index.
+ * </p>
+ *
+ * <p>
+ * The data points of the matrix are stored column by column in primitive arrays: the rounded m/z
+ * values, scan indices and intensities of all data points ordered by scan and m/z, the offsets
+ * of the data points of each scan, and a bit set of removed data points. Two permutations of the
+ * data point indices give the order by m/z and scan, and by decreasing intensity. All lookups are
+ * binary searches over these arrays. {@link Triplet} objects are only created for the data points
+ * which are returned to the caller, and are copies of the matrix elements.
  * </p>
  */
 public class SliceSparseMatrix {
 
   /**
    * <p>
-   * tripletMap is used for creating MultiKeyMap type of hashmap from raw data file.
+   * retentionTimes stores the retention time of each scan, or NaN for scans without one.
    * </p>
    */
-  private final HashMap<Integer, Float> rtMap;
+  private final float[] retentionTimes;
 
-  private final List<Triplet> sortListAccordingToMzScan;
-  private final List<Triplet> sortListAccordingToIntensity;
-  private final List<Triplet> sortListAccordingToScan;
-  Comparator<Triplet> compareMzScan;
-  Comparator<Triplet> compareIntensity;
-  Comparator<Triplet> compareScanMz;
-  Comparator<Triplet> compareScan;
+  /**
+   * <p>
+   * Data points of the matrix, ordered by scan index and m/z value. Intensities of data points
+   * with the same rounded m/z value in the same scan are added up.
+   * </p>
+   */
+  private int numOfDataPoints;
+  private int[] mzs;
+  private int[] scanListIndices;
+  private float[] intensities;
+  private final BitSet removed;
 
+  /**
+   * <p>
+   * scanStarts holds the index of the first data point of each scan, and the total number of data
+   * points as the last element.
+   * </p>
+   */
+  private final int[] scanStarts;
 
   /**
    * <p>
-   * filterListOfTriplet is used for adding intensities for same mz values under same scan numbers.
+   * Data point indices sorted by m/z and scan, and by decreasing intensity.
    * </p>
    */
-  private final List<Triplet> filterListOfTriplet;
+  private final int[] sortedByMzScan;
+  private final int[] sortedByIntensity;
 
   /**
    * <p>
@@ -89,7 +108,15 @@ public class SliceSparseMatrix {
 
   /**
    * <p>
-   * mzValues is used to store all the mz values from raw file.
+   * distinctMzValues is used to store all the distinct rounded mz values from raw file, sorted.
+   * </p>
+   */
+  private final int[] distinctMzValues;
+
+  /**
+   * <p>
+   * mzValues is used to store all the mz values from raw file. It is an unmodifiable view of
+   * distinctMzValues, so the m/z values of getVerticalSlice() can't be changed through it.
    * </p>
    */
   public final List<Integer> mzValues;
@@ -143,11 +170,24 @@ public class SliceSparseMatrix {
   public SliceSparseMatrix(RawDataFile rawFile, Predicate<MsScan> msScanPredicate) {
     listOfScans =
         rawFile.getScans().stream().filter(msScanPredicate).collect(Collectors.<MsScan>toList());
-    List<Triplet> listOfTriplet = new ArrayList<Triplet>();
-    rtMap = new HashMap<Integer, Float>();
+    retentionTimes = new float[listOfScans.size()];
+    Arrays.fill(retentionTimes, Float.NaN);
+    scanStarts = new int[listOfScans.size() + 1];
+
+    mzs = new int[1024];
+    scanListIndices = new int[1024];
+    intensities = new float[1024];
+
+    // Data points are sorted by m/z within each scan and filtered scan by scan. The first data
+    // point is always kept, the others only if their intensity is above 1000. All m/z values
+    // except the one of the first data point go into mzValues.
+    BitSet mzSet = new BitSet();
+    boolean firstDataPoint = true;
+    long[] sortKeys = new long[0];
 
     for (int i = 0; i < listOfScans.size(); i++) {
       MsScan scan = listOfScans.get(i);
+      scanStarts[i] = numOfDataPoints;
 
       if (scan == null)
         continue;
@@ -161,123 +201,129 @@ public class SliceSparseMatrix {
 
       if (rt == null)
         continue;
-      rtMap.put(i, rt);
-
-      for (int j = 0; j < mzBuffer.length; j++) {
-        Triplet triplet = new Triplet();
-        triplet.intensity = intensityBuffer[j];
-        triplet.mz = roundMZ(mzBuffer[j]);
-        triplet.scanListIndex = i;
-        triplet.removed = 0;
-        listOfTriplet.add(triplet);
-      }
-    }
-
+      retentionTimes[i] = rt;
 
+      // Sort by rounded m/z, keeping the original order of equal values
+      if (sortKeys.length < mzBuffer.length)
+        sortKeys = new long[mzBuffer.length];
+      for (int j = 0; j < mzBuffer.length; j++)
+        sortKeys[j] = ((long) roundMZ(mzBuffer[j]) << 32) | j;
+      Arrays.sort(sortKeys, 0, mzBuffer.length);
 
-    compareScanMz = new Comparator<Triplet>() {
-
-      @Override
-      public int compare(Triplet o1, Triplet o2) {
-
-        int scan1 = o1.scanListIndex;
-        int scan2 = o2.scanListIndex;
-        int scanCompare = Integer.compare(scan1, scan2);
-
-        if (scanCompare != 0) {
-          return scanCompare;
-        } else {
-          int mz1 = o1.mz;
-          int mz2 = o2.mz;
-          return Integer.compare(mz1, mz2);
+      for (int j = 0; j < mzBuffer.length; j++) {
+        int mz = (int) (sortKeys[j] >> 32);
+        float intensity = intensityBuffer[(int) sortKeys[j]];
+        if (firstDataPoint) {
+          addDataPoint(mz, i, intensity);
+          firstDataPoint = false;
+          continue;
         }
-      }
-    };
-
-
-    Collections.sort(listOfTriplet, compareScanMz);
-
-    filterListOfTriplet = new ArrayList<Triplet>();
-    Triplet currTriplet = new Triplet();
-    Triplet lastFilterTriplet = new Triplet();
-    // tripletMap = new MultiKeyMap<Integer, Triplet>();
-    int index = 0;
-    Set<Integer> mzSet = new HashSet<Integer>();
-
-    filterListOfTriplet.add(listOfTriplet.get(0));
-    for (int i = 1; i < listOfTriplet.size(); i++) {
-      currTriplet = listOfTriplet.get(i);
-      mzSet.add(listOfTriplet.get(i).mz);
-      lastFilterTriplet = filterListOfTriplet.get(index);
-      if (currTriplet.intensity > 1000) {
-        if (currTriplet.mz == lastFilterTriplet.mz
-            && currTriplet.scanListIndex == lastFilterTriplet.scanListIndex) {
-          lastFilterTriplet.intensity += currTriplet.intensity;
-        } else {
-          filterListOfTriplet.add(currTriplet);
-          index++;
+        mzSet.set(mz);
+        if (intensity > 1000) {
+          if (mz == mzs[numOfDataPoints - 1] && i == scanListIndices[numOfDataPoints - 1]) {
+            intensities[numOfDataPoints - 1] += intensity;
+          } else {
+            addDataPoint(mz, i, intensity);
+          }
         }
       }
     }
-    mzValues = new ArrayList<Integer>(mzSet);
-    Collections.sort(mzValues);
-
-    sortListAccordingToScan = new ArrayList<>(filterListOfTriplet);
-    compareScan = new Comparator<Triplet>() {
-
-      @Override
-      public int compare(Triplet o1, Triplet o2) {
-
-        int scan1 = o1.scanListIndex;
-        int scan2 = o2.scanListIndex;
-        int scanCompare = Integer.compare(scan1, scan2);
-        return scanCompare;
-      }
-    };
-
-    Collections.sort(sortListAccordingToScan, compareScan);
-
-
-    sortListAccordingToIntensity = new ArrayList<>(filterListOfTriplet);
-
-    compareIntensity = new Comparator<Triplet>() {
+    scanStarts[listOfScans.size()] = numOfDataPoints;
+
+    mzs = Arrays.copyOf(mzs, numOfDataPoints);
+    scanListIndices = Arrays.copyOf(scanListIndices, numOfDataPoints);
+    intensities = Arrays.copyOf(intensities, numOfDataPoints);
+    removed = new BitSet(numOfDataPoints);
+
+    distinctMzValues = mzSet.stream().toArray();
+    mzValues = Collections.unmodifiableList(Ints.asList(distinctMzValues));
+
+    // Data points are already ordered by scan, so sorting by m/z and index orders them by m/z and
+    // scan
+    sortKeys = new long[numOfDataPoints];
+    for (int i = 0; i < numOfDataPoints; i++)
+      sortKeys[i] = ((long) mzs[i] << 32) | i;
+    sortedByMzScan = sortedIndices(sortKeys);
+
+    // Sort by decreasing intensity, keeping the scan and m/z order of equal intensities
+    for (int i = 0; i < numOfDataPoints; i++)
+      sortKeys[i] = ((long) ~sortableBits(intensities[i]) << 32) | i;
+    sortedByIntensity = sortedIndices(sortKeys);
+  }
 
-      @Override
-      public int compare(Triplet o1, Triplet o2) {
+  private void addDataPoint(int mz, int scanListIndex, float intensity) {
+    if (numOfDataPoints == mzs.length) {
+      int newSize = mzs.length * 2;
+      mzs = Arrays.copyOf(mzs, newSize);
+      scanListIndices = Arrays.copyOf(scanListIndices, newSize);
+      intensities = Arrays.copyOf(intensities, newSize);
+    }
+    mzs[numOfDataPoints] = mz;
+    scanListIndices[numOfDataPoints] = scanListIndex;
+    intensities[numOfDataPoints] = intensity;
+    numOfDataPoints++;
+  }
 
-        Float intensity1 = o1.intensity;
-        Float intensity2 = o2.intensity;
-        int intensityCompare = intensity2.compareTo(intensity1);
-        return intensityCompare;
-      }
-    };
-    Collections.sort(sortListAccordingToIntensity, compareIntensity);
+  /**
+   * Sorts the keys and returns their lower 32 bits, which hold the data point indices.
+   */
+  private static int[] sortedIndices(long[] sortKeys) {
+    Arrays.sort(sortKeys);
+    int[] indices = new int[sortKeys.length];
+    for (int i = 0; i < sortKeys.length; i++)
+      indices[i] = (int) sortKeys[i];
+    return indices;
+  }
 
-    sortListAccordingToMzScan = new ArrayList<>(filterListOfTriplet);
-    compareMzScan = new Comparator<Triplet>() {
+  /**
+   * Maps a float to an int with the same order as {@link Float#compare(float, float)}.
+   */
+  private static int sortableBits(float value) {
+    int bits = Float.floatToIntBits(value);
+    return bits ^ ((bits >> 31) & 0x7fffffff);
+  }
 
-      @Override
-      public int compare(Triplet o1, Triplet o2) {
+  /**
+   * Returns the index of the data point with the given rounded m/z value in the given scan, or -1.
+   */
+  private int findDataPoint(int roundedMz, int scanListIndex) {
+    if (scanListIndex < 0 || scanListIndex >= listOfScans.size())
+      return -1;
+    int index = Arrays.binarySearch(mzs, scanStarts[scanListIndex],
+        scanStarts[scanListIndex + 1], roundedMz);
+    return index >= 0 ? index : -1;
+  }
 
-        int mz1 = o1.mz;
-        int mz2 = o2.mz;
-        int scanCompare = Integer.compare(mz1, mz2);
+  /**
+   * Returns the first position in sortedByMzScan whose data point is not smaller than the given
+   * m/z value and scan.
+   */
+  private int findMzScanPosition(int roundedMz, int scanListIndex) {
+    int low = 0, high = numOfDataPoints;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      int dataPoint = sortedByMzScan[mid];
+      if (mzs[dataPoint] < roundedMz
+          || (mzs[dataPoint] == roundedMz && scanListIndices[dataPoint] < scanListIndex))
+        low = mid + 1;
+      else
+        high = mid;
+    }
+    return low;
+  }
 
-        if (scanCompare != 0) {
-          return scanCompare;
-        } else {
-          int scan1 = o1.scanListIndex;
-          int scan2 = o2.scanListIndex;
-          return Integer.compare(scan1, scan2);
-        }
-      }
-    };
-    Collections.sort(sortListAccordingToMzScan, compareMzScan);
+  private Triplet getTriplet(int dataPoint) {
+    Triplet triplet = new Triplet();
+    triplet.mz = mzs[dataPoint];
+    triplet.scanListIndex = scanListIndices[dataPoint];
+    triplet.intensity = intensities[dataPoint];
+    triplet.removed = (byte) (removed.get(dataPoint) ? 1 : 0);
+    return triplet;
   }
 
   /**
    * <p>
-   * This method returns the MultiKeyMap slice of data for given mz,lowerScanBound,upperScanBound
+   * This method returns the slice of data for given mz,lowerScanBound,upperScanBound
    * </p>
    *
    * @param mz a {@link java.lang.Double} object. This is original m/z value from raw file.
@@ -285,36 +331,18 @@ public class SliceSparseMatrix {
    *        horizontal matrix slice.
    * @param upperScanBound a {@link java.lang.Integer} object. This is highest scan number in the
    *        horizontal matrix slice.
-   * @return sliceMap a {@link org.apache.commons.collections4.map.MultiKeyMap} object. This object
-   *         contains horizontal slice with single m/z value,different scan numbers and different
-   *         intensities along with retention time.
+   * @return sliceList a {@link java.util.List} of
+   *         {@link io.github.msdk.featuredetection.adap3d.algorithms.SliceSparseMatrix.Triplet}
+   *         objects with one element for each scan. This contains horizontal slice with single m/z
+   *         value, different scan numbers and different intensities.
    */
   public List<Triplet> getHorizontalSlice(double mz, int lowerScanBound, int upperScanBound) {
-
-    int roundedmz = roundMZ(mz);
-    List<Triplet> sliceList = new ArrayList<Triplet>();
-
-    for (int i = lowerScanBound; i <= upperScanBound; i++) {
-      Triplet searchTriplet = new Triplet();
-      searchTriplet.mz = roundedmz;
-      searchTriplet.scanListIndex = i;
-      int index = Collections.binarySearch(sortListAccordingToMzScan, searchTriplet, compareMzScan);
-      if (index >= 0) {
-        Triplet triplet = sortListAccordingToMzScan.get(index);
-        sliceList.add(triplet);
-      } else {
-        searchTriplet.intensity = 0;
-        searchTriplet.removed = 0;
-        sliceList.add(searchTriplet);
-      }
-    }
-
-    return sliceList;
+    return getHorizontalSlice(roundMZ(mz), lowerScanBound, upperScanBound, true);
   }
 
   /**
    * <p>
-   * This method returns the MultiKeyMap slice of data for rounded mz,lowerScanBound,upperScanBound
+   * This method returns the slice of data for rounded mz,lowerScanBound,upperScanBound
    * </p>
    *
    * @param roundedMZ a {@link java.lang.Double} object. This is rounded m/z value which is already
@@ -323,12 +351,41 @@ public class SliceSparseMatrix {
    *        horizontal matrix slice.
    * @param upperScanBound a {@link java.lang.Integer} object. This is highest scan number in the
    *        horizontal matrix slice.
-   * @return sliceMap a {@link org.apache.commons.collections4.map.MultiKeyMap} object. This object
-   *         contains horizontal slice with single m/z value,different scan numbers and different
-   *         intensities along with retention time.
+   * @return sliceList a {@link java.util.List} of
+   *         {@link io.github.msdk.featuredetection.adap3d.algorithms.SliceSparseMatrix.Triplet}
+   *         objects with one element for each scan. This contains horizontal slice with single m/z
+   *         value, different scan numbers and different intensities.
    */
   public List<Triplet> getHorizontalSlice(int roundedMZ, int lowerScanBound, int upperScanBound) {
-    return getHorizontalSlice((double) roundedMZ / roundMzFactor, lowerScanBound, upperScanBound);
+    return getHorizontalSlice(roundMZ((double) roundedMZ / roundMzFactor), lowerScanBound,
+        upperScanBound, true);
+  }
+
+  private List<Triplet> getHorizontalSlice(int roundedmz, int lowerScanBound, int upperScanBound,
+      boolean withMissingDataPoints) {
+
+    List<Triplet> sliceList = new ArrayList<Triplet>();
+
+    // The data points of one m/z value are consecutive in sortedByMzScan, ordered by scan
+    int position = findMzScanPosition(roundedmz, lowerScanBound);
+    for (int i = lowerScanBound; i <= upperScanBound; i++) {
+      while (position < numOfDataPoints && mzs[sortedByMzScan[position]] == roundedmz
+          && scanListIndices[sortedByMzScan[position]] < i)
+        position++;
+      if (position < numOfDataPoints && mzs[sortedByMzScan[position]] == roundedmz
+          && scanListIndices[sortedByMzScan[position]] == i) {
+        sliceList.add(getTriplet(sortedByMzScan[position]));
+      } else if (withMissingDataPoints) {
+        Triplet missingTriplet = new Triplet();
+        missingTriplet.mz = roundedmz;
+        missingTriplet.scanListIndex = i;
+        missingTriplet.intensity = 0;
+        missingTriplet.removed = 0;
+        sliceList.add(missingTriplet);
+      }
+    }
+
+    return sliceList;
   }
 
   /**
@@ -338,60 +395,36 @@ public class SliceSparseMatrix {
    *
    * @return datapointList a
    *         {@link io.github.msdk.featuredetection.adap3d.algorithms.SliceSparseMatrix.VerticalSliceDataPoint}
-   *         list. This is list containing m/z and intensities for one scan number.
+   *         list. This is list containing m/z and intensities for one scan number, or null if the
+   *         scan has no data points.
    * @param scanNumber a int.
    */
   public List<VerticalSliceDataPoint> getVerticalSlice(int scanNumber) {
 
-    List<Triplet> oneScanTriplet = new ArrayList<Triplet>();
-    List<VerticalSliceDataPoint> datapointList = new ArrayList<VerticalSliceDataPoint>();
-
-    Triplet searchTriplet = new Triplet();
-    searchTriplet.scanListIndex = scanNumber;
-    int index1 = Collections.binarySearch(sortListAccordingToScan, searchTriplet, compareScan);
-    int index2 = index1;
-    oneScanTriplet.add(sortListAccordingToScan.get(index1));
+    if (scanNumber < 0 || scanNumber >= listOfScans.size()
+        || scanStarts[scanNumber] == scanStarts[scanNumber + 1])
+      return null;
 
-    while (index1 >= 0) {
-      index1--;
-      if (index1 < 0 || sortListAccordingToScan.get(index1).scanListIndex != scanNumber) {
-        break;
-      }
-      oneScanTriplet.add(sortListAccordingToScan.get(index1));
-    }
+    List<VerticalSliceDataPoint> datapointList = new ArrayList<VerticalSliceDataPoint>();
 
-    while (index2 >= 0) {
-      index2++;
-      if (index2 > filterListOfTriplet.size() - 1
-          || filterListOfTriplet.get(index2).scanListIndex != scanNumber) {
-        break;
-      }
-      oneScanTriplet.add(filterListOfTriplet.get(index2));
+    int maxIntensityDataPoint = scanStarts[scanNumber];
+    for (int i = scanStarts[scanNumber] + 1; i < scanStarts[scanNumber + 1]; i++) {
+      if (Float.compare(intensities[i], intensities[maxIntensityDataPoint]) > 0)
+        maxIntensityDataPoint = i;
     }
-
-    Collections.sort(oneScanTriplet, compareIntensity);
-    int maxIntensityMZ = oneScanTriplet.get(0).mz;
-    Collections.sort(oneScanTriplet, compareScanMz);
-
-    Triplet searchMz = new Triplet();
-    for (int roundedMZ : mzValues) {
+    int maxIntensityMZ = mzs[maxIntensityDataPoint];
+
+    int first = Arrays.binarySearch(distinctMzValues, maxIntensityMZ - roundMzFactor);
+    if (first < 0)
+      first = -first - 1;
+    for (int i = first; i < distinctMzValues.length
+        && distinctMzValues[i] <= maxIntensityMZ + roundMzFactor; i++) {
+      int roundedMZ = distinctMzValues[i];
       VerticalSliceDataPoint datapoint = new VerticalSliceDataPoint();
-
-      searchMz.mz = roundedMZ;
-      searchMz.scanListIndex = scanNumber;
-      if (roundedMZ >= (maxIntensityMZ - roundMzFactor)
-          && roundedMZ <= (maxIntensityMZ + roundMzFactor)) {
-        int mzInex = Collections.binarySearch(oneScanTriplet, searchMz, compareScanMz);
-        if (mzInex >= 0) {
-          datapoint.intensity = oneScanTriplet.get(mzInex).intensity;
-          datapoint.mz = (float) roundedMZ / roundMzFactor;
-          datapointList.add(datapoint);
-        } else {
-          datapoint.intensity = (float) 0.0;
-          datapoint.mz = (float) roundedMZ / roundMzFactor;
-          datapointList.add(datapoint);
-        }
-      }
+      int dataPoint = findDataPoint(roundedMZ, scanNumber);
+      datapoint.intensity = dataPoint >= 0 ? intensities[dataPoint] : (float) 0.0;
+      datapoint.mz = (float) roundedMZ / roundMzFactor;
+      datapointList.add(datapoint);
     }
     return datapointList;
   }
@@ -400,7 +433,7 @@ public class SliceSparseMatrix {
 
   /**
    * <p>
-   * This method finds next maximum intensity from filterListOfTriplet
+   * This method finds next maximum intensity among the data points which were not removed.
    * </p>
    *
    * @return tripletObject a {@link io.github.msdk.featuredetection.adap3d.algorithms.SliceSparseMatrix.Triplet} object. This is element of sparse matrix.
@@ -409,9 +442,9 @@ public class SliceSparseMatrix {
 
     Triplet tripletObject = null;
 
-    for (int i = maxIntensityIndex; i < sortListAccordingToIntensity.size(); i++) {
-      if (sortListAccordingToIntensity.get(i).removed == 0) {
-        tripletObject = sortListAccordingToIntensity.get(i);
+    for (int i = maxIntensityIndex; i < numOfDataPoints; i++) {
+      if (!removed.get(sortedByIntensity[i])) {
+        tripletObject = getTriplet(sortedByIntensity[i]);
         maxIntensityIndex = i + 1;
         break;
       }
@@ -441,11 +474,11 @@ public class SliceSparseMatrix {
       ContinuousWaveletTransform.DataPoint dataPoint = new ContinuousWaveletTransform.DataPoint();
       Triplet triplet = (Triplet) iterator.next();
       if (triplet.intensity != 0 && triplet.removed == 0) {
-        dataPoint.rt = rtMap.get(triplet.scanListIndex) / 60;
+        dataPoint.rt = retentionTimes[triplet.scanListIndex] / 60;
         dataPoint.intensity = triplet.intensity;
         listOfDataPoint.add(dataPoint);
       } else {
-        dataPoint.rt = rtMap.get(triplet.scanListIndex) / 60;
+        dataPoint.rt = retentionTimes[triplet.scanListIndex] / 60;
         dataPoint.intensity = 0.0;
         listOfDataPoint.add(dataPoint);
       }
@@ -472,28 +505,37 @@ public class SliceSparseMatrix {
    * This method removes data points from whole data set for given mz,lowerscanbound and
    * upperscanbound
    * </p>
+   * <p>
+   * The returned list is a read-only view: add(), set() and remove() throw
+   * UnsupportedOperationException. Each get() returns a new Triplet holding the current state of
+   * the data point, so modifying it does not change the matrix; use removeDataPoints() and
+   * restoreDataPoints() instead.
+   * </p>
    *
    * @param lowerScanBound a {@link java.lang.Integer} object.This is lowest scan number.
    * @param upperScanBound a {@link java.lang.Integer} object.This is highest scan number.
-   * @return tripletMap a {@link org.apache.commons.collections4.map.MultiKeyMap} object. This is
-   *         whole sparse matrix.
+   * @return a read-only {@link java.util.List} view of all data points of the sparse matrix,
+   *         sorted by scan and m/z value.
    * @param roundedmz a int.
    */
   public List<Triplet> removeDataPoints(int roundedmz, int lowerScanBound, int upperScanBound) {
+    setRemoved(roundedmz, roundedmz, lowerScanBound, upperScanBound, true);
+    return new TripletListView();
+  }
 
-    Triplet searchTriplet = new Triplet();
-
-    for (int i = lowerScanBound; i <= upperScanBound; i++) {
-
-      searchTriplet.mz = roundedmz;
-      searchTriplet.scanListIndex = i;
-      int index = Collections.binarySearch(filterListOfTriplet, searchTriplet, compareScanMz);
-      if (index >= 0) {
-        Triplet triplet = filterListOfTriplet.get(index);
-        triplet.removed = 1;
-      }
-    }
-    return filterListOfTriplet;
+  /**
+   * <p>
+   * This method removes data points from whole data set for all mz values from lowerMz to upperMz
+   * and scans from lowerScanBound to upperScanBound.
+   * </p>
+   *
+   * @param lowerMz a int. This is the lowest rounded m/z value.
+   * @param upperMz a int. This is the highest rounded m/z value.
+   * @param lowerScanBound a int. This is lowest scan number.
+   * @param upperScanBound a int. This is highest scan number.
+   */
+  public void removeDataPoints(int lowerMz, int upperMz, int lowerScanBound, int upperScanBound) {
+    setRemoved(lowerMz, upperMz, lowerScanBound, upperScanBound, true);
   }
 
   /**
@@ -501,28 +543,79 @@ public class SliceSparseMatrix {
    * This method restores data points from whole data set for given mz,lowerscanbound and
    * upperscanbound
    * </p>
+   * <p>
+   * The returned list is a read-only view: add(), set() and remove() throw
+   * UnsupportedOperationException. Each get() returns a new Triplet holding the current state of
+   * the data point, so modifying it does not change the matrix; use removeDataPoints() and
+   * restoreDataPoints() instead.
+   * </p>
    *
    * @param lowerScanBound a {@link java.lang.Integer} object.This is lowest scan number.
    * @param upperScanBound a {@link java.lang.Integer} object.This is highest scan number.
-   * @return tripletMap a {@link org.apache.commons.collections4.map.MultiKeyMap} object. This is
-   *         whole sparse matrix.
+   * @return a read-only {@link java.util.List} view of all data points of the sparse matrix,
+   *         sorted by scan and m/z value.
    * @param roundedmz a int.
    */
   public List<Triplet> restoreDataPoints(int roundedmz, int lowerScanBound, int upperScanBound) {
+    setRemoved(roundedmz, roundedmz, lowerScanBound, upperScanBound, false);
+    return new TripletListView();
+  }
 
-    Triplet searchTriplet = new Triplet();
-
-    for (int i = lowerScanBound; i <= upperScanBound; i++) {
+  /**
+   * <p>
+   * This method restores data points from whole data set for all mz values from lowerMz to
+   * upperMz and scans from lowerScanBound to upperScanBound.
+   * </p>
+   *
+   * @param lowerMz a int. This is the lowest rounded m/z value.
+   * @param upperMz a int. This is the highest rounded m/z value.
+   * @param lowerScanBound a int. This is lowest scan number.
+   * @param upperScanBound a int. This is highest scan number.
+   */
+  public void restoreDataPoints(int lowerMz, int upperMz, int lowerScanBound,
+      int upperScanBound) {
+    setRemoved(lowerMz, upperMz, lowerScanBound, upperScanBound, false);
+  }
 
-      searchTriplet.mz = roundedmz;
-      searchTriplet.scanListIndex = i;
-      int index = Collections.binarySearch(filterListOfTriplet, searchTriplet, compareScanMz);
-      if (index >= 0) {
-        Triplet triplet = filterListOfTriplet.get(index);
-        triplet.removed = 0;
+  private void setRemoved(int lowerMz, int upperMz, int lowerScanBound, int upperScanBound,
+      boolean value) {
+    int position = findMzScanPosition(lowerMz, lowerScanBound);
+    while (position < numOfDataPoints) {
+      int dataPoint = sortedByMzScan[position];
+      int mz = mzs[dataPoint];
+      int scanListIndex = scanListIndices[dataPoint];
+      if (mz > upperMz)
+        break;
+      if (scanListIndex < lowerScanBound) {
+        position = findMzScanPosition(mz, lowerScanBound);
+      } else if (scanListIndex > upperScanBound) {
+        if (mz == upperMz)
+          break;
+        position = findMzScanPosition(mz + 1, lowerScanBound);
+      } else {
+        removed.set(dataPoint, value);
+        position++;
       }
     }
-    return filterListOfTriplet;
+  }
+
+  /**
+   * A read-only view of all data points, in the order of scans and m/z values. The triplets are
+   * created on each get(), from the current state of the data points.
+   */
+  private class TripletListView extends AbstractList<Triplet> {
+
+    @Override
+    public Triplet get(int index) {
+      if (index < 0 || index >= numOfDataPoints)
+        throw new IndexOutOfBoundsException("Index: " + index);
+      return getTriplet(index);
+    }
+
+    @Override
+    public int size() {
+      return numOfDataPoints;
+    }
   }
 
   /**
@@ -591,17 +684,10 @@ public class SliceSparseMatrix {
 
     float[] intensities = new float[peak.upperScanBound - peak.lowerScanBound + 1];
 
+    int roundedMz = roundMZ(peak.mz);
     for (int i = 0; i < peak.upperScanBound - peak.lowerScanBound + 1; i++) {
-      Triplet searchTriplet = new Triplet();
-      searchTriplet.scanListIndex = i + peak.lowerScanBound;
-      searchTriplet.mz = roundMZ(peak.mz);
-
-      int index = Collections.binarySearch(filterListOfTriplet, searchTriplet, compareScanMz);
-      if (index >= 0) {
-        intensities[i] = filterListOfTriplet.get(index).intensity;
-      } else {
-        intensities[i] = 0;
-      }
+      int dataPoint = findDataPoint(roundedMz, i + peak.lowerScanBound);
+      intensities[i] = dataPoint >= 0 ? this.intensities[dataPoint] : 0;
     }
 
     return intensities;
@@ -616,7 +702,7 @@ public class SliceSparseMatrix {
    * @param scanNumber a int.
    */
   public double getRetentionTime(int scanNumber) {
-    return rtMap.get(scanNumber);
+    return retentionTimes[scanNumber];
   }
 
   /**
@@ -629,9 +715,15 @@ public class SliceSparseMatrix {
    */
   public float getFinishedPercent(Triplet maxIntensityTriplet) {
 
-    int index = Collections.binarySearch(sortListAccordingToIntensity, maxIntensityTriplet,
-        compareIntensity);
-    float progress = index / sortListAccordingToIntensity.size();
+    int low = 0, high = numOfDataPoints;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (Float.compare(intensities[sortedByIntensity[mid]], maxIntensityTriplet.intensity) > 0)
+        low = mid + 1;
+      else
+        high = mid;
+    }
+    float progress = numOfDataPoints == 0 ? 1f : (float) low / numOfDataPoints;
     return progress;
 
   }
@@ -0,0 +1,71 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+package io.github.msdk.featuredetection.adap3d.algorithms;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the transform of uniformly spaced signals, on synthetic signals.
+ */
+public class ContinuousWaveletTransformUniformTest {
+
+  /**
+   * Two gaussian peaks on a wavy baseline, sampled every 0.01 min.
+   */
+  private static List<ContinuousWaveletTransform.DataPoint> createSignal() {
+    List<ContinuousWaveletTransform.DataPoint> listOfDataPoint =
+        new ArrayList<ContinuousWaveletTransform.DataPoint>();
+    for (int i = 0; i < 500; i++) {
+      ContinuousWaveletTransform.DataPoint datapoint = new ContinuousWaveletTransform.DataPoint();
+      datapoint.rt = 10.0 + i * 0.01;
+      datapoint.intensity = 1E5 * java.lang.Math.exp(-java.lang.Math.pow(i - 150, 2) / 50.0)
+          + 4E4 * java.lang.Math.exp(-java.lang.Math.pow(i - 320, 2) / 200.0)
+          + 1E3 * (1.0 + java.lang.Math.sin(i / 7.0));
+      listOfDataPoint.add(datapoint);
+    }
+    return listOfDataPoint;
+  }
+
+  @Test
+  public void testUniformSpacing() {
+    List<ContinuousWaveletTransform.DataPoint> listOfDataPoint = createSignal();
+
+    ContinuousWaveletTransform continuousWavelet = new ContinuousWaveletTransform(1, 10, 1);
+    continuousWavelet.setX(listOfDataPoint);
+    continuousWavelet.setSignal(listOfDataPoint);
+
+    // Both the direct kernel (small scales) and the FFT (large scales) match the point by point
+    // transform
+    for (double scale = 1; scale <= 10; scale += 1) {
+      double[] coefficients = continuousWavelet.getCoefficientsForThisScale(scale);
+      for (int i = 0; i < coefficients.length; i++) {
+        Assert.assertEquals(continuousWavelet.signalWaveletInnerProductOnePoint(i, scale),
+            coefficients[i], 1E-6);
+      }
+    }
+
+    // Irregular spacing is transformed point by point
+    listOfDataPoint.get(200).rt += 0.004;
+    continuousWavelet.setX(listOfDataPoint);
+    double[] coefficients = continuousWavelet.getCoefficientsForThisScale(10);
+    for (int i = 0; i < coefficients.length; i++) {
+      Assert.assertEquals(continuousWavelet.signalWaveletInnerProductOnePoint(i, 10),
+          coefficients[i], 0.0);
+    }
+  }
+}
@@ -19,14 +19,20 @@ import java.net.URISyntaxException;
 import java.net.URL;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 
 import org.junit.Assert;
+import org.junit.Assume;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
 import io.github.msdk.MSDKException;
+import io.github.msdk.datamodel.FileType;
 import io.github.msdk.datamodel.RawDataFile;
+import io.github.msdk.datamodel.SimpleMsScan;
+import io.github.msdk.datamodel.SimpleRawDataFile;
 import io.github.msdk.featuredetection.adap3d.algorithms.ContinuousWaveletTransform;
 import io.github.msdk.featuredetection.adap3d.algorithms.SliceSparseMatrix;
 import io.github.msdk.featuredetection.adap3d.algorithms.SliceSparseMatrix.Triplet;
@@ -37,6 +43,50 @@ public class SliceSparseMatrixTest {
   private static RawDataFile rawFile;
   private static SliceSparseMatrix objSliceSparseMatrix;
 
+  /**
+   * Data points of createRawFile() as {mz, scanListIndex, intensity, removed}, ordered by scan and
+   * m/z, as built by the Triplet list implementation of the matrix.
+   */
+  private static final int[][] allDataPoints = {{993000, 0, 900, 0}, {1000000, 0, 1500, 0},
+      {1005000, 0, 1200, 0}, {1012000, 0, 2500, 0}, {1500000, 0, 3000, 0}, {1000000, 1, 3500, 0},
+      {1005000, 1, 1200, 0}, {1012000, 1, 2500, 0}, {1500000, 1, 4500, 0}, {1000000, 2, 4500, 0},
+      {1005000, 2, 1200, 0}, {1012000, 2, 2500, 0}, {1500000, 2, 3500, 0}, {1000000, 4, 6500, 0},
+      {1005000, 4, 1200, 0}, {1012000, 4, 2500, 0}, {1500000, 4, 4000, 0}, {1000000, 5, 7500, 0},
+      {1005000, 5, 5000, 0}, {1012000, 5, 2500, 0}, {1500000, 5, 3000, 0}, {1000000, 6, 8500, 0},
+      {1005000, 6, 1200, 0}, {1012000, 6, 2500, 0}, {1500000, 6, 4500, 0}, {1000000, 7, 9500, 0},
+      {1005000, 7, 1200, 0}, {1012000, 7, 2500, 0}, {1500000, 7, 3500, 0}};
+
+  /**
+   * Eight scans of six data points. The 2nd and 3rd m/z values are rounded to the same value, the
+   * 1st intensity is under the threshold of 1000, equal intensities appear in several scans, and
+   * the 4th scan has no retention time.
+   */
+  private static RawDataFile createRawFile() {
+    SimpleRawDataFile rawFile = new SimpleRawDataFile("test", Optional.empty(), FileType.MZML);
+    for (int i = 0; i < 8; i++) {
+      SimpleMsScan scan = new SimpleMsScan(i + 1);
+      if (i != 3)
+        scan.setRetentionTime(60f + 6f * i);
+      double[] mzValues = {99.3, 100.00001, 100.00004, 100.5, 101.2, 150.0};
+      float[] intensityValues = {900f, 1500f, 1000f * (i + 1), i == 5 ? 5000f : 1200f, 2500f,
+          3000f + 500f * (i * 3 % 5)};
+      scan.setDataPoints(mzValues, intensityValues, mzValues.length);
+      rawFile.addScan(scan);
+    }
+    return rawFile;
+  }
+
+  private static void assertTriplets(int[][] expected, List<Triplet> actual) {
+    Assert.assertEquals(expected.length, actual.size());
+    for (int i = 0; i < expected.length; i++) {
+      Triplet triplet = actual.get(i);
+      Assert.assertEquals(expected[i][0], triplet.mz);
+      Assert.assertEquals(expected[i][1], triplet.scanListIndex);
+      Assert.assertEquals(expected[i][2], triplet.intensity, 0.0);
+      Assert.assertEquals(expected[i][3], triplet.removed);
+    }
+  }
+
   private static Path getResourcePath(String resource) throws MSDKException {
     final URL url = SliceSparseMatrixTest.class.getClassLoader().getResource(resource);
     try {
@@ -49,8 +99,10 @@ public class SliceSparseMatrixTest {
   @BeforeClass
   public static void loadData() throws MSDKException {
 
-    // Import the file
+    // Import the file, the tests which use it are skipped if it is missing
     String file = "tiny.mzXML";
+    if (SliceSparseMatrixTest.class.getClassLoader().getResource(file) == null)
+      return;
     Path path = getResourcePath(file);
     File inputFile = path.toFile();
     Assert.assertTrue("Cannot read test data", inputFile.canRead());
@@ -60,26 +112,34 @@ public class SliceSparseMatrixTest {
     Assert.assertNotNull(rawFile);
   }
 
+  private static void assumeFileLoaded() {
+    Assume.assumeTrue("Test data tiny.mzXML is missing", objSliceSparseMatrix != null);
+  }
+
 
   @Test
   public void getHorizontalSlice() throws MSDKException, IOException {
+    assumeFileLoaded();
     List<Triplet> slice = objSliceSparseMatrix.getHorizontalSlice(181.0596, 50, 77);
     Assert.assertEquals(28, slice.size());
   }
 
   @Test
   public void getVerticalSlice() throws MSDKException, IOException {
+    assumeFileLoaded();
     List<SliceSparseMatrix.VerticalSliceDataPoint> slice = objSliceSparseMatrix.getVerticalSlice(5);
     Assert.assertEquals(5389, slice.size());
   }
 
   @Test
   public void testFindNextMaxIntensity() throws MSDKException, IOException {
+    assumeFileLoaded();
     Assert.assertEquals(9695762.0, objSliceSparseMatrix.findNextMaxIntensity().intensity, 0);
   }
 
   @Test
   public void testGetRetentionTimeGetIntensity() throws MSDKException, IOException {
+    assumeFileLoaded();
     List<Triplet> slice = objSliceSparseMatrix.getHorizontalSlice(181.0596, 50, 77);
     List<ContinuousWaveletTransform.DataPoint> listOfDataPoint =
         objSliceSparseMatrix.getCWTDataPoint(slice);
@@ -88,6 +148,7 @@ public class SliceSparseMatrixTest {
 
   @Test
   public void testRemoveDataPoints() throws MSDKException, IOException {
+    assumeFileLoaded();
     List<Triplet> updatedTripletList = objSliceSparseMatrix.removeDataPoints(1810596, 50, 77);
     for (int i = 0; i < updatedTripletList.size(); i++) {
       SliceSparseMatrix.Triplet triplet = updatedTripletList.get(i);
@@ -97,4 +158,116 @@ public class SliceSparseMatrixTest {
       }
     }
   }
+
+  @Test
+  public void testRemoveRestoreDataPointsRange() throws MSDKException, IOException {
+    assumeFileLoaded();
+    objSliceSparseMatrix.removeDataPoints(1810590, 1810600, 10, 20);
+    for (int mz = 1810590; mz <= 1810600; mz++) {
+      for (Triplet triplet : objSliceSparseMatrix.getHorizontalSlice(mz, 9, 21)) {
+        boolean inRange = triplet.scanListIndex >= 10 && triplet.scanListIndex <= 20;
+        if (triplet.intensity != 0)
+          Assert.assertEquals(inRange ? 1 : 0, triplet.removed);
+      }
+    }
+
+    objSliceSparseMatrix.restoreDataPoints(1810590, 1810600, 10, 20);
+    for (int mz = 1810590; mz <= 1810600; mz++) {
+      for (Triplet triplet : objSliceSparseMatrix.getHorizontalSlice(mz, 9, 21))
+        Assert.assertEquals(0, triplet.removed);
+    }
+  }
+
+  @Test
+  public void testHorizontalSliceOfScans() {
+    SliceSparseMatrix matrix = new SliceSparseMatrix(createRawFile());
+
+    // Missing data points have a zero intensity, the scan without retention time has none
+    assertTriplets(
+        new int[][] {{1000000, 0, 1500, 0}, {1000000, 1, 3500, 0}, {1000000, 2, 4500, 0},
+            {1000000, 3, 0, 0}, {1000000, 4, 6500, 0}, {1000000, 5, 7500, 0},
+            {1000000, 6, 8500, 0}, {1000000, 7, 9500, 0}},
+        matrix.getHorizontalSlice(100.0, 0, 7));
+    assertTriplets(new int[][] {{1000000, 3, 0, 0}, {1000000, 4, 6500, 0}},
+        matrix.getHorizontalSlice(1000000, 3, 4));
+    assertTriplets(new int[][] {{1501230, 6, 0, 0}, {1501230, 7, 0, 0}},
+        matrix.getHorizontalSlice(150.123, 6, 7));
+  }
+
+  @Test
+  public void testVerticalSliceOfScans() {
+    SliceSparseMatrix matrix = new SliceSparseMatrix(createRawFile());
+
+    // The m/z value of the first data point is not in mzValues
+    Assert.assertEquals(5, matrix.mzValues.size());
+    Assert.assertEquals(Integer.valueOf(993000), matrix.mzValues.get(0));
+    Assert.assertEquals(Integer.valueOf(1500000), matrix.mzValues.get(4));
+
+    // m/z values within 1 of the most intense data point of the scan
+    float[][] expected = {{99.3f, 0f}, {100.0f, 7500f}, {100.5f, 5000f}};
+    List<SliceSparseMatrix.VerticalSliceDataPoint> slice = matrix.getVerticalSlice(5);
+    Assert.assertEquals(expected.length, slice.size());
+    for (int i = 0; i < expected.length; i++) {
+      Assert.assertEquals(expected[i][0], slice.get(i).mz, 0.0);
+      Assert.assertEquals(expected[i][1], slice.get(i).intensity, 0.0);
+    }
+
+    slice = matrix.getVerticalSlice(0);
+    Assert.assertEquals(1, slice.size());
+    Assert.assertEquals(150.0f, slice.get(0).mz, 0.0);
+    Assert.assertEquals(3000f, slice.get(0).intensity, 0.0);
+  }
+
+  @Test
+  public void testFindNextMaxIntensityOfScans() {
+    SliceSparseMatrix matrix = new SliceSparseMatrix(createRawFile());
+
+    // Decreasing intensities, equal ones in the order of scan and m/z
+    int[][] expected = {{1000000, 7, 9500, 0}, {1000000, 6, 8500, 0}, {1000000, 5, 7500, 0},
+        {1000000, 4, 6500, 0}, {1005000, 5, 5000, 0}, {1500000, 1, 4500, 0}, {1000000, 2, 4500, 0},
+        {1500000, 6, 4500, 0}, {1500000, 4, 4000, 0}, {1000000, 1, 3500, 0}, {1500000, 2, 3500, 0},
+        {1500000, 7, 3500, 0}, {1500000, 0, 3000, 0}, {1500000, 5, 3000, 0}, {1012000, 0, 2500, 0},
+        {1012000, 1, 2500, 0}, {1012000, 2, 2500, 0}, {1012000, 4, 2500, 0}, {1012000, 5, 2500, 0},
+        {1012000, 6, 2500, 0}, {1012000, 7, 2500, 0}, {1000000, 0, 1500, 0}, {1005000, 0, 1200, 0},
+        {1005000, 1, 1200, 0}, {1005000, 2, 1200, 0}, {1005000, 4, 1200, 0}, {1005000, 6, 1200, 0},
+        {1005000, 7, 1200, 0}, {993000, 0, 900, 0}};
+    List<Triplet> triplets = new ArrayList<>();
+    Triplet triplet;
+    while ((triplet = matrix.findNextMaxIntensity()) != null)
+      triplets.add(triplet);
+    assertTriplets(expected, triplets);
+
+    // Removed data points are skipped
+    matrix.removeDataPoints(1000000, 2, 5);
+    matrix.setMaxIntensityIndexZero();
+    Assert.assertEquals(7, matrix.findNextMaxIntensity().scanListIndex);
+    Assert.assertEquals(6, matrix.findNextMaxIntensity().scanListIndex);
+    Assert.assertEquals(5000f, matrix.findNextMaxIntensity().intensity, 0.0);
+  }
+
+  @Test
+  public void testRemoveRestoreDataPointsOfScans() {
+    SliceSparseMatrix matrix = new SliceSparseMatrix(createRawFile());
+    int[][] expected = new int[allDataPoints.length][];
+    for (int i = 0; i < allDataPoints.length; i++)
+      expected[i] = allDataPoints[i].clone();
+
+    // Scans 2 to 5 of 100.0, the 4th scan has no data point
+    expected[9][3] = expected[13][3] = expected[17][3] = 1;
+    assertTriplets(expected, matrix.removeDataPoints(1000000, 2, 5));
+    // Scans 0 and 1 of 101.2
+    expected[3][3] = expected[7][3] = 1;
+    assertTriplets(expected, matrix.removeDataPoints(1012000, 0, 1));
+    assertTriplets(
+        new int[][] {{1000000, 1, 3500, 0}, {1000000, 2, 4500, 1}, {1000000, 3, 0, 0},
+            {1000000, 4, 6500, 1}, {1000000, 5, 7500, 1}, {1000000, 6, 8500, 0}},
+        matrix.getHorizontalSlice(100.0, 1, 6));
+
+    expected[13][3] = 0;
+    assertTriplets(expected, matrix.restoreDataPoints(1000000, 3, 4));
+
+    // Missing data points are ignored
+    assertTriplets(expected, matrix.restoreDataPoints(1501230, 0, 7));
+    assertTriplets(expected, matrix.removeDataPoints(993000, 1, 7));
+  }
 }
@@ -37,6 +37,17 @@ class BuildingChromatogram {
   // commitBuildingSegment()
   private int numOfCommittedSegments = 0;
 
+  // Position among the building chromatograms of the current scan
+  private int order = 0;
+
+  int getOrder() {
+    return order;
+  }
+
+  void setOrder(int order) {
+    this.order = order;
+  }
+
   int getNumberOfCommittedSegments() {
     return numOfCommittedSegments;
   }
@@ -0,0 +1,337 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+package io.github.msdk.featuredetection.chromatogrambuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+
+import io.github.msdk.MSDKException;
+import io.github.msdk.MSDKMethod;
+import io.github.msdk.datamodel.Chromatogram;
+import io.github.msdk.datamodel.RawDataFile;
+import io.github.msdk.util.tolerances.MzTolerance;
+
+/**
+ * <p>
+ * Runs the {@link io.github.msdk.featuredetection.chromatogrambuilder.ChromatogramBuilderMethod
+ * ChromatogramBuilderMethod} with shared parameters over many raw data files at once. The files
+ * are processed concurrently on an {@link java.util.concurrent.Executor Executor}, but at most
+ * <code>maxOpenFiles</code> of them are open at the same time, which bounds the memory used by
+ * decoded scans.
+ * </p>
+ *
+ * <p>
+ * Files may be given either as {@link io.github.msdk.datamodel.RawDataFile RawDataFile}s, or as
+ * the import methods which open them. In the second case each file is imported just before its
+ * chromatograms are built, and disposed right after. The resulting chromatograms keep their own
+ * copy of the data points, so they stay valid after the file is disposed.
+ * </p>
+ */
+public class ChromatogramBuilderBatchMethod implements MSDKMethod<List<List<Chromatogram>>> {
+
+  private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+  private final @Nonnull List<FileTask> tasks;
+  private final @Nonnull Double noiseLevel;
+  private final @Nonnull Double minimumTimeSpan, minimumHeight;
+  private final @Nonnull MzTolerance mzTolerance;
+  private final @Nullable Executor executor;
+  private final int maxOpenFiles;
+
+  private volatile boolean started = false;
+  private volatile boolean canceled = false;
+  private List<List<Chromatogram>> result;
+
+  /**
+   * <p>
+   * Constructor for ChromatogramBuilderBatchMethod. The files are processed on a thread pool of
+   * its own, one file per available processor.
+   * </p>
+   *
+   * @param inputFiles a {@link java.util.List} of {@link io.github.msdk.datamodel.RawDataFile}s.
+   * @param noiseLevel a double.
+   * @param minimumTimeSpan a double.
+   * @param minimumHeight a double.
+   * @param mzTolerance an object that implements the MZTolerance interface.
+   */
+  public ChromatogramBuilderBatchMethod(@Nonnull List<? extends RawDataFile> inputFiles,
+      double noiseLevel, double minimumTimeSpan, double minimumHeight,
+      @Nonnull MzTolerance mzTolerance) {
+    this(inputFiles, noiseLevel, minimumTimeSpan, minimumHeight, mzTolerance, null,
+        Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * <p>
+   * Constructor for ChromatogramBuilderBatchMethod.
+   * </p>
+   *
+   * @param inputFiles a {@link java.util.List} of {@link io.github.msdk.datamodel.RawDataFile}s.
+   * @param noiseLevel a double.
+   * @param minimumTimeSpan a double.
+   * @param minimumHeight a double.
+   * @param mzTolerance an object that implements the MZTolerance interface.
+   * @param executor the {@link java.util.concurrent.Executor} to run the builders on, or null to
+   *        use a thread pool of <code>maxOpenFiles</code> threads
+   * @param maxOpenFiles the maximum number of files processed at the same time
+   */
+  public ChromatogramBuilderBatchMethod(@Nonnull List<? extends RawDataFile> inputFiles,
+      double noiseLevel, double minimumTimeSpan, double minimumHeight,
+      @Nonnull MzTolerance mzTolerance, @Nullable Executor executor, int maxOpenFiles) {
+    this(noiseLevel, minimumTimeSpan, minimumHeight, mzTolerance, executor, maxOpenFiles);
+    for (RawDataFile inputFile : inputFiles)
+      tasks.add(new FileTask(inputFile, null));
+  }
+
+  /**
+   * <p>
+   * Constructor for ChromatogramBuilderBatchMethod which opens the files itself. Each import
+   * method is executed right before the chromatograms of its file are built, and the imported
+   * file is disposed afterwards.
+   * </p>
+   *
+   * @param fileImporters a {@link java.util.Collection} of methods which import the raw data files.
+   * @param noiseLevel a double.
+   * @param minimumTimeSpan a double.
+   * @param minimumHeight a double.
+   * @param mzTolerance an object that implements the MZTolerance interface.
+   * @param executor the {@link java.util.concurrent.Executor} to run the imports and builders on,
+   *        or null to use a thread pool of <code>maxOpenFiles</code> threads
+   * @param maxOpenFiles the maximum number of files open at the same time
+   */
+  public ChromatogramBuilderBatchMethod(
+      @Nonnull Collection<? extends MSDKMethod<? extends RawDataFile>> fileImporters,
+      double noiseLevel, double minimumTimeSpan, double minimumHeight,
+      @Nonnull MzTolerance mzTolerance, @Nullable Executor executor, int maxOpenFiles) {
+    this(noiseLevel, minimumTimeSpan, minimumHeight, mzTolerance, executor, maxOpenFiles);
+    for (MSDKMethod<? extends RawDataFile> fileImporter : fileImporters)
+      tasks.add(new FileTask(null, fileImporter));
+  }
+
+  private ChromatogramBuilderBatchMethod(double noiseLevel, double minimumTimeSpan,
+      double minimumHeight, @Nonnull MzTolerance mzTolerance, @Nullable Executor executor,
+      int maxOpenFiles) {
+    Preconditions.checkArgument(maxOpenFiles > 0, "maxOpenFiles must be positive");
+    this.tasks = new ArrayList<>();
+    this.noiseLevel = noiseLevel;
+    this.minimumTimeSpan = minimumTimeSpan;
+    this.minimumHeight = minimumHeight;
+    this.mzTolerance = mzTolerance;
+    this.executor = executor;
+    this.maxOpenFiles = maxOpenFiles;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>
+   * The chromatograms of each file are returned in the order of the input files.
+   * </p>
+   */
+  @Override
+  @Nullable
+  public List<List<Chromatogram>> execute() throws MSDKException {
+
+    logger.info("Started chromatogram builder on " + tasks.size() + " files");
+    started = true;
+
+    ExecutorService ownPool = null;
+    Executor taskExecutor = executor;
+    if (taskExecutor == null) {
+      ownPool = Executors.newFixedThreadPool(Math.min(maxOpenFiles, Math.max(1, tasks.size())));
+      taskExecutor = ownPool;
+    }
+
+    // Keep at most maxOpenFiles tasks in flight, and submit the next one whenever a task finishes
+    CompletionService<List<Chromatogram>> completionService =
+        new ExecutorCompletionService<>(taskExecutor);
+    @SuppressWarnings("unchecked")
+    List<Chromatogram>[] chromatograms = new List[tasks.size()];
+    int nextTask = 0, runningTasks = 0;
+    try {
+      while (nextTask < tasks.size() || runningTasks > 0) {
+        while (!canceled && nextTask < tasks.size() && runningTasks < maxOpenFiles) {
+          completionService.submit(tasks.get(nextTask++));
+          runningTasks++;
+        }
+        if (runningTasks == 0)
+          break;
+        completionService.take().get();
+        runningTasks--;
+      }
+    } catch (InterruptedException e) {
+      cancel();
+      Thread.currentThread().interrupt();
+      throw new MSDKException(e);
+    } catch (ExecutionException e) {
+      cancel();
+      if (e.getCause() instanceof MSDKException)
+        throw (MSDKException) e.getCause();
+      throw new MSDKException(e.getCause());
+    } finally {
+      if (ownPool != null)
+        ownPool.shutdown();
+    }
+
+    if (canceled)
+      return null;
+
+    for (int i = 0; i < tasks.size(); i++)
+      chromatograms[i] = tasks.get(i).result;
+    result = Collections.unmodifiableList(Arrays.asList(chromatograms));
+
+    logger.info("Finished chromatogram builder on " + tasks.size() + " files");
+
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>
+   * The progress is averaged over all input files.
+   * </p>
+   */
+  @Override
+  @Nullable
+  public Float getFinishedPercentage() {
+    if (!started)
+      return null;
+    if (tasks.isEmpty())
+      return 1f;
+    float finished = 0f;
+    for (FileTask task : tasks)
+      finished += task.getFinishedPercentage();
+    return finished / tasks.size();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nullable
+  public List<List<Chromatogram>> getResult() {
+    return result;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void cancel() {
+    this.canceled = true;
+    for (FileTask task : tasks)
+      task.cancel();
+  }
+
+  /**
+   * Imports a single file if needed, and builds its chromatograms.
+   */
+  private class FileTask implements Callable<List<Chromatogram>> {
+
+    private final @Nullable RawDataFile inputFile;
+    private final @Nullable MSDKMethod<? extends RawDataFile> fileImporter;
+
+    private volatile boolean importing = false;
+    private volatile ChromatogramBuilderMethod builder;
+    private volatile List<Chromatogram> result;
+
+    FileTask(@Nullable RawDataFile inputFile,
+        @Nullable MSDKMethod<? extends RawDataFile> fileImporter) {
+      this.inputFile = inputFile;
+      this.fileImporter = fileImporter;
+    }
+
+    @Override
+    public List<Chromatogram> call() throws MSDKException {
+      if (canceled)
+        return null;
+
+      RawDataFile rawFile = inputFile;
+      if (fileImporter != null) {
+        importing = true;
+        if (canceled)
+          return null;
+        rawFile = fileImporter.execute();
+        if (rawFile == null) {
+          if (canceled)
+            return null;
+          // The importer was canceled on its own, or failed without an exception
+          throw new MSDKException(
+              "Import method " + fileImporter.getClass().getSimpleName() + " returned no file");
+        }
+      }
+
+      try {
+        builder = new ChromatogramBuilderMethod(rawFile, noiseLevel, minimumTimeSpan,
+            minimumHeight, mzTolerance);
+        // Checked after publishing the builder, so a concurrent cancel() cannot be missed
+        if (canceled)
+          return null;
+        List<Chromatogram> chromatograms = builder.execute();
+        if (chromatograms == null && !canceled)
+          throw new MSDKException("Chromatogram builder returned no result");
+        result = chromatograms;
+        return result;
+      } finally {
+        if (fileImporter != null)
+          rawFile.dispose();
+      }
+    }
+
+    /**
+     * Importing, if any, counts as the first half of the work on a file.
+     */
+    float getFinishedPercentage() {
+      if (result != null)
+        return 1f;
+      float importWeight = fileImporter != null ? 0.5f : 0f;
+      ChromatogramBuilderMethod currentBuilder = builder;
+      if (currentBuilder != null) {
+        Float buildProgress = currentBuilder.getFinishedPercentage();
+        return importWeight
+            + (1f - importWeight) * (buildProgress == null ? 0f : buildProgress);
+      }
+      if (importing) {
+        Float importProgress = fileImporter.getFinishedPercentage();
+        return importWeight * (importProgress == null ? 0f : importProgress);
+      }
+      return 0f;
+    }
+
+    void cancel() {
+      if (fileImporter != null && importing)
+        fileImporter.cancel();
+      ChromatogramBuilderMethod currentBuilder = builder;
+      if (currentBuilder != null)
+        currentBuilder.cancel();
+    }
+
+  }
+
+}
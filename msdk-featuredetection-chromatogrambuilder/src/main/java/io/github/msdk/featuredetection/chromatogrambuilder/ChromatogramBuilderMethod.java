@@ -15,6 +15,7 @@ package io.github.msdk.featuredetection.chromatogrambuilder;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.RandomAccess;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -45,7 +46,7 @@ public class ChromatogramBuilderMethod implements MSDKMethod<List<Chromatogram>>
   private final @Nonnull MzTolerance mzTolerance;
 
   private int processedScans = 0, totalScans = 0;
-  private boolean canceled = false;
+  private volatile boolean canceled = false;
   private List<Chromatogram> result;
 
   /**
@@ -97,38 +98,34 @@ public class ChromatogramBuilderMethod implements MSDKMethod<List<Chromatogram>>
 
     logger.info("Started chromatogram builder on file " + inputFile.getName());
 
-    // Check if we have any scans
-    totalScans = inputScans.size();
-    if (totalScans == 0) {
-      throw new MSDKException("No scans provided for Chromatogram Builder");
-    }
-
-    // Check if the scans are properly ordered by RT
-    Float prevRT = null;
-    for (MsScan s : inputScans) {
-      if (s.getRetentionTime() == null)
-        continue;
-      if (prevRT == null) {
-        prevRT = s.getRetentionTime();
-        continue;
-      }
-      if (prevRT.compareTo(s.getRetentionTime()) > 0) {
-        final String msg = "Retention time of scan #" + s.getScanNumber()
-            + " is smaller then the retention time of the previous scan."
-            + " Please make sure you only use scans with increasing retention times.";
-        throw new MSDKException(msg);
-      }
-      prevRT = s.getRetentionTime();
-    }
+    // Lists which compute their scans on access, such as the scans of a LazyRawDataFile, would
+    // process every scan to find their size, so the progress is only known for random access
+    // lists until all scans are processed
+    if (inputScans instanceof RandomAccess)
+      totalScans = inputScans.size();
 
     HighestDataPointConnector massConnector =
         new HighestDataPointConnector(noiseLevel, minimumTimeSpan, minimumHeight);
 
+    // Iterate only once over the scans
+    Float prevRT = null;
     for (MsScan scan : inputScans) {
 
       if (canceled)
         return null;
 
+      // Check if the scans are properly ordered by RT
+      Float rt = scan.getRetentionTime();
+      if (rt != null) {
+        if (prevRT != null && prevRT.compareTo(rt) > 0) {
+          final String msg = "Retention time of scan #" + scan.getScanNumber()
+              + " is smaller then the retention time of the previous scan."
+              + " Please make sure you only use scans with increasing retention times.";
+          throw new MSDKException(msg);
+        }
+        prevRT = rt;
+      }
+
       MzTolerance mzTolerance = scan.getMzTolerance();
       if (mzTolerance == null && this.mzTolerance != null) {
         mzTolerance = this.mzTolerance;
@@ -139,6 +136,12 @@ public class ChromatogramBuilderMethod implements MSDKMethod<List<Chromatogram>>
       processedScans++;
     }
 
+    // Check if we had any scans
+    if (processedScans == 0) {
+      throw new MSDKException("No scans provided for Chromatogram Builder");
+    }
+    totalScans = processedScans;
+
     result = new ArrayList<>();
     massConnector.finishChromatograms(inputFile, result);
 
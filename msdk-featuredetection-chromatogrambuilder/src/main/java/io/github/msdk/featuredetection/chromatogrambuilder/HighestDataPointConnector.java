@@ -13,6 +13,8 @@
 
 package io.github.msdk.featuredetection.chromatogrambuilder;
 
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -24,7 +26,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Preconditions;
-import com.google.common.collect.Range;
 
 import io.github.msdk.datamodel.Chromatogram;
 import io.github.msdk.datamodel.MsScan;
@@ -49,6 +50,19 @@ class HighestDataPointConnector {
   private double mzBuffer[] = new double[10000];
   private float intensityBuffer[] = new float[10000];
 
+  // The building chromatograms sorted by their last m/z value at the beginning of the scan. An
+  // entry is stale once its chromatogram received a data point during the scan.
+  private BuildingChromatogram indexedChromatograms[] = new BuildingChromatogram[0];
+  private double indexedMz[] = new double[0];
+  private boolean indexedStale[] = new boolean[0];
+  private int indexedSize;
+
+  // The building chromatograms which received a data point during the scan, sorted by their new
+  // last m/z value
+  private BuildingChromatogram updatedChromatograms[] = new BuildingChromatogram[0];
+  private double updatedMz[] = new double[0];
+  private int updatedSize;
+
   HighestDataPointConnector(@Nonnull Double noiseLevel, double minimumTimeSpan,
       double minimumHeight) {
 
@@ -78,26 +92,39 @@ class HighestDataPointConnector {
     // A set of already connected chromatograms in each iteration
     connectedChromatograms.clear();
 
+    indexBuildingChromatograms();
+
     for (int i = 0; i < numOfDataPoints; i++) {
 
       if (intensityBuffer[i] < noiseLevel)
         continue;
 
       // Search for best chromatogram, which has the highest _last_ data
-      // point
+      // point. Only the chromatograms whose tolerance range may contain
+      // the m/z value are tested.
       BuildingChromatogram bestChromatogram = null;
+      int bestIndexedPosition = -1;
 
-      for (BuildingChromatogram testChrom : buildingChromatograms) {
-
-        Range<Double> toleranceRange = mzTolerance.getToleranceRange(testChrom.getLastMz());
-
-        if (toleranceRange.contains(mzBuffer[i])) {
-          if ((bestChromatogram == null)
-              || (testChrom.getLastIntensity() > bestChromatogram.getLastIntensity())) {
-            bestChromatogram = testChrom;
-          }
+      int from = findFirstRangeAbove(indexedMz, indexedSize, mzBuffer[i], mzTolerance);
+      int to = findLastRangeBelow(indexedMz, indexedSize, mzBuffer[i], mzTolerance);
+      for (int j = from; j <= to; j++) {
+        if (indexedStale[j])
+          continue;
+        BuildingChromatogram testChrom = indexedChromatograms[j];
+        if (isBetterCandidate(testChrom, bestChromatogram, mzBuffer[i], mzTolerance)) {
+          bestChromatogram = testChrom;
+          bestIndexedPosition = j;
         }
+      }
 
+      from = findFirstRangeAbove(updatedMz, updatedSize, mzBuffer[i], mzTolerance);
+      to = findLastRangeBelow(updatedMz, updatedSize, mzBuffer[i], mzTolerance);
+      for (int j = from; j <= to; j++) {
+        BuildingChromatogram testChrom = updatedChromatograms[j];
+        if (isBetterCandidate(testChrom, bestChromatogram, mzBuffer[i], mzTolerance)) {
+          bestChromatogram = testChrom;
+          bestIndexedPosition = -1;
+        }
       }
 
       // If we found best chromatogram, check if it is already connected.
@@ -107,6 +134,12 @@ class HighestDataPointConnector {
         if (connectedChromatograms.contains(bestChromatogram)) {
           continue;
         }
+        // Its last m/z value is going to change, so move it to the
+        // updated chromatograms, unless it is already one of them.
+        if (bestIndexedPosition >= 0) {
+          indexedStale[bestIndexedPosition] = true;
+          addUpdatedChromatogram(bestChromatogram, mzBuffer[i]);
+        }
       } else {
         bestChromatogram = new BuildingChromatogram();
       }
@@ -154,6 +187,113 @@ class HighestDataPointConnector {
     buildingChromatograms.clear();
     buildingChromatograms.addAll(connectedChromatograms);
 
+    // Release the references held by the index
+    Arrays.fill(indexedChromatograms, 0, indexedSize, null);
+    Arrays.fill(updatedChromatograms, 0, updatedSize, null);
+
+  }
+
+  /**
+   * Sorts the building chromatograms by their last m/z value into the indexed arrays. The position
+   * of each chromatogram in buildingChromatograms is kept as its order, which breaks ties between
+   * candidates the same way as iterating over buildingChromatograms.
+   */
+  private void indexBuildingChromatograms() {
+    indexedSize = buildingChromatograms.size();
+    if (indexedChromatograms.length < indexedSize) {
+      indexedChromatograms = new BuildingChromatogram[indexedSize * 2];
+      indexedMz = new double[indexedSize * 2];
+      indexedStale = new boolean[indexedSize * 2];
+      updatedChromatograms = new BuildingChromatogram[indexedSize * 2];
+      updatedMz = new double[indexedSize * 2];
+    }
+
+    int order = 0;
+    for (BuildingChromatogram chromatogram : buildingChromatograms) {
+      chromatogram.setOrder(order);
+      indexedChromatograms[order++] = chromatogram;
+    }
+    Arrays.sort(indexedChromatograms, 0, indexedSize,
+        Comparator.comparingDouble(BuildingChromatogram::getLastMz));
+    for (int i = 0; i < indexedSize; i++)
+      indexedMz[i] = indexedChromatograms[i].getLastMz();
+    Arrays.fill(indexedStale, 0, indexedSize, false);
+
+    updatedSize = 0;
+  }
+
+  private void addUpdatedChromatogram(BuildingChromatogram chromatogram, double mz) {
+    // Data points come by descending intensity, so insert at the sorted position
+    int position = upperBound(updatedMz, updatedSize, mz);
+    System.arraycopy(updatedMz, position, updatedMz, position + 1, updatedSize - position);
+    System.arraycopy(updatedChromatograms, position, updatedChromatograms, position + 1,
+        updatedSize - position);
+    updatedMz[position] = mz;
+    updatedChromatograms[position] = chromatogram;
+    updatedSize++;
+  }
+
+  /**
+   * Returns true if the tolerance range of testChrom contains mz, and it has a higher last
+   * intensity than bestChrom, or the same intensity and a lower order
+   */
+  private static boolean isBetterCandidate(BuildingChromatogram testChrom,
+      BuildingChromatogram bestChrom, double mz, MzTolerance mzTolerance) {
+    if (!mzTolerance.contains(testChrom.getLastMz(), mz))
+      return false;
+    if (bestChrom == null)
+      return true;
+    float testIntensity = testChrom.getLastIntensity();
+    float bestIntensity = bestChrom.getLastIntensity();
+    return testIntensity > bestIntensity
+        || (testIntensity == bestIntensity && testChrom.getOrder() < bestChrom.getOrder());
+  }
+
+  /**
+   * Returns the first position in the sorted lastMz array whose tolerance range does not end below
+   * mz. Tolerance ranges move monotonically with the m/z value, so the tolerance ranges containing
+   * mz are all between this position and {@link #findLastRangeBelow}.
+   */
+  private static int findFirstRangeAbove(double lastMz[], int size, double mz,
+      MzTolerance mzTolerance) {
+    int low = 0, high = size;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (mzTolerance.upperBound(lastMz[middle]) < mz)
+        low = middle + 1;
+      else
+        high = middle;
+    }
+    return low;
+  }
+
+  /**
+   * Returns the last position in the sorted lastMz array whose tolerance range does not start
+   * above mz, or -1.
+   */
+  private static int findLastRangeBelow(double lastMz[], int size, double mz,
+      MzTolerance mzTolerance) {
+    int low = 0, high = size;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (mzTolerance.lowerBound(lastMz[middle]) <= mz)
+        low = middle + 1;
+      else
+        high = middle;
+    }
+    return low - 1;
+  }
+
+  private static int upperBound(double sorted[], int size, double value) {
+    int low = 0, high = size;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (sorted[middle] <= value)
+        low = middle + 1;
+      else
+        high = middle;
+    }
+    return low;
   }
 
   void finishChromatograms(@Nonnull RawDataFile inputFile,
@@ -0,0 +1,136 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+package io.github.msdk.featuredetection.chromatogrambuilder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import io.github.msdk.MSDKException;
+import io.github.msdk.datamodel.Chromatogram;
+import io.github.msdk.datamodel.RawDataFile;
+import io.github.msdk.io.mzml.MzMLFileImportMethod;
+import io.github.msdk.util.tolerances.ConstantPpmTolerance;
+import io.github.msdk.util.tolerances.MzTolerance;
+
+public class ChromatogramBuilderBatchMethodTest {
+
+  private static final double noiseLevel = 0;
+  private static final double minimumTimeSpan = 6; // 6s
+  private static final double minimumHeight = 1E4;
+  private static final MzTolerance mzTolerance = new ConstantPpmTolerance(5.0);
+
+  private static File inputFile;
+  private static List<Chromatogram> expectedChromatograms;
+
+
+  @BeforeClass
+  public static void loadData() throws Exception {
+    inputFile = new File(ChromatogramBuilderBatchMethodTest.class.getClassLoader()
+        .getResource("orbitrap_300-600mz.mzML").toURI());
+    Assert.assertTrue("Cannot read test data", inputFile.canRead());
+    RawDataFile rawFile = new MzMLFileImportMethod(inputFile).execute();
+    expectedChromatograms = new ChromatogramBuilderMethod(rawFile, noiseLevel, minimumTimeSpan,
+        minimumHeight, mzTolerance).execute();
+    rawFile.dispose();
+  }
+
+
+  @Test
+  public void testRawDataFiles() throws MSDKException {
+
+    RawDataFile rawFile = new MzMLFileImportMethod(inputFile).execute();
+    ChromatogramBuilderBatchMethod batch = new ChromatogramBuilderBatchMethod(
+        Arrays.asList(rawFile, rawFile), noiseLevel, minimumTimeSpan, minimumHeight, mzTolerance);
+    Assert.assertNull(batch.getFinishedPercentage());
+    List<List<Chromatogram>> result = batch.execute();
+    Assert.assertEquals(1.0, batch.getFinishedPercentage(), 0.0001);
+
+    Assert.assertEquals(2, result.size());
+    for (List<Chromatogram> chromatograms : result)
+      assertSameChromatograms(expectedChromatograms, chromatograms);
+    rawFile.dispose();
+  }
+
+
+  @Test
+  public void testFileImporters() throws MSDKException {
+
+    ExecutorService executor = Executors.newFixedThreadPool(3);
+    List<MzMLFileImportMethod> importers = new ArrayList<>();
+    for (int i = 0; i < 5; i++)
+      importers.add(new MzMLFileImportMethod(inputFile));
+
+    ChromatogramBuilderBatchMethod batch = new ChromatogramBuilderBatchMethod(importers,
+        noiseLevel, minimumTimeSpan, minimumHeight, mzTolerance, executor, 2);
+    List<List<Chromatogram>> result = batch.execute();
+    executor.shutdown();
+    Assert.assertEquals(1.0, batch.getFinishedPercentage(), 0.0001);
+
+    Assert.assertEquals(5, result.size());
+    for (List<Chromatogram> chromatograms : result)
+      assertSameChromatograms(expectedChromatograms, chromatograms);
+  }
+
+
+  @Test
+  public void testCancel() throws MSDKException {
+
+    List<MzMLFileImportMethod> importers = new ArrayList<>();
+    for (int i = 0; i < 5; i++)
+      importers.add(new MzMLFileImportMethod(inputFile));
+
+    ChromatogramBuilderBatchMethod batch = new ChromatogramBuilderBatchMethod(importers,
+        noiseLevel, minimumTimeSpan, minimumHeight, mzTolerance, null, 2);
+    batch.cancel();
+    Assert.assertNull(batch.execute());
+    Assert.assertNull(batch.getResult());
+  }
+
+
+  @Test(expected = MSDKException.class)
+  public void testFailedImport() throws MSDKException {
+
+    List<MzMLFileImportMethod> importers = new ArrayList<>();
+    for (int i = 0; i < 3; i++)
+      importers.add(new MzMLFileImportMethod(inputFile));
+
+    // A canceled importer returns null, which must not end up in the result
+    importers.get(1).cancel();
+    ChromatogramBuilderBatchMethod batch = new ChromatogramBuilderBatchMethod(importers,
+        noiseLevel, minimumTimeSpan, minimumHeight, mzTolerance, null, 2);
+    batch.execute();
+  }
+
+
+  private static void assertSameChromatograms(List<Chromatogram> expected,
+      List<Chromatogram> actual) {
+    Assert.assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      Assert.assertEquals(expected.get(i).getMz(), actual.get(i).getMz());
+      Assert.assertArrayEquals(expected.get(i).getRetentionTimes(),
+          actual.get(i).getRetentionTimes(), 0f);
+      Assert.assertArrayEquals(expected.get(i).getIntensityValues(),
+          actual.get(i).getIntensityValues(), 0f);
+    }
+  }
+
+}
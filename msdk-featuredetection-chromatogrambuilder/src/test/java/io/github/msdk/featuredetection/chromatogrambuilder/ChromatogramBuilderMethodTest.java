@@ -14,7 +14,10 @@
 package io.github.msdk.featuredetection.chromatogrambuilder;
 
 import java.io.File;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 import org.junit.Assert;
 import org.junit.BeforeClass;
@@ -22,9 +25,12 @@ import org.junit.Test;
 
 import io.github.msdk.MSDKException;
 import io.github.msdk.datamodel.Chromatogram;
+import io.github.msdk.datamodel.LazyRawDataFile;
+import io.github.msdk.datamodel.MsScan;
 import io.github.msdk.datamodel.RawDataFile;
 import io.github.msdk.featuredetection.chromatogrambuilder.ChromatogramBuilderMethod;
 import io.github.msdk.io.mzml.MzMLFileImportMethod;
+import io.github.msdk.util.tolerances.ConstantDaTolerance;
 import io.github.msdk.util.tolerances.ConstantPpmTolerance;
 import io.github.msdk.util.tolerances.MzTolerance;
 
@@ -60,6 +66,56 @@ public class ChromatogramBuilderMethodTest {
     Assert.assertEquals(1.0, chromBuilder.getFinishedPercentage(), 0.0001);
 
     Assert.assertTrue(detectedFeatures.size() > 10);
+    Assert.assertEquals(996, detectedFeatures.size());
+
+  }
+
+
+  @Test
+  public void testLazyRawDataFile() throws MSDKException {
+
+    // Each scan of a lazy raw data file is processed once
+    AtomicInteger calls = new AtomicInteger();
+    Function<MsScan, MsScan> countScans = scan -> {
+      calls.incrementAndGet();
+      return scan;
+    };
+    LazyRawDataFile lazyFile =
+        new LazyRawDataFile(rawFile, Collections.singletonList(countScans), 0);
+
+    ChromatogramBuilderMethod chromBuilder = new ChromatogramBuilderMethod(lazyFile, 0, 6, 1E4,
+        new ConstantPpmTolerance(5.0));
+    List<Chromatogram> detectedFeatures = chromBuilder.execute();
+    Assert.assertEquals(1.0, chromBuilder.getFinishedPercentage(), 0.0001);
+    Assert.assertEquals(rawFile.getScans().size(), calls.get());
+    Assert.assertEquals(996, detectedFeatures.size());
+
+  }
+
+
+  @Test
+  public void testDaTolerance() throws MSDKException {
+
+    double noiseLevel = 1E4;
+    double minimumTimeSpan = 6; // 6s
+    double minimumHeight = 1E4;
+    MzTolerance mzTolerance = new ConstantDaTolerance(0.01);
+    ChromatogramBuilderMethod chromBuilder = new ChromatogramBuilderMethod(rawFile, noiseLevel,
+        minimumTimeSpan, minimumHeight, mzTolerance);
+    List<Chromatogram> detectedFeatures = chromBuilder.execute();
+    Assert.assertEquals(1.0, chromBuilder.getFinishedPercentage(), 0.0001);
+
+    Assert.assertEquals(556, detectedFeatures.size());
+
+    // The same chromatograms are detected in the same order every time
+    List<Chromatogram> detectedAgain = new ChromatogramBuilderMethod(rawFile, noiseLevel,
+        minimumTimeSpan, minimumHeight, mzTolerance).execute();
+    Assert.assertEquals(detectedFeatures.size(), detectedAgain.size());
+    for (int i = 0; i < detectedFeatures.size(); i++) {
+      Assert.assertEquals(detectedFeatures.get(i).getMz(), detectedAgain.get(i).getMz());
+      Assert.assertArrayEquals(detectedFeatures.get(i).getRetentionTimes(),
+          detectedAgain.get(i).getRetentionTimes(), 0f);
+    }
 
   }
 
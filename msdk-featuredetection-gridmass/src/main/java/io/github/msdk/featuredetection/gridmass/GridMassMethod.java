@@ -35,6 +35,7 @@ import io.github.msdk.datamodel.SimpleFeatureTable;
 import io.github.msdk.datamodel.SimpleFeatureTableRow;
 import io.github.msdk.datamodel.SimpleSample;
 import io.github.msdk.util.ChromatogramUtil;
+import io.github.msdk.util.ParallelUtil;
 import io.github.msdk.util.tolerances.MzTolerance;
 
 /**
@@ -47,8 +48,9 @@ public class GridMassMethod implements MSDKMethod<FeatureTable> {
   final Logger logger = LoggerFactory.getLogger(this.getClass());
 
   private final @Nonnull RawDataFile rawDataFile;
+  private final int parallelism;
 
-  private boolean canceled = false;
+  private volatile boolean canceled = false;
   private int processedScans = 0, totalScans = 0;
 
   private HashMap<MsScan, DataPoint[]> dpCache = null;
@@ -103,8 +105,42 @@ public class GridMassMethod implements MSDKMethod<FeatureTable> {
       @Nonnull Double smoothTimeSpan, @Nonnull Double smoothTimeMZ, @Nonnull Double smoothMZ,
       @Nonnull Double additionTimeMaxPeaksPerScan, @Nonnull Double minimumHeight,
       @Nonnull Double rtPerScan) {
+    this(rawDataFile, scans, mzTol, intensitySimilarity, minimumTimeSpan, maximumTimeSpan,
+        smoothTimeSpan, smoothTimeMZ, smoothMZ, additionTimeMaxPeaksPerScan, minimumHeight,
+        rtPerScan, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * <p>
+   * Constructor for GridMassMethod which moves the probes to their local maxima on
+   * <code>parallelism</code> threads.
+   * </p>
+   *
+   * @param rawDataFile a {@link io.github.msdk.datamodel.RawDataFile} object.
+   * @param scans a {@link java.util.List} object.
+   * @param mzTol a {@link io.github.msdk.util.tolerances.MzTolerance} object.
+   * @param intensitySimilarity a {@link java.lang.Double} object.
+   * @param minimumTimeSpan a {@link java.lang.Double} object.
+   * @param maximumTimeSpan a {@link java.lang.Double} object.
+   * @param smoothTimeSpan a {@link java.lang.Double} object.
+   * @param smoothTimeMZ a {@link java.lang.Double} object.
+   * @param smoothMZ a {@link java.lang.Double} object.
+   * @param additionTimeMaxPeaksPerScan a {@link java.lang.Double} object.
+   * @param minimumHeight a {@link java.lang.Double} object.
+   * @param rtPerScan a {@link java.lang.Double} object.
+   * @param parallelism the number of threads used to move the probes
+   */
+  public GridMassMethod(@Nonnull RawDataFile rawDataFile, @Nonnull List<MsScan> scans,
+      @Nonnull MzTolerance mzTol, @Nonnull Double intensitySimilarity,
+      @Nonnull Double minimumTimeSpan, @Nonnull Double maximumTimeSpan,
+      @Nonnull Double smoothTimeSpan, @Nonnull Double smoothTimeMZ, @Nonnull Double smoothMZ,
+      @Nonnull Double additionTimeMaxPeaksPerScan, @Nonnull Double minimumHeight,
+      @Nonnull Double rtPerScan, int parallelism) {
+    if (parallelism < 1)
+      throw new IllegalArgumentException("parallelism must be positive");
     this.rawDataFile = rawDataFile;
     this.scans = scans;
+    this.parallelism = parallelism;
   }
 
   /** {@inheritDoc} */
@@ -294,20 +330,32 @@ public class GridMassMethod implements MSDKMethod<FeatureTable> {
     }
 
     // (2) Move each probe to their closest center
-    double mzR = byMZ / 2;
-    int scanR = Math.max(byScan - 1, 2);
+    final double mzR = byMZ / 2;
+    final int scanR = Math.max(byScan - 1, 2);
     logger.info("Finding local maxima for each probe radius: scans=" + scanR + ", m/z=" + mzR);
-    int okProbes = 0;
-    for (i = 0; i < idata; i++) {
+    // Each probe climbs on its own over the read-only roi, so the probes are moved in parallel,
+    // one chunk of consecutive probes per task. Probes keep their position in the array, so the
+    // following steps see them in the same order as before.
+    final Probe gridProbes[] = probes;
+    final List<Integer> okInChunks = ParallelUtil.mapChunks(idata, parallelism, (from, to) -> {
       if (canceled)
-        return null;
-      moveProbeToCenter(probes[i], scanR, mzR);
-      if (probes[i].intensityCenter < minimumHeight) {
-        probes[i] = null;
-      } else {
-        okProbes++;
+        return 0;
+      int okInChunk = 0;
+      for (int probe = from; probe < to; probe++) {
+        moveProbeToCenter(gridProbes[probe], scanR, mzR);
+        if (gridProbes[probe].intensityCenter < minimumHeight) {
+          gridProbes[probe] = null;
+        } else {
+          okInChunk++;
+        }
       }
-    }
+      return okInChunk;
+    });
+    int okProbes = 0;
+    for (int okInChunk : okInChunks)
+      okProbes += okInChunk;
+    if (canceled)
+      return null;
     if (okProbes > 0) {
       Probe[] pArr = new Probe[okProbes];
       for (okProbes = i = 0; i < idata; i++) {
@@ -149,10 +149,10 @@ public class MsMsDetectionMethod implements MSDKMethod<List<IonAnnotation>> {
         float floatRt2 = (float) scanData[secondIndex][1];
 
         // Compare m/z
-        final boolean sameMz = mzTolerance.getToleranceRange(floatMz1).contains(floatMz2);
+        final boolean sameMz = mzTolerance.contains(floatMz1, floatMz2);
 
         // Compare RT
-        final boolean sameRt = rtTolerance.getToleranceRange(floatRt1).contains(floatRt2);
+        final boolean sameRt = rtTolerance.contains(floatRt1, floatRt2);
 
         // Same feature?
         if (sameMz && sameRt) {
@@ -63,7 +63,30 @@ class BuildingChromatogram {
   public void cropChromatogram(Range<Float> rtRange, Double intensityTolerance,
       Double noiseLevel) {
 
-    // Find peak apex (= most intense data point which fulfill the criteria)
+    Integer apexDataPoint = findApex(rtRange, noiseLevel);
+
+    if (apexDataPoint != null) {
+      int startIndex = findStart(apexDataPoint, intensityTolerance);
+      int endIndex = findEnd(apexDataPoint, intensityTolerance);
+
+      // Shift the peakPoints
+      int peakPoints = endIndex - startIndex + 1;
+      System.arraycopy(rtValues, startIndex, rtValues, 0, peakPoints);
+      System.arraycopy(mzValues, startIndex, mzValues, 0, peakPoints);
+      System.arraycopy(intensityValues, startIndex, intensityValues, 0, peakPoints);
+      size = peakPoints;
+
+    }
+
+  }
+
+  /**
+   * Finds the peak apex, which is the most intense data point within the RT range and above the
+   * noise level.
+   *
+   * @return the index of the apex, or null if no data point fulfills the criteria
+   */
+  Integer findApex(Range<Float> rtRange, Double noiseLevel) {
     Integer apexDataPoint = null;
     for (int i = 0; i < size; i++) {
       Float currentIntensity = intensityValues[i];
@@ -75,41 +98,64 @@ class BuildingChromatogram {
         apexDataPoint = i;
       }
     }
+    return apexDataPoint;
+  }
 
-    if (apexDataPoint != null) {
-      Integer startIndex = apexDataPoint, endIndex = apexDataPoint;
-
-      // Find start data point
-      for (int i = apexDataPoint - 1; i >= 0; i--) {
-
-        // Verify the intensity is within the intensity tolerance
-        if (intensityValues[i] > intensityValues[i + 1] * (1 + intensityTolerance)
-            || intensityValues[i + 1] == 0) {
-          break;
-        }
-        startIndex = i;
-      }
-
-      // Find end data point
-      for (int i = apexDataPoint + 1; i < size; i++) {
+  /**
+   * Finds the first data point of the peak, going down from the apex while the intensity stays
+   * within the intensity tolerance.
+   */
+  int findStart(int apexDataPoint, Double intensityTolerance) {
+    int startIndex = apexDataPoint;
+    for (int i = apexDataPoint - 1; i >= 0; i--) {
+      if (!isWithinPeak(intensityValues[i], intensityValues[i + 1], intensityTolerance))
+        break;
+      startIndex = i;
+    }
+    return startIndex;
+  }
 
-        // Verify the intensity is within the intensity tolerance
-        if (intensityValues[i] > intensityValues[i - 1] * (1 + intensityTolerance)
-            || intensityValues[i - 1] == 0) {
-          break;
-        }
-        endIndex = i;
-      }
+  /**
+   * Finds the last data point of the peak, going down from the apex while the intensity stays
+   * within the intensity tolerance.
+   */
+  int findEnd(int apexDataPoint, Double intensityTolerance) {
+    int endIndex = apexDataPoint;
+    for (int i = apexDataPoint + 1; i < size; i++) {
+      if (!isWithinPeak(intensityValues[i], intensityValues[i - 1], intensityTolerance))
+        break;
+      endIndex = i;
+    }
+    return endIndex;
+  }
 
-      // Shift the peakPoints
-      int peakPoints = endIndex - startIndex + 1;
-      System.arraycopy(rtValues, startIndex, rtValues, 0, peakPoints);
-      System.arraycopy(mzValues, startIndex, mzValues, 0, peakPoints);
-      System.arraycopy(intensityValues, startIndex, intensityValues, 0, peakPoints);
-      size = peakPoints;
+  /**
+   * Verifies that a data point next to the peak still belongs to it, i.e. the intensity is within
+   * the intensity tolerance of its neighbor towards the apex.
+   */
+  static boolean isWithinPeak(float intensity, float neighborIntensity,
+      Double intensityTolerance) {
+    return !(intensity > neighborIntensity * (1 + intensityTolerance) || neighborIntensity == 0);
+  }
 
+  /**
+   * Inserts the data points of <code>points</code> in reverse order before the data points of this
+   * chromatogram.
+   */
+  void prependReversed(BuildingChromatogram points) {
+    int count = points.size;
+    if (count == 0)
+      return;
+    allocate(size + count);
+    System.arraycopy(rtValues, 0, rtValues, count, size);
+    System.arraycopy(mzValues, 0, mzValues, count, size);
+    System.arraycopy(intensityValues, 0, intensityValues, count, size);
+    for (int i = 0; i < count; i++) {
+      rtValues[count - 1 - i] = points.rtValues[i];
+      mzValues[count - 1 - i] = points.mzValues[i];
+      intensityValues[count - 1 - i] = points.intensityValues[i];
     }
-
+    size += count;
   }
 
   /**
@@ -14,6 +14,8 @@
 package io.github.msdk.featuredetection.targeted;
 
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
 
 import javax.annotation.Nonnull;
@@ -27,10 +29,10 @@ import io.github.msdk.datamodel.Chromatogram;
 import io.github.msdk.datamodel.IonAnnotation;
 import io.github.msdk.datamodel.MsScan;
 import io.github.msdk.datamodel.RawDataFile;
+import io.github.msdk.datamodel.ScanIndex;
 import io.github.msdk.datamodel.SimpleChromatogram;
 import io.github.msdk.util.ChromatogramUtil;
 import io.github.msdk.util.ChromatogramUtil.CalculationMethod;
-import io.github.msdk.util.MsSpectrumUtil;
 import io.github.msdk.util.RawDataFileUtil;
 import io.github.msdk.util.tolerances.MzTolerance;
 import io.github.msdk.util.tolerances.RTTolerance;
@@ -48,13 +50,15 @@ public class TargetedDetectionMethod implements MSDKMethod<List<Chromatogram>> {
   private final @Nonnull Double noiseLevel;
 
   private List<Chromatogram> result;
-  private boolean canceled = false;
+  private volatile boolean canceled = false;
   private int processedScans = 0, totalScans = 0;
 
   // Data structures
   private @Nonnull double mzBuffer[];
   private @Nonnull float intensityBuffer[];
   private int numOfDataPoints;
+  private boolean mzSorted;
+  private double lowerMzs[], upperMzs[];
 
   /**
    * <p>
@@ -100,48 +104,56 @@ public class TargetedDetectionMethod implements MSDKMethod<List<Chromatogram>> {
     }
 
     // Get MS1 scans from the raw data file
-    List<MsScan> allScans = rawDataFile.getScans();
-    List<MsScan> msScans = new ArrayList<MsScan>();
-    for (MsScan scan : allScans) {
-      Integer msLevel = scan.getMsLevel();
-      if (msLevel.equals(1))
-        msScans.add(scan);
-    }
+    ScanIndex msScanIndex = rawDataFile.getScanIndex().getMsLevel(1);
+    List<MsScan> msScans = msScanIndex.getScans();
 
-    // Loop through all scans
     totalScans = msScans.size();
-    for (MsScan msScan : msScans) {
-
-      // Load data points
-      mzBuffer = msScan.getMzValues();
-      intensityBuffer = msScan.getIntensityValues();
-      numOfDataPoints = msScan.getNumberOfDataPoints();
-
-      Float chromatographyInfo = msScan.getRetentionTime();
-
-      // Loop through all the ions in the ion annotation list
-      ionNr = 0;
-      for (IonAnnotation ionAnnotation : ionAnnotations) {
-        Double ionMz = ionAnnotation.getExpectedMz();
-        if (ionMz != null) {
-          Range<Double> mzRange = mzTolerance.getToleranceRange(ionMz);
-
-          // Get highest data point which has a m/z within the mzRange
-          Double mz = 0d;
-          Float intensity = 0f;
-          Integer index =
-              MsSpectrumUtil.getBasePeakIndex(mzBuffer, intensityBuffer, numOfDataPoints, mzRange);
-          if (index != null) {
-            mz = mzBuffer[index];
-            intensity = intensityBuffer[index];
-          }
-
-          // Add this mzPeak or zero values to the chromatogram
-          buildingChromatogram = tempChromatogramList.get(ionNr);
-          buildingChromatogram.addDataPoint(chromatographyInfo, mz, intensity);
-
-        }
-        ionNr++;
+    float scanRts[] = msScanIndex.getRetentionTimes();
+    boolean rtSorted = msScanIndex.isSortedByRetentionTime();
+
+    // Find the range of scans inside the RT window of each ion. Ions without an expected RT, and
+    // all ions if the scans are not ordered by RT, are extracted from every scan.
+    final int ionCount = ionAnnotations.size();
+    lowerMzs = new double[ionCount];
+    upperMzs = new double[ionCount];
+    int firstScans[] = new int[ionCount];
+    int lastScans[] = new int[ionCount];
+    List<Integer> windowIons = new ArrayList<>();
+    for (int ion = 0; ion < ionCount; ion++) {
+      IonAnnotation ionAnnotation = ionAnnotations.get(ion);
+      Double ionMz = ionAnnotation.getExpectedMz();
+      if (ionMz == null)
+        continue;
+      lowerMzs[ion] = mzTolerance.lowerBound(ionMz);
+      upperMzs[ion] = mzTolerance.upperBound(ionMz);
+      Float rt = ionAnnotation.getExpectedRetentionTime();
+      if (rt == null || !rtSorted) {
+        firstScans[ion] = 0;
+        lastScans[ion] = totalScans - 1;
+      } else {
+        firstScans[ion] = msScanIndex.getFirstScanIndex(rtTolerance.lowerBound(rt));
+        lastScans[ion] = msScanIndex.getEndScanIndex(rtTolerance.upperBound(rt)) - 1;
+      }
+      windowIons.add(ion);
+    }
+
+    // Extract the ions inside their RT windows, visiting each scan once
+    windowIons.sort(Comparator.comparingInt(ion -> firstScans[ion]));
+    List<Integer> activeIons = new ArrayList<>();
+    int nextIon = 0;
+    for (int scanIndex = 0; scanIndex < totalScans; scanIndex++) {
+
+      while (nextIon < windowIons.size() && firstScans[windowIons.get(nextIon)] <= scanIndex) {
+        activeIons.add(windowIons.get(nextIon));
+        nextIon++;
+      }
+      final int currentScan = scanIndex;
+      activeIons.removeIf(ion -> lastScans[ion] < currentScan);
+
+      if (!activeIons.isEmpty()) {
+        loadScan(msScans.get(scanIndex));
+        for (int ion : activeIons)
+          addDataPoint(tempChromatogramList.get(ion), ion, scanRts[scanIndex]);
       }
 
       processedScans++;
@@ -151,6 +163,89 @@ public class TargetedDetectionMethod implements MSDKMethod<List<Chromatogram>> {
 
     }
 
+    // The peak of an ion may extend beyond its RT window. Continue the extraction in the scans
+    // before and after the window for as long as the intensities stay within the intensity
+    // tolerance. If no apex was found within the window, the whole chromatogram is kept, as in
+    // that case it is not cropped.
+    List<Integer> leftIons = new ArrayList<>(), rightIons = new ArrayList<>();
+    boolean unbounded[] = new boolean[ionCount];
+    float lastIntensities[] = new float[ionCount];
+    for (int ion : windowIons) {
+      Float rt = ionAnnotations.get(ion).getExpectedRetentionTime();
+      if (rt == null || !rtSorted)
+        continue;
+      buildingChromatogram = tempChromatogramList.get(ion);
+      Integer apex =
+          buildingChromatogram.findApex(rtTolerance.getToleranceRange(rt), noiseLevel);
+      if (apex == null) {
+        unbounded[ion] = true;
+        leftIons.add(ion);
+        rightIons.add(ion);
+        continue;
+      }
+      if (buildingChromatogram.findStart(apex, intensityTolerance) == 0)
+        leftIons.add(ion);
+      if (buildingChromatogram.findEnd(apex, intensityTolerance) == buildingChromatogram.getSize()
+          - 1)
+        rightIons.add(ion);
+    }
+
+    // Scans before the RT windows, in descending order
+    List<BuildingChromatogram> leftChromatograms = new ArrayList<>();
+    for (int ion = 0; ion < ionCount; ion++)
+      leftChromatograms.add(null);
+    for (int ion : leftIons) {
+      leftChromatograms.set(ion, new BuildingChromatogram());
+      if (tempChromatogramList.get(ion).getSize() > 0)
+        lastIntensities[ion] = tempChromatogramList.get(ion).getIntensityValues()[0];
+    }
+    leftIons.sort(Comparator.comparingInt(ion -> -firstScans[ion]));
+    activeIons.clear();
+    nextIon = 0;
+    for (int scanIndex = totalScans - 1; scanIndex >= 0; scanIndex--) {
+      while (nextIon < leftIons.size() && firstScans[leftIons.get(nextIon)] > scanIndex) {
+        activeIons.add(leftIons.get(nextIon));
+        nextIon++;
+      }
+      if (activeIons.isEmpty()) {
+        if (nextIon == leftIons.size())
+          break;
+        continue;
+      }
+      extendChromatograms(msScans.get(scanIndex), scanRts[scanIndex], activeIons,
+          leftChromatograms, unbounded, lastIntensities);
+      if (canceled)
+        return null;
+    }
+    for (int ion : leftIons)
+      tempChromatogramList.get(ion).prependReversed(leftChromatograms.get(ion));
+
+    // Scans after the RT windows, in ascending order
+    for (int ion : rightIons) {
+      buildingChromatogram = tempChromatogramList.get(ion);
+      if (buildingChromatogram.getSize() > 0)
+        lastIntensities[ion] =
+            buildingChromatogram.getIntensityValues()[buildingChromatogram.getSize() - 1];
+    }
+    rightIons.sort(Comparator.comparingInt(ion -> lastScans[ion]));
+    activeIons.clear();
+    nextIon = 0;
+    for (int scanIndex = 0; scanIndex < totalScans; scanIndex++) {
+      while (nextIon < rightIons.size() && lastScans[rightIons.get(nextIon)] < scanIndex) {
+        activeIons.add(rightIons.get(nextIon));
+        nextIon++;
+      }
+      if (activeIons.isEmpty()) {
+        if (nextIon == rightIons.size())
+          break;
+        continue;
+      }
+      extendChromatograms(msScans.get(scanIndex), scanRts[scanIndex], activeIons,
+          tempChromatogramList, unbounded, lastIntensities);
+      if (canceled)
+        return null;
+    }
+
     // Loop through all the ions in the ion annotation list
     ionNr = 0;
     for (IonAnnotation ionAnnotation : ionAnnotations) {
@@ -197,6 +292,87 @@ public class TargetedDetectionMethod implements MSDKMethod<List<Chromatogram>> {
     return result;
   }
 
+  /**
+   * Adds the data points of the active ions in the given scan to their chromatograms. Ions whose
+   * peak does not continue into this scan are removed from <code>activeIons</code> instead.
+   */
+  private void extendChromatograms(MsScan msScan, float rt, List<Integer> activeIons,
+      List<BuildingChromatogram> chromatograms, boolean unbounded[], float lastIntensities[]) {
+    loadScan(msScan);
+    Iterator<Integer> ionIterator = activeIons.iterator();
+    while (ionIterator.hasNext()) {
+      int ion = ionIterator.next();
+      int index = findBasePeak(lowerMzs[ion], upperMzs[ion]);
+      float intensity = index < 0 ? 0f : intensityBuffer[index];
+      if (!unbounded[ion]
+          && !BuildingChromatogram.isWithinPeak(intensity, lastIntensities[ion], intensityTolerance)) {
+        ionIterator.remove();
+        continue;
+      }
+      addDataPoint(chromatograms.get(ion), ion, rt);
+      lastIntensities[ion] = intensity;
+    }
+  }
+
+  /**
+   * Adds the highest data point of the current scan which has a m/z within the m/z range of the
+   * given ion, or zero values, to <code>chromatogram</code>.
+   */
+  private void addDataPoint(BuildingChromatogram chromatogram, int ion, float rt) {
+    Double mz = 0d;
+    Float intensity = 0f;
+    int index = findBasePeak(lowerMzs[ion], upperMzs[ion]);
+    if (index >= 0) {
+      mz = mzBuffer[index];
+      intensity = intensityBuffer[index];
+    }
+    chromatogram.addDataPoint(rt, mz, intensity);
+  }
+
+  private void loadScan(MsScan msScan) {
+    mzBuffer = msScan.getMzValues(mzBuffer);
+    intensityBuffer = msScan.getIntensityValues(intensityBuffer);
+    numOfDataPoints = msScan.getNumberOfDataPoints();
+    mzSorted = true;
+    for (int i = 1; i < numOfDataPoints; i++) {
+      if (mzBuffer[i] < mzBuffer[i - 1]) {
+        mzSorted = false;
+        break;
+      }
+    }
+  }
+
+  /**
+   * Returns the index of the highest data point of the current scan which has a m/z between
+   * <code>lowerMz</code> and <code>upperMz</code>, or -1. If the m/z values are sorted, only the
+   * data points within the range are visited. The first of several equally high data points is
+   * returned, as with
+   * {@link io.github.msdk.util.MsSpectrumUtil#getBasePeakIndex(double[], float[], Integer, Range)
+   * MsSpectrumUtil.getBasePeakIndex()}.
+   */
+  private int findBasePeak(double lowerMz, double upperMz) {
+    int low = 0;
+    if (mzSorted) {
+      int high = numOfDataPoints;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (mzBuffer[mid] < lowerMz)
+          low = mid + 1;
+        else
+          high = mid;
+      }
+    }
+    int topIndex = -1;
+    for (int i = low; i < numOfDataPoints; i++) {
+      if (mzBuffer[i] > upperMz && mzSorted)
+        break;
+      if ((topIndex < 0 || intensityBuffer[i] > intensityBuffer[topIndex])
+          && mzBuffer[i] >= lowerMz && mzBuffer[i] <= upperMz)
+        topIndex = i;
+    }
+    return topIndex;
+  }
+
   /** {@inheritDoc} */
   @Override
   @Nullable
@@ -15,24 +15,41 @@ package io.github.msdk.featuredetection.targeted;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 
 import org.junit.Assert;
 import org.junit.Test;
 
+import com.google.common.collect.Range;
+
 import io.github.msdk.datamodel.Chromatogram;
 import io.github.msdk.datamodel.IonAnnotation;
+import io.github.msdk.datamodel.MsScan;
 import io.github.msdk.datamodel.RawDataFile;
+import io.github.msdk.datamodel.SimpleChromatogram;
 import io.github.msdk.datamodel.SimpleIonAnnotation;
 import io.github.msdk.featuredetection.targeted.TargetedDetectionMethod;
 import io.github.msdk.io.mzml.MzMLFileImportMethod;
 import io.github.msdk.util.ChromatogramUtil;
+import io.github.msdk.util.ChromatogramUtil.CalculationMethod;
+import io.github.msdk.util.MsSpectrumUtil;
+import io.github.msdk.util.RawDataFileUtil;
 import io.github.msdk.util.tolerances.MaximumMzTolerance;
 import io.github.msdk.util.tolerances.MzTolerance;
 import io.github.msdk.util.tolerances.RTTolerance;
 
 public class TargetedDetectionMethodTest {
 
+  private static final MzTolerance mzTolerances[] =
+      {new MaximumMzTolerance(0.003, 5.0), new MaximumMzTolerance(0.05, 20.0)};
+  private static final RTTolerance rtTolerances[] =
+      {new RTTolerance(0.2f, false), new RTTolerance(10f, true), new RTTolerance(0.01f, false)};
+  // Pairs of intensity tolerance and noise level
+  private static final double intensityTolerances[] = {0.1, 0.5};
+  private static final double noiseLevels[] = {5000, 0};
+
   @Test
   public void testOrbitrap() throws Exception {
 
@@ -273,4 +290,142 @@ public class TargetedDetectionMethodTest {
 
   }
 
+  @Test
+  public void testSameAsAllScans() throws Exception {
+
+    File inputFile =
+        new File(this.getClass().getClassLoader().getResource("orbitrap_300-600mz.mzML").toURI());
+    RawDataFile rawFile = new MzMLFileImportMethod(inputFile).execute();
+
+    // Half of the ions are taken from the data points of the file, so that they have a peak
+    List<MsScan> ms1Scans = rawFile.getScanIndex().getMsLevel(1).getScans();
+    Random random = new Random(0);
+    List<IonAnnotation> ionAnnotations = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      SimpleIonAnnotation ion = new SimpleIonAnnotation();
+      MsScan scan = ms1Scans.get(random.nextInt(ms1Scans.size()));
+      if (i % 2 == 0 && scan.getNumberOfDataPoints() > 0) {
+        ion.setExpectedMz(scan.getMzValues()[random.nextInt(scan.getNumberOfDataPoints())]);
+        ion.setExpectedRetentionTime(scan.getRetentionTime());
+      } else {
+        ion.setExpectedMz(300.0 + random.nextDouble() * 300.0);
+        ion.setExpectedRetentionTime(scan.getRetentionTime() + random.nextFloat() * 60f - 30f);
+      }
+      // Ions without RT keep their full trace, ions without m/z have no data points
+      if (i % 10 == 1)
+        ion.setExpectedRetentionTime(null);
+      if (i % 50 == 3)
+        ion.setExpectedMz(null);
+      ionAnnotations.add(ion);
+    }
+
+    assertSameAsAllScans(ionAnnotations, rawFile);
+  }
+
+  /**
+   * Verifies that the chromatograms are the same as the ones extracted from all MS1 scans, for
+   * several tolerances.
+   */
+  private static void assertSameAsAllScans(List<IonAnnotation> ionAnnotations,
+      RawDataFile rawFile) throws Exception {
+    for (MzTolerance mzTolerance : mzTolerances) {
+      for (RTTolerance rtTolerance : rtTolerances) {
+        for (int t = 0; t < intensityTolerances.length; t++) {
+          List<Chromatogram> expected = extractFromAllScans(ionAnnotations, rawFile, mzTolerance,
+              rtTolerance, intensityTolerances[t], noiseLevels[t]);
+          List<Chromatogram> chromatograms = new TargetedDetectionMethod(ionAnnotations, rawFile,
+              mzTolerance, rtTolerance, intensityTolerances[t], noiseLevels[t]).execute();
+
+          Assert.assertEquals(expected.size(), chromatograms.size());
+          for (int i = 0; i < expected.size(); i++) {
+            Chromatogram e = expected.get(i), c = chromatograms.get(i);
+            int size = e.getNumberOfDataPoints();
+            Assert.assertEquals(e.getChromatogramNumber(), c.getChromatogramNumber());
+            Assert.assertSame(e.getIonAnnotation(), c.getIonAnnotation());
+            Assert.assertEquals(size, c.getNumberOfDataPoints().intValue());
+            Assert.assertArrayEquals(Arrays.copyOf(e.getRetentionTimes(), size),
+                Arrays.copyOf(c.getRetentionTimes(), size), 0f);
+            Assert.assertArrayEquals(Arrays.copyOf(e.getMzValues(), size),
+                Arrays.copyOf(c.getMzValues(), size), 0.0);
+            Assert.assertArrayEquals(Arrays.copyOf(e.getIntensityValues(), size),
+                Arrays.copyOf(c.getIntensityValues(), size), 0f);
+            Assert.assertEquals(e.getMz(), c.getMz());
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Reference extraction: each chromatogram gets a data point from every MS1 scan, in the order of
+   * the raw data file, and is then cropped around its most intense data point within the RT
+   * window.
+   */
+  private static List<Chromatogram> extractFromAllScans(List<IonAnnotation> ionAnnotations,
+      RawDataFile rawFile, MzTolerance mzTolerance, RTTolerance rtTolerance,
+      double intensityTolerance, double noiseLevel) {
+
+    List<MsScan> msScans = new ArrayList<>();
+    for (MsScan scan : rawFile.getScans()) {
+      if (scan.getMsLevel().equals(1))
+        msScans.add(scan);
+    }
+
+    List<Chromatogram> chromatograms = new ArrayList<>();
+    int chromatogramNumber = RawDataFileUtil.getNextChromatogramNumber(rawFile);
+    for (IonAnnotation ionAnnotation : ionAnnotations) {
+      Double ionMz = ionAnnotation.getExpectedMz();
+      int size = ionMz == null ? 0 : msScans.size();
+      float rtValues[] = new float[size];
+      double mzValues[] = new double[size];
+      float intensityValues[] = new float[size];
+      for (int s = 0; s < size; s++) {
+        Range<Double> mzRange = mzTolerance.getToleranceRange(ionMz);
+        MsScan scan = msScans.get(s);
+        rtValues[s] = scan.getRetentionTime();
+        Integer index = MsSpectrumUtil.getBasePeakIndex(scan.getMzValues(),
+            scan.getIntensityValues(), scan.getNumberOfDataPoints(), mzRange);
+        if (index != null) {
+          mzValues[s] = scan.getMzValues()[index];
+          intensityValues[s] = scan.getIntensityValues()[index];
+        }
+      }
+
+      int start = 0, end = size - 1;
+      Float rt = ionAnnotation.getExpectedRetentionTime();
+      Integer apex = null;
+      if (rt != null) {
+        Range<Float> rtRange = rtTolerance.getToleranceRange(rt);
+        for (int i = 0; i < size; i++) {
+          if ((apex == null || intensityValues[i] > intensityValues[apex])
+              && rtRange.contains(rtValues[i]) && intensityValues[i] > noiseLevel)
+            apex = i;
+        }
+      }
+      if (apex != null) {
+        start = apex;
+        while (start > 0 && intensityValues[start] != 0
+            && intensityValues[start - 1] <= intensityValues[start] * (1 + intensityTolerance))
+          start--;
+        end = apex;
+        while (end < size - 1 && intensityValues[end] != 0
+            && intensityValues[end + 1] <= intensityValues[end] * (1 + intensityTolerance))
+          end++;
+      }
+
+      size = end - start + 1;
+      SimpleChromatogram chromatogram = new SimpleChromatogram();
+      chromatogram.setChromatogramNumber(chromatogramNumber++);
+      chromatogram.setDataPoints(Arrays.copyOfRange(rtValues, start, end + 1),
+          Arrays.copyOfRange(mzValues, start, end + 1),
+          Arrays.copyOfRange(intensityValues, start, end + 1), size);
+      chromatogram.setMz(ChromatogramUtil.calculateMz(Arrays.copyOfRange(mzValues, start, end + 1),
+          Arrays.copyOfRange(intensityValues, start, end + 1), size,
+          CalculationMethod.allAverage));
+      chromatogram.setIonAnnotation(ionAnnotation);
+      chromatograms.add(chromatogram);
+    }
+    return chromatograms;
+  }
+
 }
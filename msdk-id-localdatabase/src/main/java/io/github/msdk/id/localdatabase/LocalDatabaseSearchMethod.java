@@ -19,8 +19,6 @@ import java.util.List;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
-import com.google.common.collect.Range;
-
 import io.github.msdk.MSDKException;
 import io.github.msdk.MSDKMethod;
 import io.github.msdk.datamodel.FeatureTable;
@@ -79,8 +77,10 @@ public class LocalDatabaseSearchMethod implements MSDKMethod<Void> {
         continue;
 
       // Row values
-      Range<Double> mzRange = mzTolerance.getToleranceRange(mz);
-      Range<Float> rtRange = rtTolerance.getToleranceRange(rt);
+      final double mzLower = mzTolerance.lowerBound(mz);
+      final double mzUpper = mzTolerance.upperBound(mz);
+      final float rtLower = rtTolerance.lowerBound(rt);
+      final float rtUpper = rtTolerance.upperBound(rt);
       List<SimpleIonAnnotation> rowIonAnnotations = null;
 
       // Empty rowIonAnnotations
@@ -98,8 +98,8 @@ public class LocalDatabaseSearchMethod implements MSDKMethod<Void> {
 
         // Convert from seconds to minutes
         float ionRtSec = ionRT / 60.0f;
-        final boolean mzMatch = mzRange.contains(ionMz);
-        final boolean rtMatch = rtRange.contains(ionRtSec);
+        final boolean mzMatch = ionMz >= mzLower && ionMz <= mzUpper;
+        final boolean rtMatch = ionRtSec >= rtLower && ionRtSec <= rtUpper;
 
         // If match, add the ion annotation to the list
         if (mzMatch && rtMatch) {
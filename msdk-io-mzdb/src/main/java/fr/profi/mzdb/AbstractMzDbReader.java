@@ -27,6 +27,7 @@ import fr.profi.mzdb.io.reader.bb.IBlobReader;
 import fr.profi.mzdb.io.reader.cache.AbstractDataEncodingReader;
 import fr.profi.mzdb.io.reader.cache.AbstractRunSliceHeaderReader;
 import fr.profi.mzdb.io.reader.cache.AbstractSpectrumHeaderReader;
+import fr.profi.mzdb.io.reader.cache.BoundingBoxCache;
 import fr.profi.mzdb.io.reader.cache.MzDbEntityCache;
 import fr.profi.mzdb.model.*;
 import fr.profi.mzdb.util.ms.MsUtils;
@@ -55,6 +56,8 @@ public abstract class AbstractMzDbReader {
 	/** Some fields initialized in the constructor **/
 	protected File dbLocation = null;
 	protected MzDbEntityCache entityCache = null;
+	/** Null until a cache is set, volatile since it may be replaced during reads **/
+	protected volatile BoundingBoxCache bbCache = null;
 	protected MzDbHeader mzDbHeader = null;
 	protected IMzDBParamNameGetter _paramNameGetter = null;
 	
@@ -71,13 +74,13 @@ public abstract class AbstractMzDbReader {
 
 	/** Define some lazy fields **/
 	// TODO: find a CV param representing the information better
-	protected AcquisitionMode acquisitionMode = null;
-	protected IsolationWindow[] diaIsolationWindows = null;
-	protected List<InstrumentConfiguration> instrumentConfigs = null;
-	protected List<Run> runs = null;
-	protected List<Sample> samples = null;
-	protected List<Software> softwareList = null;
-	protected List<SourceFile> sourceFiles = null;
+	protected volatile AcquisitionMode acquisitionMode = null;
+	protected volatile IsolationWindow[] diaIsolationWindows = null;
+	protected volatile List<InstrumentConfiguration> instrumentConfigs = null;
+	protected volatile List<Run> runs = null;
+	protected volatile List<Sample> samples = null;
+	protected volatile List<Software> softwareList = null;
+	protected volatile List<SourceFile> sourceFiles = null;
 
 	/**
 	 * Close the file to avoid memory leaks. Method to be implemented in child classes.
@@ -121,6 +124,27 @@ public abstract class AbstractMzDbReader {
 		return this.entityCache;
 	}
 
+	/**
+	 * Gets the bounding box cache.
+	 *
+	 * @return the bounding box cache, or null if bounding boxes are not cached
+	 */
+	public BoundingBoxCache getBoundingBoxCache() {
+		return this.bbCache;
+	}
+
+	/**
+	 * Sets the bounding box cache. Readers don't cache bounding boxes by default, so that callers which cache the
+	 * spectra they read don't keep the same peaks twice. A cache may be shared by several readers of the same mzDB
+	 * file, and may be set while other threads read: reads which already started keep the previous cache.
+	 *
+	 * @param bbCache
+	 *            the bounding box cache, or null to decode the bounding boxes at each read
+	 */
+	public void setBoundingBoxCache(BoundingBoxCache bbCache) {
+		this.bbCache = bbCache;
+	}
+
 	public String getDbLocation() {
 		return this.dbLocation.getAbsolutePath();
 	}
@@ -167,7 +191,7 @@ public abstract class AbstractMzDbReader {
 		this.bbSizes.BB_MZ_HEIGHT_MS1 = Double.parseDouble(this.mzDbHeader.getUserParam(paramNameGetter.getMs1BBMzWidthParamName()).getValue());
 		this.bbSizes.BB_MZ_HEIGHT_MSn = Double.parseDouble(this.mzDbHeader.getUserParam(paramNameGetter.getMsnBBMzWidthParamName()).getValue());
 		this.bbSizes.BB_RT_WIDTH_MS1 = Float.parseFloat(this.mzDbHeader.getUserParam(paramNameGetter.getMs1BBTimeWidthParamName()).getValue());
-		this.bbSizes.BB_RT_WIDTH_MSn = Float.parseFloat(this.mzDbHeader.getUserParam(paramNameGetter.getMs1BBTimeWidthParamName()).getValue());
+		this.bbSizes.BB_RT_WIDTH_MSn = Float.parseFloat(this.mzDbHeader.getUserParam(paramNameGetter.getMsnBBTimeWidthParamName()).getValue());
 	}
 
 	/**
@@ -245,52 +269,149 @@ public abstract class AbstractMzDbReader {
 
 		long firstSpectrumId = spectrumHeaderById.get(spectrumId).getBBFirstSpectrumId();
 
+		List<SpectrumSlice[]> bbSpectrumSlicesList = this._getBoundingBoxSpectrumSlices(firstSpectrumId, spectrumHeaderById, dataEncodingBySpectrumId, connection);
+
+		// Retrieve only slices corresponding to the provided spectrum id, and merge them at once
+		SpectrumDataBuilder sdBuilder = new SpectrumDataBuilder(bbSpectrumSlicesList.size());
+		for (SpectrumSlice[] bbSpectrumSlices : bbSpectrumSlicesList) {
+			for (SpectrumSlice spectrumSlice : bbSpectrumSlices) {
+				if (spectrumId == spectrumSlice.getSpectrumId()) {
+					sdBuilder.addSpectrumData(spectrumSlice.getData());
+					break;
+				}
+			}
+		}
+
+		return sdBuilder.build();
+	}
+
+	/**
+	 * Gets the spectrum slices of the bounding boxes starting at a given spectrum, i.e. of a whole cycle. The bounding
+	 * boxes are taken from the bounding box cache if they are all there, and read and decoded otherwise.
+	 */
+	private List<SpectrumSlice[]> _getBoundingBoxSpectrumSlices(
+		long firstSpectrumId,
+		Map<Long, SpectrumHeader> spectrumHeaderById,
+		Map<Long, DataEncoding> dataEncodingBySpectrumId,
+		SQLiteConnection connection
+	) throws SQLiteException, StreamCorruptedException {
+
+		BoundingBoxCache cache = this.bbCache;
+
+		if (cache != null) {
+			int[] bbIds = cache.getBoundingBoxIds(firstSpectrumId);
+			if (bbIds != null) {
+				List<SpectrumSlice[]> cachedSlices = new ArrayList<SpectrumSlice[]>(bbIds.length);
+				for (int bbId : bbIds) {
+					SpectrumSlice[] bbSpectrumSlices = cache.getSpectrumSlices(bbId);
+					if (bbSpectrumSlices == null)
+						break;
+					cachedSlices.add(bbSpectrumSlices);
+				}
+				if (cachedSlices.size() == bbIds.length)
+					return cachedSlices;
+			}
+		}
+
 		String sqlString = "SELECT * FROM bounding_box WHERE bounding_box.first_spectrum_id = ?";
 		SQLiteRecordIterator records = new SQLiteQuery(connection, sqlString).bind(1, firstSpectrumId).getRecordIterator();
 
-		List<BoundingBox> bbS = new ArrayList<BoundingBox>();
+		List<SpectrumSlice[]> slicesList = new ArrayList<SpectrumSlice[]>();
+		List<Integer> bbIds = new ArrayList<Integer>();
 
 		while (records.hasNext()) {
 			SQLiteRecord r = records.next();
 
-			int lastSpectrumId = r.columnInt(BoundingBoxTable.LAST_SPECTRUM_ID);
+			int bbId = r.columnInt(BoundingBoxTable.ID);
+			long lastSpectrumId = r.columnLong(BoundingBoxTable.LAST_SPECTRUM_ID);
 
-			BoundingBox bb = BoundingBoxBuilder.buildBB(r.columnInt(BoundingBoxTable.ID), r.columnBlob(BoundingBoxTable.DATA), firstSpectrumId, lastSpectrumId,
-				spectrumHeaderById, dataEncodingBySpectrumId);
-			bb.setRunSliceId(r.columnInt(BoundingBoxTable.RUN_SLICE_ID));
+			slicesList.add(this._decodeBoundingBox(bbId, r.columnBlob(BoundingBoxTable.DATA), r.columnInt(BoundingBoxTable.RUN_SLICE_ID),
+				firstSpectrumId, lastSpectrumId, spectrumHeaderById, dataEncodingBySpectrumId));
+			bbIds.add(bbId);
+		}
 
-			bbS.add(bb);
+		if (cache != null) {
+			int[] bbIdArray = new int[bbIds.size()];
+			for (int i = 0; i < bbIdArray.length; i++)
+				bbIdArray[i] = bbIds.get(i);
+			cache.putBoundingBoxIds(firstSpectrumId, bbIdArray);
 		}
 
-		// Construct empty spectrum data
-		SpectrumData sd = new SpectrumData(new double[0], new float[0]);
+		return slicesList;
+	}
 
-		// int firstSpectrumCycle = getSpectrumHeader(firstSpectrumId).cycle;
-		// int cycle = getSpectrumHeader(spectrumId).cycle;
-		// int cycleOffset = cycle - firstSpectrumCycle;
+	/**
+	 * Gets the spectrum slices of a bounding box, from the bounding box cache if possible.
+	 */
+	private SpectrumSlice[] _getBoundingBoxSpectrumSlices(
+		int bbId,
+		int runSliceId,
+		long firstSpectrumId,
+		long lastSpectrumId,
+		Map<Long, SpectrumHeader> spectrumHeaderById,
+		Map<Long, DataEncoding> dataEncodingBySpectrumId,
+		SQLiteConnection connection
+	) throws SQLiteException, StreamCorruptedException {
 
-		for (BoundingBox bb : bbS) {
+		BoundingBoxCache cache = this.bbCache;
+		if (cache != null) {
+			SpectrumSlice[] bbSpectrumSlices = cache.getSpectrumSlices(bbId);
+			if (bbSpectrumSlices != null)
+				return bbSpectrumSlices;
+		}
 
-			IBlobReader bbReader = bb.getReader();
+		byte[] data = new SQLiteQuery(connection, "SELECT data FROM bounding_box WHERE id = ?").bind(1, bbId).extractSingleBlob();
 
-			/*
-			 * System.out.println("searching for " +spectrumId); SpectrumSlice[] ssList =
-			 * bbReader.readAllSpectrumSlices(bb.getRunSliceId()); System.out.println("ssList.length: "
-			 * +ssList.length); for( SpectrumSlice ss: ssList ) { System.out.println("has spectrum id="
-			 * +ss.getSpectrumId()); }
-			 */
+		return this._decodeBoundingBox(bbId, data, runSliceId, firstSpectrumId, lastSpectrumId, spectrumHeaderById, dataEncodingBySpectrumId);
+	}
 
-			// Retrieve only slices corresponding to the provided spectrum id
-			int nbSpectra = bb.getSpectraCount();
-			for (int spectrumIdx = 0; spectrumIdx < nbSpectra; spectrumIdx++) {
-				if (spectrumId == bbReader.getSpectrumIdAt(spectrumIdx)) {
-					sd.addSpectrumData(bbReader.readSpectrumSliceDataAt(spectrumIdx));
-					break;
-				}
-			}
-		}
+	/**
+	 * Decodes all spectrum slices of a bounding box blob, and puts them in the bounding box cache.
+	 */
+	private SpectrumSlice[] _decodeBoundingBox(
+		int bbId,
+		byte[] data,
+		int runSliceId,
+		long firstSpectrumId,
+		long lastSpectrumId,
+		Map<Long, SpectrumHeader> spectrumHeaderById,
+		Map<Long, DataEncoding> dataEncodingBySpectrumId
+	) throws StreamCorruptedException {
+
+		BoundingBox bb = BoundingBoxBuilder.buildBB(bbId, data, firstSpectrumId, lastSpectrumId, spectrumHeaderById, dataEncodingBySpectrumId);
+		SpectrumSlice[] bbSpectrumSlices = bb.getReader().readAllSpectrumSlices(runSliceId);
+
+		BoundingBoxCache cache = this.bbCache;
+		if (cache != null)
+			cache.putSpectrumSlices(bbId, bbSpectrumSlices);
+
+		return bbSpectrumSlices;
+	}
 
-		return sd;
+	/**
+	 * Copies the peaks of a spectrum slice which are in the given m/z range. The peaks of a slice are sorted by m/z.
+	 */
+	private static SpectrumData _filterSpectrumSliceData(SpectrumData spectrumSliceData, double minMz, double maxMz) {
+
+		double[] mzList = spectrumSliceData.getMzList();
+		int peaksCount = spectrumSliceData.getPeaksCount();
+
+		int firstIdx = 0;
+		while (firstIdx < peaksCount && mzList[firstIdx] < minMz)
+			firstIdx++;
+		int lastIdx = firstIdx;
+		while (lastIdx < peaksCount && mzList[lastIdx] <= maxMz)
+			lastIdx++;
+
+		float[] leftHwhmList = spectrumSliceData.getLeftHwhmList();
+		float[] rightHwhmList = spectrumSliceData.getRightHwhmList();
+
+		return new SpectrumData(
+			Arrays.copyOfRange(mzList, firstIdx, lastIdx),
+			Arrays.copyOfRange(spectrumSliceData.getIntensityList(), firstIdx, lastIdx),
+			leftHwhmList == null ? null : Arrays.copyOfRange(leftHwhmList, firstIdx, lastIdx),
+			rightHwhmList == null ? null : Arrays.copyOfRange(rightHwhmList, firstIdx, lastIdx)
+		);
 	}
 
 	/**
@@ -376,14 +497,15 @@ public abstract class AbstractMzDbReader {
 		// TODO: query using bounding_box_msn_rtree to use the min_ms_level information even for MS1 data ???
 		SQLiteQuery sqliteQuery;
 		if (msLevel == 1) {
-			String sqlQuery = "SELECT * FROM bounding_box WHERE id IN "
+			String sqlQuery = "SELECT id, run_slice_id, first_spectrum_id, last_spectrum_id FROM bounding_box WHERE id IN "
 					+ "(SELECT id FROM bounding_box_rtree WHERE min_mz >= ? AND max_mz <= ? AND min_time >= ? AND max_time <= ? )"
 					+ " ORDER BY first_spectrum_id";
 
 			sqliteQuery = new SQLiteQuery(connection, sqlQuery, false).bind(1, _minMz).bind(2, _maxMz).bind(3, _minRt).bind(4, _maxRt);
 
 		} else {
-			String sqlQuery = "SELECT * FROM bounding_box WHERE id IN " + "(SELECT id FROM bounding_box_msn_rtree" + " WHERE min_ms_level = " + msLevel
+			String sqlQuery = "SELECT id, run_slice_id, first_spectrum_id, last_spectrum_id FROM bounding_box WHERE id IN "
+					+ "(SELECT id FROM bounding_box_msn_rtree" + " WHERE min_ms_level = " + msLevel
 					+ " AND max_ms_level = " + msLevel + " AND min_parent_mz <= ? AND max_parent_mz >= ? "
 					+ " AND min_mz >= ? AND max_mz <= ? AND min_time >= ? AND max_time <= ? )" + " ORDER BY first_spectrum_id";
 
@@ -417,30 +539,25 @@ public abstract class AbstractMzDbReader {
 			// if (getBoundingBoxMsLevel(bbId) != msLevel)
 			// continue;
 
-			// Retrieve bounding box data
-			byte[] data = record.columnBlob(BoundingBoxTable.DATA);
 			long firstSpectrumId = record.columnLong(BoundingBoxTable.FIRST_SPECTRUM_ID);
 			long lastSpectrumId = record.columnLong(BoundingBoxTable.LAST_SPECTRUM_ID);
+			int runSliceId = record.columnInt(BoundingBoxTable.RUN_SLICE_ID);
 
-			// Build the Bounding Box
-			BoundingBox bb = BoundingBoxBuilder.buildBB(bbId, data, firstSpectrumId, lastSpectrumId, spectrumHeaderById, dataEncodingBySpectrumId);
-			// bb.setRunSliceId(record.columnInt(BoundingBoxTable.RUN_SLICE_ID));
-
-			IBlobReader bbReader = bb.getReader();
-			int bbSpectraCount = bbReader.getSpectraCount();
-			long[] bbSpectrumIds = bbReader.getAllSpectrumIds();
+			// Retrieve the decoded bounding box, reading its data only if it is not cached
+			SpectrumSlice[] bbSpectrumSlices = this._getBoundingBoxSpectrumSlices(bbId, runSliceId, firstSpectrumId, lastSpectrumId,
+				spectrumHeaderById, dataEncodingBySpectrumId, connection);
 
 			// Iterate over each spectrum
-			for (int spectrumIdx = 0; spectrumIdx < bbSpectraCount; spectrumIdx++) {
+			for (SpectrumSlice bbSpectrumSlice : bbSpectrumSlices) {
 
-				long spectrumId = bbSpectrumIds[spectrumIdx];
-				SpectrumHeader sh = spectrumHeaderById.get(spectrumId);
+				long spectrumId = bbSpectrumSlice.getSpectrumId();
+				SpectrumHeader sh = bbSpectrumSlice.getHeader();
 				float currentRt = sh.getElutionTime();
 
 				// Filtering on time dimension
 				if ((currentRt >= minRt) && (currentRt <= maxRt)) {
 					// Filtering on m/z dimension
-					SpectrumData spectrumSliceData = bbReader.readFilteredSpectrumSliceDataAt(spectrumIdx, minMz, maxMz);
+					SpectrumData spectrumSliceData = _filterSpectrumSliceData(bbSpectrumSlice.getData(), minMz, maxMz);
 					if (spectrumSliceData.isEmpty() == false) {
 						if (spectrumDataListById.containsKey(spectrumId) == false) {
 							spectrumDataListById.put(spectrumId, new ArrayList<SpectrumData>());
@@ -848,6 +965,374 @@ public abstract class AbstractMzDbReader {
 		return this._spectrumSlicesToXIC(spectrumSlices, fragmentMz, fragMzTolPPM, method);
 	}
 
+	/**
+	 * Extracts many MS1 XICs in a single pass over the bounding boxes.
+	 * <p>
+	 * The requests are grouped by the run slices their m/z window overlaps, and the requests of a run slice are split
+	 * into sub-groups whose RT windows overlap. For each sub-group, the bounding boxes crossing its m/z and RT windows
+	 * are read and decoded once, and each spectrum slice is dispatched to all requests of the sub-group. A request
+	 * overlapping two run slices gets the peaks of both, merged by spectrum.
+	 * </p>
+	 * <p>
+	 * Each XIC point is computed as by getMsXic(). With SUM, the summed intensity is reported at the m/z of the peak of
+	 * median intensity of the window, keeping the window peaks of each point until the XIC is built.
+	 * </p>
+	 *
+	 * @param mzs
+	 *            the searched m/z values
+	 * @param mzTolsInDa
+	 *            the m/z tolerances, in Da
+	 * @param minRts
+	 *            the minimum elution times, negative for the start of the run
+	 * @param maxRts
+	 *            the maximum elution times, 0 for the end of the run
+	 * @param method
+	 *            the XIC method
+	 * @param connection
+	 *            the SQLite connection, confined to the calling thread
+	 * @return one XicData per request, in the order of the requests
+	 * @throws SQLiteException
+	 * @throws StreamCorruptedException
+	 */
+	protected XicData[] getMsXics(double[] mzs, double[] mzTolsInDa, float[] minRts, float[] maxRts, XicMethod method, SQLiteConnection connection)
+			throws SQLiteException, StreamCorruptedException {
+
+		final int requestsCount = mzs.length;
+		if (mzTolsInDa.length != requestsCount || minRts.length != requestsCount || maxRts.length != requestsCount) {
+			throw new IllegalArgumentException("mzs, mzTolsInDa, minRts and maxRts must have the same length");
+		}
+
+		final float lastTime = MzDbReaderQueries.getLastTime(connection);
+		final double[] minMzs = new double[requestsCount];
+		final double[] maxMzs = new double[requestsCount];
+		final float[] minTimes = new float[requestsCount];
+		final float[] maxTimes = new float[requestsCount];
+		final XicBuilder[] xicBuilders = new XicBuilder[requestsCount];
+		for (int r = 0; r < requestsCount; r++) {
+			minMzs[r] = mzs[r] - mzTolsInDa[r];
+			maxMzs[r] = mzs[r] + mzTolsInDa[r];
+			minTimes[r] = minRts[r] >= 0 ? minRts[r] : 0;
+			maxTimes[r] = maxRts[r] > 0 ? maxRts[r] : lastTime;
+			xicBuilders[r] = new XicBuilder(mzs[r], method);
+		}
+
+		// Group the requests by run slice: first count them, then fill the groups
+		RunSliceHeader[] runSliceHeaders = this.getRunSliceHeaderReader().getRunSliceHeaderById(1, connection).values()
+				.toArray(new RunSliceHeader[0]);
+		Arrays.sort(runSliceHeaders, (rsh1, rsh2) -> Double.compare(rsh1.getBeginMz(), rsh2.getBeginMz()));
+		final int runSlicesCount = runSliceHeaders.length;
+		final double[] runSliceEndMzs = new double[runSlicesCount];
+		for (int i = 0; i < runSlicesCount; i++)
+			runSliceEndMzs[i] = runSliceHeaders[i].getEndMz();
+
+		final int[] firstRunSliceIdx = new int[requestsCount];
+		final int[] groupSizes = new int[runSlicesCount];
+		for (int r = 0; r < requestsCount; r++) {
+			int idx = Arrays.binarySearch(runSliceEndMzs, minMzs[r]);
+			firstRunSliceIdx[r] = idx < 0 ? ~idx : idx;
+			for (int i = firstRunSliceIdx[r]; i < runSlicesCount && runSliceHeaders[i].getBeginMz() <= maxMzs[r]; i++)
+				groupSizes[i]++;
+		}
+		final int[][] requestIdxByRunSlice = new int[runSlicesCount][];
+		for (int i = 0; i < runSlicesCount; i++)
+			requestIdxByRunSlice[i] = new int[groupSizes[i]];
+		Arrays.fill(groupSizes, 0);
+		for (int r = 0; r < requestsCount; r++) {
+			for (int i = firstRunSliceIdx[r]; i < runSlicesCount && runSliceHeaders[i].getBeginMz() <= maxMzs[r]; i++)
+				requestIdxByRunSlice[i][groupSizes[i]++] = r;
+		}
+
+		Map<Long, SpectrumHeader> spectrumHeaderById = this.getSpectrumHeaderReader().getMs1SpectrumHeaderById(connection);
+		Map<Long, DataEncoding> dataEncodingBySpectrumId = this.getDataEncodingReader().getDataEncodingBySpectrumId(connection);
+
+		String sqlQuery = "SELECT id, first_spectrum_id, last_spectrum_id FROM bounding_box WHERE run_slice_id = ? AND id IN "
+				+ "(SELECT id FROM bounding_box_rtree WHERE max_mz >= ? AND min_mz <= ? AND max_time >= ? AND min_time <= ? )"
+				+ " ORDER BY first_spectrum_id";
+
+		// Iterate over the run slices in m/z order, so that the slices of a spectrum are added in m/z order too
+		for (int i = 0; i < runSlicesCount; i++) {
+
+			int[] group = requestIdxByRunSlice[i];
+			if (group.length == 0)
+				continue;
+
+			// Split the requests of the run slice into sub-groups of overlapping RT windows, so that distant requests
+			// don't read the bounding boxes between them
+			Integer[] requestsByMinTime = new Integer[group.length];
+			for (int g = 0; g < group.length; g++)
+				requestsByMinTime[g] = group[g];
+			Arrays.sort(requestsByMinTime, (r1, r2) -> Float.compare(minTimes[r1], minTimes[r2]));
+
+			int subGroupStart = 0;
+			while (subGroupStart < group.length) {
+
+				int subGroupEnd = subGroupStart;
+				double groupMinMz = Double.MAX_VALUE, groupMaxMz = -Double.MAX_VALUE;
+				float groupMinTime = minTimes[requestsByMinTime[subGroupStart]], groupMaxTime = -Float.MAX_VALUE;
+				while (subGroupEnd < group.length && (subGroupEnd == subGroupStart || minTimes[requestsByMinTime[subGroupEnd]] <= groupMaxTime)) {
+					int r = requestsByMinTime[subGroupEnd++];
+					groupMinMz = Math.min(groupMinMz, minMzs[r]);
+					groupMaxMz = Math.max(groupMaxMz, maxMzs[r]);
+					groupMaxTime = Math.max(groupMaxTime, maxTimes[r]);
+				}
+				int[] subGroup = new int[subGroupEnd - subGroupStart];
+				for (int g = 0; g < subGroup.length; g++)
+					subGroup[g] = requestsByMinTime[subGroupStart + g];
+				subGroupStart = subGroupEnd;
+
+				int runSliceId = runSliceHeaders[i].getId();
+				SQLiteRecordIterator recordIter = new SQLiteQuery(connection, sqlQuery).bind(1, runSliceId).bind(2, groupMinMz).bind(3, groupMaxMz)
+						.bind(4, groupMinTime).bind(5, groupMaxTime).getRecordIterator();
+
+				while (recordIter.hasNext()) {
+
+					SQLiteRecord record = recordIter.next();
+
+					SpectrumSlice[] bbSpectrumSlices = this._getBoundingBoxSpectrumSlices(record.columnInt(BoundingBoxTable.ID), runSliceId,
+						record.columnLong(BoundingBoxTable.FIRST_SPECTRUM_ID), record.columnLong(BoundingBoxTable.LAST_SPECTRUM_ID), spectrumHeaderById,
+						dataEncodingBySpectrumId, connection);
+
+					for (SpectrumSlice bbSpectrumSlice : bbSpectrumSlices) {
+
+						// The RT windows of the sub-groups don't overlap, so each spectrum slice is added once per request
+						float time = bbSpectrumSlice.getHeader().getElutionTime();
+						if (time < groupMinTime || time > groupMaxTime)
+							continue;
+
+						SpectrumData sliceData = bbSpectrumSlice.getData();
+						for (int r : subGroup) {
+							if (time >= minTimes[r] && time <= maxTimes[r]) {
+								xicBuilders[r].addSpectrumSlice(bbSpectrumSlice.getSpectrumId(), time, sliceData, minMzs[r], maxMzs[r]);
+							}
+						}
+					}
+				}
+			}
+		}
+
+		XicData[] xics = new XicData[requestsCount];
+		for (int r = 0; r < requestsCount; r++)
+			xics[r] = xicBuilders[r].build();
+
+		return xics;
+	}
+
+	/**
+	 * Accumulates the points of one XIC in primitive arrays. Points are appended run slice after run slice, so the
+	 * spectrum ids are only out of order, and possibly duplicated, for a request overlapping several run slices. With
+	 * SUM, the window peaks of each point are kept, so that the reference peak of a spectrum can be chosen among the
+	 * peaks of all its run slices.
+	 */
+	private static class XicBuilder {
+
+		private final double searchedMz;
+		private final XicMethod method;
+
+		private long[] spectrumIds = new long[16];
+		private float[] times = new float[16];
+		private double[] mzs = new double[16];
+		private float[] intensities = new float[16];
+		// Intensity of the peak giving the m/z of each point, used to merge points of the same spectrum
+		private float[] refIntensities = new float[16];
+		private int size = 0;
+		private boolean sorted = true;
+
+		// Window peaks of each point, only kept with SUM
+		private int[] windowOffsets;
+		private double[] windowMzs;
+		private float[] windowIntensities;
+		private int windowSize = 0;
+
+		XicBuilder(double searchedMz, XicMethod method) {
+			this.searchedMz = searchedMz;
+			this.method = method;
+			if (method == XicMethod.SUM) {
+				windowOffsets = new int[17];
+				windowMzs = new double[16];
+				windowIntensities = new float[16];
+			}
+		}
+
+		void addSpectrumSlice(long spectrumId, float time, SpectrumData sliceData, double minMz, double maxMz) {
+
+			final double[] sliceMzs = sliceData.getMzList();
+			final float[] sliceIntensities = sliceData.getIntensityList();
+			final int slicePeaksCount = sliceData.getPeaksCount();
+
+			int firstIdx = Arrays.binarySearch(sliceMzs, 0, slicePeaksCount, minMz);
+			if (firstIdx < 0) {
+				firstIdx = ~firstIdx;
+			} else {
+				while (firstIdx > 0 && sliceMzs[firstIdx - 1] == minMz)
+					firstIdx--;
+			}
+
+			int peakIdx = firstIdx;
+			int bestIdx = -1;
+			float sum = 0;
+			for (; peakIdx < slicePeaksCount && sliceMzs[peakIdx] <= maxMz; peakIdx++) {
+				if (method == XicMethod.NEAREST) {
+					if (bestIdx < 0 || Math.abs(sliceMzs[peakIdx] - searchedMz) < Math.abs(sliceMzs[bestIdx] - searchedMz))
+						bestIdx = peakIdx;
+				} else if (bestIdx < 0 || sliceIntensities[peakIdx] >= sliceIntensities[bestIdx]) {
+					bestIdx = peakIdx;
+				}
+				sum += sliceIntensities[peakIdx];
+			}
+			final int endIdx = peakIdx;
+
+			if (bestIdx < 0)
+				return;
+
+			if (method == XicMethod.SUM) {
+				float[] sortedIntensities = Arrays.copyOfRange(sliceIntensities, firstIdx, endIdx);
+				Arrays.sort(sortedIntensities);
+				bestIdx = _findMedianRankPeakIdx(sliceIntensities, firstIdx, endIdx, sortedIntensities);
+				_addWindowPeaks(sliceMzs, sliceIntensities, firstIdx, endIdx);
+			}
+
+			if (size == spectrumIds.length) {
+				int newCapacity = size * 2;
+				spectrumIds = Arrays.copyOf(spectrumIds, newCapacity);
+				times = Arrays.copyOf(times, newCapacity);
+				mzs = Arrays.copyOf(mzs, newCapacity);
+				intensities = Arrays.copyOf(intensities, newCapacity);
+				refIntensities = Arrays.copyOf(refIntensities, newCapacity);
+			}
+			if (size > 0 && spectrumId <= spectrumIds[size - 1])
+				sorted = false;
+
+			spectrumIds[size] = spectrumId;
+			times[size] = time;
+			mzs[size] = sliceMzs[bestIdx];
+			intensities[size] = method == XicMethod.SUM ? sum : sliceIntensities[bestIdx];
+			refIntensities[size] = sliceIntensities[bestIdx];
+			size++;
+		}
+
+		private void _addWindowPeaks(double[] sliceMzs, float[] sliceIntensities, int firstIdx, int endIdx) {
+			final int count = endIdx - firstIdx;
+			if (windowSize + count > windowMzs.length) {
+				int newCapacity = Math.max(windowSize + count, windowMzs.length * 2);
+				windowMzs = Arrays.copyOf(windowMzs, newCapacity);
+				windowIntensities = Arrays.copyOf(windowIntensities, newCapacity);
+			}
+			if (size + 1 == windowOffsets.length)
+				windowOffsets = Arrays.copyOf(windowOffsets, windowOffsets.length * 2);
+			System.arraycopy(sliceMzs, firstIdx, windowMzs, windowSize, count);
+			System.arraycopy(sliceIntensities, firstIdx, windowIntensities, windowSize, count);
+			windowSize += count;
+			windowOffsets[size + 1] = windowSize;
+		}
+
+		XicData build() {
+
+			if (sorted) {
+				return new XicData(Arrays.copyOf(spectrumIds, size), Arrays.copyOf(times, size), Arrays.copyOf(mzs, size),
+					Arrays.copyOf(intensities, size));
+			}
+
+			// A stable sort keeps the points of a spectrum in the order of their run slices
+			Integer[] order = new Integer[size];
+			for (int i = 0; i < size; i++)
+				order[i] = i;
+			Arrays.sort(order, (i1, i2) -> Long.compare(spectrumIds[i1], spectrumIds[i2]));
+
+			long[] xicSpectrumIds = new long[size];
+			float[] xicTimes = new float[size];
+			double[] xicMzs = new double[size];
+			float[] xicIntensities = new float[size];
+			int xicSize = 0;
+
+			int first = 0;
+			while (first < size) {
+
+				// The points of the same spectrum, found in consecutive run slices
+				int end = first + 1;
+				while (end < size && spectrumIds[order[end]] == spectrumIds[order[first]])
+					end++;
+
+				int refPoint = order[first];
+				float intensity = intensities[refPoint];
+				for (int k = first + 1; k < end; k++) {
+					int i = order[k];
+					if (method == XicMethod.SUM) {
+						intensity += intensities[i];
+					} else if (method == XicMethod.NEAREST ? Math.abs(mzs[i] - searchedMz) < Math.abs(mzs[refPoint] - searchedMz)
+							: refIntensities[i] >= refIntensities[refPoint]) {
+						refPoint = i;
+						intensity = intensities[i];
+					}
+				}
+
+				xicSpectrumIds[xicSize] = spectrumIds[refPoint];
+				xicTimes[xicSize] = times[refPoint];
+				xicMzs[xicSize] = method == XicMethod.SUM && end - first > 1 ? _getMergedSumMz(order, first, end) : mzs[refPoint];
+				xicIntensities[xicSize] = intensity;
+				xicSize++;
+				first = end;
+			}
+
+			return new XicData(Arrays.copyOf(xicSpectrumIds, xicSize), Arrays.copyOf(xicTimes, xicSize), Arrays.copyOf(xicMzs, xicSize),
+				Arrays.copyOf(xicIntensities, xicSize));
+		}
+
+		/**
+		 * Gets the m/z of the reference peak among the window peaks of several points of the same spectrum, in the
+		 * order of their run slices, i.e. in m/z order.
+		 */
+		private double _getMergedSumMz(Integer[] order, int first, int end) {
+			int peaksCount = 0;
+			for (int k = first; k < end; k++)
+				peaksCount += windowOffsets[order[k] + 1] - windowOffsets[order[k]];
+
+			double[] mergedMzs = new double[peaksCount];
+			float[] mergedIntensities = new float[peaksCount];
+			int offset = 0;
+			for (int k = first; k < end; k++) {
+				int i = order[k];
+				int count = windowOffsets[i + 1] - windowOffsets[i];
+				System.arraycopy(windowMzs, windowOffsets[i], mergedMzs, offset, count);
+				System.arraycopy(windowIntensities, windowOffsets[i], mergedIntensities, offset, count);
+				offset += count;
+			}
+
+			float[] sortedIntensities = mergedIntensities.clone();
+			Arrays.sort(sortedIntensities);
+			return mergedMzs[_findMedianRankPeakIdx(mergedIntensities, 0, peaksCount, sortedIntensities)];
+		}
+
+	}
+
+	/**
+	 * Finds the reference peak of a SUM XIC point: the peak of median intensity, the first one in m/z order if several
+	 * are equal.
+	 *
+	 * @param intensityList
+	 *            the intensities of the peaks, in m/z order
+	 * @param from
+	 *            the index of the first peak of the window
+	 * @param to
+	 *            the index after the last peak of the window
+	 * @param sortedIntensities
+	 *            the intensities of the window peaks, sorted in ascending order
+	 * @return the index of the reference peak in intensityList
+	 */
+	private static int _findMedianRankPeakIdx(float[] intensityList, int from, int to, float[] sortedIntensities) {
+		int medianRank = (int) Math.floor(0.5 * (to - from));
+		float medianIntensity = sortedIntensities[medianRank];
+		int occurrence = medianRank;
+		while (occurrence > 0 && sortedIntensities[occurrence - 1] == medianIntensity)
+			occurrence--;
+		occurrence = medianRank - occurrence;
+
+		for (int peakIdx = from; peakIdx < to; peakIdx++) {
+			if (intensityList[peakIdx] == medianIntensity && occurrence-- == 0)
+				return peakIdx;
+		}
+		return from;
+	}
+
 	private Peak[] _spectrumSlicesToXIC(SpectrumSlice[] spectrumSlices, double searchedMz, double mzTolPPM, XicMethod method) throws SQLiteException,
 			StreamCorruptedException {
 
@@ -869,17 +1354,22 @@ public abstract class AbstractMzDbReader {
 			for (int i = 0; i < spectrumSlicesCount; i++) {
 
 				SpectrumSlice sl = spectrumSlices[i];
-
-				Peak[] peaks = sl.toPeaks();
-				int peaksCount = peaks.length;
+				SpectrumData slData = sl.getData();
+				float[] intensityList = slData.getIntensityList();
+				int peaksCount = slData.getPeaksCount();
 
 				if (peaksCount == 0) {
 					continue;
 				}
 
-				Arrays.sort(peaks, Peak.getIntensityComp());
+				// Take the last of the most intense peaks, without building the peaks of the slice
+				int maxIdx = 0;
+				for (int peakIdx = 1; peakIdx < peaksCount; peakIdx++) {
+					if (intensityList[peakIdx] >= intensityList[maxIdx])
+						maxIdx = peakIdx;
+				}
 
-				xicPeaks.add(peaks[peaksCount - 1]);
+				xicPeaks.add(_newPeak(sl, maxIdx, intensityList[maxIdx]));
 			}
 
 			return xicPeaks.toArray(new Peak[xicPeaks.size()]);
@@ -911,24 +1401,24 @@ public abstract class AbstractMzDbReader {
 			for (int i = 0; i < spectrumSlicesCount; i++) {
 
 				SpectrumSlice sl = spectrumSlices[i];
-
-				Peak[] peaks = sl.toPeaks();
-				int peaksCount = peaks.length;
+				SpectrumData slData = sl.getData();
+				float[] intensityList = slData.getIntensityList();
+				int peaksCount = slData.getPeaksCount();
 
 				if (peaksCount == 0) {
 					continue;
 				}
 
-				Arrays.sort(peaks, Peak.getIntensityComp());
+				float[] sortedIntensities = Arrays.copyOf(intensityList, peaksCount);
+				Arrays.sort(sortedIntensities);
 
 				float sum = 0.0f;
-				for (Peak p : peaks) {
-					sum += p.getIntensity();
+				for (float intensity : sortedIntensities) {
+					sum += intensity;
 				}
 
-				Peak refPeak = peaks[(int) Math.floor(0.5 * peaksCount)];
-
-				xicPeaks.add(new Peak(refPeak.getMz(), sum, refPeak.getLeftHwhm(), refPeak.getRightHwhm(), refPeak.getLcContext()));
+				int refIdx = _findMedianRankPeakIdx(intensityList, 0, peaksCount, sortedIntensities);
+				xicPeaks.add(_newPeak(sl, refIdx, sum));
 			}
 
 			return xicPeaks.toArray(new Peak[xicPeaks.size()]);
@@ -941,6 +1431,18 @@ public abstract class AbstractMzDbReader {
 
 	}
 
+	private static Peak _newPeak(SpectrumSlice spectrumSlice, int peakIdx, float intensity) {
+		SpectrumData sd = spectrumSlice.getData();
+
+		float leftHwhm = 0, rightHwhm = 0;
+		if (sd.getLeftHwhmList() != null && sd.getRightHwhmList() != null) {
+			leftHwhm = sd.getLeftHwhmList()[peakIdx];
+			rightHwhm = sd.getRightHwhmList()[peakIdx];
+		}
+
+		return new Peak(sd.getMzList()[peakIdx], intensity, leftHwhm, rightHwhm, spectrumSlice.getHeader());
+	}
+
 	/**
 	 * Gets the peaks.
 	 *
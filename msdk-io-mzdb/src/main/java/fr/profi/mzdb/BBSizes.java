@@ -12,6 +12,15 @@ package fr.profi.mzdb;
  * two sizes, one for ms1, the other one for all msn
  */
 public class BBSizes {
+    /** Default m/z height of MS1 bounding boxes, as used by pwiz-mzdb */
+    public static final double DEFAULT_BB_MZ_HEIGHT_MS1 = 5;
+    /** Default m/z height of MSn bounding boxes: a single run slice covers the whole spectrum */
+    public static final double DEFAULT_BB_MZ_HEIGHT_MSn = 10000;
+    /** Default time width of MS1 bounding boxes, in seconds */
+    public static final float DEFAULT_BB_RT_WIDTH_MS1 = 15;
+    /** Default time width of MSn bounding boxes: each MSn spectrum has its own bounding boxes */
+    public static final float DEFAULT_BB_RT_WIDTH_MSn = 0;
+
     public double BB_MZ_HEIGHT_MS1;
     public double BB_MZ_HEIGHT_MSn;
     public float BB_RT_WIDTH_MS1;
@@ -24,6 +33,16 @@ public class BBSizes {
 	this(0, 0, 0, 0);
     }
 
+    /**
+     * Creates BBSizes holding the default bounding box dimensions
+     * 
+     * @return a new BBSizes instance
+     */
+    public static BBSizes createDefault() {
+	return new BBSizes(DEFAULT_BB_MZ_HEIGHT_MS1, DEFAULT_BB_MZ_HEIGHT_MSn, DEFAULT_BB_RT_WIDTH_MS1,
+		DEFAULT_BB_RT_WIDTH_MSn);
+    }
+
     /**
      * Quick constructor
      * 
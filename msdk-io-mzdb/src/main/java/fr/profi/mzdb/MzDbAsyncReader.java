@@ -989,6 +989,12 @@ public class MzDbAsyncReader extends AbstractMzDbReader {
 		});
 	}
 
+	public Observable<XicData[]> getMsXics(double[] mzs, double[] mzTolsInDa, float[] minRts, float[] maxRts, XicMethod method) {
+		return this.observeJobExecution( connection -> {
+			return this.getMsXics(mzs, mzTolsInDa, minRts, maxRts, method, connection);
+		});
+	}
+
 	public Observable<Peak[]> getMsnXic(double parentMz, double fragmentMz, double fragmentMzTolInDa, float minRt, float maxRt, XicMethod method) {
 		return this.observeJobExecution( connection -> {
 			return this.getMsnXic(parentMz, fragmentMz, fragmentMzTolInDa, minRt, maxRt, method, connection);
@@ -4,11 +4,11 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.StreamCorruptedException;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
 import com.almworks.sqlite4java.SQLiteConnection;
+import com.almworks.sqlite4java.SQLiteConstants;
 import com.almworks.sqlite4java.SQLiteException;
 import com.almworks.sqlite4java.SQLiteStatement;
 
@@ -19,14 +19,28 @@ import fr.profi.mzdb.db.model.*;
 import fr.profi.mzdb.io.reader.MzDbReaderQueries;
 import fr.profi.mzdb.io.reader.cache.*;
 import fr.profi.mzdb.io.reader.iterator.BoundingBoxIterator;
+import fr.profi.mzdb.io.reader.iterator.ICloseableIterator;
 import fr.profi.mzdb.io.reader.iterator.LcMsRunSliceIterator;
 import fr.profi.mzdb.io.reader.iterator.LcMsnRunSliceIterator;
 import fr.profi.mzdb.io.reader.iterator.SpectrumIterator;
 import fr.profi.mzdb.io.reader.table.*;
 import fr.profi.mzdb.model.*;
+import fr.profi.mzdb.util.sqlite.ISQLiteConnectionFunction;
+import fr.profi.mzdb.util.sqlite.SQLiteConnectionPool;
 
 /**
  * Allows to manipulates data contained in the mzDB file.
+ * <p>
+ * By default all queries go through a single SQLite connection, confined to the thread which created the reader. When
+ * the reader is created with a connections count, all queries are run by the worker threads of a SQLiteConnectionPool
+ * instead, each one with its own connection, so that the reader can be used from several threads at the same time.
+ * The entity cache is then fully loaded by the constructor, and close() must be called to stop the workers.
+ * </p>
+ * <p>
+ * Iterators are run by a single worker, and hold a statement of its connection until they are exhausted or closed:
+ * an iterator which may not be consumed until the end must be closed, e.g. with a try-with-resources statement. An
+ * abandoned iterator doesn't block the other reads, but its statement is only disposed when the reader is closed.
+ * </p>
  *
  * @author David
  */
@@ -34,7 +48,17 @@ public class MzDbReader extends AbstractMzDbReader {
 
 	final Logger logger = LoggerFactory.getLogger(MzDbReader.class);
 	
+	/** The statements executed on each new connection **/
+	private static final String[] CONNECTION_PRAGMAS = {
+		"PRAGMA synchronous=OFF;",
+		"PRAGMA journal_mode=OFF;",
+		"PRAGMA temp_store=2;",
+		"PRAGMA cache_size=-100000;", // around 100 Mo
+		"PRAGMA mmap_size=2147418112;" // around 2 GB of mapped-memory (it may help for batch processing)
+	};
+
 	private SQLiteConnection connection = null;
+	private SQLiteConnectionPool connectionPool = null;
 	
 	/** Some readers with internal entity cache **/
 	private DataEncodingReader _dataEncodingReader = null;
@@ -43,11 +67,6 @@ public class MzDbReader extends AbstractMzDbReader {
 	
 	/** Some readers without internal entity cache **/
 	private MzDbHeaderReader _mzDbHeaderReader = null;
-	private InstrumentConfigReader _instrumentConfigReader = null;
-	private RunReader _runReader = null;
-	private SampleReader _sampleReader = null;
-	private SoftwareReader _softwareListReader = null;
-	private SourceFileReader _sourceFileReader = null;
 
 	/**
 	 * Instantiates a new mzDB reader (primary constructor). Builds a SQLite connection.
@@ -67,6 +86,35 @@ public class MzDbReader extends AbstractMzDbReader {
 	 */
 	public MzDbReader(File dbLocation, MzDbEntityCache entityCache, boolean logConnections) throws ClassNotFoundException, FileNotFoundException,
 			SQLiteException {
+		this(dbLocation, entityCache, logConnections, 0);
+	}
+
+	/**
+	 * Instantiates a new mzDB reader allowing parallel reads. Builds a SQLite connection, and a pool of connections
+	 * if connectionsCount is greater than 0.
+	 *
+	 * @param dbLocation
+	 *            the db location
+	 * @param entityCache
+	 *            the entity cache, which is required and fully loaded when a pool is used
+	 * @param logConnections
+	 *            the log connections
+	 * @param connectionsCount
+	 *            the number of worker threads reading the file, each one with its own connection, or 0 to use only a
+	 *            connection confined to the calling thread
+	 * @throws ClassNotFoundException
+	 *             the class not found exception
+	 * @throws FileNotFoundException
+	 *             the file not found exception
+	 * @throws SQLiteException
+	 *             the SQLite exception
+	 */
+	public MzDbReader(File dbLocation, MzDbEntityCache entityCache, boolean logConnections, int connectionsCount)
+			throws ClassNotFoundException, FileNotFoundException, SQLiteException {
+
+		if (connectionsCount > 0 && entityCache == null) {
+			throw new IllegalArgumentException("an entity cache is required to read with several connections");
+		}
 
 		this.entityCache = entityCache;
 
@@ -85,11 +133,9 @@ public class MzDbReader extends AbstractMzDbReader {
 		this.connection.openReadonly();
 
 		// SQLite optimization
-		this.connection.exec("PRAGMA synchronous=OFF;");
-		this.connection.exec("PRAGMA journal_mode=OFF;");
-		this.connection.exec("PRAGMA temp_store=2;");
-		this.connection.exec("PRAGMA cache_size=-100000;"); // around 100 Mo
-		this.connection.exec("PRAGMA mmap_size=2147418112;"); // around 2 GB of mapped-memory (it may help for batch processing)
+		for (String pragma : CONNECTION_PRAGMAS) {
+			this.connection.exec(pragma);
+		}
 
 		// Create a temporary table containing a copy of the sepctrum table
 		// System.out.println("before CREATE TEMP TABLE");
@@ -98,11 +144,6 @@ public class MzDbReader extends AbstractMzDbReader {
 
 		// Instantiates some readers without internal cache
 		this._mzDbHeaderReader = new MzDbHeaderReader(this.connection);
-		this._instrumentConfigReader = new InstrumentConfigReader(this.connection);
-		this._runReader = new RunReader(this.connection);
-		this._sampleReader = new SampleReader(this.connection);
-		this._softwareListReader = new SoftwareReader(this.connection);
-		this._sourceFileReader = new SourceFileReader(this.connection);
 
 		// Instantiates some readers with internal cache (entity cache object)
 		this._dataEncodingReader = new DataEncodingReader(this);
@@ -118,6 +159,21 @@ public class MzDbReader extends AbstractMzDbReader {
 
 		// Set BB sizes
 		this._setBBSizes(this._paramNameGetter);
+
+		if (connectionsCount > 0) {
+			// Load the entities now, so that the workers only read the entity cache
+			this._dataEncodingReader.getDataEncodingById();
+			this._dataEncodingReader.getDataEncodingBySpectrumId();
+			this._spectrumHeaderReader.getSpectrumHeaderById();
+			this._spectrumHeaderReader.getMs1SpectrumHeaderById();
+			this._spectrumHeaderReader.getMs2SpectrumHeaderById();
+			this._spectrumHeaderReader.getSpectrumTimeById();
+			this._spectrumHeaderReader.getSpectrumIdsByTimeIndex();
+			this._runSliceHeaderReader.getRunSliceHeaderById();
+
+			// From now on, all queries are run by the workers
+			this.connectionPool = new SQLiteConnectionPool(dbLocation, connectionsCount, CONNECTION_PRAGMAS);
+		}
 	}
 
 	/**
@@ -159,18 +215,134 @@ public class MzDbReader extends AbstractMzDbReader {
 	/**
 	 * Gets the connection.
 	 *
-	 * @return the connection
+	 * @return the connection confined to the thread which created the reader. When a pool is used, it is only used by
+	 *         the constructor, and the other methods of the reader don't use it.
 	 */
 	public SQLiteConnection getConnection() {
 		return this.connection;
 	}
 
 	/**
-	 * close the connection to avoid memory leaks.
+	 * Gets the connection pool.
+	 *
+	 * @return the connection pool, or null if the reader uses a single connection
+	 */
+	public SQLiteConnectionPool getConnectionPool() {
+		return this.connectionPool;
+	}
+
+	/**
+	 * close the connection to avoid memory leaks. When a pool is used, the workers complete the pending reads, then
+	 * dispose their connection and stop.
 	 */
 	public void close() {
+		if (this.connectionPool != null) {
+			this.connectionPool.close();
+		}
 		this.connection.dispose();
 	}
+
+	/**
+	 * Runs a query on a connection of this reader: the connection of the calling thread when no pool is used, else the
+	 * connection of a worker, or the connection of the calling worker when called from a query.
+	 *
+	 * @param query
+	 *            the query, which must not keep the connection, nor any statement of it, after returning
+	 * @return the result of the query
+	 * @throws SQLiteException
+	 *             the SQLite exception thrown by the query, or wrapping any other checked exception
+	 */
+	public <T> T executeQuery(ISQLiteConnectionFunction<T> query) throws SQLiteException {
+		try {
+			return this.execute(query);
+		} catch (SQLiteException | RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new SQLiteException(SQLiteConstants.WRAPPER_USER_ERROR, e.toString(), e);
+		}
+	}
+
+	/**
+	 * Same as executeQuery(), for queries decoding spectrum data.
+	 */
+	private <T> T executeDataQuery(ISQLiteConnectionFunction<T> query) throws SQLiteException, StreamCorruptedException {
+		try {
+			return this.execute(query);
+		} catch (SQLiteException | StreamCorruptedException | RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new SQLiteException(SQLiteConstants.WRAPPER_USER_ERROR, e.toString(), e);
+		}
+	}
+
+	private <T> T execute(ISQLiteConnectionFunction<T> query) throws Exception {
+		return (this.connectionPool == null) ? query.apply(this.connection) : this.connectionPool.execute(query);
+	}
+
+	/**
+	 * Creates an iterator, which is run by a single worker when a pool is used.
+	 */
+	private <E> ICloseableIterator<E> createIterator(ISQLiteConnectionFunction<ICloseableIterator<E>> iteratorFactory)
+			throws SQLiteException, StreamCorruptedException {
+		if (this.connectionPool == null) {
+			return this.executeDataQuery(iteratorFactory);
+		}
+
+		SQLiteConnectionPool.Worker worker = this.connectionPool.getWorker();
+		try {
+			return new PooledIterator<E>(worker, worker.execute(iteratorFactory));
+		} catch (SQLiteException | StreamCorruptedException | RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new SQLiteException(SQLiteConstants.WRAPPER_USER_ERROR, e.toString(), e);
+		}
+	}
+
+	/**
+	 * Runs each call of an iterator on the worker owning its statement.
+	 */
+	private class PooledIterator<E> implements ICloseableIterator<E> {
+
+		private final SQLiteConnectionPool.Worker worker;
+		private final ICloseableIterator<E> iterator;
+
+		PooledIterator(SQLiteConnectionPool.Worker worker, ICloseableIterator<E> iterator) {
+			this.worker = worker;
+			this.iterator = iterator;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return this.execute(connection -> iterator.hasNext());
+		}
+
+		@Override
+		public E next() {
+			return this.execute(connection -> iterator.next());
+		}
+
+		@Override
+		public void close() {
+			// The statements are disposed with the connections when the pool is closed
+			if (!connectionPool.isClosed()) {
+				this.execute(connection -> {
+					iterator.close();
+					return null;
+				});
+			}
+		}
+
+		private <T> T execute(ISQLiteConnectionFunction<T> function) {
+			try {
+				return worker.execute(function);
+			} catch (RuntimeException e) {
+				throw e;
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+	}
 	
 	@Override
 	public DataEncodingReader getDataEncodingReader() {
@@ -191,11 +363,11 @@ public class MzDbReader extends AbstractMzDbReader {
 	 * @throws SQLiteException
 	 */
 	public String getModelVersion() throws SQLiteException {
-		return MzDbReaderQueries.getModelVersion(connection);
+		return this.executeQuery(connection -> MzDbReaderQueries.getModelVersion(connection));
 	}
 
 	public String getPwizMzDbVersion() throws SQLiteException {
-		return MzDbReaderQueries.getPwizMzDbVersion(connection);
+		return this.executeQuery(connection -> MzDbReaderQueries.getPwizMzDbVersion(connection));
 	}
 	
 
@@ -207,7 +379,7 @@ public class MzDbReader extends AbstractMzDbReader {
 	 *             the sQ lite exception
 	 */
 	public float getLastTime() throws SQLiteException {
-		return MzDbReaderQueries.getLastTime(connection);
+		return this.executeQuery(connection -> MzDbReaderQueries.getLastTime(connection));
 	}
 
 	/**
@@ -218,7 +390,7 @@ public class MzDbReader extends AbstractMzDbReader {
 	 *             the sQ lite exception
 	 */
 	public int getMaxMsLevel() throws SQLiteException {
-		return MzDbReaderQueries.getMaxMsLevel(connection);
+		return this.executeQuery(connection -> MzDbReaderQueries.getMaxMsLevel(connection));
 	}
 
 	/**
@@ -231,7 +403,7 @@ public class MzDbReader extends AbstractMzDbReader {
 	 *             the sQ lite exception
 	 */
 	public int[] getMzRange(int msLevel) throws SQLiteException {
-		return MzDbReaderQueries.getMzRange(msLevel, connection);
+		return this.executeQuery(connection -> MzDbReaderQueries.getMzRange(msLevel, connection));
 	}
 
 	/**
@@ -242,7 +414,7 @@ public class MzDbReader extends AbstractMzDbReader {
 	 *             the sQ lite exception
 	 */
 	public int getBoundingBoxesCount() throws SQLiteException {
-		return MzDbReaderQueries.getBoundingBoxesCount(connection);
+		return this.executeQuery(connection -> MzDbReaderQueries.getBoundingBoxesCount(connection));
 	}
 
 	/**
@@ -255,7 +427,7 @@ public class MzDbReader extends AbstractMzDbReader {
 	 *             the sQ lite exception
 	 */
 	public int getBoundingBoxesCount(int runSliceId) throws SQLiteException {
-		return MzDbReaderQueries.getBoundingBoxesCount(runSliceId, connection);
+		return this.executeQuery(connection -> MzDbReaderQueries.getBoundingBoxesCount(runSliceId, connection));
 	}
 
 	/**
@@ -265,7 +437,7 @@ public class MzDbReader extends AbstractMzDbReader {
 	 * @throws SQLiteException
 	 */
 	public int getCyclesCount() throws SQLiteException {
-		return MzDbReaderQueries.getCyclesCount(connection);
+		return this.executeQuery(connection -> MzDbReaderQueries.getCyclesCount(connection));
 	}
 
 	/**
@@ -276,7 +448,7 @@ public class MzDbReader extends AbstractMzDbReader {
 	 *             the sQ lite exception
 	 */
 	public int getDataEncodingsCount() throws SQLiteException {
-		return MzDbReaderQueries.getDataEncodingsCount(connection);
+		return this.executeQuery(connection -> MzDbReaderQueries.getDataEncodingsCount(connection));
 	}
 
 	/**
@@ -287,7 +459,7 @@ public class MzDbReader extends AbstractMzDbReader {
 	 *             the sQ lite exception
 	 */
 	public int getSpectraCount() throws SQLiteException {
-		return MzDbReaderQueries.getSpectraCount(connection);
+		return this.executeQuery(connection -> MzDbReaderQueries.getSpectraCount(connection));
 	}
 
 	/**
@@ -298,7 +470,7 @@ public class MzDbReader extends AbstractMzDbReader {
 	 *             the sQ lite exception
 	 */
 	public int getSpectraCount(int msLevel) throws SQLiteException {
-		return MzDbReaderQueries.getSpectraCount(msLevel, connection);
+		return this.executeQuery(connection -> MzDbReaderQueries.getSpectraCount(msLevel, connection));
 	}
 
 	/**
@@ -309,7 +481,7 @@ public class MzDbReader extends AbstractMzDbReader {
 	 *             the sQ lite exception
 	 */
 	public int getRunSlicesCount() throws SQLiteException {
-		return MzDbReaderQueries.getRunSlicesCount(connection);
+		return this.executeQuery(connection -> MzDbReaderQueries.getRunSlicesCount(connection));
 	}
 
 	/**
@@ -322,7 +494,7 @@ public class MzDbReader extends AbstractMzDbReader {
 	 *             the sQ lite exception
 	 */
 	public int getTableRecordsCount(String tableName) throws SQLiteException {
-		return MzDbReaderQueries.getTableRecordsCount(tableName, connection);
+		return this.executeQuery(connection -> MzDbReaderQueries.getTableRecordsCount(tableName, connection));
 	}
 	
 	/**
@@ -396,7 +568,7 @@ public class MzDbReader extends AbstractMzDbReader {
 	 *             the sQ lite exception
 	 */
 	public RunSliceData getRunSliceData(int runSliceId) throws SQLiteException, StreamCorruptedException {
-		return this.getRunSliceData(runSliceId, connection);
+		return this.executeDataQuery(connection -> this.getRunSliceData(runSliceId, connection));
 	}
 
 	/**
@@ -409,7 +581,7 @@ public class MzDbReader extends AbstractMzDbReader {
 	 *             the sQ lite exception
 	 */
 	public byte[] getBoundingBoxData(int bbId) throws SQLiteException {
-		return MzDbReaderQueries.getBoundingBoxData(bbId, connection);
+		return this.executeQuery(connection -> MzDbReaderQueries.getBoundingBoxData(bbId, connection));
 	}
 
 	/**
@@ -422,7 +594,7 @@ public class MzDbReader extends AbstractMzDbReader {
 	 *             the sQ lite exception
 	 */
 	public long getBoundingBoxFirstSpectrumId(long spectrumId) throws SQLiteException {
-		return MzDbReaderQueries.getBoundingBoxFirstSpectrumId(spectrumId, connection);
+		return this.executeQuery(connection -> MzDbReaderQueries.getBoundingBoxFirstSpectrumId(spectrumId, connection));
 	}
 
 	/**
@@ -435,7 +607,7 @@ public class MzDbReader extends AbstractMzDbReader {
 	 *             the sQ lite exception
 	 */
 	public float getBoundingBoxMinMz(int bbId) throws SQLiteException {
-		return MzDbReaderQueries.getBoundingBoxMinMz(bbId, connection);
+		return this.executeQuery(connection -> MzDbReaderQueries.getBoundingBoxMinMz(bbId, connection));
 	}
 
 	/**
@@ -448,7 +620,7 @@ public class MzDbReader extends AbstractMzDbReader {
 	 *             the sQ lite exception
 	 */
 	public float getBoundingBoxMinTime(int bbId) throws SQLiteException {
-		return MzDbReaderQueries.getBoundingBoxMinTime(bbId, connection);
+		return this.executeQuery(connection -> MzDbReaderQueries.getBoundingBoxMinTime(bbId, connection));
 	}
 
 	/**
@@ -461,7 +633,7 @@ public class MzDbReader extends AbstractMzDbReader {
 	 *             the sQ lite exception
 	 */
 	public int getBoundingBoxMsLevel(int bbId) throws SQLiteException {
-		return MzDbReaderQueries.getBoundingBoxMsLevel(bbId, connection);
+		return this.executeQuery(connection -> MzDbReaderQueries.getBoundingBoxMsLevel(bbId, connection));
 	}
 	
 
@@ -569,7 +741,7 @@ public class MzDbReader extends AbstractMzDbReader {
 	 * @throws StreamCorruptedException
 	 */
 	public SpectrumData getSpectrumData(long spectrumId) throws SQLiteException, StreamCorruptedException {
-		return this.getSpectrumData(spectrumId, connection);
+		return this.executeDataQuery(connection -> this.getSpectrumData(spectrumId, connection));
 	}
 
 	/**
@@ -583,7 +755,7 @@ public class MzDbReader extends AbstractMzDbReader {
 	 * @throws StreamCorruptedException
 	 */
 	public Spectrum getSpectrum(long spectrumId) throws SQLiteException, StreamCorruptedException {
-		return this.getSpectrum(spectrumId, connection);
+		return this.executeDataQuery(connection -> this.getSpectrum(spectrumId, connection));
 	}
 
 	/**
@@ -597,7 +769,7 @@ public class MzDbReader extends AbstractMzDbReader {
 	 * @throws StreamCorruptedException
 	 */
 	public Peak[] getSpectrumPeaks(int spectrumId) throws SQLiteException, StreamCorruptedException {
-		return this.getSpectrumPeaks(spectrumId, connection);
+		return this.executeDataQuery(connection -> this.getSpectrumPeaks(spectrumId, connection));
 	}
 
 	/**
@@ -619,31 +791,33 @@ public class MzDbReader extends AbstractMzDbReader {
 	 * @throws StreamCorruptedException
 	 */
 	public SpectrumSlice[] getMsSpectrumSlices(double minMz, double maxMz, float minRt, float maxRt) throws SQLiteException, StreamCorruptedException {
-		return this.getMsSpectrumSlices(minMz, maxMz, minRt, maxRt, connection);
+		return this.executeDataQuery(connection -> this.getMsSpectrumSlices(minMz, maxMz, minRt, maxRt, connection));
 	}
 
 	// TODO: think about msLevel > 2
 	public SpectrumSlice[] getMsnSpectrumSlices(double parentMz, double minFragMz, double maxFragMz, float minRt, float maxRt) throws SQLiteException, StreamCorruptedException {
-		return getMsnSpectrumSlices(parentMz, minFragMz, maxFragMz, minRt, maxRt, connection);
+		return this.executeDataQuery(connection -> this.getMsnSpectrumSlices(parentMz, minFragMz, maxFragMz, minRt, maxRt, connection));
 	}
 
-	public Iterator<BoundingBox> getBoundingBoxIterator(int msLevel) throws SQLiteException, StreamCorruptedException {
-		// TODO: try to use msn_rtree join instead (may be faster)
-		SQLiteStatement stmt = connection.prepare(
-			"SELECT bounding_box.* FROM bounding_box, spectrum WHERE spectrum.id = bounding_box.first_spectrum_id AND spectrum.ms_level= ?", false);
-		stmt.bind(1, msLevel);
+	public ICloseableIterator<BoundingBox> getBoundingBoxIterator(final int msLevel) throws SQLiteException, StreamCorruptedException {
+		return this.createIterator(connection -> {
+			// TODO: try to use msn_rtree join instead (may be faster)
+			SQLiteStatement stmt = connection.prepare(
+				"SELECT bounding_box.* FROM bounding_box, spectrum WHERE spectrum.id = bounding_box.first_spectrum_id AND spectrum.ms_level= ?", false);
+			stmt.bind(1, msLevel);
 
-		return new BoundingBoxIterator(
-			this._spectrumHeaderReader,
-			this._dataEncodingReader,
-			connection,
-			stmt,
-			msLevel
-		);
+			return new BoundingBoxIterator(
+				this._spectrumHeaderReader,
+				this._dataEncodingReader,
+				connection,
+				stmt,
+				msLevel
+			);
+		});
 	}
 	
-	public Iterator<Spectrum> getSpectrumIterator() throws SQLiteException, StreamCorruptedException {
-		return new SpectrumIterator(this, connection);
+	public ICloseableIterator<Spectrum> getSpectrumIterator() throws SQLiteException, StreamCorruptedException {
+		return this.createIterator(connection -> new SpectrumIterator(this, connection));
 	}
 
 	/**
@@ -656,8 +830,8 @@ public class MzDbReader extends AbstractMzDbReader {
 	 *             the sQ lite exception
 	 * @throws StreamCorruptedException
 	 */
-	public Iterator<Spectrum> getSpectrumIterator(int msLevel) throws SQLiteException, StreamCorruptedException {
-		return new SpectrumIterator(this, connection, msLevel);
+	public ICloseableIterator<Spectrum> getSpectrumIterator(int msLevel) throws SQLiteException, StreamCorruptedException {
+		return this.createIterator(connection -> new SpectrumIterator(this, connection, msLevel));
 	}
 
 	/**
@@ -667,7 +841,7 @@ public class MzDbReader extends AbstractMzDbReader {
 	 * @throws SQLiteException
 	 * @throws StreamCorruptedException
 	 */
-	public Iterator<RunSlice> getLcMsRunSliceIterator() throws SQLiteException, StreamCorruptedException {
+	public ICloseableIterator<RunSlice> getLcMsRunSliceIterator() throws SQLiteException, StreamCorruptedException {
 
 		// First pass to load the index
 		/*final SQLiteStatement fakeStmt = this.connection.prepare("SELECT data FROM bounding_box", false);
@@ -676,7 +850,7 @@ public class MzDbReader extends AbstractMzDbReader {
 		fakeStmt.dispose();*/
 		readWholeFile(this.dbLocation);
 
-		return new LcMsRunSliceIterator(this, connection);
+		return this.createIterator(connection -> new LcMsRunSliceIterator(this, connection));
 	}
 	
 	private static void readWholeFile(File file) {
@@ -705,8 +879,8 @@ public class MzDbReader extends AbstractMzDbReader {
 	 * @throws SQLiteException
 	 * @throws StreamCorruptedException
 	 */
-	public Iterator<RunSlice> getLcMsRunSliceIterator(double minRunSliceMz, double maxRunSliceMz) throws SQLiteException, StreamCorruptedException {
-		return new LcMsRunSliceIterator(this, connection, minRunSliceMz, maxRunSliceMz);
+	public ICloseableIterator<RunSlice> getLcMsRunSliceIterator(double minRunSliceMz, double maxRunSliceMz) throws SQLiteException, StreamCorruptedException {
+		return this.createIterator(connection -> new LcMsRunSliceIterator(this, connection, minRunSliceMz, maxRunSliceMz));
 	}
 
 	/**
@@ -718,15 +892,17 @@ public class MzDbReader extends AbstractMzDbReader {
 	 * @throws SQLiteException
 	 * @throws StreamCorruptedException
 	 */
-	public Iterator<RunSlice> getLcMsnRunSliceIterator(double minParentMz, double maxParentMz) throws SQLiteException, StreamCorruptedException {
+	public ICloseableIterator<RunSlice> getLcMsnRunSliceIterator(double minParentMz, double maxParentMz) throws SQLiteException, StreamCorruptedException {
 
-		// First pass to load the index
-		final SQLiteStatement fakeStmt = this.connection.prepare("SELECT data FROM bounding_box", false);
-		while (fakeStmt.step()) {
-		}
-		fakeStmt.dispose();
+		return this.createIterator(connection -> {
+			// First pass to load the index
+			final SQLiteStatement fakeStmt = connection.prepare("SELECT data FROM bounding_box", false);
+			while (fakeStmt.step()) {
+			}
+			fakeStmt.dispose();
 
-		return new LcMsnRunSliceIterator(this, connection, minParentMz, maxParentMz);
+			return new LcMsnRunSliceIterator(this, connection, minParentMz, maxParentMz);
+		});
 	}
 
 	/**
@@ -739,9 +915,9 @@ public class MzDbReader extends AbstractMzDbReader {
 	 * @throws SQLiteException
 	 * @throws StreamCorruptedException
 	 */
-	public Iterator<RunSlice> getLcMsnRunSliceIterator(double minParentMz, double maxParentMz, double minRunSliceMz, double maxRunSliceMz)
+	public ICloseableIterator<RunSlice> getLcMsnRunSliceIterator(double minParentMz, double maxParentMz, double minRunSliceMz, double maxRunSliceMz)
 			throws SQLiteException, StreamCorruptedException {
-		return new LcMsnRunSliceIterator(this, connection, minParentMz, maxParentMz, minRunSliceMz, maxRunSliceMz);
+		return this.createIterator(connection -> new LcMsnRunSliceIterator(this, connection, minParentMz, maxParentMz, minRunSliceMz, maxRunSliceMz));
 	}
 
 	/**
@@ -751,7 +927,7 @@ public class MzDbReader extends AbstractMzDbReader {
 	 * @throws SQLiteException
 	 */
 	public AcquisitionMode getAcquisitionMode() throws SQLiteException {
-		return this.getAcquisitionMode(connection);
+		return this.executeQuery(connection -> this.getAcquisitionMode(connection));
 	}
 
 	/**
@@ -761,40 +937,40 @@ public class MzDbReader extends AbstractMzDbReader {
 	 * @throws SQLiteException
 	 */
 	public IsolationWindow[] getDIAIsolationWindows() throws SQLiteException {
-		return this.getDIAIsolationWindows(connection);
+		return this.executeQuery(connection -> this.getDIAIsolationWindows(connection));
 	}
 	
 	public List<InstrumentConfiguration> getInstrumentConfigurations() throws SQLiteException {
 		if (this.instrumentConfigs == null) {
-			this.instrumentConfigs = this._instrumentConfigReader.getInstrumentConfigList();
+			this.instrumentConfigs = this.executeQuery(connection -> new InstrumentConfigReader(connection).getInstrumentConfigList());
 		}
 		return this.instrumentConfigs;
 	}
 
 	public List<Run> getRuns() throws SQLiteException {
 		if (this.runs == null) {
-			this.runs = this._runReader.getRunList();
+			this.runs = this.executeQuery(connection -> new RunReader(connection).getRunList());
 		}
 		return this.runs;
 	}
 
 	public List<Sample> getSamples() throws SQLiteException {
 		if (this.samples == null) {
-			this.samples = this._sampleReader.getSampleList();
+			this.samples = this.executeQuery(connection -> new SampleReader(connection).getSampleList());
 		}
 		return this.samples;
 	}
 
 	public List<Software> getSoftwareList() throws SQLiteException {
 		if (this.softwareList == null) {
-			this.softwareList = this._softwareListReader.getSoftwareList();
+			this.softwareList = this.executeQuery(connection -> new SoftwareReader(connection).getSoftwareList());
 		}
 		return this.softwareList;
 	}
 
 	public List<SourceFile> getSourceFiles() throws SQLiteException {
 		if (this.sourceFiles == null) {
-			this.sourceFiles = this._sourceFileReader.getSourceFileList();
+			this.sourceFiles = this.executeQuery(connection -> new SourceFileReader(connection).getSourceFileList());
 		}
 		return this.sourceFiles;
 	}
@@ -813,27 +989,36 @@ public class MzDbReader extends AbstractMzDbReader {
 	 *             the sQ lite exception
 	 */
 	public Peak[] getMsXicInMzRange(double minMz, double maxMz, XicMethod method) throws SQLiteException, StreamCorruptedException {
-		return this.getMsXicInMzRange(minMz, maxMz, method, connection);
+		return this.executeDataQuery(connection -> this.getMsXicInMzRange(minMz, maxMz, method, connection));
 	}
 
 	public Peak[] getMsXicInMzRtRanges(double minMz, double maxMz, float minRt, float maxRt, XicMethod method) throws SQLiteException, StreamCorruptedException {
-		return this.getMsXicInMzRtRanges(minMz, maxMz, minRt, maxRt, method, connection);
+		return this.executeDataQuery(connection -> this.getMsXicInMzRtRanges(minMz, maxMz, minRt, maxRt, method, connection));
 	}
 
 	public Peak[] getMsXic(double mz, double mzTolInDa, float minRt, float maxRt, int msLevel, XicMethod method) throws SQLiteException, StreamCorruptedException {
-		return this.getMsXic(mz, mzTolInDa, minRt, maxRt, method, connection);
+		return this.executeDataQuery(connection -> this.getMsXic(mz, mzTolInDa, minRt, maxRt, method, connection));
+	}
+
+	/**
+	 * Extracts many MS1 XICs at once, decoding each bounding box only once.
+	 *
+	 * @see AbstractMzDbReader#getMsXics(double[], double[], float[], float[], XicMethod, SQLiteConnection)
+	 */
+	public XicData[] getMsXics(double[] mzs, double[] mzTolsInDa, float[] minRts, float[] maxRts, XicMethod method) throws SQLiteException, StreamCorruptedException {
+		return this.executeDataQuery(connection -> this.getMsXics(mzs, mzTolsInDa, minRts, maxRts, method, connection));
 	}
 
 	public Peak[] getMsnXIC(double parentMz, double fragmentMz, double fragmentMzTolInDa, float minRt, float maxRt, XicMethod method) throws SQLiteException, StreamCorruptedException {
-		return this.getMsnXic(parentMz, fragmentMz, fragmentMzTolInDa, minRt, maxRt, method, connection);
+		return this.executeDataQuery(connection -> this.getMsnXic(parentMz, fragmentMz, fragmentMzTolInDa, minRt, maxRt, method, connection));
 	}
 	
 	public Peak[] getMsPeaksInMzRtRanges(double minMz, double maxMz, float minRt, float maxRt) throws SQLiteException, StreamCorruptedException {
-		return this.getMsPeaksInMzRtRanges(minMz, maxMz, minRt, maxRt, connection);
+		return this.executeDataQuery(connection -> this.getMsPeaksInMzRtRanges(minMz, maxMz, minRt, maxRt, connection));
 	}
 	
 	public Peak[] getMsnPeaksInMzRtRanges(double parentMz, double minFragMz, double maxFragMz, float minRt, float maxRt) throws SQLiteException, StreamCorruptedException {
-		return this.getMsnPeaksInMzRtRanges(parentMz, minFragMz, maxFragMz, minRt, maxRt, connection);
+		return this.executeDataQuery(connection -> this.getMsnPeaksInMzRtRanges(parentMz, minFragMz, maxFragMz, minRt, maxRt, connection));
 	}
 
 }
\ No newline at end of file
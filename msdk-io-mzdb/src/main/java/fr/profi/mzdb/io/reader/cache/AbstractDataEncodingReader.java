@@ -80,6 +80,8 @@ public abstract class AbstractDataEncodingReader extends MzDbEntityCacheContaine
 					DataMode dm;
 					if (dmAsStr.equalsIgnoreCase("FITTED"))
 						dm = DataMode.FITTED;
+					else if (dmAsStr.equalsIgnoreCase("PROFILE"))
+						dm = DataMode.PROFILE;
 					else
 						dm = DataMode.CENTROID;
 
@@ -122,6 +124,8 @@ public abstract class AbstractDataEncodingReader extends MzDbEntityCacheContaine
 					DataMode dm;
 					if (dmAsStr.equalsIgnoreCase("FITTED"))
 						dm = DataMode.FITTED;
+					else if (dmAsStr.equalsIgnoreCase("PROFILE"))
+						dm = DataMode.PROFILE;
 					else
 						dm = DataMode.CENTROID;
 
@@ -459,7 +459,7 @@ public abstract class AbstractSpectrumHeaderReader extends MzDbEntityCacheContai
 	protected SpectrumHeader getSpectrumHeaderForTime(float time, int msLevel, SQLiteConnection connection) throws Exception {
 
 		if (this.getEntityCache() != null) {
-			Map<Integer, ArrayList<Long>> spectrumIdsByTimeIndex = this._getSpectrumIdsByTimeIndex(connection);
+			Map<Integer, ArrayList<Long>> spectrumIdsByTimeIndex = this.getSpectrumIdsByTimeIndex(connection);
 
 			int timeIndex = (int) (time / TIME_INDEX_WIDTH);
 			SpectrumHeader nearestSpectrumHeader = null;
@@ -504,15 +504,13 @@ public abstract class AbstractSpectrumHeaderReader extends MzDbEntityCacheContai
 	/**
 	 * Gets the spectrum ids by time index.
 	 *
-	 * @param msLevel
-	 *            the ms level
 	 * @param connection
 	 *            the connection
 	 * @return hashmap of key time index value array of spectrumIds
 	 * @throws SQLiteException
 	 *             the SQ lite exception
 	 */
-	private Map<Integer, ArrayList<Long>> _getSpectrumIdsByTimeIndex(SQLiteConnection connection) throws SQLiteException {
+	protected Map<Integer, ArrayList<Long>> getSpectrumIdsByTimeIndex(SQLiteConnection connection) throws SQLiteException {
 
 		HashMap<Integer, ArrayList<Long>> spectrumIdsByTimeIndex = null;
 		if (this.getEntityCache() != null) {
@@ -0,0 +1,162 @@
+package fr.profi.mzdb.io.reader.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+import fr.profi.mzdb.model.SpectrumData;
+import fr.profi.mzdb.model.SpectrumSlice;
+
+/**
+ * A cache of decoded bounding boxes, bounded by the size in bytes of their peak arrays.
+ * <p>
+ * Each bounding box is stored as the array of its spectrum slices, keyed by the bounding box id, so that reading
+ * several spectra of the same cycle, or several XICs crossing the same bounding boxes, decodes each blob only once.
+ * The ids of the bounding boxes starting at a given spectrum are cached as well, so that a spectrum whose bounding
+ * boxes are all cached can be rebuilt without any query.
+ * </p>
+ * <p>
+ * Readers only use a cache once it is set with AbstractMzDbReader.setBoundingBoxCache(). Bounding box ids are only
+ * unique within one mzDB file: a cache may be shared by several readers of the same file,
+ * e.g. a MzDbReader and a MzDbAsyncReader, but not by readers of different files. The cached spectrum slices must not
+ * be modified.
+ * </p>
+ */
+public class BoundingBoxCache {
+
+	/** Suggested budget is a sixteenth of the maximum heap size. */
+	public static final long DEFAULT_MAXIMUM_SIZE = Runtime.getRuntime().maxMemory() / 16;
+
+	/** Maximum number of cycles whose bounding box ids are kept. */
+	private static final int MAXIMUM_CYCLES_COUNT = 100000;
+
+	private final long maximumSize;
+	private final Cache<Integer, SpectrumSlice[]> spectrumSlicesByBBId;
+	private final Cache<Long, int[]> bbIdsByFirstSpectrumId;
+
+	/**
+	 * Instantiates a new bounding box cache.
+	 *
+	 * @param maximumSize
+	 *            the maximum total size of the cached peak arrays, in bytes
+	 */
+	public BoundingBoxCache(long maximumSize) {
+		this.maximumSize = maximumSize;
+		this.spectrumSlicesByBBId = CacheBuilder.newBuilder().maximumWeight(maximumSize)
+				.weigher((Integer bbId, SpectrumSlice[] slices) -> getSizeInBytes(slices)).recordStats().build();
+		this.bbIdsByFirstSpectrumId = CacheBuilder.newBuilder().maximumSize(MAXIMUM_CYCLES_COUNT).build();
+	}
+
+	/**
+	 * Gets the spectrum slices of a bounding box.
+	 *
+	 * @param bbId
+	 *            the bounding box id
+	 * @return the cached spectrum slices, or null if the bounding box is not cached
+	 */
+	public SpectrumSlice[] getSpectrumSlices(int bbId) {
+		return spectrumSlicesByBBId.getIfPresent(bbId);
+	}
+
+	/**
+	 * Puts the decoded spectrum slices of a bounding box.
+	 *
+	 * @param bbId
+	 *            the bounding box id
+	 * @param spectrumSlices
+	 *            all spectrum slices of the bounding box
+	 */
+	public void putSpectrumSlices(int bbId, SpectrumSlice[] spectrumSlices) {
+		spectrumSlicesByBBId.put(bbId, spectrumSlices);
+	}
+
+	/**
+	 * Gets the ids of the bounding boxes starting at a given spectrum.
+	 *
+	 * @param firstSpectrumId
+	 *            the first spectrum id of the bounding boxes
+	 * @return the cached bounding box ids, or null if they are not cached
+	 */
+	public int[] getBoundingBoxIds(long firstSpectrumId) {
+		return bbIdsByFirstSpectrumId.getIfPresent(firstSpectrumId);
+	}
+
+	/**
+	 * Puts the ids of the bounding boxes starting at a given spectrum.
+	 *
+	 * @param firstSpectrumId
+	 *            the first spectrum id of the bounding boxes
+	 * @param bbIds
+	 *            the bounding box ids, in the order of the bounding_box table
+	 */
+	public void putBoundingBoxIds(long firstSpectrumId, int[] bbIds) {
+		bbIdsByFirstSpectrumId.put(firstSpectrumId, bbIds);
+	}
+
+	/**
+	 * Removes all bounding boxes from the cache.
+	 */
+	public void invalidateAll() {
+		spectrumSlicesByBBId.invalidateAll();
+		bbIdsByFirstSpectrumId.invalidateAll();
+	}
+
+	/**
+	 * @return the maximum total size of the cached peak arrays, in bytes
+	 */
+	public long getMaximumSize() {
+		return maximumSize;
+	}
+
+	/**
+	 * @return the number of bounding box lookups which found the decoded bounding box in the cache
+	 */
+	public long getHitCount() {
+		return spectrumSlicesByBBId.stats().hitCount();
+	}
+
+	/**
+	 * @return the number of bounding box lookups which had to read the bounding box from the file
+	 */
+	public long getMissCount() {
+		return spectrumSlicesByBBId.stats().missCount();
+	}
+
+	/**
+	 * @return the number of bounding boxes evicted from the cache, not counting manual invalidation
+	 */
+	public long getEvictionCount() {
+		return spectrumSlicesByBBId.stats().evictionCount();
+	}
+
+	/**
+	 * @return the total size of the cached peak arrays, in bytes
+	 */
+	public long getSizeInBytes() {
+		long size = 0;
+		for (SpectrumSlice[] slices : spectrumSlicesByBBId.asMap().values())
+			size += getSizeInBytes(slices);
+		return size;
+	}
+
+	/**
+	 * @return a CacheStats snapshot of the bounding box lookups
+	 */
+	public CacheStats getStats() {
+		return spectrumSlicesByBBId.stats();
+	}
+
+	private static int getSizeInBytes(SpectrumSlice[] slices) {
+		int size = 0;
+		for (SpectrumSlice slice : slices) {
+			SpectrumData data = slice.getData();
+			size += data.getMzList().length * Double.BYTES + data.getIntensityList().length * Float.BYTES;
+			if (data.getLeftHwhmList() != null)
+				size += data.getLeftHwhmList().length * Float.BYTES;
+			if (data.getRightHwhmList() != null)
+				size += data.getRightHwhmList().length * Float.BYTES;
+		}
+		return size;
+	}
+
+}
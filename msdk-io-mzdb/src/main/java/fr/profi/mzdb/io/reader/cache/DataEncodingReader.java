@@ -2,7 +2,6 @@ package fr.profi.mzdb.io.reader.cache;
 
 import java.util.Map;
 
-import com.almworks.sqlite4java.SQLiteConnection;
 import com.almworks.sqlite4java.SQLiteException;
 
 import fr.profi.mzdb.MzDbReader;
@@ -16,7 +15,6 @@ import fr.profi.mzdb.model.DataEncoding;
  */
 public class DataEncodingReader extends AbstractDataEncodingReader {
 	
-	private SQLiteConnection connection;
 	private MzDbReader mzDbReader = null;
 
 	/**
@@ -30,7 +28,6 @@ public class DataEncodingReader extends AbstractDataEncodingReader {
 	public DataEncodingReader(MzDbReader mzDbReader) throws SQLiteException {
 		super(mzDbReader);
 		this.mzDbReader = mzDbReader;
-		this.connection = mzDbReader.getConnection();
 	}
 
 	/** specialized getter */
@@ -49,7 +46,7 @@ public class DataEncodingReader extends AbstractDataEncodingReader {
 	 *             the sQ lite exception
 	 */
 	public DataEncoding getDataEncoding(int dataEncodingId) throws SQLiteException {
-		return this.getDataEncoding(dataEncodingId, connection);
+		return mzDbReader.executeQuery(connection -> this.getDataEncoding(dataEncodingId, connection));
 	}
 
 	/**
@@ -60,7 +57,7 @@ public class DataEncodingReader extends AbstractDataEncodingReader {
 	 *             the sQ lite exception
 	 */
 	public DataEncoding[] getDataEncodings() throws SQLiteException {
-		return this.getDataEncodings(connection);
+		return mzDbReader.executeQuery(connection -> this.getDataEncodings(connection));
 	}
 
 	/**
@@ -71,7 +68,7 @@ public class DataEncodingReader extends AbstractDataEncodingReader {
 	 *             the sQ lite exception
 	 */
 	public Map<Integer, DataEncoding> getDataEncodingById() throws SQLiteException {
-		return this.getDataEncodingById(connection);
+		return mzDbReader.executeQuery(connection -> this.getDataEncodingById(connection));
 	}
 
 	/**
@@ -82,7 +79,7 @@ public class DataEncodingReader extends AbstractDataEncodingReader {
 	 *             the sQ lite exception
 	 */
 	public Map<Long, DataEncoding> getDataEncodingBySpectrumId() throws SQLiteException {
-		return this.getDataEncodingBySpectrumId(connection);
+		return mzDbReader.executeQuery(connection -> this.getDataEncodingBySpectrumId(connection));
 	}
 
 	/**
@@ -95,7 +92,7 @@ public class DataEncodingReader extends AbstractDataEncodingReader {
 	 *             the sQ lite exception
 	 */
 	public DataEncoding getSpectrumDataEncoding(long spectrumId) throws SQLiteException {
-		return this.getSpectrumDataEncoding(spectrumId, connection);
+		return mzDbReader.executeQuery(connection -> this.getSpectrumDataEncoding(spectrumId, connection));
 	}
 
 }
@@ -8,38 +8,41 @@ import fr.profi.mzdb.model.RunSliceHeader;
 import fr.profi.mzdb.model.SpectrumHeader;
 
 /**
+ * The entities are loaded on first use, and may be read by several threads: the fields are volatile so that a
+ * loaded entity is seen whole by the other threads.
+ * 
  * @author David Bouyssie
  * 
  */
 public class MzDbEntityCache {
 
-	protected SpectrumHeader[] ms1SpectrumHeaders = null;
+	protected volatile SpectrumHeader[] ms1SpectrumHeaders = null;
 
-	protected Map<Long, SpectrumHeader> ms1SpectrumHeaderById = null;
+	protected volatile Map<Long, SpectrumHeader> ms1SpectrumHeaderById = null;
 	
-	protected SpectrumHeader[] ms2SpectrumHeaders = null;
+	protected volatile SpectrumHeader[] ms2SpectrumHeaders = null;
 
-	protected Map<Long, SpectrumHeader> ms2SpectrumHeaderById = null;
+	protected volatile Map<Long, SpectrumHeader> ms2SpectrumHeaderById = null;
 
-	protected SpectrumHeader[] ms3SpectrumHeaders = null;
+	protected volatile SpectrumHeader[] ms3SpectrumHeaders = null;
 
-	protected Map<Long, SpectrumHeader> ms3SpectrumHeaderById = null;
+	protected volatile Map<Long, SpectrumHeader> ms3SpectrumHeaderById = null;
 
-	protected SpectrumHeader[] spectrumHeaders = null;
+	protected volatile SpectrumHeader[] spectrumHeaders = null;
 
-	protected Map<Long, SpectrumHeader> spectrumHeaderById = null;
+	protected volatile Map<Long, SpectrumHeader> spectrumHeaderById = null;
 
-	protected Map<Long, Float> spectrumTimeById = null;
+	protected volatile Map<Long, Float> spectrumTimeById = null;
 	
-	protected Map<Integer, ArrayList<Long>> spectrumIdsByTimeIndex = null;
+	protected volatile Map<Integer, ArrayList<Long>> spectrumIdsByTimeIndex = null;
 
-	protected Map<Integer, DataEncoding> dataEncodingById = null;
+	protected volatile Map<Integer, DataEncoding> dataEncodingById = null;
 
-	protected Map<Long, DataEncoding> dataEncodingBySpectrumId = null;
+	protected volatile Map<Long, DataEncoding> dataEncodingBySpectrumId = null;
 
-	protected RunSliceHeader[] runSliceHeaders = null;
+	protected volatile RunSliceHeader[] runSliceHeaders = null;
 
-	protected Map<Integer, RunSliceHeader> runSliceHeaderById = null;
+	protected volatile Map<Integer, RunSliceHeader> runSliceHeaderById = null;
 
 	public SpectrumHeader[] getMs1SpectrumHeaders() {
 		return ms1SpectrumHeaders;
@@ -3,7 +3,6 @@ package fr.profi.mzdb.io.reader.cache;
 import java.util.HashMap;
 import java.util.Map;
 
-import com.almworks.sqlite4java.SQLiteConnection;
 import com.almworks.sqlite4java.SQLiteException;
 
 import fr.profi.mzdb.MzDbReader;
@@ -17,7 +16,6 @@ import fr.profi.mzdb.model.RunSliceHeader;
  */
 public class RunSliceHeaderReader extends AbstractRunSliceHeaderReader {
 	
-	private SQLiteConnection connection;
 	private MzDbReader mzDbReader = null;
 
 	/**
@@ -29,7 +27,6 @@ public class RunSliceHeaderReader extends AbstractRunSliceHeaderReader {
 	public RunSliceHeaderReader(MzDbReader mzDbReader) {
 		super(mzDbReader);
 		this.mzDbReader = mzDbReader;
-		this.connection = mzDbReader.getConnection();
 	}
 	
 	/** specialized getter */
@@ -46,7 +43,7 @@ public class RunSliceHeaderReader extends AbstractRunSliceHeaderReader {
 	 *             the SQLite exception
 	 */
 	public RunSliceHeader[] getRunSliceHeaders() throws SQLiteException {
-		return this.getRunSliceHeaders(connection);
+		return mzDbReader.executeQuery(connection -> this.getRunSliceHeaders(connection));
 	}
 
 	/**
@@ -59,7 +56,7 @@ public class RunSliceHeaderReader extends AbstractRunSliceHeaderReader {
 	 *             the SQLite exception
 	 */
 	public RunSliceHeader[] getRunSliceHeaders(int msLevel) throws SQLiteException {
-		return this.getRunSliceHeaders(msLevel, connection);
+		return mzDbReader.executeQuery(connection -> this.getRunSliceHeaders(msLevel, connection));
 	}
 
 	/**
@@ -72,7 +69,7 @@ public class RunSliceHeaderReader extends AbstractRunSliceHeaderReader {
 	 *             the sQ lite exception
 	 */
 	public HashMap<Integer, RunSliceHeader> getRunSliceHeaderById(int msLevel) throws SQLiteException {
-		return this.getRunSliceHeaderById(msLevel, connection);
+		return mzDbReader.executeQuery(connection -> this.getRunSliceHeaderById(msLevel, connection));
 	}
 
 	/**
@@ -83,7 +80,7 @@ public class RunSliceHeaderReader extends AbstractRunSliceHeaderReader {
 	 *             the sQ lite exception
 	 */
 	public Map<Integer, RunSliceHeader> getRunSliceHeaderById() throws SQLiteException {
-		return this.getRunSliceHeaderById(connection);
+		return mzDbReader.executeQuery(connection -> this.getRunSliceHeaderById(connection));
 	}
 
 	/**
@@ -96,7 +93,7 @@ public class RunSliceHeaderReader extends AbstractRunSliceHeaderReader {
 	 *             the sQ lite exception
 	 */
 	public RunSliceHeader getRunSliceHeader(int id) throws SQLiteException {
-		return this.getRunSliceHeader(id, connection);
+		return mzDbReader.executeQuery(connection -> this.getRunSliceHeader(id, connection));
 	}
 
 	/**
@@ -111,7 +108,7 @@ public class RunSliceHeaderReader extends AbstractRunSliceHeaderReader {
 	 *             the sQ lite exception
 	 */
 	public RunSliceHeader getRunSliceForMz(double mz, int msLevel) throws SQLiteException {
-		return this.getRunSliceForMz(mz, msLevel, connection);
+		return mzDbReader.executeQuery(connection -> this.getRunSliceForMz(mz, msLevel, connection));
 	}
 
 	/**
@@ -128,7 +125,7 @@ public class RunSliceHeaderReader extends AbstractRunSliceHeaderReader {
 	 *             the sQ lite exception
 	 */
 	public int[] getRunSliceIdsForMzRange(double minMz, double maxMz, int msLevel) throws SQLiteException {
-		return this.getRunSliceIdsForMzRange(minMz, maxMz, msLevel, connection);
+		return mzDbReader.executeQuery(connection -> this.getRunSliceIdsForMzRange(minMz, maxMz, msLevel, connection));
 	}
 
 }
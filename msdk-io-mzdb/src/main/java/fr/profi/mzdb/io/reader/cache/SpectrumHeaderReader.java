@@ -1,8 +1,8 @@
 package fr.profi.mzdb.io.reader.cache;
 
+import java.util.ArrayList;
 import java.util.Map;
 
-import com.almworks.sqlite4java.SQLiteConnection;
 import com.almworks.sqlite4java.SQLiteException;
 
 import fr.profi.mzdb.MzDbReader;
@@ -14,7 +14,6 @@ import fr.profi.mzdb.model.SpectrumHeader;
  */
 public class SpectrumHeaderReader extends AbstractSpectrumHeaderReader {
 	
-	private SQLiteConnection connection;
 	private MzDbReader mzDbReader = null;
 	
 	/**
@@ -24,7 +23,6 @@ public class SpectrumHeaderReader extends AbstractSpectrumHeaderReader {
 	public SpectrumHeaderReader(MzDbReader mzDbReader, AbstractDataEncodingReader dataEncodingReader) throws SQLiteException {
 		super(mzDbReader, dataEncodingReader);
 		this.mzDbReader = mzDbReader;
-		this.connection = mzDbReader.getConnection();
 	}
 
 	/** specialized getter */
@@ -40,7 +38,7 @@ public class SpectrumHeaderReader extends AbstractSpectrumHeaderReader {
 	 * @throws SQLiteException
 	 */
 	public SpectrumHeader[] getSpectrumHeaders() throws SQLiteException {
-		return this.getSpectrumHeaders(connection);
+		return mzDbReader.executeQuery(connection -> this.getSpectrumHeaders(connection));
 	}
 	
 	/**
@@ -50,7 +48,7 @@ public class SpectrumHeaderReader extends AbstractSpectrumHeaderReader {
 	 * @throws SQLiteException
 	 */
 	public Map<Long, SpectrumHeader> getSpectrumHeaderById() throws SQLiteException {
-		return this.getSpectrumHeaderById(connection);
+		return mzDbReader.executeQuery(connection -> this.getSpectrumHeaderById(connection));
 	}
 
 	/**
@@ -60,7 +58,7 @@ public class SpectrumHeaderReader extends AbstractSpectrumHeaderReader {
 	 * @throws SQLiteException
 	 */
 	public SpectrumHeader[] getMs1SpectrumHeaders() throws SQLiteException {
-		return getMs1SpectrumHeaders(connection);
+		return mzDbReader.executeQuery(connection -> this.getMs1SpectrumHeaders(connection));
 	}
 
 	/**
@@ -70,7 +68,7 @@ public class SpectrumHeaderReader extends AbstractSpectrumHeaderReader {
 	 * @throws SQLiteException
 	 */
 	public Map<Long, SpectrumHeader> getMs1SpectrumHeaderById() throws SQLiteException {
-		return getMs1SpectrumHeaderById(connection);
+		return mzDbReader.executeQuery(connection -> this.getMs1SpectrumHeaderById(connection));
 	}
 
 	/**
@@ -80,7 +78,7 @@ public class SpectrumHeaderReader extends AbstractSpectrumHeaderReader {
 	 * @throws SQLiteException
 	 */
 	public SpectrumHeader[] getMs2SpectrumHeaders() throws SQLiteException {
-		return getMs2SpectrumHeaders(connection);
+		return mzDbReader.executeQuery(connection -> this.getMs2SpectrumHeaders(connection));
 	}
 
 	/**
@@ -90,7 +88,7 @@ public class SpectrumHeaderReader extends AbstractSpectrumHeaderReader {
 	 * @throws SQLiteException
 	 */
 	public Map<Long, SpectrumHeader> getMs2SpectrumHeaderById() throws SQLiteException {
-		return getMs2SpectrumHeaderById(connection);
+		return mzDbReader.executeQuery(connection -> this.getMs2SpectrumHeaderById(connection));
 	}
 
 	/**
@@ -103,7 +101,7 @@ public class SpectrumHeaderReader extends AbstractSpectrumHeaderReader {
 	 * @throws SQLiteException
 	 */
 	public SpectrumHeader getSpectrumHeader(long id) throws SQLiteException {
-		return getSpectrumHeader(id, connection);
+		return mzDbReader.executeQuery(connection -> this.getSpectrumHeader(id, connection));
 	}
 
 	/**
@@ -113,7 +111,17 @@ public class SpectrumHeaderReader extends AbstractSpectrumHeaderReader {
 	 * @throws SQLiteException the SQLite exception
 	 */
 	public Map<Long, Float> getSpectrumTimeById() throws SQLiteException {
-		return getSpectrumTimeById(connection);
+		return mzDbReader.executeQuery(connection -> this.getSpectrumTimeById(connection));
+	}
+
+	/**
+	 * Gets the spectrum ids by time index.
+	 * 
+	 * @return the spectrum ids mapped by the index of their time window
+	 * @throws SQLiteException the SQLite exception
+	 */
+	public Map<Integer, ArrayList<Long>> getSpectrumIdsByTimeIndex() throws SQLiteException {
+		return mzDbReader.executeQuery(connection -> this.getSpectrumIdsByTimeIndex(connection));
 	}
 
 	/**
@@ -127,7 +135,7 @@ public class SpectrumHeaderReader extends AbstractSpectrumHeaderReader {
 	 * @throws Exception
 	 */
 	public SpectrumHeader getSpectrumHeaderForTime(float time, int msLevel) throws Exception {
-		return getSpectrumHeaderForTime(time, msLevel, connection);
+		return mzDbReader.executeQuery(connection -> this.getSpectrumHeaderForTime(time, msLevel, connection));
 	}
 
 	/**
@@ -143,7 +151,7 @@ public class SpectrumHeaderReader extends AbstractSpectrumHeaderReader {
 	 * @throws SQLiteException
 	 */
 	public long[] getSpectrumIdsForTimeRange(float minRT, float maxRT, int msLevel) throws SQLiteException {
-		return getSpectrumIdsForTimeRange(minRT, maxRT, msLevel, connection);
+		return mzDbReader.executeQuery(connection -> this.getSpectrumIdsForTimeRange(minRT, maxRT, msLevel, connection));
 	}
 
 }
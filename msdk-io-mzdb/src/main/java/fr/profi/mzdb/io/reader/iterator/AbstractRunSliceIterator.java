@@ -4,7 +4,6 @@ import java.io.StreamCorruptedException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
-import java.util.Iterator;
 
 import com.almworks.sqlite4java.SQLiteConnection;
 import com.almworks.sqlite4java.SQLiteException;
@@ -15,7 +14,7 @@ import fr.profi.mzdb.io.reader.cache.AbstractSpectrumHeaderReader;
 import fr.profi.mzdb.model.*;
 import fr.profi.mzdb.util.sqlite.ISQLiteStatementConsumer;
 
-public abstract class AbstractRunSliceIterator extends AbstractSpectrumSliceIterator implements Iterator<RunSlice> {
+public abstract class AbstractRunSliceIterator extends AbstractSpectrumSliceIterator implements ICloseableIterator<RunSlice> {
 
 	protected SpectrumSlice[] spectrumSliceBuffer = null;
 	protected boolean bbHasNext = true;
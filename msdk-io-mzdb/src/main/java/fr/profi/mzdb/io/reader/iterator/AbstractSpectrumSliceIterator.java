@@ -9,6 +9,8 @@ import com.almworks.sqlite4java.SQLiteStatement;
 import fr.profi.mzdb.io.reader.cache.AbstractDataEncodingReader;
 import fr.profi.mzdb.io.reader.cache.AbstractSpectrumHeaderReader;
 import fr.profi.mzdb.model.BoundingBox;
+import fr.profi.mzdb.model.SpectrumDataBuilder;
+import fr.profi.mzdb.model.SpectrumSlice;
 import fr.profi.mzdb.util.sqlite.ISQLiteStatementConsumer;
 
 public abstract class AbstractSpectrumSliceIterator {
@@ -83,6 +85,44 @@ public abstract class AbstractSpectrumSliceIterator {
 		statement.dispose();
 	}
 
+	public void close() {
+		this.closeStatement();
+	}
+
+	/**
+	 * Merges the slices of the bounding boxes of a same cycle into whole spectra.
+	 * 
+	 * @param firstSpectrumSlices
+	 *            the spectrum slices of the first bounding box
+	 * @param sdBuilders
+	 *            one builder per spectrum, containing the data of all its slices
+	 * @param bbCount
+	 *            the number of merged bounding boxes
+	 * @return the merged spectrum slices
+	 */
+	protected static SpectrumSlice[] mergeSpectrumSlices(SpectrumSlice[] firstSpectrumSlices, SpectrumDataBuilder[] sdBuilders, int bbCount) {
+		// A single bounding box already contains whole spectra
+		if (bbCount == 1)
+			return firstSpectrumSlices;
+
+		SpectrumSlice[] spectrumSlices = new SpectrumSlice[firstSpectrumSlices.length];
+		for (int i = 0; i < firstSpectrumSlices.length; i++) {
+			spectrumSlices[i] = new SpectrumSlice(firstSpectrumSlices[i].getHeader(), sdBuilders[i].build());
+			spectrumSlices[i].setRunSliceId(firstSpectrumSlices[i].getRunSliceId());
+		}
+		return spectrumSlices;
+	}
+
+	/**
+	 * @return one spectrum data builder per spectrum slice, initialized with the slice data
+	 */
+	protected static SpectrumDataBuilder[] newSpectrumDataBuilders(SpectrumSlice[] spectrumSlices) {
+		SpectrumDataBuilder[] sdBuilders = new SpectrumDataBuilder[spectrumSlices.length];
+		for (int i = 0; i < spectrumSlices.length; i++)
+			sdBuilders[i] = new SpectrumDataBuilder().addSpectrumData(spectrumSlices[i].getData());
+		return sdBuilders;
+	}
+
 	public boolean hasNext() {
 
 		if (this.firstBB != null) { // this.statement.hasRow() ) {//
@@ -1,15 +1,13 @@
 package fr.profi.mzdb.io.reader.iterator;
 
 import java.io.StreamCorruptedException;
-import java.util.Iterator;
-
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.almworks.sqlite4java.SQLiteException;
 import com.almworks.sqlite4java.SQLiteStatement;
 
-public abstract class AbstractStatementIterator<E> implements Iterator<E>, IStatementExtractor<E> {
+public abstract class AbstractStatementIterator<E> implements ICloseableIterator<E>, IStatementExtractor<E> {
 	
 	protected final Logger logger = LoggerFactory.getLogger(AbstractStatementIterator.class);
 
@@ -38,6 +36,11 @@ public abstract class AbstractStatementIterator<E> implements Iterator<E>, IStat
 		// }
 	}
 
+	@Override
+	public void close() {
+		this.closeStatement();
+	}
+
 	public boolean hasNext() {
 		try {
 			if (statement.step()) {
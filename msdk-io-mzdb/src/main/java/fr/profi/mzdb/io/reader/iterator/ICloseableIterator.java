@@ -0,0 +1,23 @@
+package fr.profi.mzdb.io.reader.iterator;
+
+import java.util.Iterator;
+
+/**
+ * An iterator over the records of a SQLite statement, which must be closed when it is not consumed until the end.
+ * <p>
+ * The statement is disposed when the iterator is exhausted or closed, whichever comes first. Closing an exhausted
+ * iterator, or closing it twice, does nothing.
+ * </p>
+ *
+ * @param <E>
+ *            the type of the iterated elements
+ */
+public interface ICloseableIterator<E> extends Iterator<E>, AutoCloseable {
+
+	/**
+	 * Disposes the statement of this iterator.
+	 */
+	@Override
+	public void close();
+
+}
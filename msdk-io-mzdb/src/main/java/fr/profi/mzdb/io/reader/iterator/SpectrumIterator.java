@@ -2,7 +2,6 @@ package fr.profi.mzdb.io.reader.iterator;
 
 import java.io.StreamCorruptedException;
 import java.util.Comparator;
-import java.util.Iterator;
 import java.util.PriorityQueue;
 
 import com.almworks.sqlite4java.SQLiteConnection;
@@ -12,13 +11,14 @@ import com.almworks.sqlite4java.SQLiteStatement;
 import fr.profi.mzdb.AbstractMzDbReader;
 import fr.profi.mzdb.model.BoundingBox;
 import fr.profi.mzdb.model.Spectrum;
+import fr.profi.mzdb.model.SpectrumDataBuilder;
 import fr.profi.mzdb.model.SpectrumHeader;
 import fr.profi.mzdb.model.SpectrumSlice;
 import fr.profi.mzdb.util.sqlite.ISQLiteStatementConsumer;
 
 //import static fr.profi.mzdb.utils.lambda.JavaStreamExceptionWrappers.rethrowConsumer;
 
-public class SpectrumIterator extends AbstractSpectrumSliceIterator implements Iterator<Spectrum> {
+public class SpectrumIterator extends AbstractSpectrumSliceIterator implements ICloseableIterator<Spectrum> {
 
 	private static String allMsLevelsSqlQuery = "SELECT bounding_box.* FROM bounding_box, spectrum WHERE spectrum.id = bounding_box.first_spectrum_id";
 	private static String singleMsLevelSqlQuery = allMsLevelsSqlQuery + " AND spectrum.ms_level= ?";
@@ -68,15 +68,21 @@ public class SpectrumIterator extends AbstractSpectrumSliceIterator implements I
 
 	protected void initSpectrumSliceBuffer() {
 		
+		SpectrumSlice[] firstSlices;
 		if (this.firstSpectrumSlices != null) {
-			this.spectrumSliceBuffer = this.firstSpectrumSlices;
+			firstSlices = this.firstSpectrumSlices;
 		} else {
-			this.spectrumSliceBuffer = this.firstBB.toSpectrumSlices();
+			firstSlices = this.firstBB.toSpectrumSlices();
 		}
 		
 		this.spectrumSliceIdx = 0;
 		
 		boolean continueSlicesLoading = false;
+		SpectrumSlice[] nextSpectrumSlices = null;
+
+		// Collect the slices of each spectrum, they are merged once all bounding boxes of the cycle are loaded
+		SpectrumDataBuilder[] sdBuilders = newSpectrumDataBuilders(firstSlices);
+		int bbCount = 1;
 
 		// Build spectrum slice buffer
 		while (bbHasNext = boundingBoxIterator.hasNext()) {
@@ -87,36 +93,41 @@ public class SpectrumIterator extends AbstractSpectrumSliceIterator implements I
 			if (sSlices == null)
 				continue;
 
-			if (sSlices[0].getSpectrumId() == spectrumSliceBuffer[0].getSpectrumId()) {
+			if (sSlices[0].getSpectrumId() == firstSlices[0].getSpectrumId()) {
 				for (int i = 0; i < sSlices.length; i++) {
-					spectrumSliceBuffer[i].getData().addSpectrumData(sSlices[i].getData());
+					sdBuilders[i].addSpectrumData(sSlices[i].getData());
 				}
+				bbCount++;
 			} else {
 				// Keep this bounding box for next iteration
 				this.firstBB = bb;
 				this.firstSpectrumSlices = sSlices;
-				
-				if (usePriorityQueue) {
-					// Put the loaded spectra in the priority queue
-					for (Spectrum spectrum : spectrumSliceBuffer) {
-						priorityQueue.add(spectrum);
-					}
-					
-					SpectrumHeader curSpectrumHeader = spectrumSliceBuffer[0].getHeader();
-					SpectrumHeader nextSpectrumHeader = sSlices[0].getHeader();
-					int nextMsLevel = nextSpectrumHeader.getMsLevel();
-						
-					// Check if we need to continue loading the spectrum slices
-					if (curSpectrumHeader.getCycle() == nextSpectrumHeader.getCycle() ||
-						curSpectrumHeader.getMsLevel() == nextMsLevel || nextMsLevel > 1) {
-						continueSlicesLoading = true;
-					}
-				}
-				
+				nextSpectrumSlices = sSlices;
 				break;
 			}
 		}
-		
+
+		this.spectrumSliceBuffer = mergeSpectrumSlices(firstSlices, sdBuilders, bbCount);
+
+		if (usePriorityQueue) {
+			// Put the loaded spectra in the priority queue
+			for (Spectrum spectrum : spectrumSliceBuffer) {
+				priorityQueue.add(spectrum);
+			}
+
+			if (nextSpectrumSlices != null) {
+				SpectrumHeader curSpectrumHeader = spectrumSliceBuffer[0].getHeader();
+				SpectrumHeader nextSpectrumHeader = nextSpectrumSlices[0].getHeader();
+				int nextMsLevel = nextSpectrumHeader.getMsLevel();
+
+				// Check if we need to continue loading the spectrum slices
+				if (curSpectrumHeader.getCycle() == nextSpectrumHeader.getCycle() ||
+					curSpectrumHeader.getMsLevel() == nextMsLevel || nextMsLevel > 1) {
+					continueSlicesLoading = true;
+				}
+			}
+		}
+
 		if (continueSlicesLoading) {
 			this.initSpectrumSliceBuffer();
 		}
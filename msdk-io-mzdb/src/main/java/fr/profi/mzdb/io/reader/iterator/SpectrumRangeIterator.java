@@ -1,7 +1,6 @@
 package fr.profi.mzdb.io.reader.iterator;
 
 import java.io.StreamCorruptedException;
-import java.util.Iterator;
 
 import com.almworks.sqlite4java.SQLiteConnection;
 import com.almworks.sqlite4java.SQLiteException;
@@ -12,6 +11,7 @@ import fr.profi.mzdb.io.reader.bb.IBlobReader;
 import fr.profi.mzdb.io.reader.cache.AbstractSpectrumHeaderReader;
 import fr.profi.mzdb.model.BoundingBox;
 import fr.profi.mzdb.model.Spectrum;
+import fr.profi.mzdb.model.SpectrumDataBuilder;
 import fr.profi.mzdb.model.SpectrumSlice;
 import fr.profi.mzdb.util.sqlite.ISQLiteStatementConsumer;
 
@@ -21,7 +21,7 @@ import fr.profi.mzdb.util.sqlite.ISQLiteStatementConsumer;
  * @author Marco
  *
  */
-public class SpectrumRangeIterator implements Iterator<Spectrum> {
+public class SpectrumRangeIterator implements ICloseableIterator<Spectrum> {
 
 	private int bbStartingSpectrumId;
 
@@ -59,7 +59,7 @@ public class SpectrumRangeIterator implements Iterator<Spectrum> {
 		this._iter = new MsSpectrumRangeIteratorImpl(mzDbReader, connection, msLevel);
 	}
 
-	public class MsSpectrumRangeIteratorImpl extends AbstractSpectrumSliceIterator implements Iterator<Spectrum> {
+	public class MsSpectrumRangeIteratorImpl extends AbstractSpectrumSliceIterator implements ICloseableIterator<Spectrum> {
 
 		protected int spectrumSliceIdx;
 
@@ -86,10 +86,14 @@ public class SpectrumRangeIterator implements Iterator<Spectrum> {
 		}
 
 		protected void initSpectrumSliceBuffer() {
-			this.spectrumSliceBuffer = this.firstBB.toSpectrumSlices();
+			SpectrumSlice[] firstSlices = this.firstBB.toSpectrumSlices();
 
 			this.spectrumSliceIdx = 0;
 
+			// Collect the slices of each spectrum, they are merged once all bounding boxes of the cycle are loaded
+			SpectrumDataBuilder[] sdBuilders = newSpectrumDataBuilders(firstSlices);
+			int bbCount = 1;
+
 			// Build spectrum slice buffer
 			while (bbHasNext = boundingBoxIterator.hasNext()) {// bbHasNext=
 
@@ -110,16 +114,19 @@ public class SpectrumRangeIterator implements Iterator<Spectrum> {
 				if (sSlices == null)
 					continue;
 
-				if (sSlices[0].getSpectrumId() == spectrumSliceBuffer[0].getSpectrumId()) {
+				if (sSlices[0].getSpectrumId() == firstSlices[0].getSpectrumId()) {
 					for (int i = 0; i < sSlices.length; i++) {
-						spectrumSliceBuffer[i].getData().addSpectrumData(sSlices[i].getData());
+						sdBuilders[i].addSpectrumData(sSlices[i].getData());
 					}
+					bbCount++;
 				} else {
 					// Keep this bounding box for next iteration
 					this.firstBB = bb;
 					break;
 				}
 			}
+
+			this.spectrumSliceBuffer = mergeSpectrumSlices(firstSlices, sdBuilders, bbCount);
 		}
 
 		@Override
@@ -184,4 +191,9 @@ public class SpectrumRangeIterator implements Iterator<Spectrum> {
 	@Override
 	public void remove() {
 	};
+
+	@Override
+	public void close() {
+		_iter.close();
+	}
 }
@@ -128,12 +128,11 @@ public class SpectrumData {
 	}
 
 	/**
-	 * Adds the spectrum data.
+	 * Adds the spectrum data. The arrays are reallocated at each call: use a SpectrumDataBuilder to merge many slices.
 	 * 
 	 * @param spectrumData
 	 *            the spectrum data
 	 */
-	// TODO: create a SpectrumDataBuilder instead anddon't use apache ArrayUtils
 	public void addSpectrumData(SpectrumData spectrumData) {
 		if (spectrumData != null) {
 			this.mzList = ArrayUtils.addAll(this.mzList, spectrumData.mzList);
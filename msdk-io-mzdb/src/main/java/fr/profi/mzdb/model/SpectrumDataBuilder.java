@@ -0,0 +1,92 @@
+package fr.profi.mzdb.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The Class SpectrumDataBuilder.
+ * <p>
+ * Merges the spectrum data of several slices of the same spectrum, e.g. one per run slice, in the order they are
+ * added. The slices are only referenced until build() is called, which allocates the merged arrays once, with the
+ * total peaks count, and copies each slice into them.
+ * </p>
+ */
+public class SpectrumDataBuilder {
+
+	private final List<SpectrumData> spectrumDataList;
+
+	private int peaksCount = 0;
+
+	private boolean hasHwhms = false;
+
+	/**
+	 * Instantiates a new spectrum data builder.
+	 */
+	public SpectrumDataBuilder() {
+		this(16);
+	}
+
+	/**
+	 * Instantiates a new spectrum data builder.
+	 *
+	 * @param expectedSlicesCount
+	 *            the expected number of slices
+	 */
+	public SpectrumDataBuilder(int expectedSlicesCount) {
+		this.spectrumDataList = new ArrayList<SpectrumData>(expectedSlicesCount);
+	}
+
+	/**
+	 * Adds the spectrum data of a slice.
+	 *
+	 * @param spectrumData
+	 *            the spectrum data, which must not be modified until build() is called
+	 * @return this builder
+	 */
+	public SpectrumDataBuilder addSpectrumData(SpectrumData spectrumData) {
+		if (spectrumData != null) {
+			spectrumDataList.add(spectrumData);
+			peaksCount += spectrumData.getPeaksCount();
+			if (spectrumData.getLeftHwhmList() != null && spectrumData.getRightHwhmList() != null)
+				hasHwhms = true;
+		}
+		return this;
+	}
+
+	/**
+	 * Gets the peaks count.
+	 *
+	 * @return the total peaks count of the added slices
+	 */
+	public int getPeaksCount() {
+		return peaksCount;
+	}
+
+	/**
+	 * Builds the merged spectrum data. The HWHM lists are built if at least one slice has them, and are filled with
+	 * zeros for the slices which haven't.
+	 *
+	 * @return a new spectrum data, which doesn't share any array with the added slices
+	 */
+	public SpectrumData build() {
+		double[] mzList = new double[peaksCount];
+		float[] intensityList = new float[peaksCount];
+		float[] leftHwhmList = hasHwhms ? new float[peaksCount] : null;
+		float[] rightHwhmList = hasHwhms ? new float[peaksCount] : null;
+
+		int offset = 0;
+		for (SpectrumData spectrumData : spectrumDataList) {
+			int slicePeaksCount = spectrumData.getPeaksCount();
+			System.arraycopy(spectrumData.getMzList(), 0, mzList, offset, slicePeaksCount);
+			System.arraycopy(spectrumData.getIntensityList(), 0, intensityList, offset, slicePeaksCount);
+			if (hasHwhms && spectrumData.getLeftHwhmList() != null && spectrumData.getRightHwhmList() != null) {
+				System.arraycopy(spectrumData.getLeftHwhmList(), 0, leftHwhmList, offset, slicePeaksCount);
+				System.arraycopy(spectrumData.getRightHwhmList(), 0, rightHwhmList, offset, slicePeaksCount);
+			}
+			offset += slicePeaksCount;
+		}
+
+		return new SpectrumData(mzList, intensityList, leftHwhmList, rightHwhmList);
+	}
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Package fr.profi.mzdb.model
+ */
+package fr.profi.mzdb.model;
+
+/**
+ * The Class XicData.
+ * <p>
+ * An extracted ion chromatogram stored as primitive arrays: one point per spectrum in which a peak was found, ordered
+ * by spectrum id.
+ * </p>
+ */
+public class XicData {
+
+	/** The spectrum ids. */
+	protected final long[] spectrumIds;
+
+	/** The elution times. */
+	protected final float[] elutionTimes;
+
+	/** The mz list. */
+	protected final double[] mzList;
+
+	/** The intensity list. */
+	protected final float[] intensityList;
+
+	/** The peaks count. */
+	protected final int peaksCount;
+
+	/**
+	 * Instantiates a new XIC data.
+	 *
+	 * @param spectrumIds
+	 *            the spectrum ids
+	 * @param elutionTimes
+	 *            the elution times
+	 * @param mzList
+	 *            the mz list
+	 * @param intensityList
+	 *            the intensity list
+	 */
+	public XicData(long[] spectrumIds, float[] elutionTimes, double[] mzList, float[] intensityList) {
+		super();
+		this.peaksCount = spectrumIds.length;
+		this.spectrumIds = spectrumIds;
+		this.elutionTimes = elutionTimes;
+		this.mzList = mzList;
+		this.intensityList = intensityList;
+	}
+
+	/**
+	 * Gets the peaks count.
+	 *
+	 * @return the peaks count
+	 */
+	public int getPeaksCount() {
+		return peaksCount;
+	}
+
+	/**
+	 * Gets the spectrum ids.
+	 *
+	 * @return the spectrum ids
+	 */
+	public long[] getSpectrumIds() {
+		return spectrumIds;
+	}
+
+	/**
+	 * Gets the elution times.
+	 *
+	 * @return the elution times
+	 */
+	public float[] getElutionTimes() {
+		return elutionTimes;
+	}
+
+	/**
+	 * Gets the mz list.
+	 *
+	 * @return the mz list
+	 */
+	public double[] getMzList() {
+		return mzList;
+	}
+
+	/**
+	 * Gets the intensity list.
+	 *
+	 * @return the intensity list
+	 */
+	public float[] getIntensityList() {
+		return intensityList;
+	}
+
+	/**
+	 * Checks if is empty.
+	 *
+	 * @return true, if is empty
+	 */
+	public boolean isEmpty() {
+		return peaksCount == 0;
+	}
+
+}
@@ -0,0 +1,267 @@
+package fr.profi.mzdb.util.sqlite;
+
+import java.io.File;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.almworks.sqlite4java.SQLiteConnection;
+import com.almworks.sqlite4java.SQLiteException;
+
+/**
+ * A pool of read-only connections to a SQLite file, allowing several threads to query the file in parallel.
+ * <p>
+ * A sqlite4java connection can only be used, and disposed, by the thread which opened it. The pool thus owns a fixed
+ * number of worker threads, each one with its own connection, and runs the submitted functions on them: callers never
+ * hold a connection, so there is nothing to release, and at most getSize() connections are ever opened. A connection
+ * is opened by the first function run on its worker, and is kept until the pool is closed.
+ * </p>
+ * <p>
+ * execute() runs a function on the least busy worker. Work which must stay on the same connection, e.g. iterating over
+ * the records of a statement, is run on a worker pinned with getWorker(). A function which itself calls execute() is
+ * run directly by its worker, on the same connection, so that nested calls can't deadlock.
+ * </p>
+ * <p>
+ * close() must be called when the pool is not used anymore: the workers finish the functions already submitted, then
+ * dispose their connection and stop. The worker threads are daemon threads, so a pool which is never closed doesn't
+ * prevent the JVM from exiting.
+ * </p>
+ */
+public class SQLiteConnectionPool {
+
+	private static final AtomicInteger poolCount = new AtomicInteger();
+
+	private final File dbLocation;
+	private final String[] pragmas;
+	private final Worker[] workers;
+	private final AtomicInteger nextWorkerIdx = new AtomicInteger();
+	private final AtomicInteger openedCount = new AtomicInteger();
+	private final ThreadLocal<Worker> currentWorker = new ThreadLocal<Worker>();
+
+	private volatile boolean isClosed = false;
+
+	/**
+	 * A worker thread of the pool, with its own connection.
+	 */
+	public class Worker {
+
+		private final ExecutorService executor;
+		private final AtomicInteger pendingCount = new AtomicInteger();
+
+		/** Only accessed by the worker thread **/
+		private SQLiteConnection connection = null;
+
+		private Worker(String threadName) {
+			this.executor = Executors.newSingleThreadExecutor(runnable -> {
+				Thread thread = new Thread(() -> {
+					currentWorker.set(this);
+					runnable.run();
+				}, threadName);
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+
+		/**
+		 * Runs a function on the connection of this worker, and waits for its result.
+		 *
+		 * @param function
+		 *            the function, which must not keep the connection, nor any statement of it, after returning
+		 * @return the result of the function
+		 * @throws Exception
+		 *             the exception thrown by the function, or an InterruptedException if the calling thread is
+		 *             interrupted while waiting
+		 * @throws IllegalStateException
+		 *             if the pool is closed
+		 */
+		public <T> T execute(ISQLiteConnectionFunction<T> function) throws Exception {
+			if (currentWorker.get() == this)
+				return function.apply(this.getConnection());
+
+			if (isClosed)
+				throw new IllegalStateException("the connection pool is closed");
+
+			Future<T> future;
+			pendingCount.incrementAndGet();
+			try {
+				future = executor.submit(() -> {
+					try {
+						return function.apply(this.getConnection());
+					} finally {
+						pendingCount.decrementAndGet();
+					}
+				});
+			} catch (RejectedExecutionException e) {
+				pendingCount.decrementAndGet();
+				throw new IllegalStateException("the connection pool is closed", e);
+			}
+
+			try {
+				return future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw e;
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof Error)
+					throw (Error) cause;
+				throw (Exception) cause;
+			}
+		}
+
+		private SQLiteConnection getConnection() throws SQLiteException {
+			if (connection == null) {
+				connection = open();
+				openedCount.incrementAndGet();
+			}
+			return connection;
+		}
+
+		private void close() {
+			try {
+				executor.execute(() -> {
+					if (connection != null) {
+						connection.dispose();
+						connection = null;
+						openedCount.decrementAndGet();
+					}
+				});
+			} finally {
+				executor.shutdown();
+			}
+		}
+
+	}
+
+	/**
+	 * Instantiates a new connection pool. No thread is started, nor connection opened, until a function is executed.
+	 *
+	 * @param dbLocation
+	 *            the SQLite file
+	 * @param size
+	 *            the number of worker threads, i.e. the maximum number of connections
+	 * @param pragmas
+	 *            the statements executed on each new connection, e.g. PRAGMA settings
+	 */
+	public SQLiteConnectionPool(File dbLocation, int size, String... pragmas) {
+		if (size < 1)
+			throw new IllegalArgumentException("the pool size must be at least 1: " + size);
+
+		this.dbLocation = dbLocation;
+		this.pragmas = pragmas;
+
+		String threadNamePrefix = "sqlite-pool-" + poolCount.incrementAndGet() + "-worker-";
+		this.workers = new Worker[size];
+		for (int i = 0; i < size; i++)
+			this.workers[i] = new Worker(threadNamePrefix + (i + 1));
+	}
+
+	/**
+	 * Runs a function on the connection of the least busy worker, and waits for its result. When called from a worker
+	 * of this pool, the function is run directly by this worker.
+	 *
+	 * @param function
+	 *            the function, which must not keep the connection, nor any statement of it, after returning
+	 * @return the result of the function
+	 * @throws Exception
+	 *             the exception thrown by the function, or an InterruptedException if the calling thread is interrupted
+	 *             while waiting
+	 * @throws IllegalStateException
+	 *             if the pool is closed
+	 */
+	public <T> T execute(ISQLiteConnectionFunction<T> function) throws Exception {
+		Worker worker = currentWorker.get();
+		if (worker == null)
+			worker = this.getWorker();
+
+		return worker.execute(function);
+	}
+
+	/**
+	 * Gets the least busy worker, to run several functions on the same connection. A function run on a worker must not
+	 * wait for the result of another worker of the same pool.
+	 *
+	 * @return a worker of this pool
+	 */
+	public Worker getWorker() {
+		// Start from a rotating index, so that idle workers are used in turn
+		int startIdx = Math.floorMod(nextWorkerIdx.getAndIncrement(), workers.length);
+
+		Worker leastBusyWorker = null;
+		int minPendingCount = Integer.MAX_VALUE;
+		for (int i = 0; i < workers.length; i++) {
+			Worker worker = workers[(startIdx + i) % workers.length];
+			int pendingCount = worker.pendingCount.get();
+			if (pendingCount < minPendingCount) {
+				leastBusyWorker = worker;
+				minPendingCount = pendingCount;
+			}
+		}
+
+		return leastBusyWorker;
+	}
+
+	/**
+	 * Closes the pool: the functions already submitted are completed, then the connections are disposed and the worker
+	 * threads stop. Unless it is called from a worker, this method waits for the workers to stop. Calling it again does
+	 * nothing.
+	 */
+	public void close() {
+		synchronized (workers) {
+			if (isClosed)
+				return;
+			isClosed = true;
+
+			for (Worker worker : workers)
+				worker.close();
+		}
+
+		Worker callingWorker = currentWorker.get();
+		try {
+			for (Worker worker : workers) {
+				if (worker != callingWorker)
+					worker.executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * @return the number of worker threads, i.e. the maximum number of connections
+	 */
+	public int getSize() {
+		return workers.length;
+	}
+
+	/**
+	 * @return the number of connections currently opened by the pool
+	 */
+	public int getOpenedCount() {
+		return openedCount.get();
+	}
+
+	public boolean isClosed() {
+		return isClosed;
+	}
+
+	private SQLiteConnection open() throws SQLiteException {
+		SQLiteConnection connection = new SQLiteConnection(dbLocation);
+		connection.openReadonly();
+
+		try {
+			for (String pragma : pragmas)
+				connection.exec(pragma);
+		} catch (SQLiteException e) {
+			connection.dispose();
+			throw e;
+		}
+
+		return connection;
+	}
+
+}
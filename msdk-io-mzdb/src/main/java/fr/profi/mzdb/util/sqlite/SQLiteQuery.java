@@ -246,7 +246,7 @@ public class SQLiteQuery {
 			// Dispose the statement
 			this.dispose();
 			
-			return Arrays.copyOfRange(buffer, 0, idx - 1);
+			return Arrays.copyOfRange(buffer, 0, idx);
 		} else {
 			return new float[0];
 		}
@@ -0,0 +1,672 @@
+/*
+ * (C) Copyright 2015-2016 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+package io.github.msdk.io.mzdb;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TimeZone;
+import java.util.TreeMap;
+
+import javax.annotation.Nonnull;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.almworks.sqlite4java.SQLiteConnection;
+import com.almworks.sqlite4java.SQLiteException;
+import com.almworks.sqlite4java.SQLiteStatement;
+import com.google.common.collect.Range;
+
+import fr.profi.mzdb.BBSizes;
+import fr.profi.mzdb.db.model.MzDBParamName_0_9;
+import io.github.msdk.MSDKException;
+import io.github.msdk.MSDKMethod;
+import io.github.msdk.datamodel.ActivationInfo;
+import io.github.msdk.datamodel.IsolationInfo;
+import io.github.msdk.datamodel.MsScan;
+import io.github.msdk.datamodel.MsSpectrumType;
+import io.github.msdk.datamodel.RawDataFile;
+import io.github.msdk.util.MsSpectrumUtil;
+
+/**
+ * <p>
+ * This class contains methods which can be used to write data contained in a
+ * {@link io.github.msdk.datamodel.RawDataFile RawDataFile} to a file, in mzDB format
+ * </p>
+ *
+ * <p>
+ * The scans are tiled into bounding boxes: each MS level is cut into run slices of a fixed m/z
+ * height, and consecutive scans of the same MS level are grouped into bounding boxes of a fixed
+ * time width. A bounding box holds the slice of every scan of its group, even the empty ones, so
+ * that all bounding boxes starting at the same scan contain the same scans. The bounding boxes are
+ * written in the order of their first scan, and in m/z order for the same first scan. The groups
+ * of all MS levels are closed once their time width is reached, so only the scans of about one
+ * time width are kept in memory.
+ * </p>
+ *
+ * <p>
+ * All peaks are written with 64-bit m/z and 32-bit intensity values. Rows are inserted with
+ * prepared statements in large transactions, and the indices are built once all rows are written.
+ * </p>
+ */
+public class MzDBFileExportMethod implements MSDKMethod<Void> {
+
+  /** Version of the mzDB model written by this class */
+  static final String MZDB_VERSION = "0.7";
+
+  /**
+   * Version of the pwiz-mzdb conventions followed by this class. The readers use it to pick the
+   * names of the bounding box parameters.
+   */
+  static final String WRITER_VERSION = "0.9.10";
+
+  // Number of bounding boxes inserted in each transaction
+  private static final int TRANSACTION_SIZE = 10000;
+
+  // 64-bit m/z and 32-bit intensity
+  private static final int PEAK_SIZE = Double.BYTES + Float.BYTES;
+
+  private static final String EMPTY_PARAM_TREE = "<params/>";
+
+  private static final String[] CREATE_TABLES = {
+      "CREATE TABLE mzdb (version TEXT NOT NULL, creation_timestamp INTEGER NOT NULL, "
+          + "file_content TEXT NOT NULL, contact TEXT NOT NULL, param_tree TEXT NOT NULL, "
+          + "PRIMARY KEY (version))",
+      "CREATE TABLE data_encoding (id INTEGER PRIMARY KEY AUTOINCREMENT, mode TEXT NOT NULL, "
+          + "compression TEXT, byte_order TEXT NOT NULL, mz_precision INTEGER NOT NULL, "
+          + "intensity_precision INTEGER NOT NULL, param_tree TEXT)",
+      "CREATE TABLE software (id INTEGER PRIMARY KEY AUTOINCREMENT, name TEXT NOT NULL, "
+          + "version TEXT NOT NULL, param_tree TEXT NOT NULL, shared_param_tree_id INTEGER)",
+      "CREATE TABLE sample (id INTEGER PRIMARY KEY AUTOINCREMENT, name TEXT NOT NULL, "
+          + "param_tree TEXT, shared_param_tree_id INTEGER)",
+      "CREATE TABLE source_file (id INTEGER PRIMARY KEY AUTOINCREMENT, name TEXT NOT NULL, "
+          + "location TEXT NOT NULL, param_tree TEXT NOT NULL, shared_param_tree_id INTEGER)",
+      "CREATE TABLE instrument_configuration (id INTEGER PRIMARY KEY AUTOINCREMENT, "
+          + "name TEXT NOT NULL, param_tree TEXT, component_list TEXT NOT NULL, "
+          + "shared_param_tree_id INTEGER, software_id INTEGER NOT NULL)",
+      "CREATE TABLE run (id INTEGER PRIMARY KEY AUTOINCREMENT, name TEXT NOT NULL, "
+          + "start_timestamp TEXT, param_tree TEXT, shared_param_tree_id INTEGER, "
+          + "sample_id INTEGER NOT NULL, default_instrument_config_id INTEGER, "
+          + "default_source_file_id INTEGER, default_scan_processing_id INTEGER, "
+          + "default_chrom_processing_id INTEGER)",
+      "CREATE TABLE spectrum (id INTEGER PRIMARY KEY AUTOINCREMENT, initial_id INTEGER NOT NULL, "
+          + "title TEXT NOT NULL, cycle INTEGER NOT NULL, time REAL NOT NULL, "
+          + "ms_level INTEGER NOT NULL, activation_type TEXT NOT NULL, tic REAL NOT NULL, "
+          + "base_peak_mz REAL NOT NULL, base_peak_intensity REAL NOT NULL, "
+          + "main_precursor_mz REAL, main_precursor_charge INTEGER, "
+          + "data_points_count INTEGER NOT NULL, param_tree TEXT NOT NULL, scan_list TEXT, "
+          + "precursor_list TEXT, product_list TEXT, shared_param_tree_id INTEGER, "
+          + "instrument_configuration_id INTEGER, source_file_id INTEGER, "
+          + "run_id INTEGER NOT NULL, data_processing_id INTEGER, "
+          + "data_encoding_id INTEGER NOT NULL, bb_first_spectrum_id INTEGER NOT NULL)",
+      "CREATE TABLE run_slice (id INTEGER PRIMARY KEY AUTOINCREMENT, ms_level INTEGER NOT NULL, "
+          + "number INTEGER NOT NULL, begin_mz REAL NOT NULL, end_mz REAL NOT NULL, "
+          + "param_tree TEXT, run_id INTEGER NOT NULL)",
+      "CREATE TABLE bounding_box (id INTEGER PRIMARY KEY AUTOINCREMENT, data BLOB NOT NULL, "
+          + "run_slice_id INTEGER NOT NULL, first_spectrum_id INTEGER NOT NULL, "
+          + "last_spectrum_id INTEGER NOT NULL)",
+      "CREATE VIRTUAL TABLE bounding_box_rtree USING rtree "
+          + "(id, min_mz, max_mz, min_time, max_time)",
+      "CREATE VIRTUAL TABLE bounding_box_msn_rtree USING rtree (id, min_ms_level, max_ms_level, "
+          + "min_parent_mz, max_parent_mz, min_mz, max_mz, min_time, max_time)"};
+
+  private static final String[] CREATE_INDICES =
+      {"CREATE INDEX spectrum_ms_level_idx ON spectrum (ms_level)",
+          "CREATE INDEX spectrum_bb_first_spectrum_id_idx ON spectrum (bb_first_spectrum_id)",
+          "CREATE INDEX run_slice_mz_range_idx ON run_slice (begin_mz, end_mz)",
+          "CREATE INDEX run_slice_ms_level_idx ON run_slice (ms_level)",
+          "CREATE INDEX bounding_box_run_slice_idx ON bounding_box (run_slice_id)",
+          "CREATE INDEX bounding_box_first_spectrum_idx ON bounding_box (first_spectrum_id)"};
+
+  private static final String INSERT_SPECTRUM = "INSERT INTO spectrum (id, initial_id, title, "
+      + "cycle, time, ms_level, activation_type, tic, base_peak_mz, base_peak_intensity, "
+      + "main_precursor_mz, main_precursor_charge, data_points_count, param_tree, source_file_id, "
+      + "run_id, data_encoding_id, bb_first_spectrum_id) "
+      + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 1, ?, ?)";
+  private static final String INSERT_BOUNDING_BOX = "INSERT INTO bounding_box "
+      + "(id, data, run_slice_id, first_spectrum_id, last_spectrum_id) VALUES (?, ?, ?, ?, ?)";
+  private static final String INSERT_RTREE =
+      "INSERT INTO bounding_box_rtree VALUES (?, ?, ?, ?, ?)";
+  private static final String INSERT_MSN_RTREE =
+      "INSERT INTO bounding_box_msn_rtree VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+  private final @Nonnull RawDataFile rawDataFile;
+  private final @Nonnull File target;
+  private final @Nonnull BBSizes bbSizes;
+
+  private final Logger logger = LoggerFactory.getLogger(this.getClass());
+  private volatile boolean canceled = false;
+  private float progress = 0f;
+
+  // Writing state, only used during execute() and reset at its start
+  private SQLiteConnection connection;
+  private SQLiteStatement spectrumStmt, boundingBoxStmt, rtreeStmt, msnRtreeStmt;
+  private Integer sourceFileId;
+  private final Map<MsSpectrumType, Integer> dataEncodingIds = new HashMap<>();
+  private final Map<Integer, TreeMap<Integer, Integer>> runSliceIdsByMsLevel = new TreeMap<>();
+  private final Map<Integer, BoundingBoxGroup> openGroups = new HashMap<>();
+  private final PriorityQueue<BoundingBoxGroup> closedGroups =
+      new PriorityQueue<>(Comparator.comparingLong(group -> group.firstSpectrumId));
+  private int lastRunSliceId = 0;
+  private int lastBoundingBoxId = 0;
+
+  /**
+   * <p>
+   * Constructor for MzDBFileExportMethod.
+   * </p>
+   *
+   * @param rawDataFile the input {@link io.github.msdk.datamodel.RawDataFile RawDataFile} which
+   *        contains the data to be exported
+   * @param target the target {@link java.io.File File} to write the data, in mzDB format
+   */
+  public MzDBFileExportMethod(@Nonnull RawDataFile rawDataFile, @Nonnull File target) {
+    this(rawDataFile, target, BBSizes.createDefault());
+  }
+
+  /**
+   * <p>
+   * Constructor for MzDBFileExportMethod.
+   * </p>
+   *
+   * @param rawDataFile the input {@link io.github.msdk.datamodel.RawDataFile RawDataFile} which
+   *        contains the data to be exported
+   * @param target the target {@link java.io.File File} to write the data, in mzDB format
+   * @param bbSizes the m/z heights and time widths of the bounding boxes. A time width of 0 puts
+   *        each scan in its own bounding boxes.
+   */
+  public MzDBFileExportMethod(@Nonnull RawDataFile rawDataFile, @Nonnull File target,
+      @Nonnull BBSizes bbSizes) {
+    this.rawDataFile = rawDataFile;
+    this.target = target;
+    this.bbSizes = bbSizes;
+  }
+
+  /**
+   * <p>
+   * Execute the process of writing the data from the the input
+   * {@link io.github.msdk.datamodel.RawDataFile RawDataFile} to the target
+   * {@link java.io.File File}. An existing target file is replaced.
+   * </p>
+   *
+   * @return nothing, a void method
+   */
+  @Override
+  public Void execute() throws MSDKException {
+
+    logger.info("Started export of " + rawDataFile.getName() + " to " + target);
+
+    if (target.exists() && !target.delete())
+      throw new MSDKException("Cannot replace the existing file " + target);
+
+    List<MsScan> scans = rawDataFile.getScans();
+    resetWritingState();
+    connection = new SQLiteConnection(target);
+    boolean completed = false;
+    try {
+      connection.open(true);
+      connection.exec("PRAGMA synchronous=OFF;");
+      connection.exec("PRAGMA journal_mode=OFF;");
+      connection.exec("PRAGMA temp_store=2;");
+      connection.exec("PRAGMA cache_size=-100000;"); // around 100 Mo
+
+      for (String sql : CREATE_TABLES)
+        connection.exec(sql);
+
+      connection.exec("BEGIN TRANSACTION;");
+      writeHeaders();
+
+      spectrumStmt = connection.prepare(INSERT_SPECTRUM);
+      boundingBoxStmt = connection.prepare(INSERT_BOUNDING_BOX);
+      rtreeStmt = connection.prepare(INSERT_RTREE);
+      msnRtreeStmt = connection.prepare(INSERT_MSN_RTREE);
+
+      int cycle = 0;
+      for (int i = 0; i < scans.size(); i++) {
+        if (canceled)
+          return null;
+
+        MsScan scan = scans.get(i);
+        int msLevel = scan.getMsLevel();
+        if (msLevel == 1 || cycle == 0)
+          cycle++;
+        addScan(i + 1, cycle, scan);
+
+        progress = 0.9f * (i + 1) / scans.size();
+      }
+
+      // Write the remaining bounding boxes
+      closedGroups.addAll(openGroups.values());
+      openGroups.clear();
+      writeClosedGroups();
+
+      writeRunSlices();
+      for (String sql : CREATE_INDICES)
+        connection.exec(sql);
+      connection.exec("COMMIT TRANSACTION;");
+      completed = true;
+
+    } catch (SQLiteException e) {
+      throw new MSDKException("SQLite Exception in mzDB", e);
+    } finally {
+      connection.dispose();
+      // Do not leave a partial file behind
+      if (!completed)
+        target.delete();
+    }
+
+    progress = 1f;
+    logger.info("Finished export of " + rawDataFile.getName() + " to " + target);
+
+    return null;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Float getFinishedPercentage() {
+    return progress;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Void getResult() {
+    return null;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void cancel() {
+    this.canceled = true;
+  }
+
+  /**
+   * Clears the ids and groups of a previous execution, so that the method can be run again.
+   */
+  private void resetWritingState() {
+    sourceFileId = null;
+    dataEncodingIds.clear();
+    runSliceIdsByMsLevel.clear();
+    openGroups.clear();
+    closedGroups.clear();
+    lastRunSliceId = 0;
+    lastBoundingBoxId = 0;
+  }
+
+  private void writeHeaders() throws SQLiteException {
+
+    // The readers take the bounding box sizes from the mzdb param tree
+    MzDBParamName_0_9 paramNames = new MzDBParamName_0_9();
+    String mzDbParamTree = "<params><userParams>"
+        + userParam(paramNames.getMs1BBMzWidthParamName(), bbSizes.BB_MZ_HEIGHT_MS1)
+        + userParam(paramNames.getMsnBBMzWidthParamName(), bbSizes.BB_MZ_HEIGHT_MSn)
+        + userParam(paramNames.getMs1BBTimeWidthParamName(), bbSizes.BB_RT_WIDTH_MS1)
+        + userParam(paramNames.getMsnBBTimeWidthParamName(), bbSizes.BB_RT_WIDTH_MSn)
+        + "<userParam name=\"" + paramNames.getLossStateParamName()
+        + "\" value=\"false\" type=\"xsd:boolean\"/>" + "</userParams></params>";
+
+    SQLiteStatement stmt = connection.prepare("INSERT INTO mzdb VALUES (?, ?, ?, ?, ?)");
+    stmt.bind(1, MZDB_VERSION).bind(2, System.currentTimeMillis() / 1000)
+        .bind(3, EMPTY_PARAM_TREE).bind(4, EMPTY_PARAM_TREE).bind(5, mzDbParamTree);
+    stmt.step();
+    stmt.dispose();
+
+    // The name must end with "mzDB" for the readers to find the version
+    stmt = connection.prepare(
+        "INSERT INTO software (id, name, version, param_tree) VALUES (1, 'msdk-mzDB', ?, ?)");
+    stmt.bind(1, WRITER_VERSION).bind(2, EMPTY_PARAM_TREE);
+    stmt.step();
+    stmt.dispose();
+
+    stmt = connection.prepare("INSERT INTO sample (id, name, param_tree) VALUES (1, ?, ?)");
+    stmt.bind(1, rawDataFile.getName()).bind(2, EMPTY_PARAM_TREE);
+    stmt.step();
+    stmt.dispose();
+
+    if (rawDataFile.getOriginalFile().isPresent()) {
+      File originalFile = rawDataFile.getOriginalFile().get();
+      sourceFileId = 1;
+      stmt = connection.prepare(
+          "INSERT INTO source_file (id, name, location, param_tree) VALUES (1, ?, ?, ?)");
+      stmt.bind(1, originalFile.getName()).bind(2, originalFile.getAbsoluteFile().getParent())
+          .bind(3, EMPTY_PARAM_TREE);
+      stmt.step();
+      stmt.dispose();
+    }
+
+    // The acquisition time is unknown, the export time is used instead
+    SimpleDateFormat timestampFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
+    timestampFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+    stmt = connection.prepare("INSERT INTO run (id, name, start_timestamp, param_tree, sample_id, "
+        + "default_source_file_id) VALUES (1, ?, ?, ?, 1, ?)");
+    stmt.bind(1, rawDataFile.getName()).bind(2, timestampFormat.format(new Date()))
+        .bind(3, EMPTY_PARAM_TREE);
+    if (sourceFileId != null)
+      stmt.bind(4, sourceFileId);
+    stmt.step();
+    stmt.dispose();
+  }
+
+  private void addScan(long spectrumId, int cycle, MsScan scan) throws SQLiteException {
+
+    int msLevel = scan.getMsLevel();
+    float time = scan.getRetentionTime() != null ? scan.getRetentionTime() : 0f;
+    int size = scan.getNumberOfDataPoints();
+    double mzValues[] = scan.getMzValues(new double[size]);
+    float intensityValues[] = scan.getIntensityValues(new float[size]);
+    sortByMz(mzValues, intensityValues, size);
+
+    // Close the groups of all MS levels whose time width is reached, so that the group of a rare
+    // MS level doesn't hold back the groups starting after it
+    boolean closed = false;
+    for (Iterator<BoundingBoxGroup> it = openGroups.values().iterator(); it.hasNext();) {
+      BoundingBoxGroup openGroup = it.next();
+      if (time - openGroup.firstTime >= getRtWidth(openGroup.msLevel)) {
+        closedGroups.add(openGroup);
+        it.remove();
+        closed = true;
+      }
+    }
+
+    // Start a new bounding box group if there is no open one for this MS level
+    BoundingBoxGroup group = openGroups.get(msLevel);
+    if (group == null) {
+      group = new BoundingBoxGroup(msLevel, spectrumId, time);
+      openGroups.put(msLevel, group);
+    }
+    if (closed)
+      writeClosedGroups();
+
+    IsolationInfo isolation = null;
+    for (IsolationInfo isolationInfo : scan.getIsolations()) {
+      if (isolationInfo.getPrecursorMz() != null) {
+        isolation = isolationInfo;
+        break;
+      }
+    }
+    if (isolation != null)
+      group.addIsolationRange(isolation.getIsolationMzRange(), isolation.getPrecursorMz());
+    group.spectra.add(new GroupSpectrum(spectrumId, time, mzValues, intensityValues, size));
+
+    // Write the spectrum header
+    Integer basePeakIndex = MsSpectrumUtil.getBasePeakIndex(intensityValues, size);
+    Float tic = scan.getTIC();
+    if (tic == null)
+      tic = MsSpectrumUtil.getTIC(intensityValues, size);
+    ActivationInfo activation = isolation != null ? isolation.getActivationInfo() : null;
+    MsSpectrumType spectrumType = scan.getSpectrumType();
+    String title = scan.getScanDefinition() != null ? scan.getScanDefinition() : "";
+
+    SQLiteStatement stmt = spectrumStmt;
+    stmt.bind(1, spectrumId);
+    stmt.bind(2, scan.getScanNumber());
+    stmt.bind(3, title);
+    stmt.bind(4, cycle);
+    stmt.bind(5, time);
+    stmt.bind(6, msLevel);
+    stmt.bind(7, activation != null ? activation.getActivationType().name() : "");
+    stmt.bind(8, tic);
+    stmt.bind(9, basePeakIndex != null ? mzValues[basePeakIndex] : 0.0);
+    stmt.bind(10, basePeakIndex != null ? intensityValues[basePeakIndex] : 0.0);
+    if (isolation != null) {
+      stmt.bind(11, isolation.getPrecursorMz());
+      if (isolation.getPrecursorCharge() != null)
+        stmt.bind(12, isolation.getPrecursorCharge());
+    }
+    stmt.bind(13, size);
+    stmt.bind(14, getSpectrumParamTree(msLevel, spectrumType));
+    if (sourceFileId != null)
+      stmt.bind(15, sourceFileId);
+    stmt.bind(16, getDataEncodingId(spectrumType));
+    stmt.bind(17, group.firstSpectrumId);
+    stmt.step();
+    stmt.reset();
+  }
+
+  /**
+   * Writes the closed groups which start before all open groups, so that bounding boxes are
+   * written in the order of their first spectrum.
+   */
+  private void writeClosedGroups() throws SQLiteException {
+    long minOpenSpectrumId = Long.MAX_VALUE;
+    for (BoundingBoxGroup group : openGroups.values())
+      minOpenSpectrumId = Math.min(minOpenSpectrumId, group.firstSpectrumId);
+
+    while (!closedGroups.isEmpty() && closedGroups.peek().firstSpectrumId < minOpenSpectrumId)
+      writeGroup(closedGroups.poll());
+  }
+
+  private void writeGroup(BoundingBoxGroup group) throws SQLiteException {
+
+    final int msLevel = group.msLevel;
+    final double mzHeight = msLevel == 1 ? bbSizes.BB_MZ_HEIGHT_MS1 : bbSizes.BB_MZ_HEIGHT_MSn;
+    final List<GroupSpectrum> spectra = group.spectra;
+    final int spectraCount = spectra.size();
+    final long lastSpectrumId = spectra.get(spectraCount - 1).id;
+    final float lastTime = spectra.get(spectraCount - 1).time;
+
+    int startIndices[] = new int[spectraCount];
+    int endIndices[] = new int[spectraCount];
+    boolean written = false;
+
+    while (true) {
+
+      // The next run slice is the lowest one holding remaining peaks
+      int runSliceIndex = Integer.MAX_VALUE;
+      for (int s = 0; s < spectraCount; s++) {
+        GroupSpectrum spectrum = spectra.get(s);
+        if (startIndices[s] < spectrum.size) {
+          runSliceIndex = Math.min(runSliceIndex,
+              getRunSliceIndex(spectrum.mzValues[startIndices[s]], mzHeight));
+        }
+      }
+      if (runSliceIndex == Integer.MAX_VALUE) {
+        if (written)
+          break;
+        // Spectra without peaks still need a bounding box to be found by the readers
+        TreeMap<Integer, Integer> runSliceIds = runSliceIdsByMsLevel.get(msLevel);
+        runSliceIndex = runSliceIds != null ? runSliceIds.firstKey() : 0;
+      }
+
+      int blobSize = 0;
+      for (int s = 0; s < spectraCount; s++) {
+        GroupSpectrum spectrum = spectra.get(s);
+        int end = startIndices[s];
+        while (end < spectrum.size
+            && getRunSliceIndex(spectrum.mzValues[end], mzHeight) == runSliceIndex)
+          end++;
+        endIndices[s] = end;
+        blobSize += 2 * Integer.BYTES + (end - startIndices[s]) * PEAK_SIZE;
+      }
+
+      ByteBuffer blob = ByteBuffer.allocate(blobSize).order(ByteOrder.LITTLE_ENDIAN);
+      for (int s = 0; s < spectraCount; s++) {
+        GroupSpectrum spectrum = spectra.get(s);
+        blob.putInt((int) spectrum.id);
+        blob.putInt(endIndices[s] - startIndices[s]);
+        for (int i = startIndices[s]; i < endIndices[s]; i++) {
+          blob.putDouble(spectrum.mzValues[i]);
+          blob.putFloat(spectrum.intensityValues[i]);
+        }
+      }
+      System.arraycopy(endIndices, 0, startIndices, 0, spectraCount);
+
+      int bbId = ++lastBoundingBoxId;
+      double beginMz = runSliceIndex * mzHeight;
+      double endMz = beginMz + mzHeight;
+
+      boundingBoxStmt.bind(1, bbId).bind(2, blob.array())
+          .bind(3, getRunSliceId(msLevel, runSliceIndex)).bind(4, group.firstSpectrumId)
+          .bind(5, lastSpectrumId);
+      boundingBoxStmt.step();
+      boundingBoxStmt.reset();
+
+      if (msLevel == 1) {
+        rtreeStmt.bind(1, bbId).bind(2, beginMz).bind(3, endMz).bind(4, group.firstTime)
+            .bind(5, lastTime);
+        rtreeStmt.step();
+        rtreeStmt.reset();
+      } else {
+        boolean hasParent = group.minParentMz <= group.maxParentMz;
+        msnRtreeStmt.bind(1, bbId).bind(2, msLevel).bind(3, msLevel)
+            .bind(4, hasParent ? group.minParentMz : 0.0)
+            .bind(5, hasParent ? group.maxParentMz : 0.0).bind(6, beginMz).bind(7, endMz)
+            .bind(8, group.firstTime).bind(9, lastTime);
+        msnRtreeStmt.step();
+        msnRtreeStmt.reset();
+      }
+
+      if (lastBoundingBoxId % TRANSACTION_SIZE == 0) {
+        connection.exec("COMMIT TRANSACTION;");
+        connection.exec("BEGIN TRANSACTION;");
+      }
+      written = true;
+    }
+  }
+
+  private void writeRunSlices() throws SQLiteException {
+    SQLiteStatement stmt = connection.prepare("INSERT INTO run_slice "
+        + "(id, ms_level, number, begin_mz, end_mz, run_id) VALUES (?, ?, ?, ?, ?, 1)");
+    for (Map.Entry<Integer, TreeMap<Integer, Integer>> entry : runSliceIdsByMsLevel.entrySet()) {
+      int msLevel = entry.getKey();
+      double mzHeight = msLevel == 1 ? bbSizes.BB_MZ_HEIGHT_MS1 : bbSizes.BB_MZ_HEIGHT_MSn;
+      int number = 1;
+      for (Map.Entry<Integer, Integer> runSlice : entry.getValue().entrySet()) {
+        double beginMz = runSlice.getKey() * mzHeight;
+        stmt.bind(1, runSlice.getValue()).bind(2, msLevel).bind(3, number++).bind(4, beginMz)
+            .bind(5, beginMz + mzHeight);
+        stmt.step();
+        stmt.reset();
+      }
+    }
+    stmt.dispose();
+  }
+
+  private int getRunSliceId(int msLevel, int runSliceIndex) {
+    TreeMap<Integer, Integer> runSliceIds =
+        runSliceIdsByMsLevel.computeIfAbsent(msLevel, level -> new TreeMap<>());
+    return runSliceIds.computeIfAbsent(runSliceIndex, index -> ++lastRunSliceId);
+  }
+
+  private int getDataEncodingId(MsSpectrumType spectrumType) throws SQLiteException {
+    Integer id = dataEncodingIds.get(spectrumType);
+    if (id == null) {
+      id = dataEncodingIds.size() + 1;
+      SQLiteStatement stmt = connection.prepare("INSERT INTO data_encoding (id, mode, "
+          + "compression, byte_order, mz_precision, intensity_precision) "
+          + "VALUES (?, ?, 'none', 'little_endian', 64, 32)");
+      stmt.bind(1, id).bind(2,
+          spectrumType == MsSpectrumType.CENTROIDED ? "centroid" : "profile");
+      stmt.step();
+      stmt.dispose();
+      dataEncodingIds.put(spectrumType, id);
+    }
+    return id;
+  }
+
+  private float getRtWidth(int msLevel) {
+    return msLevel == 1 ? bbSizes.BB_RT_WIDTH_MS1 : bbSizes.BB_RT_WIDTH_MSn;
+  }
+
+  private static int getRunSliceIndex(double mz, double mzHeight) {
+    return (int) Math.floor(mz / mzHeight);
+  }
+
+  private static String getSpectrumParamTree(int msLevel, MsSpectrumType spectrumType) {
+    String representation = spectrumType == MsSpectrumType.CENTROIDED
+        ? "accession=\"MS:1000127\" name=\"centroid spectrum\""
+        : "accession=\"MS:1000128\" name=\"profile spectrum\"";
+    return "<params><cvParams>"
+        + "<cvParam cvRef=\"MS\" accession=\"MS:1000511\" name=\"ms level\" value=\"" + msLevel
+        + "\"/><cvParam cvRef=\"MS\" " + representation + " value=\"\"/></cvParams></params>";
+  }
+
+  private static String userParam(String name, double value) {
+    return "<userParam name=\"" + name + "\" value=\"" + value + "\" type=\"xsd:float\"/>";
+  }
+
+  /**
+   * Sorts the data points by m/z if needed, as the peaks of a spectrum are split into run slices
+   * in m/z order.
+   */
+  private static void sortByMz(double mzValues[], float intensityValues[], int size) {
+    boolean sorted = true;
+    for (int i = 1; i < size && sorted; i++)
+      sorted = mzValues[i - 1] <= mzValues[i];
+    if (sorted)
+      return;
+
+    Integer order[] = new Integer[size];
+    for (int i = 0; i < size; i++)
+      order[i] = i;
+    double mzCopy[] = Arrays.copyOf(mzValues, size);
+    float intensityCopy[] = Arrays.copyOf(intensityValues, size);
+    Arrays.sort(order, (i1, i2) -> Double.compare(mzCopy[i1], mzCopy[i2]));
+    for (int i = 0; i < size; i++) {
+      mzValues[i] = mzCopy[order[i]];
+      intensityValues[i] = intensityCopy[order[i]];
+    }
+  }
+
+  /**
+   * Consecutive spectra of the same MS level, written as one bounding box per run slice.
+   */
+  private static class BoundingBoxGroup {
+    private final int msLevel;
+    private final long firstSpectrumId;
+    private final float firstTime;
+    private final List<GroupSpectrum> spectra = new ArrayList<>();
+    private double minParentMz = Double.MAX_VALUE;
+    private double maxParentMz = -Double.MAX_VALUE;
+
+    BoundingBoxGroup(int msLevel, long firstSpectrumId, float firstTime) {
+      this.msLevel = msLevel;
+      this.firstSpectrumId = firstSpectrumId;
+      this.firstTime = firstTime;
+    }
+
+    void addIsolationRange(Range<Double> isolationRange, double precursorMz) {
+      double lowerMz = isolationRange.hasLowerBound() ? isolationRange.lowerEndpoint() : precursorMz;
+      double upperMz = isolationRange.hasUpperBound() ? isolationRange.upperEndpoint() : precursorMz;
+      minParentMz = Math.min(minParentMz, Math.min(lowerMz, precursorMz));
+      maxParentMz = Math.max(maxParentMz, Math.max(upperMz, precursorMz));
+    }
+  }
+
+  private static class GroupSpectrum {
+    private final long id;
+    private final float time;
+    private final double mzValues[];
+    private final float intensityValues[];
+    private final int size;
+
+    GroupSpectrum(long id, float time, double mzValues[], float intensityValues[], int size) {
+      this.id = id;
+      this.time = time;
+      this.mzValues = mzValues;
+      this.intensityValues = intensityValues;
+      this.size = size;
+    }
+  }
+
+}
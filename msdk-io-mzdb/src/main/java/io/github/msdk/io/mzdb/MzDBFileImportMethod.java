@@ -14,42 +14,30 @@
 package io.github.msdk.io.mzdb;
 
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.StreamCorruptedException;
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
-import com.almworks.sqlite4java.SQLiteException;
 
 import io.github.msdk.MSDKException;
 import io.github.msdk.MSDKMethod;
-import io.github.msdk.datamodel.Chromatogram;
-import io.github.msdk.datamodel.MsScan;
 import io.github.msdk.datamodel.RawDataFile;
-import io.github.msdk.datamodel.SimpleChromatogram;
-import io.github.msdk.datamodel.SimpleMsScan;
-import io.github.msdk.io.mzdb.MzDBRawDataFile;
-import fr.profi.mzdb.*;
-import fr.profi.mzdb.model.Spectrum;
-import fr.profi.mzdb.model.SpectrumData;
-import fr.profi.mzdb.model.SpectrumHeader;
 
 /**
  * <p>
  * This class contains methods which parse data in MzDB format from {@link java.io.File File}.
  * </p>
+ *
+ * <p>
+ * Only the spectrum headers are read on import. The returned
+ * {@link io.github.msdk.io.mzdb.MzDBRawDataFile MzDBRawDataFile} keeps the file open and reads the
+ * data points of each scan when they are accessed, so it must be disposed when no longer needed.
+ * </p>
  */
 public class MzDBFileImportMethod implements MSDKMethod<RawDataFile> {
   private final File mzDBFile;
   // final InputStream inputStream;
+  private final boolean cacheEntities;
+  private final long dataCacheSize;
   private MzDBRawDataFile newRawFile;
   private volatile boolean canceled;
-  private boolean cacheEntities;
   private Float progress;
-  // private int lastLoggedProgress;
-  // private Logger logger;
-  // private Predicate<MsScan> msScanPredicate = s -> true;
-  // private Predicate<Chromatogram> chromatogramPredicate = c -> true;
 
   /**
    * <p>
@@ -61,15 +49,32 @@ public class MzDBFileImportMethod implements MSDKMethod<RawDataFile> {
    * @param cacheEntities
    */
   public MzDBFileImportMethod(String mzDBFilePath, boolean cacheEntities) {
-    this.mzDBFile = new File(mzDBFilePath);
+    this(new File(mzDBFilePath), cacheEntities, MzDBRawDataFile.DEFAULT_DATA_CACHE_SIZE);
+  }
+
+  /**
+   * <p>
+   * Constructor for MzDBFileImportMethod.
+   * </p>
+   *
+   * @param mzDBFile the MzDB {@link java.io.File File}
+   * @param cacheEntities whether the reader should keep the spectrum headers and data encodings it
+   *        loads. Without this cache, every spectrum read queries all headers again.
+   * @param dataCacheSize the maximum total size of the data points cached by the imported file, in
+   *        bytes
+   */
+  public MzDBFileImportMethod(File mzDBFile, boolean cacheEntities, long dataCacheSize) {
+    this.mzDBFile = mzDBFile;
     this.cacheEntities = cacheEntities;
+    this.dataCacheSize = dataCacheSize;
   }
 
   /**
    * {@inheritDoc}
    *
    * <p>
-   * Parse the MzDB data and return the parsed data
+   * Parse the MzDB spectrum headers and return a raw data file which reads the data points on
+   * demand
    * </p>
    *
    * @return a {@link io.github.msdk.io.mzdb.MzDBRawDataFile MzDBRawDataFile} object containing the
@@ -78,59 +83,17 @@ public class MzDBFileImportMethod implements MSDKMethod<RawDataFile> {
    */
   @Override
   public MzDBRawDataFile execute() throws MSDKException {
-    Iterator<Spectrum> spectrumIterator;
-    Spectrum eachSpectrum;
-    SpectrumHeader eachSpectrumHeader;
-    List<MsScan> msScanList = new ArrayList<>();
-    List<String> msFunctions = new ArrayList<>(); // TODO
-    List<Chromatogram> chromatograms = new ArrayList<>(); // TODO
-    SpectrumData eachSpectrumData;
-    int scanNumber = 1;
-    float eachSpectrumTime;
-
-
-    try {
-      MzDbReader currentFile = new MzDbReader(mzDBFile, cacheEntities);
-
-      try {
-        spectrumIterator = currentFile.getSpectrumIterator();
-
-        while (spectrumIterator.hasNext()) {
-          eachSpectrum = spectrumIterator.next();
-          eachSpectrumHeader = eachSpectrum.getHeader();
-          eachSpectrumData = eachSpectrum.getData();
-          double mzList[] = eachSpectrumData.getMzList();
-          float intensityList[] = eachSpectrumData.getIntensityList();
-
-          SimpleMsScan eachSimpleMsScan = new SimpleMsScan(scanNumber);
-          eachSimpleMsScan.setDataPoints(mzList, intensityList, mzList.length);
-
-          msScanList.add(eachSimpleMsScan);
-          scanNumber++;
-
-          // Chromatograms
-          // eachSpectrumTime = eachSpectrumHeader.getTime();
-          // SimpleChromatogram eachChromatogram = new SimpleChromatogram();
-          // eachChromatogram.setDataPoints(rtValues, mzList, intensityList, mzList.length);
-        }
-
-      } catch (StreamCorruptedException e) {
-        throw new MSDKException("Stream corrupted, detected by mzDB", e);
-      }
-
-    } catch (ClassNotFoundException e) {
-      throw new MSDKException("Class can't be found by mzDB", e);
-    } catch (FileNotFoundException e) {
-      throw new MSDKException("File Not Found / File present but inaccessible by mzDB", e);
-    } catch (SQLiteException e) {
-      throw new MSDKException("SQLite Exception in mzDB", e);
+    if (canceled)
+      return null;
+
+    progress = 0f;
+    MzDBRawDataFile rawFile = new MzDBRawDataFile(mzDBFile, cacheEntities, dataCacheSize);
+    if (canceled) {
+      rawFile.dispose();
+      return null;
     }
-
-    msFunctions.add("ms");
-    MzDBRawDataFile newRawFile =
-        new MzDBRawDataFile(mzDBFile, msFunctions, msScanList, chromatograms); // returning dummy
-                                                                               // msFunctions and
-                                                                               // Chromatograms
+    newRawFile = rawFile;
+    progress = 1f;
 
     return newRawFile;
   }
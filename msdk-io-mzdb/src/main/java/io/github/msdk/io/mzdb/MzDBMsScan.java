@@ -0,0 +1,203 @@
+/*
+ * (C) Copyright 2015-2016 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+package io.github.msdk.io.mzdb;
+
+import java.util.Collections;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.google.common.collect.Range;
+
+import fr.profi.mzdb.model.SpectrumData;
+import fr.profi.mzdb.model.SpectrumHeader;
+import io.github.msdk.datamodel.ActivationInfo;
+import io.github.msdk.datamodel.IsolationInfo;
+import io.github.msdk.datamodel.MsScan;
+import io.github.msdk.datamodel.MsSpectrumType;
+import io.github.msdk.datamodel.RawDataFile;
+import io.github.msdk.datamodel.SimpleIsolationInfo;
+import io.github.msdk.util.MsSpectrumUtil;
+import io.github.msdk.util.tolerances.MzTolerance;
+
+/**
+ * <p>
+ * A scan of an {@link io.github.msdk.io.mzdb.MzDBRawDataFile MzDBRawDataFile}. Everything but the
+ * data points comes from the mzDB spectrum header; the data points are read through the file's
+ * cache on each access.
+ * </p>
+ */
+class MzDBMsScan implements MsScan {
+
+  private final @Nonnull MzDBRawDataFile rawDataFile;
+  private final @Nonnull SpectrumHeader header;
+  private final @Nonnull MsSpectrumType spectrumType;
+
+  MzDBMsScan(@Nonnull MzDBRawDataFile rawDataFile, @Nonnull SpectrumHeader header,
+      @Nonnull MsSpectrumType spectrumType) {
+    this.rawDataFile = rawDataFile;
+    this.header = header;
+    this.spectrumType = spectrumType;
+  }
+
+  /**
+   * <p>
+   * getSpectrumHeader.
+   * </p>
+   *
+   * @return the mzDB {@link fr.profi.mzdb.model.SpectrumHeader SpectrumHeader} of this scan
+   */
+  @Nonnull
+  SpectrumHeader getSpectrumHeader() {
+    return header;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nonnull
+  public MsSpectrumType getSpectrumType() {
+    return spectrumType;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nonnull
+  public Integer getNumberOfDataPoints() {
+    return header.getPeaksCount();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nonnull
+  public double[] getMzValues(@Nullable double array[]) {
+    int size = getNumberOfDataPoints();
+    if ((array == null) || (array.length < size))
+      array = new double[size];
+    SpectrumData data = rawDataFile.getSpectrumData(header.getId());
+    System.arraycopy(data.getMzList(), 0, array, 0, Math.min(size, data.getPeaksCount()));
+    return array;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nonnull
+  public float[] getIntensityValues(@Nullable float array[]) {
+    int size = getNumberOfDataPoints();
+    if ((array == null) || (array.length < size))
+      array = new float[size];
+    SpectrumData data = rawDataFile.getSpectrumData(header.getId());
+    System.arraycopy(data.getIntensityList(), 0, array, 0, Math.min(size, data.getPeaksCount()));
+    return array;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nonnull
+  public Float getTIC() {
+    return header.getTIC();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nullable
+  public Range<Double> getMzRange() {
+    SpectrumData data = rawDataFile.getSpectrumData(header.getId());
+    return MsSpectrumUtil.getMzRange(data.getMzList(), data.getPeaksCount());
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nullable
+  public MzTolerance getMzTolerance() {
+    return null;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nonnull
+  public RawDataFile getRawDataFile() {
+    return rawDataFile;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nonnull
+  public Integer getScanNumber() {
+    return header.getInitialId();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nullable
+  public String getScanDefinition() {
+    return null;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nullable
+  public String getMsFunction() {
+    return MzDBRawDataFile.DEFAULT_MS_FUNCTION;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nonnull
+  public Integer getMsLevel() {
+    return header.getMsLevel();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nullable
+  public Float getRetentionTime() {
+    return header.getTime();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nullable
+  public Range<Double> getScanningRange() {
+    return null;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nullable
+  public ActivationInfo getSourceInducedFragmentation() {
+    return null;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>
+   * The spectrum header only holds the main precursor, so the isolation window is reduced to its
+   * m/z.
+   * </p>
+   */
+  @Override
+  @Nonnull
+  public List<IsolationInfo> getIsolations() {
+    if (header.getMsLevel() < 2 || header.getPrecursorMz() <= 0.0)
+      return Collections.emptyList();
+    double precursorMz = header.getPrecursorMz();
+    Integer precursorCharge =
+        header.getPrecursorCharge() != 0 ? header.getPrecursorCharge() : null;
+    return Collections.singletonList(new SimpleIsolationInfo(Range.singleton(precursorMz), null,
+        precursorMz, precursorCharge, null, null));
+  }
+
+}
@@ -14,67 +14,335 @@
 package io.github.msdk.io.mzdb;
 
 import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.StreamCorruptedException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.annotation.Nonnull;
 
+import com.almworks.sqlite4java.SQLiteException;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 
+import fr.profi.mzdb.MzDbReader;
+import fr.profi.mzdb.io.reader.cache.BoundingBoxCache;
+import fr.profi.mzdb.model.DataEncoding;
+import fr.profi.mzdb.model.DataMode;
+import fr.profi.mzdb.model.SpectrumData;
+import fr.profi.mzdb.model.SpectrumHeader;
+import io.github.msdk.MSDKException;
+import io.github.msdk.MSDKRuntimeException;
 import io.github.msdk.datamodel.Chromatogram;
+import io.github.msdk.datamodel.ChromatogramType;
 import io.github.msdk.datamodel.FileType;
 import io.github.msdk.datamodel.MsScan;
+import io.github.msdk.datamodel.MsSpectrumType;
 import io.github.msdk.datamodel.RawDataFile;
+import io.github.msdk.datamodel.ScanIndex;
+import io.github.msdk.datamodel.SeparationType;
+import io.github.msdk.datamodel.SimpleChromatogram;
 
+/**
+ * <p>
+ * A {@link io.github.msdk.datamodel.RawDataFile RawDataFile} which keeps its mzDB file open and
+ * reads data points on demand. Only the spectrum headers are loaded when the file is opened; each
+ * scan is a lightweight view of its header, and its data points are read from the bounding boxes
+ * on first access. Decoded spectra are kept in a cache bounded by their size in bytes, and read
+ * again from the file once evicted. A part of the same budget caches the decoded bounding boxes
+ * of the reader, so that the spectra of a cycle don't decode the same bounding boxes again.
+ * </p>
+ *
+ * <p>
+ * sqlite4java connections may only be used by the thread which opened them, so all reads are run
+ * on a reader thread owned by this file. The file must be disposed to close the connection and
+ * stop that thread.
+ * </p>
+ */
 public class MzDBRawDataFile implements RawDataFile {
+
+  /** Default budget is an eighth of the maximum heap size. */
+  static final long DEFAULT_DATA_CACHE_SIZE = Runtime.getRuntime().maxMemory() / 8;
+
+  /** Part of the budget used by the bounding box cache of the reader. */
+  private static final int BOUNDING_BOX_CACHE_FRACTION = 4;
+
+  /** mzDB files don't store MS functions, so all scans are reported under a single one. */
+  static final String DEFAULT_MS_FUNCTION = "ms";
+
   private static final @Nonnull FileType fileType = FileType.MZDB;
   private final File sourceFile;
+  private final @Nonnull String name;
+
+  private final ExecutorService readerThread;
+  // Only accessed from readerThread
+  private MzDbReader reader;
+
   private final @Nonnull List<String> msFunctions;
   private final @Nonnull List<MsScan> msScans;
-  private final @Nonnull List<Chromatogram> chromatograms;
-  private @Nonnull String name;
+  private final Cache<Long, SpectrumData> dataCache;
 
-  @SuppressWarnings("null")
-  public MzDBRawDataFile(File sourceFile, List<String> msFunctions, List<MsScan> msScans,
-      List<Chromatogram> chromatograms) {
+  private volatile List<Chromatogram> chromatograms;
+  private volatile ScanIndex scanIndex;
+  private volatile boolean disposed = false;
+
+  /**
+   * <p>
+   * Opens the given mzDB file and reads its spectrum headers.
+   * </p>
+   *
+   * @param sourceFile the mzDB {@link java.io.File File}
+   * @param cacheEntities whether the reader should keep the spectrum headers and data encodings it
+   *        loads. Without this cache, every spectrum read queries all headers again.
+   * @param dataCacheSize the maximum total size of the cached data points, in bytes. A quarter is
+   *        used for the decoded bounding boxes, and the rest for the decoded spectra.
+   * @throws io.github.msdk.MSDKException if the file cannot be opened or read
+   */
+  public MzDBRawDataFile(@Nonnull File sourceFile, boolean cacheEntities, long dataCacheSize)
+      throws MSDKException {
     this.sourceFile = sourceFile;
-    this.name = sourceFile != null ? sourceFile.getName() : null;
-    this.msFunctions = msFunctions;
-    this.msScans = msScans;
-    this.chromatograms = chromatograms;
+    this.name = sourceFile.getName();
+    this.readerThread = Executors.newSingleThreadExecutor(r -> {
+      Thread thread = new Thread(r, "mzDB reader " + name);
+      thread.setDaemon(true);
+      return thread;
+    });
+    final long boundingBoxCacheSize = dataCacheSize / BOUNDING_BOX_CACHE_FRACTION;
+    this.dataCache = CacheBuilder.newBuilder().maximumWeight(dataCacheSize - boundingBoxCacheSize)
+        .weigher((Long key, SpectrumData value) -> getSizeInBytes(value)).recordStats().build();
+
+    try {
+      List<MsScan> scans = read(() -> {
+        reader = new MzDbReader(sourceFile, cacheEntities);
+        reader.setBoundingBoxCache(new BoundingBoxCache(boundingBoxCacheSize));
+        return buildScans(reader);
+      });
+      this.msScans = Collections.unmodifiableList(scans);
+    } catch (MSDKException e) {
+      readerThread.shutdownNow();
+      throw e;
+    }
+    this.msFunctions = Collections.singletonList(DEFAULT_MS_FUNCTION);
   }
 
+  /** {@inheritDoc} */
+  @Override
+  @Nonnull
   public String getName() {
     return name;
   }
 
+  /** {@inheritDoc} */
+  @Override
   public Optional<File> getOriginalFile() {
     return Optional.ofNullable(sourceFile);
   }
 
+  /** {@inheritDoc} */
+  @Override
+  @Nonnull
   public FileType getRawDataFileType() {
     return fileType;
   }
 
+  /** {@inheritDoc} */
+  @SuppressWarnings("null")
+  @Override
+  @Nonnull
   public List<String> getMsFunctions() {
     return ImmutableList.copyOf(msFunctions);
   }
 
-  /** {@inheritDoc} */
+  /**
+   * {@inheritDoc}
+   *
+   * <p>
+   * The scans are ordered by their spectrum id in the mzDB file.
+   * </p>
+   */
+  @Override
+  @Nonnull
+  public List<MsScan> getScans() {
+    return msScans;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>
+   * The index only needs the spectrum headers, so building it does not read any data points.
+   * </p>
+   */
+  @Override
+  @Nonnull
+  public ScanIndex getScanIndex() {
+    ScanIndex result = scanIndex;
+    if (result == null) {
+      synchronized (this) {
+        result = scanIndex;
+        if (result == null) {
+          result = new ScanIndex(msScans);
+          scanIndex = result;
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>
+   * The total ion and base peak chromatograms of the MS1 scans are built from the spectrum headers
+   * on the first call.
+   * </p>
+   */
   @SuppressWarnings("null")
+  @Override
   @Nonnull
   public List<Chromatogram> getChromatograms() {
-    return ImmutableList.copyOf(chromatograms);
+    List<Chromatogram> result = chromatograms;
+    if (result == null) {
+      synchronized (this) {
+        result = chromatograms;
+        if (result == null) {
+          result = ImmutableList.of(buildChromatogram(ChromatogramType.TIC, 1),
+              buildChromatogram(ChromatogramType.BPC, 2));
+          chromatograms = result;
+        }
+      }
+    }
+    return result;
   }
 
-
-  public List<MsScan> getScans() {
-    return ImmutableList.copyOf(msScans);
+  /**
+   * <p>
+   * getDataCacheStats.
+   * </p>
+   *
+   * @return a {@link com.google.common.cache.CacheStats CacheStats} snapshot of the data point
+   *         cache
+   */
+  public CacheStats getDataCacheStats() {
+    return dataCache.stats();
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * <p>
+   * Closes the mzDB file. Data points of the scans cannot be read afterwards.
+   * </p>
+   */
+  @Override
   public void dispose() {
-    // TODO Auto-generated method stub
+    if (disposed)
+      return;
+    disposed = true;
+    dataCache.invalidateAll();
+    readerThread.execute(() -> reader.close());
+    readerThread.shutdown();
+  }
+
+  /**
+   * Returns the data points of the given spectrum, reading them from the file if they are not
+   * cached. Callers must not modify the returned arrays.
+   */
+  @Nonnull
+  SpectrumData getSpectrumData(long spectrumId) {
+    if (disposed)
+      throw new MSDKRuntimeException("The mzDB file " + name + " has been disposed");
+    try {
+      return dataCache.get(spectrumId, () -> read(() -> reader.getSpectrumData(spectrumId)));
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      throw new MSDKRuntimeException(e.getCause());
+    }
+  }
+
+  private List<MsScan> buildScans(MzDbReader reader) throws SQLiteException {
+    // The reader returns the headers grouped by MS level
+    SpectrumHeader[] headers = reader.getSpectrumHeaders().clone();
+    Arrays.sort(headers, Comparator.comparingLong(SpectrumHeader::getId));
+    Map<Long, DataEncoding> dataEncodings = reader.getDataEncodingBySpectrumId();
+
+    List<MsScan> scans = new ArrayList<>(headers.length);
+    for (SpectrumHeader header : headers) {
+      DataEncoding dataEncoding = dataEncodings.get(header.getId());
+      MsSpectrumType spectrumType = (dataEncoding == null
+          || dataEncoding.getMode() == DataMode.PROFILE) ? MsSpectrumType.PROFILE
+              : MsSpectrumType.CENTROIDED;
+      scans.add(new MzDBMsScan(this, header, spectrumType));
+    }
+    return scans;
+  }
+
+  private Chromatogram buildChromatogram(ChromatogramType type, int number) {
+    List<MsScan> ms1Scans = getScanIndex().getMsLevel(1).getScans();
+    float rtValues[] = new float[ms1Scans.size()];
+    float intensityValues[] = new float[ms1Scans.size()];
+    for (int i = 0; i < rtValues.length; i++) {
+      SpectrumHeader header = ((MzDBMsScan) ms1Scans.get(i)).getSpectrumHeader();
+      rtValues[i] = header.getTime();
+      intensityValues[i] =
+          type == ChromatogramType.TIC ? header.getTIC() : header.getBasePeakIntensity();
+    }
+
+    SimpleChromatogram chromatogram = new SimpleChromatogram();
+    chromatogram.setRawDataFile(this);
+    chromatogram.setChromatogramNumber(number);
+    chromatogram.setChromatogramType(type);
+    chromatogram.setSeparationType(SeparationType.UNKNOWN);
+    chromatogram.setDataPoints(rtValues, null, intensityValues, rtValues.length);
+    return chromatogram;
+  }
+
+  private <T> T read(ReaderJob<T> job) throws MSDKException {
+    Future<T> future = readerThread.submit(job::run);
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      future.cancel(false);
+      Thread.currentThread().interrupt();
+      throw new MSDKException(e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof StreamCorruptedException)
+        throw new MSDKException("Stream corrupted, detected by mzDB", cause);
+      if (cause instanceof ClassNotFoundException)
+        throw new MSDKException("Class can't be found by mzDB", cause);
+      if (cause instanceof FileNotFoundException)
+        throw new MSDKException("File Not Found / File present but inaccessible by mzDB", cause);
+      if (cause instanceof SQLiteException)
+        throw new MSDKException("SQLite Exception in mzDB", cause);
+      throw new MSDKException(cause);
+    }
+  }
+
+  private static int getSizeInBytes(SpectrumData data) {
+    int peakSize = Double.BYTES + Float.BYTES;
+    if (data.getLeftHwhmList() != null && data.getRightHwhmList() != null)
+      peakSize += 2 * Float.BYTES;
+    return data.getPeaksCount() * peakSize;
+  }
 
+  /**
+   * A read job, run on the reader thread.
+   */
+  @FunctionalInterface
+  private interface ReaderJob<T> {
+    T run() throws Exception;
   }
 
 }
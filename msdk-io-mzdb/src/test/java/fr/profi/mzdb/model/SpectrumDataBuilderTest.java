@@ -0,0 +1,62 @@
+package fr.profi.mzdb.model;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SpectrumDataBuilderTest {
+
+	@Test
+	public void testBuildWithMixedHwhms() {
+		SpectrumData firstSlice = new SpectrumData(new double[] { 400.0, 400.1 }, new float[] { 1f, 2f });
+		SpectrumData emptySlice = new SpectrumData(new double[0], new float[0]);
+		SpectrumData secondSlice = new SpectrumData(new double[] { 405.0, 405.1 }, new float[] { 3f, 4f }, new float[] { 0.01f, 0.02f },
+				new float[] { 0.03f, 0.04f });
+		SpectrumData thirdSlice = new SpectrumData(new double[] { 410.0 }, new float[] { 5f });
+
+		SpectrumDataBuilder builder = new SpectrumDataBuilder(2);
+		builder.addSpectrumData(firstSlice).addSpectrumData(null).addSpectrumData(emptySlice).addSpectrumData(secondSlice).addSpectrumData(thirdSlice);
+		Assert.assertEquals(5, builder.getPeaksCount());
+
+		SpectrumData sd = builder.build();
+		Assert.assertEquals(5, sd.getPeaksCount());
+		Assert.assertArrayEquals(new double[] { 400.0, 400.1, 405.0, 405.1, 410.0 }, sd.getMzList(), 0.0);
+		Assert.assertArrayEquals(new float[] { 1f, 2f, 3f, 4f, 5f }, sd.getIntensityList(), 0f);
+
+		// The slices without HWHM are filled with zeros
+		Assert.assertArrayEquals(new float[] { 0f, 0f, 0.01f, 0.02f, 0f }, sd.getLeftHwhmList(), 0f);
+		Assert.assertArrayEquals(new float[] { 0f, 0f, 0.03f, 0.04f, 0f }, sd.getRightHwhmList(), 0f);
+
+		// The slices are not modified
+		Assert.assertArrayEquals(new double[] { 400.0, 400.1 }, firstSlice.getMzList(), 0.0);
+		Assert.assertNull(firstSlice.getLeftHwhmList());
+		Assert.assertArrayEquals(new float[] { 0.01f, 0.02f }, secondSlice.getLeftHwhmList(), 0f);
+	}
+
+	@Test
+	public void testBuildWithoutHwhms() {
+		SpectrumDataBuilder builder = new SpectrumDataBuilder();
+		builder.addSpectrumData(new SpectrumData(new double[] { 400.0 }, new float[] { 1f }));
+		builder.addSpectrumData(new SpectrumData(new double[] { 405.0 }, new float[] { 2f }));
+
+		SpectrumData sd = builder.build();
+		Assert.assertArrayEquals(new double[] { 400.0, 405.0 }, sd.getMzList(), 0.0);
+		Assert.assertArrayEquals(new float[] { 1f, 2f }, sd.getIntensityList(), 0f);
+		Assert.assertNull(sd.getLeftHwhmList());
+		Assert.assertNull(sd.getRightHwhmList());
+	}
+
+	@Test
+	public void testBuildEmpty() {
+		SpectrumDataBuilder builder = new SpectrumDataBuilder();
+		Assert.assertEquals(0, builder.getPeaksCount());
+
+		SpectrumData sd = builder.build();
+		Assert.assertEquals(0, sd.getPeaksCount());
+		Assert.assertTrue(sd.isEmpty());
+		Assert.assertEquals(0, sd.getMzList().length);
+		Assert.assertEquals(0, sd.getIntensityList().length);
+		Assert.assertNull(sd.getLeftHwhmList());
+		Assert.assertNull(sd.getRightHwhmList());
+	}
+
+}
@@ -13,11 +13,144 @@
 
 package io.github.msdk.io.mzdb;
 
-/**
- * Hello world!
- *
- */
-public class MzDBFileExportMethodTest 
-{
+import java.io.File;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import fr.profi.mzdb.BBSizes;
+import fr.profi.mzdb.MzDbReader;
+import fr.profi.mzdb.model.Spectrum;
+import fr.profi.mzdb.util.sqlite.SQLiteQuery;
+import io.github.msdk.datamodel.FileType;
+import io.github.msdk.datamodel.MsScan;
+import io.github.msdk.datamodel.MsSpectrumType;
+import io.github.msdk.datamodel.RawDataFile;
+import io.github.msdk.datamodel.SimpleMsScan;
+import io.github.msdk.datamodel.SimpleRawDataFile;
+
+public class MzDBFileExportMethodTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testExport() throws Exception {
+    RawDataFile rawFile = MzDBFileImportMethodTest.createRawDataFile();
+    File mzDBFile = new File(folder.getRoot(), "test.mzDB");
+
+    MzDBFileExportMethod exporter = new MzDBFileExportMethod(rawFile, mzDBFile);
+    exporter.execute();
+    Assert.assertEquals(1.0, exporter.getFinishedPercentage(), 0.0001);
+    Assert.assertTrue(mzDBFile.exists());
+
+    MzDbReader reader = new MzDbReader(mzDBFile, true);
+    Assert.assertEquals(BBSizes.createDefault(), reader.getBBSizes());
+    Assert.assertEquals(MzDBFileImportMethodTest.CYCLES * 2, reader.getSpectraCount());
+
+    // 398 to 418 m/z spans the MS1 run slices of 395, 400, 405, 410 and 415 m/z
+    Assert.assertEquals(5, reader.getRunSliceHeaders(1).length);
+    Assert.assertEquals(400.0, reader.getRunSliceHeaders(1)[1].getBeginMz(), 0.0);
+    Assert.assertEquals(1, reader.getRunSliceHeaders(2).length);
+
+    // The iterator rebuilds all spectra, in order, from the bounding boxes
+    Iterator<Spectrum> spectrumIterator = reader.getSpectrumIterator();
+    for (MsScan scan : rawFile.getScans()) {
+      Assert.assertTrue(spectrumIterator.hasNext());
+      Spectrum spectrum = spectrumIterator.next();
+      Assert.assertEquals(scan.getScanNumber().intValue(), spectrum.getHeader().getInitialId());
+      Assert.assertArrayEquals(scan.getMzValues(), spectrum.getData().getMzList(), 0.0);
+    }
+    Assert.assertFalse(spectrumIterator.hasNext());
+    reader.close();
+  }
+
+  @Test
+  public void testScanBoundingBoxes() throws Exception {
+    SimpleRawDataFile rawFile = (SimpleRawDataFile) MzDBFileImportMethodTest.createRawDataFile();
+    // A scan without data points still has its own bounding box
+    SimpleMsScan emptyScan = new SimpleMsScan(MzDBFileImportMethodTest.CYCLES * 2 + 1);
+    emptyScan.setMsLevel(1);
+    emptyScan.setRetentionTime(MzDBFileImportMethodTest.CYCLES * 2f);
+    emptyScan.setSpectrumType(MsSpectrumType.PROFILE);
+    emptyScan.setDataPoints(new double[0], new float[0], 0);
+    rawFile.addScan(emptyScan);
+
+    File mzDBFile = new File(folder.getRoot(), "test.mzDB");
+    new MzDBFileExportMethod(rawFile, mzDBFile, new BBSizes(5, 10000, 0, 0)).execute();
+
+    MzDBRawDataFile mzDBRawFile = new MzDBRawDataFile(mzDBFile, true, 1 << 20);
+    Assert.assertEquals(rawFile.getScans().size(), mzDBRawFile.getScans().size());
+    for (int i = 0; i < rawFile.getScans().size(); i++)
+      MzDBFileImportMethodTest.assertSameScan(rawFile.getScans().get(i),
+          mzDBRawFile.getScans().get(i));
+    mzDBRawFile.dispose();
+  }
+
+  @Test
+  public void testRareMsLevel() throws Exception {
+    List<MsScan> scans = MzDBFileImportMethodTest.createRawDataFile().getScans();
+    // A single MS3 scan at the start doesn't keep its group open until the end
+    SimpleMsScan ms3Scan = new SimpleMsScan(MzDBFileImportMethodTest.CYCLES * 2 + 1);
+    ms3Scan.setMsLevel(3);
+    ms3Scan.setRetentionTime(0.5f);
+    ms3Scan.setSpectrumType(MsSpectrumType.CENTROIDED);
+    ms3Scan.setDataPoints(new double[] {200.0, 300.0}, new float[] {10f, 20f}, 2);
+    SimpleRawDataFile rawFile = new SimpleRawDataFile("test", Optional.empty(), FileType.MZML);
+    rawFile.addScan(scans.get(0));
+    rawFile.addScan(ms3Scan);
+    for (int i = 1; i < scans.size(); i++)
+      rawFile.addScan(scans.get(i));
+
+    File mzDBFile = new File(folder.getRoot(), "test.mzDB");
+    new MzDBFileExportMethod(rawFile, mzDBFile).execute();
+
+    MzDBRawDataFile mzDBRawFile = new MzDBRawDataFile(mzDBFile, true, 1 << 20);
+    Assert.assertEquals(rawFile.getScans().size(), mzDBRawFile.getScans().size());
+    for (int i = 0; i < rawFile.getScans().size(); i++)
+      MzDBFileImportMethodTest.assertSameScan(rawFile.getScans().get(i),
+          mzDBRawFile.getScans().get(i));
+    mzDBRawFile.dispose();
+  }
+
+  @Test
+  public void testRepeatedExport() throws Exception {
+    RawDataFile rawFile = MzDBFileImportMethodTest.createRawDataFile();
+    File mzDBFile = new File(folder.getRoot(), "test.mzDB");
+    MzDBFileExportMethod exporter = new MzDBFileExportMethod(rawFile, mzDBFile);
+    exporter.execute();
+    long firstSize = mzDBFile.length();
+
+    // The second file doesn't continue the ids of the first one
+    exporter.execute();
+    Assert.assertEquals(firstSize, mzDBFile.length());
+    MzDbReader reader = new MzDbReader(mzDBFile, true);
+    Assert.assertEquals(1, new SQLiteQuery(reader.getConnection(),
+        "SELECT min(id) FROM bounding_box").extractSingleInt());
+    Assert.assertEquals(5, reader.getRunSliceHeaders(1).length);
+    Assert.assertEquals(2, new SQLiteQuery(reader.getConnection(),
+        "SELECT count(*) FROM data_encoding").extractSingleInt());
+    Iterator<Spectrum> spectrumIterator = reader.getSpectrumIterator();
+    for (MsScan scan : rawFile.getScans())
+      Assert.assertArrayEquals(scan.getMzValues(), spectrumIterator.next().getData().getMzList(),
+          0.0);
+    Assert.assertFalse(spectrumIterator.hasNext());
+    reader.close();
+  }
+
+  @Test
+  public void testCancel() throws Exception {
+    File mzDBFile = new File(folder.getRoot(), "test.mzDB");
+    MzDBFileExportMethod exporter =
+        new MzDBFileExportMethod(MzDBFileImportMethodTest.createRawDataFile(), mzDBFile);
+    exporter.cancel();
+    Assert.assertNull(exporter.execute());
+    Assert.assertFalse(mzDBFile.exists());
+  }
 
 }
@@ -13,11 +13,359 @@
 
 package io.github.msdk.io.mzdb;
 
-/**
- * Hello world!
- *
- */
-public class MzDBFileImportMethodTest 
-{
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.Range;
+
+import fr.profi.mzdb.MzDbReader;
+import fr.profi.mzdb.XicMethod;
+import fr.profi.mzdb.io.reader.cache.BoundingBoxCache;
+import fr.profi.mzdb.io.reader.cache.MzDbEntityCache;
+import fr.profi.mzdb.io.reader.iterator.ICloseableIterator;
+import fr.profi.mzdb.model.Peak;
+import fr.profi.mzdb.model.Spectrum;
+import fr.profi.mzdb.model.SpectrumData;
+import fr.profi.mzdb.model.SpectrumSlice;
+import fr.profi.mzdb.model.XicData;
+import io.github.msdk.MSDKRuntimeException;
+import io.github.msdk.datamodel.ActivationType;
+import io.github.msdk.datamodel.Chromatogram;
+import io.github.msdk.datamodel.FileType;
+import io.github.msdk.datamodel.MsScan;
+import io.github.msdk.datamodel.MsSpectrumType;
+import io.github.msdk.datamodel.RawDataFile;
+import io.github.msdk.datamodel.SimpleActivationInfo;
+import io.github.msdk.datamodel.SimpleIsolationInfo;
+import io.github.msdk.datamodel.SimpleMsScan;
+import io.github.msdk.datamodel.SimpleRawDataFile;
+import io.github.msdk.util.RawDataFileUtil;
+
+public class MzDBFileImportMethodTest {
+
+  static final int CYCLES = 30;
+
+  private static RawDataFile expectedRawFile;
+  private static File mzDBFile;
+
+  @ClassRule
+  public static TemporaryFolder classFolder = new TemporaryFolder();
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  /**
+   * Creates cycles of one MS1 profile scan, with peaks from 398 to 418 m/z, and one MS2 centroided
+   * scan. Each cycle lasts 2 seconds, so MS1 bounding boxes hold 8 scans. loadData() exports these
+   * scans, with the default bounding box sizes, to the test.mzDB file read by the tests.
+   */
+  static RawDataFile createRawDataFile() {
+    SimpleRawDataFile rawFile = new SimpleRawDataFile("test", Optional.empty(), FileType.MZML);
+    for (int c = 0; c < CYCLES; c++) {
+      double mzValues[] = new double[200];
+      float intensityValues[] = new float[200];
+      for (int i = 0; i < 200; i++) {
+        mzValues[i] = 398.0 + i * 0.1;
+        intensityValues[i] = 1000f + ((i * 37 + c * 11) % 200) * 10f + c;
+      }
+      SimpleMsScan ms1Scan = new SimpleMsScan(2 * c + 1);
+      ms1Scan.setMsLevel(1);
+      ms1Scan.setRetentionTime(c * 2f);
+      ms1Scan.setSpectrumType(MsSpectrumType.PROFILE);
+      ms1Scan.setDataPoints(mzValues, intensityValues, 200);
+      rawFile.addScan(ms1Scan);
+
+      double precursorMz = 400.0 + c * 0.5;
+      mzValues = new double[20];
+      intensityValues = new float[20];
+      for (int i = 0; i < 20; i++) {
+        mzValues[i] = 150.0 + i * 50.0 + c * 0.01;
+        intensityValues[i] = 100f + i + c * 20f;
+      }
+      SimpleMsScan ms2Scan = new SimpleMsScan(2 * c + 2);
+      ms2Scan.setMsLevel(2);
+      ms2Scan.setRetentionTime(c * 2f + 1f);
+      ms2Scan.setSpectrumType(MsSpectrumType.CENTROIDED);
+      ms2Scan.setDataPoints(mzValues, intensityValues, 20);
+      ms2Scan.getIsolations()
+          .add(new SimpleIsolationInfo(Range.closed(precursorMz - 1.0, precursorMz + 1.0), null,
+              precursorMz, 2, new SimpleActivationInfo(35.0, ActivationType.CID), null));
+      rawFile.addScan(ms2Scan);
+    }
+    return rawFile;
+  }
+
+  static void assertSameScan(MsScan expected, MsScan actual) {
+    Assert.assertEquals(expected.getScanNumber(), actual.getScanNumber());
+    Assert.assertEquals(expected.getMsLevel(), actual.getMsLevel());
+    Assert.assertEquals(expected.getRetentionTime(), actual.getRetentionTime());
+    Assert.assertEquals(expected.getSpectrumType(), actual.getSpectrumType());
+    Assert.assertEquals(expected.getTIC(), actual.getTIC(), 0.001f);
+    Assert.assertEquals(expected.getNumberOfDataPoints(), actual.getNumberOfDataPoints());
+    Assert.assertArrayEquals(expected.getMzValues(), actual.getMzValues(), 0.0);
+    Assert.assertArrayEquals(expected.getIntensityValues(), actual.getIntensityValues(), 0f);
+    Assert.assertEquals(expected.getIsolations().size(), actual.getIsolations().size());
+    if (!expected.getIsolations().isEmpty()) {
+      Assert.assertEquals(expected.getIsolations().get(0).getPrecursorMz(),
+          actual.getIsolations().get(0).getPrecursorMz());
+      Assert.assertEquals(expected.getIsolations().get(0).getPrecursorCharge(),
+          actual.getIsolations().get(0).getPrecursorCharge());
+    }
+  }
+
+  @BeforeClass
+  public static void loadData() throws Exception {
+    expectedRawFile = createRawDataFile();
+    mzDBFile = new File(classFolder.getRoot(), "test.mzDB");
+    new MzDBFileExportMethod(expectedRawFile, mzDBFile).execute();
+  }
+
+  @Test
+  public void testImport() throws Exception {
+    MzDBFileImportMethod importer = new MzDBFileImportMethod(mzDBFile, true, 1 << 20);
+    RawDataFile rawFile = importer.execute();
+    Assert.assertEquals(1.0, importer.getFinishedPercentage(), 0.0001);
+
+    List<MsScan> expectedScans = expectedRawFile.getScans();
+    List<MsScan> scans = rawFile.getScans();
+    Assert.assertEquals(expectedScans.size(), scans.size());
+    for (int i = 0; i < scans.size(); i++)
+      assertSameScan(expectedScans.get(i), scans.get(i));
+
+    // Data points read again come from the cache
+    long hitCount = ((MzDBRawDataFile) rawFile).getDataCacheStats().hitCount();
+    scans.get(0).getMzValues();
+    Assert.assertEquals(hitCount + 1, ((MzDBRawDataFile) rawFile).getDataCacheStats().hitCount());
+
+    Assert.assertEquals(Collections.singletonList("ms"), rawFile.getMsFunctions());
+    Assert.assertEquals("ms", scans.get(0).getMsFunction());
+    Assert.assertEquals(scans, RawDataFileUtil.getScans(rawFile, "ms"));
+    Assert.assertEquals(CYCLES, rawFile.getScanIndex().getMsLevel(1).size());
+    Chromatogram tic = rawFile.getChromatograms().get(0);
+    Assert.assertEquals(CYCLES, tic.getNumberOfDataPoints().intValue());
+    Assert.assertEquals(expectedScans.get(2).getTIC(), tic.getIntensityValues()[1], 0.001f);
+
+    rawFile.dispose();
+    try {
+      scans.get(0).getMzValues();
+      Assert.fail();
+    } catch (MSDKRuntimeException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testBoundingBoxCache() throws Exception {
+    MzDbReader reader = new MzDbReader(mzDBFile, true);
+    Assert.assertNull(reader.getBoundingBoxCache());
+    reader.setBoundingBoxCache(new BoundingBoxCache(BoundingBoxCache.DEFAULT_MAXIMUM_SIZE));
+    SpectrumData data = reader.getSpectrumData(1);
+    Assert.assertArrayEquals(expectedRawFile.getScans().get(0).getMzValues(), data.getMzList(),
+        0.0);
+    long missCount = reader.getBoundingBoxCache().getMissCount();
+
+    // Spectrum 3 is stored in the same bounding boxes as spectrum 1
+    data = reader.getSpectrumData(3);
+    Assert.assertArrayEquals(expectedRawFile.getScans().get(2).getMzValues(), data.getMzList(),
+        0.0);
+    Assert.assertEquals(missCount, reader.getBoundingBoxCache().getMissCount());
+    Assert.assertTrue(reader.getBoundingBoxCache().getHitCount() > 0);
+    reader.close();
+  }
+
+  @Test
+  public void testSpectrumIteratorLastCycle() throws Exception {
+    List<MsScan> expectedScans = expectedRawFile.getScans();
+    MzDbReader reader = new MzDbReader(mzDBFile, true);
+
+    // The MS1 spectrum of the last cycle spans several bounding boxes, its MS2 spectrum only one
+    List<Spectrum> spectra = new ArrayList<>();
+    try (ICloseableIterator<Spectrum> spectrumIterator = reader.getSpectrumIterator()) {
+      while (spectrumIterator.hasNext())
+        spectra.add(spectrumIterator.next());
+    }
+    Assert.assertEquals(expectedScans.size(), spectra.size());
+    for (int i = expectedScans.size() - 2; i < expectedScans.size(); i++) {
+      Assert.assertEquals(i + 1, spectra.get(i).getHeader().getId());
+      Assert.assertArrayEquals(expectedScans.get(i).getMzValues(),
+          spectra.get(i).getData().getMzList(), 0.0);
+    }
+
+    List<Spectrum> ms1Spectra = new ArrayList<>();
+    try (ICloseableIterator<Spectrum> spectrumIterator = reader.getSpectrumIterator(1)) {
+      while (spectrumIterator.hasNext())
+        ms1Spectra.add(spectrumIterator.next());
+    }
+    Assert.assertEquals(CYCLES, ms1Spectra.size());
+    Assert.assertArrayEquals(expectedScans.get(expectedScans.size() - 2).getIntensityValues(),
+        ms1Spectra.get(CYCLES - 1).getData().getIntensityList(), 0f);
+    reader.close();
+
+    // A single cycle is stored in the first bounding box read by the iterator
+    SimpleRawDataFile rawFile = new SimpleRawDataFile("single", Optional.empty(), FileType.MZML);
+    rawFile.addScan(expectedScans.get(1));
+    File singleFile = new File(folder.getRoot(), "single.mzDB");
+    new MzDBFileExportMethod(rawFile, singleFile).execute();
+    reader = new MzDbReader(singleFile, true);
+    try (ICloseableIterator<Spectrum> spectrumIterator = reader.getSpectrumIterator()) {
+      Assert.assertTrue(spectrumIterator.hasNext());
+      Assert.assertArrayEquals(expectedScans.get(1).getMzValues(),
+          spectrumIterator.next().getData().getMzList(), 0.0);
+      Assert.assertFalse(spectrumIterator.hasNext());
+    }
+    reader.close();
+  }
+
+  @Test
+  public void testMsXics() throws Exception {
+    // The first window spans two run slices, the second and last ones are in distinct RT sub-groups
+    double mzs[] = {399.95, 407.3, 412.0, 407.35};
+    double mzTols[] = {0.12, 0.05, 0.25, 0.1};
+    float minRts[] = {0f, 10f, -1f, 40f};
+    float maxRts[] = {0f, 30f, 20f, 50f};
+
+    MzDbReader reader = new MzDbReader(mzDBFile, true);
+    for (XicMethod method : new XicMethod[] {XicMethod.MAX, XicMethod.NEAREST}) {
+      XicData xics[] = reader.getMsXics(mzs, mzTols, minRts, maxRts, method);
+      Assert.assertEquals(mzs.length, xics.length);
+      for (int i = 0; i < mzs.length; i++) {
+        Peak peaks[] = reader.getMsXic(mzs[i], mzTols[i], minRts[i], maxRts[i], 1, method);
+        Assert.assertFalse(xics[i].isEmpty());
+        Assert.assertEquals(peaks.length, xics[i].getPeaksCount());
+        for (int p = 0; p < peaks.length; p++) {
+          Assert.assertEquals(peaks[p].getLcContext().getSpectrumId(),
+              xics[i].getSpectrumIds()[p]);
+          Assert.assertEquals(peaks[p].getLcContext().getElutionTime(),
+              xics[i].getElutionTimes()[p], 0f);
+          Assert.assertEquals(peaks[p].getMz(), xics[i].getMzList()[p], 0.0);
+          Assert.assertEquals(peaks[p].getIntensity(), xics[i].getIntensityList()[p], 0f);
+        }
+      }
+    }
+
+    XicData sumXics[] = reader.getMsXics(mzs, mzTols, minRts, maxRts, XicMethod.SUM);
+    for (int i = 0; i < mzs.length; i++) {
+      Peak peaks[] = reader.getMsXic(mzs[i], mzTols[i], minRts[i], maxRts[i], 1, XicMethod.SUM);
+      Assert.assertEquals(peaks.length, sumXics[i].getPeaksCount());
+      for (int p = 0; p < peaks.length; p++) {
+        // The m/z is the one of the peak of median intensity, as for getMsXic()
+        Assert.assertEquals(peaks[p].getMz(), sumXics[i].getMzList()[p], 0.0);
+        Assert.assertEquals(peaks[p].getIntensity(), sumXics[i].getIntensityList()[p], 0.01f);
+      }
+    }
+    reader.close();
+  }
+
+  @Test
+  public void testXicTies() throws Exception {
+    // Scans of 7 to 9 peaks, with several peaks of the same intensity
+    float intensities[] = {30f, 10f, 20f, 10f, 30f, 20f, 10f, 30f, 20f};
+    SimpleRawDataFile rawFile = new SimpleRawDataFile("ties", Optional.empty(), FileType.MZML);
+    for (int s = 0; s < 12; s++) {
+      int peaksCount = 7 + s % 3;
+      double mzValues[] = new double[peaksCount];
+      float intensityValues[] = new float[peaksCount];
+      for (int i = 0; i < peaksCount; i++) {
+        mzValues[i] = 400.0 + i * 0.01;
+        intensityValues[i] = intensities[(i + s) % intensities.length];
+      }
+      SimpleMsScan scan = new SimpleMsScan(s + 1);
+      scan.setMsLevel(1);
+      scan.setRetentionTime(s * 2f);
+      scan.setSpectrumType(MsSpectrumType.CENTROIDED);
+      scan.setDataPoints(mzValues, intensityValues, peaksCount);
+      rawFile.addScan(scan);
+    }
+    File tiesFile = new File(folder.getRoot(), "ties.mzDB");
+    new MzDBFileExportMethod(rawFile, tiesFile).execute();
+
+    final double mz = 400.05, mzTol = 0.1;
+    MzDbReader reader = new MzDbReader(tiesFile, true);
+    SpectrumSlice slices[] = reader.getMsSpectrumSlices(mz - mzTol, mz + mzTol, 0f, 30f);
+    Assert.assertEquals(rawFile.getScans().size(), slices.length);
+
+    Peak maxXic[] = reader.getMsXic(mz, mzTol, 0f, 30f, 1, XicMethod.MAX);
+    Peak sumXic[] = reader.getMsXic(mz, mzTol, 0f, 30f, 1, XicMethod.SUM);
+    Assert.assertEquals(slices.length, maxXic.length);
+    Assert.assertEquals(slices.length, sumXic.length);
+    for (int i = 0; i < slices.length; i++) {
+      // The peaks stable sorted by intensity give the expected ones, the last of the most intense
+      // peaks for MAX, and the peak of median rank for SUM
+      Peak peaks[] = slices[i].toPeaks();
+      Arrays.sort(peaks, Peak.getIntensityComp());
+      Peak maxPeak = peaks[peaks.length - 1];
+      Peak medianPeak = peaks[peaks.length / 2];
+      float sum = 0f;
+      for (Peak peak : peaks)
+        sum += peak.getIntensity();
+
+      Assert.assertEquals(maxPeak.getMz(), maxXic[i].getMz(), 0.0);
+      Assert.assertEquals(maxPeak.getIntensity(), maxXic[i].getIntensity(), 0f);
+      Assert.assertEquals(medianPeak.getMz(), sumXic[i].getMz(), 0.0);
+      Assert.assertEquals(sum, sumXic[i].getIntensity(), 0f);
+    }
+    reader.close();
+  }
+
+  @Test
+  public void testParallelReads() throws Exception {
+    final int threads = 4;
+    final List<MsScan> expectedScans = expectedRawFile.getScans();
+    final MzDbReader reader = new MzDbReader(mzDBFile, new MzDbEntityCache(), false, threads);
+    final Peak expectedXic[] = reader.getMsXic(405.0, 0.05, -1f, -1f, 1, XicMethod.MAX);
+    Assert.assertEquals(threads, reader.getConnectionPool().getSize());
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads * 2);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int t = 0; t < threads * 2; t++) {
+      futures.add(executor.submit(() -> {
+        // Single spectra are read while iterating
+        try (ICloseableIterator<Spectrum> spectrumIterator = reader.getSpectrumIterator(1)) {
+          for (int i = 0; i < expectedScans.size(); i += 2) {
+            Spectrum spectrum = spectrumIterator.next();
+            Assert.assertArrayEquals(expectedScans.get(i).getMzValues(),
+                spectrum.getData().getMzList(), 0.0);
+            Assert.assertArrayEquals(expectedScans.get(i + 1).getMzValues(),
+                reader.getSpectrumData(i + 2).getMzList(), 0.0);
+          }
+          Assert.assertFalse(spectrumIterator.hasNext());
+        }
+
+        // More iterators than connections are left open, and don't block the other reads
+        ICloseableIterator<Spectrum> abandonedIterator = reader.getSpectrumIterator(1);
+        Assert.assertTrue(abandonedIterator.hasNext());
+        Assert.assertNotNull(abandonedIterator.next());
+
+        Peak xic[] = reader.getMsXic(405.0, 0.05, -1f, -1f, 1, XicMethod.MAX);
+        Assert.assertEquals(expectedXic.length, xic.length);
+        for (int p = 0; p < xic.length; p++)
+          Assert.assertEquals(expectedXic[p].getIntensity(), xic[p].getIntensity(), 0f);
+        Assert.assertEquals(expectedScans.size(), reader.getSpectraCount());
+        return null;
+      }));
+    }
+    for (Future<?> future : futures)
+      future.get();
+    executor.shutdown();
+
+    Assert.assertTrue(reader.getConnectionPool().getOpenedCount() <= threads);
+    reader.close();
+    Assert.assertEquals(0, reader.getConnectionPool().getOpenedCount());
+    Assert.assertTrue(reader.getConnection().isDisposed());
+  }
 
 }
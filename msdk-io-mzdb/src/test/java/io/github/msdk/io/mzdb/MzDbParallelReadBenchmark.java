@@ -0,0 +1,149 @@
+/*
+ * (C) Copyright 2015-2016 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+package io.github.msdk.io.mzdb;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import fr.profi.mzdb.MzDbReader;
+import fr.profi.mzdb.XicMethod;
+import fr.profi.mzdb.io.reader.cache.MzDbEntityCache;
+import fr.profi.mzdb.model.RunSliceHeader;
+import fr.profi.mzdb.model.SpectrumHeader;
+import io.github.msdk.datamodel.FileType;
+import io.github.msdk.datamodel.MsSpectrumType;
+import io.github.msdk.datamodel.SimpleMsScan;
+import io.github.msdk.datamodel.SimpleRawDataFile;
+
+/**
+ * Measures the throughput of concurrent spectrum and XIC requests on a single {@link MzDbReader},
+ * for an increasing number of threads. The reader runs the requests on one pooled connection per
+ * core. The bounding box cache is disabled, so that each request reads the file. Usage:
+ * <code>MzDbParallelReadBenchmark [file.mzDB] [numberOfRequests]</code>. Without a file, a
+ * synthetic mzDB file is written to a temporary file.
+ */
+public class MzDbParallelReadBenchmark {
+
+  private static final Logger logger = LoggerFactory.getLogger(MzDbParallelReadBenchmark.class);
+
+  public static void main(String[] args) throws Exception {
+
+    File inputFile;
+    if (args.length > 0) {
+      inputFile = new File(args[0]);
+    } else {
+      inputFile = File.createTempFile("benchmark", ".mzDB");
+      inputFile.deleteOnExit();
+      writeSyntheticFile(inputFile);
+    }
+    int numberOfRequests = 2000;
+    if (args.length > 1)
+      numberOfRequests = Integer.valueOf(args[1]);
+
+    int cores = Runtime.getRuntime().availableProcessors();
+    MzDbReader reader = new MzDbReader(inputFile, new MzDbEntityCache(), false, cores);
+
+    // Warm up
+    run(reader, 1, numberOfRequests / 10);
+    run(reader, cores, numberOfRequests / 10);
+
+    long sequentialTime = run(reader, 1, numberOfRequests);
+    logger.info(numberOfRequests + " requests on 1 thread: " + sequentialTime + "ms");
+
+    for (int parallelism = 2; parallelism < cores * 2; parallelism *= 2) {
+      int threads = Math.min(parallelism, cores);
+      long parallelTime = run(reader, threads, numberOfRequests);
+      logger.info(numberOfRequests + " requests on " + threads + " threads: " + parallelTime
+          + "ms, speedup "
+          + String.format("%.2f", (double) sequentialTime / Math.max(1, parallelTime)));
+    }
+
+    reader.close();
+  }
+
+  /**
+   * Returns the time in ms to run the requests, alternating spectrum reads and XIC extractions,
+   * on the given number of threads.
+   */
+  private static long run(final MzDbReader reader, int threads, int numberOfRequests)
+      throws Exception {
+    final SpectrumHeader spectrumHeaders[] = reader.getSpectrumHeaders();
+    final RunSliceHeader runSliceHeaders[] = reader.getRunSliceHeaders(1);
+    final double minMz = runSliceHeaders[0].getBeginMz();
+    final double maxMz = runSliceHeaders[runSliceHeaders.length - 1].getEndMz();
+    final int requestsPerThread = numberOfRequests / threads;
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      long startTime = System.currentTimeMillis();
+      List<Future<Integer>> futures = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        final Random random = new Random(t);
+        futures.add(executor.submit(() -> {
+          int peaksCount = 0;
+          for (int i = 0; i < requestsPerThread; i++) {
+            if (i % 2 == 0) {
+              long spectrumId = spectrumHeaders[random.nextInt(spectrumHeaders.length)].getId();
+              peaksCount += reader.getSpectrumData(spectrumId).getPeaksCount();
+            } else {
+              double mz = minMz + random.nextDouble() * (maxMz - minMz);
+              peaksCount += reader.getMsXic(mz, 0.01, -1, -1, 1, XicMethod.MAX).length;
+            }
+          }
+          return peaksCount;
+        }));
+      }
+      for (Future<Integer> future : futures)
+        future.get();
+      long endTime = System.currentTimeMillis();
+
+      return endTime - startTime;
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * Writes an LC-MS run of 2000 MS1 profile scans of 5000 points each.
+   */
+  private static void writeSyntheticFile(File file) throws Exception {
+    Random random = new Random(0);
+    SimpleRawDataFile rawFile = new SimpleRawDataFile("benchmark", Optional.empty(), FileType.MZDB);
+    for (int s = 0; s < 2000; s++) {
+      double mzValues[] = new double[5000];
+      float intensityValues[] = new float[5000];
+      for (int i = 0; i < 5000; i++) {
+        mzValues[i] = 300.0 + i * 0.3 + random.nextDouble() * 0.1;
+        intensityValues[i] = random.nextFloat() * 1e6f;
+      }
+      SimpleMsScan scan = new SimpleMsScan(s + 1);
+      scan.setMsLevel(1);
+      scan.setRetentionTime(s * 0.5f);
+      scan.setSpectrumType(MsSpectrumType.PROFILE);
+      scan.setDataPoints(mzValues, intensityValues, 5000);
+      rawFile.addScan(scan);
+    }
+    new MzDBFileExportMethod(rawFile, file).execute();
+  }
+
+}
@@ -17,9 +17,14 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.security.DigestOutputStream;
 import java.security.MessageDigest;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import javax.annotation.Nonnull;
 
@@ -27,6 +32,8 @@ import org.apache.commons.codec.digest.DigestUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.io.CountingOutputStream;
+
 import io.github.msdk.MSDKException;
 import io.github.msdk.MSDKMethod;
 import io.github.msdk.datamodel.ActivationInfo;
@@ -79,8 +86,9 @@ public class MzMLFileExportMethod implements MSDKMethod<Void> {
   private final @Nonnull File target;
   private final @Nonnull MzMLCompressionType doubleArrayCompression;
   private final @Nonnull MzMLCompressionType floatArrayCompression;
+  private final int parallelism;
 
-  private boolean canceled = false;
+  private volatile boolean canceled = false;
 
   private long totalScans = 0, totalChromatograms = 0, parsedScans, parsedChromatograms,
       indexListOffset;
@@ -99,10 +107,33 @@ public class MzMLFileExportMethod implements MSDKMethod<Void> {
   public MzMLFileExportMethod(@Nonnull RawDataFile rawDataFile, @Nonnull File target,
       @Nonnull MzMLCompressionType doubleArrayCompression,
       MzMLCompressionType floatArrayCompression) {
+    this(rawDataFile, target, doubleArrayCompression, floatArrayCompression,
+        Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * <p>
+   * Constructor for MzMLFileExportMethod.
+   * </p>
+   *
+   * @param rawDataFile the input {@link o.github.msdk.datamodel.rawdata.RawDataFile RawDataFile}
+   *        which contains the data to be exported
+   * @param target the target {@link java.io.File File} to write the data, in mzML format
+   * @param doubleArrayCompression compression type for <code>double[]</code> which are encoded
+   * @param floatArrayCompression compression type for <code>float[]</code> which are encoded
+   * @param parallelism the number of threads encoding the data arrays, while the file is written by
+   *        the calling thread
+   */
+  public MzMLFileExportMethod(@Nonnull RawDataFile rawDataFile, @Nonnull File target,
+      @Nonnull MzMLCompressionType doubleArrayCompression,
+      MzMLCompressionType floatArrayCompression, int parallelism) {
+    if (parallelism < 1)
+      throw new IllegalArgumentException("parallelism must be positive");
     this.rawDataFile = rawDataFile;
     this.target = target;
     this.doubleArrayCompression = doubleArrayCompression;
     this.floatArrayCompression = floatArrayCompression;
+    this.parallelism = parallelism;
   }
 
   /**
@@ -128,14 +159,22 @@ public class MzMLFileExportMethod implements MSDKMethod<Void> {
     List<Long> spectrumIndices = new ArrayList<>();
     List<Long> chromatogramIndices = new ArrayList<>();
 
+    // The data arrays are encoded ahead by the pool, while this thread writes them in order. At
+    // most maxEncoded scans or chromatograms are encoded but not yet written.
+    final ForkJoinPool pool = new ForkJoinPool(parallelism);
+    final int maxEncoded = parallelism * 2;
+    final Deque<Future<byte[][]>> encoded = new ArrayDeque<>();
+    char[] charBuffer = new char[0];
+
     try {
 
       FileOutputStream fos = new FileOutputStream(target);
       MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
       DigestOutputStream dos = new DigestOutputStream(fos, sha1);
       dos.on(true);
+      CountingOutputStream cos = new CountingOutputStream(dos);
       XMLStreamWriterImpl xmlStreamWriter = new XMLStreamWriterImpl();
-      xmlStreamWriter.setOutput(dos);
+      xmlStreamWriter.setOutput(cos);
 
       // Setting namespace and prefixes
       xmlStreamWriter.setDefaultNamespace(MZML_NAMESPACE);
@@ -201,19 +240,29 @@ public class MzMLFileExportMethod implements MSDKMethod<Void> {
 
       byte[] mzBuffer = null;
       byte[] intensityBuffer = null;
+      int encodedScans = 0;
 
       for (MsScan scan : scans) {
 
+        while (encodedScans < scans.size() && encodedScans < parsedScans + maxEncoded) {
+          final MsScan nextScan = scans.get(encodedScans++);
+          encoded.add(pool.submit(() -> new byte[][] {
+              MzMLPeaksEncoder.encodeDouble(nextScan.getMzValues(), doubleArrayCompression),
+              MzMLPeaksEncoder.encodeFloat(nextScan.getIntensityValues(),
+                  floatArrayCompression)}));
+        }
+        final byte[][] scanBuffers = encoded.remove().get();
+
         if (canceled) {
+          xmlStreamWriter.close();
           dos.close();
           fos.close();
-          xmlStreamWriter.close();
           target.delete();
           return null;
         }
 
         // <spectrum>
-        spectrumIndices.add(xmlStreamWriter.getLocation().getCharacterOffsetInLong());
+        spectrumIndices.add(getByteOffset(xmlStreamWriter, cos));
         xmlStreamWriter.writeStartElement(MzMLTags.TAG_SPECTRUM);
         xmlStreamWriter.writeAttribute(MzMLTags.ATTR_INDEX, String.valueOf(parsedScans));
         xmlStreamWriter.writeAttribute(MzMLTags.ATTR_ID, "scan=" + scan.getScanNumber());
@@ -422,7 +471,7 @@ public class MzMLFileExportMethod implements MSDKMethod<Void> {
         xmlStreamWriter.writeAttribute(MzMLTags.ATTR_COUNT, "2");
 
         // <binaryDataArray> (m/z)
-        mzBuffer = MzMLPeaksEncoder.encodeDouble(scan.getMzValues(), doubleArrayCompression);
+        mzBuffer = scanBuffers[0];
         xmlStreamWriter.writeStartElement(MzMLTags.TAG_BINARY_DATA_ARRAY);
         xmlStreamWriter.writeAttribute(MzMLTags.ATTR_ENCODED_LENGTH,
             String.valueOf(mzBuffer.length));
@@ -441,15 +490,14 @@ public class MzMLFileExportMethod implements MSDKMethod<Void> {
 
         // <binary>
         xmlStreamWriter.writeStartElement(MzMLTags.TAG_BINARY);
-        xmlStreamWriter.writeCharacters(new String(mzBuffer));
+        charBuffer = writeBinary(xmlStreamWriter, mzBuffer, charBuffer);
 
         // Closing tags
         xmlStreamWriter.writeEndElement(); // </binary>
         xmlStreamWriter.writeEndElement(); // </binaryDataArray>
 
         // <binaryDataArray> (intensity)
-        intensityBuffer =
-            MzMLPeaksEncoder.encodeFloat(scan.getIntensityValues(), floatArrayCompression);
+        intensityBuffer = scanBuffers[1];
         xmlStreamWriter.writeStartElement(MzMLTags.TAG_BINARY_DATA_ARRAY);
         xmlStreamWriter.writeAttribute(MzMLTags.ATTR_ENCODED_LENGTH,
             String.valueOf(intensityBuffer.length));
@@ -468,7 +516,7 @@ public class MzMLFileExportMethod implements MSDKMethod<Void> {
 
         // <binary>
         xmlStreamWriter.writeStartElement(MzMLTags.TAG_BINARY);
-        xmlStreamWriter.writeCharacters(new String(intensityBuffer));
+        charBuffer = writeBinary(xmlStreamWriter, intensityBuffer, charBuffer);
 
         // Closing tags
         xmlStreamWriter.writeEndElement(); // </binary>
@@ -492,18 +540,30 @@ public class MzMLFileExportMethod implements MSDKMethod<Void> {
 
       byte[] rtBuffer = null;
       byte[] intensityBuffer2 = null;
+      int encodedChromatograms = 0;
 
       for (Chromatogram chromatogram : chromatograms) {
+
+        while (encodedChromatograms < chromatograms.size()
+            && encodedChromatograms < parsedChromatograms + maxEncoded) {
+          final Chromatogram nextChromatogram = chromatograms.get(encodedChromatograms++);
+          encoded.add(pool.submit(() -> new byte[][] {
+              MzMLPeaksEncoder.encodeFloat(nextChromatogram.getRetentionTimes(null),
+                  floatArrayCompression),
+              MzMLPeaksEncoder.encodeFloat(nextChromatogram.getIntensityValues(),
+                  floatArrayCompression)}));
+        }
+        final byte[][] chromatogramBuffers = encoded.remove().get();
         if (canceled) {
+          xmlStreamWriter.close();
           dos.close();
           fos.close();
-          xmlStreamWriter.close();
           target.delete();
           return null;
         }
 
         // <chromatogram>
-        chromatogramIndices.add(xmlStreamWriter.getLocation().getCharacterOffsetInLong());
+        chromatogramIndices.add(getByteOffset(xmlStreamWriter, cos));
         xmlStreamWriter.writeStartElement(MzMLTags.TAG_CHROMATOGRAM);
         xmlStreamWriter.writeAttribute(MzMLTags.ATTR_INDEX, String.valueOf(parsedChromatograms));
         xmlStreamWriter.writeAttribute(MzMLTags.ATTR_ID, chromatogram.getChromatogramType().name());
@@ -598,8 +658,7 @@ public class MzMLFileExportMethod implements MSDKMethod<Void> {
         xmlStreamWriter.writeAttribute(MzMLTags.ATTR_COUNT, "2");
 
         // <binaryDataArray> (time)
-        rtBuffer = MzMLPeaksEncoder.encodeFloat(chromatogram.getRetentionTimes(null),
-            floatArrayCompression);
+        rtBuffer = chromatogramBuffers[0];
         xmlStreamWriter.writeStartElement(MzMLTags.TAG_BINARY_DATA_ARRAY);
         xmlStreamWriter.writeAttribute(MzMLTags.ATTR_ENCODED_LENGTH,
             String.valueOf(rtBuffer.length));
@@ -618,15 +677,14 @@ public class MzMLFileExportMethod implements MSDKMethod<Void> {
 
         // <binary>
         xmlStreamWriter.writeStartElement(MzMLTags.TAG_BINARY);
-        xmlStreamWriter.writeCharacters(new String(rtBuffer));
+        charBuffer = writeBinary(xmlStreamWriter, rtBuffer, charBuffer);
 
         // Closing tags
         xmlStreamWriter.writeEndElement(); // </binary>
         xmlStreamWriter.writeEndElement(); // </binaryDataArray>
 
         // <binaryDataArray> (intensity)
-        intensityBuffer2 =
-            MzMLPeaksEncoder.encodeFloat(chromatogram.getIntensityValues(), floatArrayCompression);
+        intensityBuffer2 = chromatogramBuffers[1];
         xmlStreamWriter.writeStartElement(MzMLTags.TAG_BINARY_DATA_ARRAY);
         xmlStreamWriter.writeAttribute(MzMLTags.ATTR_ENCODED_LENGTH,
             String.valueOf(intensityBuffer2.length));
@@ -645,7 +703,7 @@ public class MzMLFileExportMethod implements MSDKMethod<Void> {
 
         // <binary>
         xmlStreamWriter.writeStartElement(MzMLTags.TAG_BINARY);
-        xmlStreamWriter.writeCharacters(new String(intensityBuffer2));
+        charBuffer = writeBinary(xmlStreamWriter, intensityBuffer2, charBuffer);
 
         // Closing tags
         xmlStreamWriter.writeEndElement(); // </binary>
@@ -662,7 +720,7 @@ public class MzMLFileExportMethod implements MSDKMethod<Void> {
       xmlStreamWriter.writeEndElement(); // </mzML>
 
       // <indexList>
-      indexListOffset = xmlStreamWriter.getLocation().getCharacterOffsetInLong();
+      indexListOffset = getByteOffset(xmlStreamWriter, cos);
       xmlStreamWriter.writeStartElement(MzMLTags.TAG_INDEX_LIST);
       xmlStreamWriter.writeAttribute(MzMLTags.ATTR_COUNT, "2");
 
@@ -715,10 +773,14 @@ public class MzMLFileExportMethod implements MSDKMethod<Void> {
       xmlStreamWriter.writeEndDocument();
       xmlStreamWriter.close();
 
+    } catch (ExecutionException e) {
+      throw new MSDKException(e.getCause());
     } catch (
 
     Exception e) {
       throw new MSDKException(e);
+    } finally {
+      pool.shutdownNow();
     }
 
     return null;
@@ -743,6 +805,51 @@ public class MzMLFileExportMethod implements MSDKMethod<Void> {
     this.canceled = true;
   }
 
+  /**
+   * <p>
+   * Get the byte offset at which the next element will be written. The character offset reported
+   * by the <code>xmlStreamWriter</code> is off by one after an end element, and counts characters
+   * instead of bytes.
+   * </p>
+   *
+   * @param xmlStreamWriter an {@link javolution.xml.internal.stream.XMLStreamWriterImpl
+   *        XMLStreamWriterImpl} instance
+   * @param cos the {@link com.google.common.io.CountingOutputStream CountingOutputStream} the
+   *        <code>xmlStreamWriter</code> writes to
+   * @return the byte offset of the next element
+   * @throws XMLStreamException
+   */
+  private long getByteOffset(XMLStreamWriterImpl xmlStreamWriter, CountingOutputStream cos)
+      throws XMLStreamException {
+    // Closes a pending start tag, so its '>' is counted
+    xmlStreamWriter.writeCharacters("");
+    xmlStreamWriter.flush();
+    return cos.getCount();
+  }
+
+  /**
+   * <p>
+   * Write the Base64 encoded content of a <code>&lt;binary&gt;</code> element, without creating a
+   * {@link java.lang.String String} of it.
+   * </p>
+   *
+   * @param xmlStreamWriter an {@link javolution.xml.internal.stream.XMLStreamWriterImpl
+   *        XMLStreamWriterImpl} instance
+   * @param base64 the Base64 characters
+   * @param charBuffer a buffer to reuse, if large enough
+   * @return the buffer used, to be passed to the next call
+   * @throws XMLStreamException
+   */
+  private char[] writeBinary(XMLStreamWriterImpl xmlStreamWriter, byte[] base64,
+      char[] charBuffer) throws XMLStreamException {
+    if (charBuffer.length < base64.length)
+      charBuffer = new char[base64.length];
+    for (int i = 0; i < base64.length; i++)
+      charBuffer[i] = (char) base64[i];
+    xmlStreamWriter.writeCharacters(charBuffer, 0, base64.length);
+    return charBuffer;
+  }
+
   /**
    * <p>
    * Write a <code>&lt;cvParam&gt;</code> to the <code>xmlStreamWriter</code>
@@ -17,6 +17,10 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Predicate;
 
 import org.slf4j.Logger;
@@ -27,10 +31,12 @@ import io.github.msdk.MSDKMethod;
 import io.github.msdk.datamodel.Chromatogram;
 import io.github.msdk.datamodel.MsScan;
 import io.github.msdk.datamodel.RawDataFile;
+import io.github.msdk.io.mzml.data.MzMLIndex;
 import io.github.msdk.io.mzml.data.MzMLParser;
 import io.github.msdk.io.mzml.data.MzMLRawDataFile;
 import io.github.msdk.io.mzml.util.ByteBufferInputStream;
 import io.github.msdk.io.mzml.util.FileMemoryMapper;
+import io.github.msdk.util.ParallelUtil;
 import javolution.text.CharArray;
 import javolution.xml.internal.stream.XMLStreamReaderImpl;
 import javolution.xml.stream.XMLStreamConstants;
@@ -54,11 +60,13 @@ public class MzMLFileImportMethod implements MSDKMethod<RawDataFile> {
   final InputStream inputStream;
   private MzMLRawDataFile newRawFile;
   private volatile boolean canceled;
-  private Float progress;
+  private volatile Float progress;
   private int lastLoggedProgress;
   private Logger logger;
   private Predicate<MsScan> msScanPredicate = s -> true;
   private Predicate<Chromatogram> chromatogramPredicate = c -> true;
+  private final MzMLImportMode importMode;
+  private final int parallelism;
 
   /**
    * <p>
@@ -137,6 +145,35 @@ public class MzMLFileImportMethod implements MSDKMethod<RawDataFile> {
     this(mzMLFile, null, s -> false, c -> false);
   }
 
+  /**
+   * <p>
+   * Constructor for MzMLFileImportMethod.
+   * </p>
+   *
+   * @param mzMLFile a {@link java.io.File File} object instance of the MzML File.
+   * @param importMode the {@link io.github.msdk.io.mzml.MzMLImportMode MzMLImportMode} used to
+   *        read the file
+   */
+  public MzMLFileImportMethod(File mzMLFile, MzMLImportMode importMode) {
+    this(mzMLFile, null, s -> false, c -> false, importMode,
+        Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * <p>
+   * Constructor for MzMLFileImportMethod.
+   * </p>
+   *
+   * @param mzMLFile a {@link java.io.File File} object instance of the MzML File.
+   * @param importMode the {@link io.github.msdk.io.mzml.MzMLImportMode MzMLImportMode} used to
+   *        read the file
+   * @param parallelism the number of threads used in
+   *        {@link io.github.msdk.io.mzml.MzMLImportMode#PARALLEL PARALLEL} mode
+   */
+  public MzMLFileImportMethod(File mzMLFile, MzMLImportMode importMode, int parallelism) {
+    this(mzMLFile, null, s -> false, c -> false, importMode, parallelism);
+  }
+
   /**
    * <p>
    * Constructor for MzMLFileImportMethod.
@@ -197,6 +234,20 @@ public class MzMLFileImportMethod implements MSDKMethod<RawDataFile> {
    */
   private MzMLFileImportMethod(File mzMLFile, InputStream inputStream,
       Predicate<MsScan> msScanPredicate, Predicate<Chromatogram> chromatogramPredicate) {
+    this(mzMLFile, inputStream, msScanPredicate, chromatogramPredicate,
+        MzMLImportMode.SEQUENTIAL, 1);
+  }
+
+  /**
+   * <p>
+   * Internal constructor used to initialize instances of this object using other constructors.
+   * </p>
+   */
+  private MzMLFileImportMethod(File mzMLFile, InputStream inputStream,
+      Predicate<MsScan> msScanPredicate, Predicate<Chromatogram> chromatogramPredicate,
+      MzMLImportMode importMode, int parallelism) {
+    if (parallelism < 1)
+      throw new IllegalArgumentException("parallelism must be positive");
     this.mzMLFile = mzMLFile;
     this.inputStream = inputStream;
     this.canceled = false;
@@ -205,6 +256,8 @@ public class MzMLFileImportMethod implements MSDKMethod<RawDataFile> {
     this.logger = LoggerFactory.getLogger(this.getClass());
     this.msScanPredicate = this.msScanPredicate.and(msScanPredicate);
     this.chromatogramPredicate = this.chromatogramPredicate.and(chromatogramPredicate);
+    this.importMode = importMode;
+    this.parallelism = parallelism;
   }
 
   /**
@@ -227,6 +280,16 @@ public class MzMLFileImportMethod implements MSDKMethod<RawDataFile> {
       if (mzMLFile != null) {
         logger.info("Began parsing file: " + mzMLFile.getAbsolutePath());
         is = FileMemoryMapper.mapToMemory(mzMLFile);
+
+        if (importMode == MzMLImportMode.INDEXED) {
+          MzMLRawDataFile indexedRawFile = openIndexed((ByteBufferInputStream) is);
+          if (indexedRawFile != null)
+            return indexedRawFile;
+          logger.info("No valid index found, parsing the whole file");
+        }
+
+        if (importMode == MzMLImportMode.PARALLEL)
+          return parseParallel((ByteBufferInputStream) is);
       } else if (inputStream != null) {
         logger.info("Began parsing file from stream");
         is = inputStream;
@@ -297,6 +360,91 @@ public class MzMLFileImportMethod implements MSDKMethod<RawDataFile> {
     return newRawFile;
   }
 
+  /**
+   * <p>
+   * Open the mzML file using its offset index, if it has a valid one. Only the index and the
+   * meta-data preceding the spectra are parsed here.
+   * </p>
+   *
+   * @return the {@link io.github.msdk.io.mzml.data.MzMLRawDataFile MzMLRawDataFile}, or null if
+   *         the file has to be parsed sequentially
+   */
+  private MzMLRawDataFile openIndexed(ByteBufferInputStream is) throws XMLStreamException {
+    Optional<MzMLIndex> index = MzMLIndex.read(is);
+    if (!index.isPresent())
+      return null;
+
+    MzMLParser parser = new MzMLParser(this, index.get(), is);
+    if (!parser.processHeader()
+        && index.get().getSpectrumCount() + index.get().getChromatogramCount() > 0)
+      return null;
+
+    this.newRawFile = parser.getMzMLRawFile();
+    progress = 1f;
+    logger.info("Opened indexed file with " + index.get().getSpectrumCount() + " spectra and "
+        + index.get().getChromatogramCount() + " chromatograms");
+    return newRawFile;
+  }
+
+  /**
+   * <p>
+   * Parse the mzML file on <code>parallelism</code> threads. The spectra and chromatograms are
+   * split into chunks of consecutive elements, each chunk is parsed by its own
+   * {@link io.github.msdk.io.mzml.data.MzMLParser MzMLParser} and the results are added to the raw
+   * data file in the order of the chunks.
+   * </p>
+   *
+   * @return the {@link io.github.msdk.io.mzml.data.MzMLRawDataFile MzMLRawDataFile}, or null if
+   *         parsing was canceled
+   */
+  private MzMLRawDataFile parseParallel(ByteBufferInputStream is)
+      throws MSDKException, XMLStreamException {
+    final MzMLIndex index = MzMLIndex.read(is).orElseGet(() -> MzMLIndex.scan(is));
+    final long[] spectrumOffsets = new long[index.getSpectrumCount()];
+    for (int i = 0; i < spectrumOffsets.length; i++)
+      spectrumOffsets[i] = index.getSpectrumOffset(i);
+    final long[] chromatogramOffsets = new long[index.getChromatogramCount()];
+    for (int i = 0; i < chromatogramOffsets.length; i++)
+      chromatogramOffsets[i] = index.getChromatogramOffset(i);
+
+    final MzMLParser parser = new MzMLParser(this, is);
+    parser.processHeader();
+    this.newRawFile = parser.getMzMLRawFile();
+
+    final int total = spectrumOffsets.length + chromatogramOffsets.length;
+    final AtomicInteger parsed = new AtomicInteger();
+
+    final List<List<MsScan>> spectrumChunks =
+        ParallelUtil.mapChunks(spectrumOffsets.length, parallelism, (from, to) -> {
+          if (canceled)
+            return Collections.<MsScan>emptyList();
+          List<MsScan> spectra = parser.createWorker().parseSpectra(spectrumOffsets, from, to);
+          progress = (float) parsed.addAndGet(to - from) / total;
+          return spectra;
+        });
+    if (canceled)
+      return null;
+    for (List<MsScan> chunk : spectrumChunks)
+      parser.addSpectra(chunk);
+
+    final List<List<Chromatogram>> chromatogramChunks =
+        ParallelUtil.mapChunks(chromatogramOffsets.length, parallelism, (from, to) -> {
+          if (canceled)
+            return Collections.<Chromatogram>emptyList();
+          List<Chromatogram> chromatograms =
+              parser.createWorker().parseChromatograms(chromatogramOffsets, from, to);
+          progress = (float) parsed.addAndGet(to - from) / total;
+          return chromatograms;
+        });
+    if (canceled)
+      return null;
+    for (List<Chromatogram> chunk : chromatogramChunks)
+      parser.addChromatograms(chunk);
+
+    progress = 1f;
+    logger.info("Parsing Complete");
+    return newRawFile;
+  }
 
   /** {@inheritDoc} */
   @Override
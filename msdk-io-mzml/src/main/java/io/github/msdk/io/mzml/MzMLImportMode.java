@@ -0,0 +1,42 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+package io.github.msdk.io.mzml;
+
+/**
+ * <p>
+ * Determines how {@link io.github.msdk.io.mzml.MzMLFileImportMethod MzMLFileImportMethod} reads an
+ * mzML {@link java.io.File File}.
+ * </p>
+ */
+public enum MzMLImportMode {
+
+  /**
+   * Parse the whole file from start to end.
+   */
+  SEQUENTIAL,
+
+  /**
+   * Read only the offset index of an indexedmzML file, and parse each spectrum and chromatogram on
+   * its first access. Falls back to {@link #SEQUENTIAL} if the file has no valid index.
+   */
+  INDEXED,
+
+  /**
+   * Split the file on spectrum and chromatogram boundaries, found in the offset index or by a fast
+   * scan of the file, and parse the chunks on several threads. The result is the same as with
+   * {@link #SEQUENTIAL}.
+   */
+  PARALLEL;
+
+}
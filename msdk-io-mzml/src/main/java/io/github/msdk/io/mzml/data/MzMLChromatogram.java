@@ -13,6 +13,7 @@
 
 package io.github.msdk.io.mzml.data;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -20,6 +21,7 @@ import java.util.List;
 import java.util.Optional;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.zip.DataFormatException;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -29,6 +31,7 @@ import org.slf4j.LoggerFactory;
 
 import com.google.common.collect.Range;
 
+import io.github.msdk.MSDKException;
 import io.github.msdk.MSDKRuntimeException;
 import io.github.msdk.datamodel.ActivationInfo;
 import io.github.msdk.datamodel.ActivationType;
@@ -41,6 +44,7 @@ import io.github.msdk.datamodel.SeparationType;
 import io.github.msdk.datamodel.SimpleActivationInfo;
 import io.github.msdk.datamodel.SimpleIsolationInfo;
 import io.github.msdk.io.mzml.MzMLFileImportMethod;
+import io.github.msdk.io.mzml.util.ByteBufferInputStream;
 
 class MzMLChromatogram implements Chromatogram {
 
@@ -385,25 +389,24 @@ class MzMLChromatogram implements Chromatogram {
   @Override
   @Nonnull
   public float[] getRetentionTimes(@Nullable float array[]) {
-    if (rtValues == null) {
-      if (getRtBinaryDataInfo().getArrayLength() != numOfDataPoints) {
-        logger.warn(
-            "Retention time binary data array contains a different array length from the default array length of the scan (#"
-                + getChromatogramNumber() + ")");
-      }
-
-      try {
-        rtValues = MzMLPeaksDecoder.decodeToFloat(inputStream, getRtBinaryDataInfo(), array);
-      } catch (Exception e) {
-        throw (new MSDKRuntimeException(e));
+    final float[] values;
+    if (inputStream instanceof ByteBufferInputStream) {
+      values = dataFile.getPeaksCache().getFloats(getRtBinaryDataInfo(), this::decodeRtValues);
+    } else {
+      if (rtValues == null) {
+        try {
+          rtValues = decodeRtValues();
+        } catch (Exception e) {
+          throw (new MSDKRuntimeException(e));
+        }
       }
+      values = rtValues;
     }
 
-    if (array == null || array.length < numOfDataPoints) {
+    if (array == null || array.length < numOfDataPoints)
       array = new float[numOfDataPoints];
 
-      System.arraycopy(rtValues, 0, array, 0, numOfDataPoints);
-    }
+    System.arraycopy(values, 0, array, 0, Math.min(values.length, numOfDataPoints));
 
     return array;
   }
@@ -412,30 +415,66 @@ class MzMLChromatogram implements Chromatogram {
   @Override
   @Nonnull
   public float[] getIntensityValues(@Nullable float[] array) {
-    if (intensityValues == null) {
-      if (getIntensityBinaryDataInfo().getArrayLength() != numOfDataPoints) {
-        logger.warn(
-            "Intensity binary data array contains a different array length from the default array length of the chromatogram (#"
-                + getChromatogramNumber() + ")");
-      }
-
-      try {
-        intensityValues =
-            MzMLPeaksDecoder.decodeToFloat(inputStream, getIntensityBinaryDataInfo(), array);
-      } catch (Exception e) {
-        throw (new MSDKRuntimeException(e));
+    final float[] values;
+    if (inputStream instanceof ByteBufferInputStream) {
+      values = dataFile.getPeaksCache().getFloats(getIntensityBinaryDataInfo(),
+          this::decodeIntensityValues);
+    } else {
+      if (intensityValues == null) {
+        try {
+          intensityValues = decodeIntensityValues();
+        } catch (Exception e) {
+          throw (new MSDKRuntimeException(e));
+        }
       }
+      values = intensityValues;
     }
 
-    if (array == null || array.length < numOfDataPoints) {
+    if (array == null || array.length < numOfDataPoints)
       array = new float[numOfDataPoints];
 
-      System.arraycopy(intensityValues, 0, array, 0, numOfDataPoints);
-    }
+    System.arraycopy(values, 0, array, 0, Math.min(values.length, numOfDataPoints));
 
     return array;
   }
 
+  /**
+   * <p>
+   * Removes the decoded retention time and intensity values of this chromatogram from the
+   * {@link io.github.msdk.io.mzml.data.MzMLPeaksCache MzMLPeaksCache}.
+   * </p>
+   */
+  void invalidateCachedValues() {
+    if (!(inputStream instanceof ByteBufferInputStream))
+      return;
+    if (rtBinaryDataInfo != null)
+      dataFile.getPeaksCache().invalidate(rtBinaryDataInfo);
+    if (intensityBinaryDataInfo != null)
+      dataFile.getPeaksCache().invalidate(intensityBinaryDataInfo);
+  }
+
+  private float[] decodeRtValues() throws DataFormatException, IOException, MSDKException {
+    if (getRtBinaryDataInfo().getArrayLength() != numOfDataPoints) {
+      logger.warn(
+          "Retention time binary data array contains a different array length from the default array length of the scan (#"
+              + getChromatogramNumber() + ")");
+    }
+
+    // Decoding does not move the position of the stream shared by all chromatograms of a mapped
+    // file
+    return MzMLPeaksDecoder.decodeToFloat(inputStream, getRtBinaryDataInfo(), null);
+  }
+
+  private float[] decodeIntensityValues() throws DataFormatException, IOException, MSDKException {
+    if (getIntensityBinaryDataInfo().getArrayLength() != numOfDataPoints) {
+      logger.warn(
+          "Intensity binary data array contains a different array length from the default array length of the chromatogram (#"
+              + getChromatogramNumber() + ")");
+    }
+
+    return MzMLPeaksDecoder.decodeToFloat(inputStream, getIntensityBinaryDataInfo(), null);
+  }
+
   /** {@inheritDoc} */
   @Override
   @Nullable
@@ -0,0 +1,379 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+package io.github.msdk.io.mzml.data;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import javax.annotation.Nonnull;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.github.msdk.io.mzml.util.ByteBufferInputStream;
+import javolution.text.CharArray;
+import javolution.xml.internal.stream.XMLStreamReaderImpl;
+import javolution.xml.stream.XMLStreamConstants;
+import javolution.xml.stream.XMLStreamException;
+
+/**
+ * <p>
+ * The offset index of an indexedmzML file, i.e. the byte offsets of every
+ * <code>&lt;spectrum&gt;</code> and <code>&lt;chromatogram&gt;</code> element listed in the
+ * <code>&lt;indexList&gt;</code> at the end of the file.
+ * </p>
+ */
+public class MzMLIndex {
+
+  /** The number of bytes at the end of the file searched for <code>indexListOffset</code> */
+  private static final int TRAILER_LENGTH = 4096;
+
+  /** The number of bytes read at once by {@link #scan(ByteBufferInputStream)} */
+  private static final int SCAN_BLOCK_LENGTH = 1 << 20;
+
+  /** The maximum length of an opening tag whose <code>id</code> is read in the same block */
+  private static final int SCAN_TAG_LENGTH = 4096;
+
+  private static final Logger logger = LoggerFactory.getLogger(MzMLIndex.class);
+
+  private final @Nonnull List<String> spectrumIds;
+  private final @Nonnull long[] spectrumOffsets;
+  private final @Nonnull List<String> chromatogramIds;
+  private final @Nonnull long[] chromatogramOffsets;
+
+  private MzMLIndex(List<String> spectrumIds, long[] spectrumOffsets,
+      List<String> chromatogramIds, long[] chromatogramOffsets) {
+    this.spectrumIds = Collections.unmodifiableList(spectrumIds);
+    this.spectrumOffsets = spectrumOffsets;
+    this.chromatogramIds = Collections.unmodifiableList(chromatogramIds);
+    this.chromatogramOffsets = chromatogramOffsets;
+  }
+
+  /**
+   * <p>
+   * Reads the offset index of the given mzML data. Only the trailing
+   * <code>&lt;indexListOffset&gt;</code> and the <code>&lt;indexList&gt;</code> it points to are
+   * read. Every offset is checked to point at the start of the element it refers to.
+   * </p>
+   *
+   * @param is a {@link io.github.msdk.io.mzml.util.ByteBufferInputStream ByteBufferInputStream}
+   *        of the whole mzML file; its position is not modified
+   * @return the {@link io.github.msdk.io.mzml.data.MzMLIndex MzMLIndex}, or an empty
+   *         {@link java.util.Optional Optional} if the file has no index or the index is broken
+   */
+  public static Optional<MzMLIndex> read(@Nonnull ByteBufferInputStream is) {
+    try {
+      final long indexListOffset = readIndexListOffset(is);
+      if (indexListOffset < 0 || !startsWith(is, indexListOffset, MzMLTags.TAG_INDEX_LIST)) {
+        logger.debug("No valid indexListOffset found");
+        return Optional.empty();
+      }
+
+      final List<String> spectrumIds = new ArrayList<>();
+      final List<Long> spectrumOffsets = new ArrayList<>();
+      final List<String> chromatogramIds = new ArrayList<>();
+      final List<Long> chromatogramOffsets = new ArrayList<>();
+
+      final XMLStreamReaderImpl xmlStreamReader = new XMLStreamReaderImpl();
+      final ByteBufferInputStream indexStream = is.copy();
+      indexStream.position(indexListOffset);
+      xmlStreamReader.setInput(indexStream, "UTF-8");
+
+      try {
+        String indexName = null;
+        String idRef = null;
+        StringBuilder offset = new StringBuilder();
+        int eventType;
+        do {
+          eventType = xmlStreamReader.next();
+          switch (eventType) {
+            case XMLStreamConstants.START_ELEMENT:
+              final CharArray openingTagName = xmlStreamReader.getLocalName();
+              if (openingTagName.contentEquals(MzMLTags.TAG_INDEX)) {
+                CharArray name = xmlStreamReader.getAttributeValue(null, MzMLTags.ATTR_NAME);
+                indexName = name == null ? null : name.toString();
+              } else if (openingTagName.contentEquals(MzMLTags.TAG_OFFSET)) {
+                CharArray ref = xmlStreamReader.getAttributeValue(null, MzMLTags.ATTR_ID_REF);
+                idRef = ref == null ? null : ref.toString();
+                offset.setLength(0);
+              }
+              break;
+
+            case XMLStreamConstants.CHARACTERS:
+              if (idRef != null)
+                offset.append(xmlStreamReader.getText());
+              break;
+
+            case XMLStreamConstants.END_ELEMENT:
+              final CharArray closingTagName = xmlStreamReader.getLocalName();
+              if (closingTagName.contentEquals(MzMLTags.TAG_OFFSET) && idRef != null) {
+                Long value = Long.valueOf(offset.toString().trim());
+                if (MzMLTags.TAG_SPECTRUM.equals(indexName)) {
+                  spectrumIds.add(idRef);
+                  spectrumOffsets.add(value);
+                } else if (MzMLTags.TAG_CHROMATOGRAM.equals(indexName)) {
+                  chromatogramIds.add(idRef);
+                  chromatogramOffsets.add(value);
+                }
+                idRef = null;
+              } else if (closingTagName.contentEquals(MzMLTags.TAG_INDEX_LIST)) {
+                eventType = XMLStreamConstants.END_DOCUMENT;
+              }
+              break;
+          }
+        } while (eventType != XMLStreamConstants.END_DOCUMENT);
+      } finally {
+        xmlStreamReader.close();
+      }
+
+      final long[] spectrumOffsetArray = toArray(spectrumOffsets);
+      final long[] chromatogramOffsetArray = toArray(chromatogramOffsets);
+      if (!isValid(is, spectrumOffsetArray, MzMLTags.TAG_SPECTRUM)
+          || !isValid(is, chromatogramOffsetArray, MzMLTags.TAG_CHROMATOGRAM)) {
+        logger.debug("The offsets in the index do not match the mzML data");
+        return Optional.empty();
+      }
+
+      return Optional.of(new MzMLIndex(spectrumIds, spectrumOffsetArray, chromatogramIds,
+          chromatogramOffsetArray));
+
+    } catch (XMLStreamException | NumberFormatException e) {
+      logger.debug("Could not read the index: " + e);
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * <p>
+   * Builds the offset index of the given mzML data by scanning all its bytes for the opening tags
+   * of <code>&lt;spectrum&gt;</code> and <code>&lt;chromatogram&gt;</code> elements. Used for
+   * files which have no valid <code>&lt;indexList&gt;</code>. This is much faster than parsing the
+   * XML, but assumes the tags do not occur inside comments or CDATA sections.
+   * </p>
+   *
+   * @param is a {@link io.github.msdk.io.mzml.util.ByteBufferInputStream ByteBufferInputStream}
+   *        of the whole mzML file; its position is not modified
+   * @return the {@link io.github.msdk.io.mzml.data.MzMLIndex MzMLIndex}
+   */
+  public static @Nonnull MzMLIndex scan(@Nonnull ByteBufferInputStream is) {
+    final byte[] spectrumTag = ("<" + MzMLTags.TAG_SPECTRUM).getBytes(StandardCharsets.US_ASCII);
+    final byte[] chromatogramTag =
+        ("<" + MzMLTags.TAG_CHROMATOGRAM).getBytes(StandardCharsets.US_ASCII);
+
+    final List<String> spectrumIds = new ArrayList<>();
+    final List<Long> spectrumOffsets = new ArrayList<>();
+    final List<String> chromatogramIds = new ArrayList<>();
+    final List<Long> chromatogramOffsets = new ArrayList<>();
+
+    final ByteBufferInputStream scanStream = is.copy();
+    final byte[] block = new byte[SCAN_BLOCK_LENGTH];
+    long blockStart = 0;
+
+    while (blockStart < is.length()) {
+      final int length = (int) Math.min(block.length, is.length() - blockStart);
+      scanStream.position(blockStart);
+      scanStream.read(block, 0, length);
+
+      // Tags starting in the last SCAN_TAG_LENGTH bytes are found in the next block
+      final boolean lastBlock = blockStart + length == is.length();
+      final int limit = lastBlock ? length : length - SCAN_TAG_LENGTH;
+
+      for (int i = 0; i < limit; i++) {
+        if (block[i] != '<')
+          continue;
+        if (matchesTag(block, i, length, spectrumTag)) {
+          spectrumOffsets.add(blockStart + i);
+          spectrumIds.add(findId(block, i, length));
+        } else if (matchesTag(block, i, length, chromatogramTag)) {
+          chromatogramOffsets.add(blockStart + i);
+          chromatogramIds.add(findId(block, i, length));
+        }
+      }
+
+      if (lastBlock)
+        break;
+      blockStart += limit;
+    }
+
+    return new MzMLIndex(spectrumIds, toArray(spectrumOffsets), chromatogramIds,
+        toArray(chromatogramOffsets));
+  }
+
+  /**
+   * <p>
+   * getSpectrumCount.
+   * </p>
+   *
+   * @return the number of spectra listed in the index
+   */
+  public int getSpectrumCount() {
+    return spectrumOffsets.length;
+  }
+
+  /**
+   * <p>
+   * getSpectrumId.
+   * </p>
+   *
+   * @param index the position of the spectrum in the index
+   * @return the <code>idRef</code> of the spectrum
+   */
+  public @Nonnull String getSpectrumId(int index) {
+    return spectrumIds.get(index);
+  }
+
+  /**
+   * <p>
+   * getSpectrumOffset.
+   * </p>
+   *
+   * @param index the position of the spectrum in the index
+   * @return the byte offset of the <code>&lt;spectrum&gt;</code> element
+   */
+  public long getSpectrumOffset(int index) {
+    return spectrumOffsets[index];
+  }
+
+  /**
+   * <p>
+   * getChromatogramCount.
+   * </p>
+   *
+   * @return the number of chromatograms listed in the index
+   */
+  public int getChromatogramCount() {
+    return chromatogramOffsets.length;
+  }
+
+  /**
+   * <p>
+   * getChromatogramId.
+   * </p>
+   *
+   * @param index the position of the chromatogram in the index
+   * @return the <code>idRef</code> of the chromatogram
+   */
+  public @Nonnull String getChromatogramId(int index) {
+    return chromatogramIds.get(index);
+  }
+
+  /**
+   * <p>
+   * getChromatogramOffset.
+   * </p>
+   *
+   * @param index the position of the chromatogram in the index
+   * @return the byte offset of the <code>&lt;chromatogram&gt;</code> element
+   */
+  public long getChromatogramOffset(int index) {
+    return chromatogramOffsets[index];
+  }
+
+  private static long readIndexListOffset(ByteBufferInputStream is) {
+    final int length = (int) Math.min(TRAILER_LENGTH, is.length());
+    final byte[] trailerBytes = new byte[length];
+    final ByteBufferInputStream trailerStream = is.copy();
+    trailerStream.position(is.length() - length);
+    trailerStream.read(trailerBytes, 0, length);
+
+    final String trailer = new String(trailerBytes, StandardCharsets.US_ASCII);
+    final String openingTag = "<" + MzMLTags.TAG_INDEX_LIST_OFFSET + ">";
+    final String closingTag = "</" + MzMLTags.TAG_INDEX_LIST_OFFSET + ">";
+    final int start = trailer.lastIndexOf(openingTag);
+    if (start < 0)
+      return -1;
+    final int end = trailer.indexOf(closingTag, start);
+    if (end < 0)
+      return -1;
+
+    final long offset = Long.parseLong(trailer.substring(start + openingTag.length(), end).trim());
+    return offset < is.length() ? offset : -1;
+  }
+
+  private static boolean isValid(ByteBufferInputStream is, long[] offsets, String tag) {
+    for (int i = 0; i < offsets.length; i++) {
+      if (i > 0 && offsets[i] <= offsets[i - 1])
+        return false;
+      if (!startsWith(is, offsets[i], tag))
+        return false;
+    }
+    return true;
+  }
+
+  /**
+   * Checks whether the opening tag <code>&lt;tag</code> starts exactly at the given position
+   */
+  private static boolean startsWith(ByteBufferInputStream is, long position, String tag) {
+    final byte[] expected = ("<" + tag).getBytes(StandardCharsets.US_ASCII);
+    if (position < 0 || position + expected.length + 1 > is.length())
+      return false;
+
+    final byte[] actual = new byte[expected.length + 1];
+    final ByteBufferInputStream stream = is.copy();
+    stream.position(position);
+    stream.read(actual, 0, actual.length);
+
+    for (int i = 0; i < expected.length; i++) {
+      if (actual[i] != expected[i])
+        return false;
+    }
+
+    // The tag name must end here, e.g. <spectrum but not <spectrumList
+    final char next = (char) actual[expected.length];
+    return Character.isWhitespace(next) || next == '>' || next == '/';
+  }
+
+  /**
+   * Checks whether <code>tag</code> followed by whitespace starts at <code>block[start]</code>
+   */
+  private static boolean matchesTag(byte[] block, int start, int length, byte[] tag) {
+    if (start + tag.length >= length)
+      return false;
+    for (int i = 1; i < tag.length; i++) {
+      if (block[start + i] != tag[i])
+        return false;
+    }
+    return Character.isWhitespace((char) block[start + tag.length]);
+  }
+
+  /**
+   * Returns the value of the <code>id</code> attribute of the opening tag starting at
+   * <code>block[start]</code>, or an empty string if it is not found
+   */
+  private static String findId(byte[] block, int start, int length) {
+    for (int i = start + 1; i < length - 4 && block[i] != '>'; i++) {
+      if (Character.isWhitespace((char) block[i]) && block[i + 1] == 'i' && block[i + 2] == 'd'
+          && block[i + 3] == '=') {
+        final byte quote = block[i + 4];
+        for (int j = i + 5; j < length; j++) {
+          if (block[j] == quote)
+            return new String(block, i + 5, j - i - 5, StandardCharsets.UTF_8);
+        }
+        break;
+      }
+    }
+    return "";
+  }
+
+  private static long[] toArray(List<Long> values) {
+    final long[] array = new long[values.size()];
+    for (int i = 0; i < array.length; i++)
+      array[i] = values.get(i);
+    return array;
+  }
+
+}
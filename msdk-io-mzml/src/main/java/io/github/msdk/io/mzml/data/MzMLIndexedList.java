@@ -0,0 +1,81 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+package io.github.msdk.io.mzml.data;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.IntFunction;
+
+/**
+ * <p>
+ * An unmodifiable list whose elements are created by <code>loader</code> from the indexes
+ * <code>0</code> to <code>count - 1</code>, in order and on their first access, and retained
+ * afterwards. The loader returns null for the indexes which must be left out of the list, so the
+ * position of an element is only known once all the preceding indexes have been loaded, and
+ * {@link #size()} loads all of them. Used for the spectra and chromatograms of an indexed mzML
+ * file, which are parsed from their offsets on demand.
+ * </p>
+ */
+class MzMLIndexedList<T> extends AbstractList<T> implements RandomAccess {
+
+  private final int count;
+  private final IntFunction<T> loader;
+  private final List<T> elements;
+  private int nextIndex;
+
+  MzMLIndexedList(int count, IntFunction<T> loader) {
+    this.count = count;
+    this.loader = loader;
+    this.elements = new ArrayList<>();
+    this.nextIndex = 0;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public synchronized T get(int index) {
+    loadUntil(index + 1);
+    if (index < 0 || index >= elements.size())
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+    return elements.get(index);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public synchronized int size() {
+    loadUntil(Integer.MAX_VALUE);
+    return elements.size();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public synchronized boolean isEmpty() {
+    loadUntil(1);
+    return elements.isEmpty();
+  }
+
+  /**
+   * Load the next indexes until the list holds <code>size</code> elements, or all the indexes are
+   * loaded.
+   */
+  private void loadUntil(int size) {
+    while (elements.size() < size && nextIndex < count) {
+      T element = loader.apply(nextIndex++);
+      if (element != null)
+        elements.add(element);
+    }
+  }
+
+}
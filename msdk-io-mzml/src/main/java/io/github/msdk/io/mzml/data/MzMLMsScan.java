@@ -13,6 +13,7 @@
 
 package io.github.msdk.io.mzml.data;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -20,6 +21,7 @@ import java.util.List;
 import java.util.Optional;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.zip.DataFormatException;
 
 import javax.annotation.Nonnull;
 
@@ -28,6 +30,7 @@ import org.slf4j.LoggerFactory;
 
 import com.google.common.collect.Range;
 
+import io.github.msdk.MSDKException;
 import io.github.msdk.MSDKRuntimeException;
 import io.github.msdk.datamodel.ActivationInfo;
 import io.github.msdk.datamodel.IsolationInfo;
@@ -38,6 +41,7 @@ import io.github.msdk.datamodel.PolarityType;
 import io.github.msdk.datamodel.RawDataFile;
 import io.github.msdk.datamodel.SimpleIsolationInfo;
 import io.github.msdk.io.mzml.MzMLFileImportMethod;
+import io.github.msdk.io.mzml.util.ByteBufferInputStream;
 import io.github.msdk.spectra.centroidprofiledetection.SpectrumTypeDetectionAlgorithm;
 import io.github.msdk.util.MsSpectrumUtil;
 import io.github.msdk.util.tolerances.MzTolerance;
@@ -235,25 +239,25 @@ public class MzMLMsScan implements MsScan {
   /** {@inheritDoc} */
   @Override
   public double[] getMzValues(double array[]) {
-    if (mzValues == null) {
-      if (getMzBinaryDataInfo().getArrayLength() != numOfDataPoints) {
-        logger.warn(
-            "m/z binary data array contains a different array length from the default array length of the scan (#"
-                + getScanNumber() + ")");
-      }
-
-      try {
-        mzValues = MzMLPeaksDecoder.decodeToDouble(inputStream, getMzBinaryDataInfo(), array);
-      } catch (Exception e) {
-        throw (new MSDKRuntimeException(e));
+    final double[] values;
+    if (inputStream instanceof ByteBufferInputStream) {
+      // Values can be decoded again from the mapped file, so they may be evicted
+      values = dataFile.getPeaksCache().getDoubles(getMzBinaryDataInfo(), this::decodeMzValues);
+    } else {
+      if (mzValues == null) {
+        try {
+          mzValues = decodeMzValues();
+        } catch (Exception e) {
+          throw (new MSDKRuntimeException(e));
+        }
       }
+      values = mzValues;
     }
 
-    if (array == null || array.length < getNumberOfDataPoints()) {
+    if (array == null || array.length < getNumberOfDataPoints())
       array = new double[getNumberOfDataPoints()];
 
-      System.arraycopy(mzValues, 0, array, 0, numOfDataPoints);
-    }
+    System.arraycopy(values, 0, array, 0, Math.min(values.length, getNumberOfDataPoints()));
 
     return array;
   }
@@ -261,30 +265,66 @@ public class MzMLMsScan implements MsScan {
   /** {@inheritDoc} */
   @Override
   public float[] getIntensityValues(float array[]) {
-    if (intensityValues == null) {
-      if (getIntensityBinaryDataInfo().getArrayLength() != numOfDataPoints) {
-        logger.warn(
-            "Intensity binary data array contains a different array length from the default array length of the scan (#"
-                + getScanNumber() + ")");
-      }
-
-      try {
-        intensityValues =
-            MzMLPeaksDecoder.decodeToFloat(inputStream, getIntensityBinaryDataInfo(), array);
-      } catch (Exception e) {
-        throw (new MSDKRuntimeException(e));
+    final float[] values;
+    if (inputStream instanceof ByteBufferInputStream) {
+      values = dataFile.getPeaksCache().getFloats(getIntensityBinaryDataInfo(),
+          this::decodeIntensityValues);
+    } else {
+      if (intensityValues == null) {
+        try {
+          intensityValues = decodeIntensityValues();
+        } catch (Exception e) {
+          throw (new MSDKRuntimeException(e));
+        }
       }
+      values = intensityValues;
     }
 
-    if (array == null || array.length < numOfDataPoints) {
+    if (array == null || array.length < numOfDataPoints)
       array = new float[numOfDataPoints];
 
-      System.arraycopy(intensityValues, 0, array, 0, numOfDataPoints);
-    }
+    System.arraycopy(values, 0, array, 0, Math.min(values.length, numOfDataPoints));
 
     return array;
   }
 
+  /**
+   * <p>
+   * Removes the decoded m/z and intensity values of this scan from the
+   * {@link io.github.msdk.io.mzml.data.MzMLPeaksCache MzMLPeaksCache}. They will be decoded again
+   * on the next access.
+   * </p>
+   */
+  void invalidateCachedValues() {
+    if (!(inputStream instanceof ByteBufferInputStream))
+      return;
+    if (mzBinaryDataInfo != null)
+      dataFile.getPeaksCache().invalidate(mzBinaryDataInfo);
+    if (intensityBinaryDataInfo != null)
+      dataFile.getPeaksCache().invalidate(intensityBinaryDataInfo);
+  }
+
+  private double[] decodeMzValues() throws DataFormatException, IOException, MSDKException {
+    if (getMzBinaryDataInfo().getArrayLength() != numOfDataPoints) {
+      logger.warn(
+          "m/z binary data array contains a different array length from the default array length of the scan (#"
+              + getScanNumber() + ")");
+    }
+
+    // Decoding does not move the position of the stream shared by all scans of a mapped file
+    return MzMLPeaksDecoder.decodeToDouble(inputStream, getMzBinaryDataInfo(), null);
+  }
+
+  private float[] decodeIntensityValues() throws DataFormatException, IOException, MSDKException {
+    if (getIntensityBinaryDataInfo().getArrayLength() != numOfDataPoints) {
+      logger.warn(
+          "Intensity binary data array contains a different array length from the default array length of the scan (#"
+              + getScanNumber() + ")");
+    }
+
+    return MzMLPeaksDecoder.decodeToFloat(inputStream, getIntensityBinaryDataInfo(), null);
+  }
+
   /** {@inheritDoc} */
   @Override
   public MsSpectrumType getSpectrumType() {
@@ -22,12 +22,16 @@ import java.util.regex.Pattern;
 
 import org.apache.commons.io.IOUtils;
 
+import io.github.msdk.MSDKRuntimeException;
 import io.github.msdk.datamodel.Chromatogram;
 import io.github.msdk.datamodel.MsScan;
 import io.github.msdk.io.mzml.MzMLFileImportMethod;
+import io.github.msdk.io.mzml.util.ByteBufferInputStream;
 import io.github.msdk.io.mzml.util.TagTracker;
 import javolution.text.CharArray;
 import javolution.xml.internal.stream.XMLStreamReaderImpl;
+import javolution.xml.stream.XMLStreamConstants;
+import javolution.xml.stream.XMLStreamException;
 import javolution.xml.stream.XMLStreamReader;
 
 /**
@@ -42,6 +46,14 @@ public class MzMLParser {
   private TagTracker tracker;
   private final MzMLRawDataFile newRawFile;
   private final MzMLFileImportMethod importer;
+  private final MzMLIndex index;
+  private final ByteBufferInputStream mappedStream;
+
+  /** Position in the mzML data at which the current XML input starts */
+  private long offset;
+
+  /** Reused for parsing single elements, it is reset on close */
+  private XMLStreamReaderImpl elementReader;
 
   /**
    * <p>
@@ -55,10 +67,288 @@ public class MzMLParser {
     this.vars = new Vars();
     this.tracker = new TagTracker();
     this.importer = importer;
+    this.index = null;
+    this.mappedStream = null;
+    this.offset = 0;
     this.newRawFile = new MzMLRawDataFile(importer.getMzMLFile(), vars.msFunctionsList,
         vars.spectrumList, vars.chromatogramsList);
   }
 
+  /**
+   * <p>
+   * Constructor for {@link io.github.msdk.io.mzml.data.MzMLParser MzMLParser} which provides random
+   * access to the spectra and chromatograms using the offsets of an indexed mzML file. Call
+   * {@link #processHeader() processHeader()} first; the spectra and chromatograms of the
+   * {@link io.github.msdk.io.mzml.data.MzMLRawDataFile MzMLRawDataFile} returned by
+   * {@link #getMzMLRawFile() getMzMLRawFile()} are then parsed on their first access.
+   * </p>
+   *
+   * @param importer an instance of an initialized
+   *        {@link io.github.msdk.io.mzml.MzMLFileImportMethod MzMLFileImportMethod}
+   * @param index the {@link io.github.msdk.io.mzml.data.MzMLIndex MzMLIndex} of the mzML file
+   * @param mappedStream the {@link io.github.msdk.io.mzml.util.ByteBufferInputStream
+   *        ByteBufferInputStream} of the whole mzML file
+   */
+  public MzMLParser(MzMLFileImportMethod importer, MzMLIndex index,
+      ByteBufferInputStream mappedStream) {
+    this.vars = new Vars();
+    this.tracker = new TagTracker();
+    this.importer = importer;
+    this.index = index;
+    this.mappedStream = mappedStream;
+    this.offset = 0;
+    this.newRawFile = new MzMLRawDataFile(importer.getMzMLFile(), vars.msFunctionsList,
+        new MzMLIndexedList<>(index.getSpectrumCount(), this::parseSpectrum),
+        new MzMLIndexedList<>(index.getChromatogramCount(), this::parseChromatogram));
+  }
+
+  /**
+   * <p>
+   * Constructor for {@link io.github.msdk.io.mzml.data.MzMLParser MzMLParser} which parses the
+   * spectra and chromatograms starting at given offsets of an mzML file. Call
+   * {@link #processHeader() processHeader()} first, then parse the elements with parsers obtained
+   * from {@link #createWorker() createWorker()}, possibly from several threads, and add the results
+   * to the {@link io.github.msdk.io.mzml.data.MzMLRawDataFile MzMLRawDataFile} with
+   * {@link #addSpectra(List) addSpectra(List)} and {@link #addChromatograms(List)
+   * addChromatograms(List)}.
+   * </p>
+   *
+   * @param importer an instance of an initialized
+   *        {@link io.github.msdk.io.mzml.MzMLFileImportMethod MzMLFileImportMethod}
+   * @param mappedStream the {@link io.github.msdk.io.mzml.util.ByteBufferInputStream
+   *        ByteBufferInputStream} of the whole mzML file
+   */
+  public MzMLParser(MzMLFileImportMethod importer, ByteBufferInputStream mappedStream) {
+    this.vars = new Vars();
+    this.tracker = new TagTracker();
+    this.importer = importer;
+    this.index = null;
+    this.mappedStream = mappedStream;
+    this.offset = 0;
+    this.newRawFile = new MzMLRawDataFile(importer.getMzMLFile(), vars.msFunctionsList,
+        vars.spectrumList, vars.chromatogramsList);
+  }
+
+  /**
+   * <p>
+   * Internal constructor for parsers created by {@link #createWorker() createWorker()}, which share
+   * the raw data file and the parsed header of <code>parent</code>.
+   * </p>
+   */
+  private MzMLParser(MzMLParser parent) {
+    this.vars = new Vars();
+    this.vars.referenceableParamGroupList = parent.vars.referenceableParamGroupList;
+    this.tracker = new TagTracker();
+    this.importer = parent.importer;
+    this.index = null;
+    this.mappedStream = parent.mappedStream;
+    this.offset = 0;
+    this.newRawFile = parent.newRawFile;
+  }
+
+  /**
+   * <p>
+   * Parse the mzML meta-data preceding the first <code>&lt;spectrumList&gt;</code> or
+   * <code>&lt;chromatogramList&gt;</code>, such as the referenceable parameter groups. Only used
+   * for random access to indexed mzML files.
+   * </p>
+   *
+   * @return true if a spectrum or chromatogram list was found
+   * @throws javolution.xml.stream.XMLStreamException if any.
+   */
+  public synchronized boolean processHeader() throws XMLStreamException {
+    final XMLStreamReaderImpl xmlStreamReader = new XMLStreamReaderImpl();
+    xmlStreamReader.setInput(mappedStream.copy(), "UTF-8");
+
+    try {
+      int eventType;
+      do {
+        eventType = xmlStreamReader.next();
+        switch (eventType) {
+          case XMLStreamConstants.START_ELEMENT:
+            final CharArray openingTagName = xmlStreamReader.getLocalName();
+            processOpeningTag(xmlStreamReader, mappedStream, openingTagName);
+            if (openingTagName.contentEquals(MzMLTags.TAG_SPECTRUM_LIST)
+                || openingTagName.contentEquals(MzMLTags.TAG_CHROMATOGRAM_LIST))
+              return true;
+            break;
+
+          case XMLStreamConstants.END_ELEMENT:
+            final CharArray closingTagName = xmlStreamReader.getLocalName();
+            processClosingTag(xmlStreamReader, closingTagName);
+            if (closingTagName.contentEquals(MzMLTags.TAG_RUN))
+              return false;
+            break;
+        }
+      } while (eventType != XMLStreamConstants.END_DOCUMENT);
+    } finally {
+      xmlStreamReader.close();
+    }
+
+    return false;
+  }
+
+  /**
+   * Parse the spectrum at index <code>i</code>, or return null if it is left out of the raw data
+   * file, e.g. because it has no m/z or intensity array, as when parsing the file sequentially.
+   */
+  private synchronized MsScan parseSpectrum(int i) {
+    processElement(index.getSpectrumOffset(i), MzMLTags.TAG_SPECTRUM_LIST,
+        MzMLTags.TAG_SPECTRUM);
+    final MsScan spectrum = vars.spectrumList.isEmpty() ? null : vars.spectrumList.get(0);
+    vars.spectrumList.clear();
+    return spectrum;
+  }
+
+  /**
+   * Parse the chromatogram at index <code>i</code>, or return null if it is left out of the raw
+   * data file, e.g. because it has no retention time or intensity array, as when parsing the file
+   * sequentially.
+   */
+  private synchronized Chromatogram parseChromatogram(int i) {
+    processElement(index.getChromatogramOffset(i), MzMLTags.TAG_CHROMATOGRAM_LIST,
+        MzMLTags.TAG_CHROMATOGRAM);
+    final Chromatogram chromatogram =
+        vars.chromatogramsList.isEmpty() ? null : vars.chromatogramsList.get(0);
+    vars.chromatogramsList.clear();
+    return chromatogram;
+  }
+
+  /**
+   * <p>
+   * Create a parser which shares the raw data file and the parsed header of this parser, but none
+   * of its parsing state. Each worker must only be used by one thread at a time.
+   * </p>
+   *
+   * @return a new {@link io.github.msdk.io.mzml.data.MzMLParser MzMLParser}
+   */
+  public MzMLParser createWorker() {
+    return new MzMLParser(this);
+  }
+
+  /**
+   * <p>
+   * Parse the <code>&lt;spectrum&gt;</code> elements starting at <code>offsets[from]</code> to
+   * <code>offsets[to - 1]</code>.
+   * </p>
+   *
+   * @param offsets the byte offsets of the <code>&lt;spectrum&gt;</code> elements
+   * @param from the index of the first offset to parse, inclusive
+   * @param to the index of the last offset to parse, exclusive
+   * @return the parsed {@link io.github.msdk.datamodel.MsScan MsScan}s, in the order of their
+   *         offsets
+   */
+  public synchronized List<MsScan> parseSpectra(long[] offsets, int from, int to) {
+    for (int i = from; i < to; i++)
+      processElement(offsets[i], MzMLTags.TAG_SPECTRUM_LIST, MzMLTags.TAG_SPECTRUM);
+    final List<MsScan> spectra = new ArrayList<>(vars.spectrumList);
+    vars.spectrumList.clear();
+    return spectra;
+  }
+
+  /**
+   * <p>
+   * Parse the <code>&lt;chromatogram&gt;</code> elements starting at <code>offsets[from]</code> to
+   * <code>offsets[to - 1]</code>.
+   * </p>
+   *
+   * @param offsets the byte offsets of the <code>&lt;chromatogram&gt;</code> elements
+   * @param from the index of the first offset to parse, inclusive
+   * @param to the index of the last offset to parse, exclusive
+   * @return the parsed {@link io.github.msdk.datamodel.Chromatogram Chromatogram}s, in the order of
+   *         their offsets
+   */
+  public synchronized List<Chromatogram> parseChromatograms(long[] offsets, int from, int to) {
+    for (int i = from; i < to; i++)
+      processElement(offsets[i], MzMLTags.TAG_CHROMATOGRAM_LIST, MzMLTags.TAG_CHROMATOGRAM);
+    final List<Chromatogram> chromatograms = new ArrayList<>(vars.chromatogramsList);
+    vars.chromatogramsList.clear();
+    return chromatograms;
+  }
+
+  /**
+   * <p>
+   * Append spectra parsed by a worker to the raw data file of this parser.
+   * </p>
+   *
+   * @param spectra the {@link io.github.msdk.datamodel.MsScan MsScan}s to add
+   */
+  public synchronized void addSpectra(List<MsScan> spectra) {
+    vars.spectrumList.addAll(spectra);
+  }
+
+  /**
+   * <p>
+   * Append chromatograms parsed by a worker to the raw data file of this parser.
+   * </p>
+   *
+   * @param chromatograms the {@link io.github.msdk.datamodel.Chromatogram Chromatogram}s to add
+   */
+  public synchronized void addChromatograms(List<Chromatogram> chromatograms) {
+    vars.chromatogramsList.addAll(chromatograms);
+  }
+
+  /**
+   * <p>
+   * Parse the single <code>elementTag</code> element which starts at <code>elementOffset</code>,
+   * as if the parser was inside the <code>listTag</code> element.
+   * </p>
+   */
+  private void processElement(long elementOffset, String listTag, String elementTag) {
+    if (!tracker.current().contentEquals(listTag)) {
+      if (tracker.current().contentEquals(MzMLTags.TAG_SPECTRUM_LIST)
+          || tracker.current().contentEquals(MzMLTags.TAG_CHROMATOGRAM_LIST))
+        tracker.exit(tracker.current());
+      tracker.enter(new CharArray(listTag));
+    }
+
+    final ByteBufferInputStream elementStream = mappedStream.copy();
+    elementStream.position(elementOffset);
+    if (elementReader == null)
+      elementReader = new XMLStreamReaderImpl();
+    final XMLStreamReaderImpl xmlStreamReader = elementReader;
+
+    try {
+      xmlStreamReader.setInput(elementStream, "UTF-8");
+      offset = elementOffset;
+
+      int eventType;
+      do {
+        eventType = xmlStreamReader.next();
+        switch (eventType) {
+          case XMLStreamConstants.START_ELEMENT:
+            final CharArray openingTagName = xmlStreamReader.getLocalName();
+            processOpeningTag(xmlStreamReader, mappedStream, openingTagName);
+            break;
+
+          case XMLStreamConstants.END_ELEMENT:
+            final CharArray closingTagName = xmlStreamReader.getLocalName();
+            processClosingTag(xmlStreamReader, closingTagName);
+            if (closingTagName.contentEquals(elementTag))
+              return;
+            break;
+
+          case XMLStreamConstants.CHARACTERS:
+            processCharacters(xmlStreamReader);
+            break;
+        }
+      } while (eventType != XMLStreamConstants.END_DOCUMENT);
+
+      throw new MSDKRuntimeException(
+          "Unexpected end of <" + elementTag + "> at offset " + elementOffset);
+
+    } catch (XMLStreamException e) {
+      throw new MSDKRuntimeException(e);
+    } finally {
+      offset = 0;
+      try {
+        xmlStreamReader.close();
+      } catch (XMLStreamException e) {
+        throw new MSDKRuntimeException(e);
+      }
+    }
+  }
+
   /**
    * <p>
    * Carry out the required parsing of the mzML data when the
@@ -178,8 +468,8 @@ public class MzMLParser {
       } else if (openingTagName.contentEquals(MzMLTags.TAG_BINARY)) {
         if (vars.spectrum != null && !vars.skipBinaryDataArray) {
           int bomOffset = xmlStreamReader.getLocation().getBomLength();
-          vars.binaryDataInfo
-              .setPosition(xmlStreamReader.getLocation().getTotalCharsRead() + bomOffset);
+          vars.binaryDataInfo.setPosition(
+              offset + xmlStreamReader.getLocation().getTotalCharsRead() + bomOffset);
         }
         if (!vars.skipBinaryDataArray) {
           if (MzMLCV.cvMzArray.equals(vars.binaryDataInfo.getArrayType().getAccession())) {
@@ -284,8 +574,8 @@ public class MzMLParser {
       } else if (openingTagName.contentEquals(MzMLTags.TAG_BINARY)) {
         if (vars.chromatogram != null && !vars.skipBinaryDataArray) {
           int bomOffset = xmlStreamReader.getLocation().getBomLength();
-          vars.binaryDataInfo
-              .setPosition(xmlStreamReader.getLocation().getTotalCharsRead() + bomOffset);
+          vars.binaryDataInfo.setPosition(
+              offset + xmlStreamReader.getLocation().getTotalCharsRead() + bomOffset);
         }
         if (!vars.skipBinaryDataArray) {
           if (MzMLCV.cvRetentionTimeArray
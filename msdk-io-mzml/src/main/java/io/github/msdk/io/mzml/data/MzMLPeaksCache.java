@@ -0,0 +1,198 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+package io.github.msdk.io.mzml.data;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import javax.annotation.Nonnull;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import io.github.msdk.MSDKRuntimeException;
+
+/**
+ * <p>
+ * A size-bounded cache of decoded binary data arrays, shared by
+ * {@link io.github.msdk.io.mzml.data.MzMLMsScan MzMLMsScan}s and
+ * {@link io.github.msdk.io.mzml.data.MzMLChromatogram MzMLChromatogram}s which are backed by a
+ * memory-mapped file. Entries are keyed by the identity of their
+ * {@link io.github.msdk.io.mzml.data.MzMLBinaryDataInfo MzMLBinaryDataInfo} and weighed by the
+ * size of the decoded array in bytes. When the byte budget is exceeded, the least recently used
+ * arrays are evicted and will be decoded again from the mapped file on the next access.
+ * </p>
+ */
+public class MzMLPeaksCache {
+
+  /** Default budget is a quarter of the maximum heap size. */
+  private static final long DEFAULT_MAXIMUM_SIZE = Runtime.getRuntime().maxMemory() / 4;
+
+  private static final MzMLPeaksCache defaultCache = new MzMLPeaksCache(DEFAULT_MAXIMUM_SIZE);
+
+  private final long maximumSize;
+  private final Cache<MzMLBinaryDataInfo, Object> cache;
+
+  /**
+   * <p>
+   * Constructor for {@link io.github.msdk.io.mzml.data.MzMLPeaksCache MzMLPeaksCache}
+   * </p>
+   *
+   * @param maximumSize the maximum total size of the cached arrays, in bytes
+   */
+  public MzMLPeaksCache(long maximumSize) {
+    this.maximumSize = maximumSize;
+    this.cache = CacheBuilder.newBuilder().weakKeys().maximumWeight(maximumSize)
+        .weigher((MzMLBinaryDataInfo key, Object value) -> getSizeInBytes(value)).recordStats()
+        .build();
+  }
+
+  /**
+   * <p>
+   * Returns the cache shared by all mzML files which were not given a cache of their own.
+   * </p>
+   *
+   * @return the default {@link io.github.msdk.io.mzml.data.MzMLPeaksCache MzMLPeaksCache}
+   */
+  public static @Nonnull MzMLPeaksCache getDefault() {
+    return defaultCache;
+  }
+
+  /**
+   * <p>
+   * Returns the decoded double array for the given binary data array, decoding it with
+   * <code>loader</code> if it is not cached.
+   * </p>
+   *
+   * @param key the {@link io.github.msdk.io.mzml.data.MzMLBinaryDataInfo MzMLBinaryDataInfo} of
+   *        the array
+   * @param loader decodes the array on a cache miss
+   * @return the decoded values; callers must not modify the returned array
+   */
+  public @Nonnull double[] getDoubles(@Nonnull MzMLBinaryDataInfo key,
+      @Nonnull Callable<double[]> loader) {
+    return (double[]) get(key, loader);
+  }
+
+  /**
+   * <p>
+   * Returns the decoded float array for the given binary data array, decoding it with
+   * <code>loader</code> if it is not cached.
+   * </p>
+   *
+   * @param key the {@link io.github.msdk.io.mzml.data.MzMLBinaryDataInfo MzMLBinaryDataInfo} of
+   *        the array
+   * @param loader decodes the array on a cache miss
+   * @return the decoded values; callers must not modify the returned array
+   */
+  public @Nonnull float[] getFloats(@Nonnull MzMLBinaryDataInfo key,
+      @Nonnull Callable<float[]> loader) {
+    return (float[]) get(key, loader);
+  }
+
+  /**
+   * <p>
+   * Removes the decoded array of the given binary data array from the cache, if present.
+   * </p>
+   *
+   * @param key the {@link io.github.msdk.io.mzml.data.MzMLBinaryDataInfo MzMLBinaryDataInfo} of
+   *        the array
+   */
+  public void invalidate(@Nonnull MzMLBinaryDataInfo key) {
+    cache.invalidate(key);
+  }
+
+  /**
+   * <p>
+   * Removes all decoded arrays from the cache.
+   * </p>
+   */
+  public void invalidateAll() {
+    cache.invalidateAll();
+  }
+
+  /**
+   * <p>
+   * Getter for the field <code>maximumSize</code>.
+   * </p>
+   *
+   * @return the maximum total size of the cached arrays, in bytes
+   */
+  public long getMaximumSize() {
+    return maximumSize;
+  }
+
+  /**
+   * <p>
+   * getHitCount.
+   * </p>
+   *
+   * @return the number of lookups which found the decoded array in the cache
+   */
+  public long getHitCount() {
+    return cache.stats().hitCount();
+  }
+
+  /**
+   * <p>
+   * getMissCount.
+   * </p>
+   *
+   * @return the number of lookups which had to decode the array
+   */
+  public long getMissCount() {
+    return cache.stats().missCount();
+  }
+
+  /**
+   * <p>
+   * getEvictionCount.
+   * </p>
+   *
+   * @return the number of arrays evicted from the cache, not counting manual invalidation
+   */
+  public long getEvictionCount() {
+    return cache.stats().evictionCount();
+  }
+
+  /**
+   * <p>
+   * getStats.
+   * </p>
+   *
+   * @return a {@link com.google.common.cache.CacheStats CacheStats} snapshot of this cache
+   */
+  public CacheStats getStats() {
+    return cache.stats();
+  }
+
+  private Object get(MzMLBinaryDataInfo key, Callable<?> loader) {
+    try {
+      return cache.get(key, loader);
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      throw new MSDKRuntimeException(e.getCause());
+    }
+  }
+
+  private static int getSizeInBytes(Object array) {
+    if (array instanceof double[])
+      return ((double[]) array).length * Double.BYTES;
+    if (array instanceof float[])
+      return ((float[]) array).length * Float.BYTES;
+    return 0;
+  }
+
+}
@@ -16,8 +16,14 @@ package io.github.msdk.io.mzml.data;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
 import java.util.Base64;
 import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
 import java.util.zip.InflaterInputStream;
 
 import org.apache.commons.io.IOUtils;
@@ -35,6 +41,26 @@ import io.github.msdk.io.mzml.util.MSNumpress;
  */
 public class MzMLPeaksDecoder {
 
+  /** Values of the Base64 characters, -1 for any other byte */
+  private static final byte[] BASE64_VALUES = new byte[256];
+
+  static {
+    Arrays.fill(BASE64_VALUES, (byte) -1);
+    final String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+    for (int i = 0; i < alphabet.length(); i++)
+      BASE64_VALUES[alphabet.charAt(i)] = (byte) i;
+  }
+
+  /**
+   * Largest buffer kept by a thread between two decoding calls, larger ones are dropped once the
+   * call returns so that a single huge array doesn't pin its buffers in every decoding thread
+   */
+  private static final int MAX_RETAINED_BUFFER_LENGTH = 1 << 22;
+
+  /** Buffers and inflater reused by all decoding calls of a thread */
+  private static final ThreadLocal<DecodeBuffers> decodeBuffers =
+      ThreadLocal.withInitial(DecodeBuffers::new);
+
   /**
    * Converts a base64 encoded mz or intensity string used in mzML files to an array of floats. If
    * the original precision was 64 bit, you still get floats as output.
@@ -50,17 +76,14 @@ public class MzMLPeaksDecoder {
   public static float[] decodeToFloat(InputStream inputStream, MzMLBinaryDataInfo binaryDataInfo,
       float[] data) throws DataFormatException, IOException, MSDKException {
 
+    if (inputStream instanceof ByteBufferInputStream)
+      return decodeMappedToFloat((ByteBufferInputStream) inputStream, binaryDataInfo, data);
+
     int lengthIn = binaryDataInfo.getEncodedLength();
     int numPoints = binaryDataInfo.getArrayLength();
     InputStream is = null;
 
-    if (inputStream instanceof ByteBufferInputStream) {
-      ByteBufferInputStream mappedByteBufferInputStream = (ByteBufferInputStream) inputStream;
-      mappedByteBufferInputStream.constrain(binaryDataInfo.getPosition(), lengthIn);
-      is = Base64.getDecoder().wrap(mappedByteBufferInputStream);
-    } else {
-      is = Base64.getDecoder().wrap(inputStream);
-    }
+    is = Base64.getDecoder().wrap(inputStream);
 
     // for some reason there sometimes might be zero length <peaks> tags
     // (ms2 usually)
@@ -192,18 +215,15 @@ public class MzMLPeaksDecoder {
   public static double[] decodeToDouble(InputStream inputStream, MzMLBinaryDataInfo binaryDataInfo,
       double[] data) throws DataFormatException, IOException, MSDKException {
 
+    if (inputStream instanceof ByteBufferInputStream)
+      return decodeMappedToDouble((ByteBufferInputStream) inputStream, binaryDataInfo, data);
+
     int lengthIn = binaryDataInfo.getEncodedLength();
     int numPoints = binaryDataInfo.getArrayLength();
 
     InputStream is = null;
 
-    if (inputStream instanceof ByteBufferInputStream) {
-      ByteBufferInputStream mappedByteBufferInputStream = (ByteBufferInputStream) inputStream;
-      mappedByteBufferInputStream.constrain(binaryDataInfo.getPosition(), lengthIn);
-      is = Base64.getDecoder().wrap(mappedByteBufferInputStream);
-    } else {
-      is = Base64.getDecoder().wrap(inputStream);
-    }
+    is = Base64.getDecoder().wrap(inputStream);
 
     // for some reason there sometimes might be zero length <peaks> tags
     // (ms2 usually)
@@ -319,4 +339,273 @@ public class MzMLPeaksDecoder {
     return data;
   }
 
+  /**
+   * Decodes a binary data array of a memory-mapped mzML file. The Base64 characters are decoded
+   * directly from the mapped region, and the decoded and inflated bytes are kept in buffers reused
+   * by the calling thread, so the only allocation is the result array. The position of the stream
+   * is not used, so several threads can decode from the same stream at once.
+   */
+  private static float[] decodeMappedToFloat(ByteBufferInputStream inputStream,
+      MzMLBinaryDataInfo binaryDataInfo, float[] data) throws DataFormatException, MSDKException {
+
+    final int numPoints = binaryDataInfo.getArrayLength();
+    if (binaryDataInfo.getEncodedLength() == 0)
+      return new float[0];
+    if (data == null || data.length < numPoints)
+      data = new float[numPoints];
+
+    final DecodeBuffers buffers = decodeBuffers.get();
+    try {
+      final int length = decodeBytes(inputStream, binaryDataInfo, buffers);
+      final byte[] bytes = buffers.bytes;
+
+      final MzMLCompressionType compressionType = binaryDataInfo.getCompressionType();
+      if (compressionType != null) {
+        switch (compressionType) {
+          case NUMPRESS_LINPRED:
+          case NUMPRESS_LINPRED_ZLIB:
+            if (MSNumpress.decodeLinear(bytes, length, data) < 0)
+              throw new MSDKException("MSNumpress linear decoder failed");
+            return data;
+          case NUMPRESS_POSINT:
+          case NUMPRESS_POSINT_ZLIB:
+            if (MSNumpress.decodePic(bytes, length, data) < 0)
+              throw new MSDKException("MSNumpress positive integer decoder failed");
+            return data;
+          case NUMPRESS_SHLOGF:
+          case NUMPRESS_SHLOGF_ZLIB:
+            if (MSNumpress.decodeSlof(bytes, length, data) < 0)
+              throw new MSDKException("MSNumpress short logged float decoder failed");
+            return data;
+          default:
+            break;
+        }
+      }
+
+      final ByteBuffer byteBuffer =
+          ByteBuffer.wrap(bytes, 0, length).order(ByteOrder.LITTLE_ENDIAN);
+      switch (getPrecision(binaryDataInfo)) {
+        case 32:
+          checkLength(length, numPoints, Float.BYTES);
+          byteBuffer.asFloatBuffer().get(data, 0, numPoints);
+          break;
+        default:
+          checkLength(length, numPoints, Double.BYTES);
+          final DoubleBuffer doubleBuffer = byteBuffer.asDoubleBuffer();
+          for (int i = 0; i < numPoints; i++)
+            data[i] = (float) doubleBuffer.get(i);
+          break;
+      }
+      return data;
+    } finally {
+      buffers.release();
+    }
+  }
+
+  /**
+   * Same as {@link #decodeMappedToFloat(ByteBufferInputStream, MzMLBinaryDataInfo, float[])}, for
+   * double arrays
+   */
+  private static double[] decodeMappedToDouble(ByteBufferInputStream inputStream,
+      MzMLBinaryDataInfo binaryDataInfo, double[] data) throws DataFormatException, MSDKException {
+
+    final int numPoints = binaryDataInfo.getArrayLength();
+    if (binaryDataInfo.getEncodedLength() == 0)
+      return new double[0];
+    if (data == null || data.length < numPoints)
+      data = new double[numPoints];
+
+    final DecodeBuffers buffers = decodeBuffers.get();
+    try {
+      final int length = decodeBytes(inputStream, binaryDataInfo, buffers);
+      final byte[] bytes = buffers.bytes;
+
+      final MzMLCompressionType compressionType = binaryDataInfo.getCompressionType();
+      if (compressionType != null) {
+        switch (compressionType) {
+          case NUMPRESS_LINPRED:
+          case NUMPRESS_LINPRED_ZLIB:
+            if (MSNumpress.decodeLinear(bytes, length, data) < 0)
+              throw new MSDKException("MSNumpress linear decoder failed");
+            return data;
+          case NUMPRESS_POSINT:
+          case NUMPRESS_POSINT_ZLIB:
+            if (MSNumpress.decodePic(bytes, length, data) < 0)
+              throw new MSDKException("MSNumpress positive integer decoder failed");
+            return data;
+          case NUMPRESS_SHLOGF:
+          case NUMPRESS_SHLOGF_ZLIB:
+            if (MSNumpress.decodeSlof(bytes, length, data) < 0)
+              throw new MSDKException("MSNumpress short logged float decoder failed");
+            return data;
+          default:
+            break;
+        }
+      }
+
+      final ByteBuffer byteBuffer =
+          ByteBuffer.wrap(bytes, 0, length).order(ByteOrder.LITTLE_ENDIAN);
+      switch (getPrecision(binaryDataInfo)) {
+        case 32:
+          checkLength(length, numPoints, Float.BYTES);
+          final FloatBuffer floatBuffer = byteBuffer.asFloatBuffer();
+          for (int i = 0; i < numPoints; i++)
+            data[i] = floatBuffer.get(i);
+          break;
+        default:
+          checkLength(length, numPoints, Double.BYTES);
+          byteBuffer.asDoubleBuffer().get(data, 0, numPoints);
+          break;
+      }
+      return data;
+    } finally {
+      buffers.release();
+    }
+  }
+
+  /**
+   * Decodes the Base64 characters of the binary data array into <code>buffers.bytes</code> and
+   * inflates them if they are zlib compressed.
+   *
+   * @return the number of bytes in <code>buffers.bytes</code>
+   */
+  private static int decodeBytes(ByteBufferInputStream inputStream,
+      MzMLBinaryDataInfo binaryDataInfo, DecodeBuffers buffers)
+      throws DataFormatException, MSDKException {
+
+    final int encodedLength = binaryDataInfo.getEncodedLength();
+    final ByteBuffer encoded = inputStream.region(binaryDataInfo.getPosition(), encodedLength);
+
+    final byte[] decoded = buffers.decoded(encodedLength / 4 * 3 + 3);
+    final int decodedLength = decodeBase64(encoded, decoded);
+
+    final MzMLCompressionType compressionType = binaryDataInfo.getCompressionType();
+    if (compressionType == null) {
+      buffers.bytes = decoded;
+      return decodedLength;
+    }
+
+    switch (compressionType) {
+      case ZLIB:
+      case NUMPRESS_LINPRED_ZLIB:
+      case NUMPRESS_POSINT_ZLIB:
+      case NUMPRESS_SHLOGF_ZLIB:
+        final Inflater inflater = buffers.inflater;
+        inflater.reset();
+        inflater.setInput(decoded, 0, decodedLength);
+        byte[] inflated = buffers.inflated(binaryDataInfo.getArrayLength() * Double.BYTES);
+        int inflatedLength = 0;
+        while (!inflater.finished()) {
+          if (inflatedLength == inflated.length)
+            inflated = buffers.inflated(inflated.length * 2);
+          final int n =
+              inflater.inflate(inflated, inflatedLength, inflated.length - inflatedLength);
+          if (n == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+            break;
+          inflatedLength += n;
+        }
+        buffers.bytes = inflated;
+        return inflatedLength;
+      default:
+        buffers.bytes = decoded;
+        return decodedLength;
+    }
+  }
+
+  /**
+   * Decodes the Base64 characters from the position to the limit of <code>src</code>. Whitespace
+   * is skipped and decoding stops at the first padding character.
+   *
+   * @return the number of bytes written to <code>dst</code>
+   */
+  private static int decodeBase64(ByteBuffer src, byte[] dst) throws MSDKException {
+    int bits = 0;
+    int count = 0;
+    int n = 0;
+    for (int i = src.position(); i < src.limit(); i++) {
+      final byte b = src.get(i);
+      final int value = BASE64_VALUES[b & 0xFF];
+      if (value < 0) {
+        if (b == '=')
+          break;
+        if (Character.isWhitespace((char) b))
+          continue;
+        throw new MSDKException("Illegal Base64 character " + (char) b + " in binary data array");
+      }
+      bits = (bits << 6) | value;
+      if (++count == 4) {
+        dst[n++] = (byte) (bits >> 16);
+        dst[n++] = (byte) (bits >> 8);
+        dst[n++] = (byte) bits;
+        bits = 0;
+        count = 0;
+      }
+    }
+    if (count == 2) {
+      dst[n++] = (byte) (bits >> 4);
+    } else if (count == 3) {
+      dst[n++] = (byte) (bits >> 10);
+      dst[n++] = (byte) (bits >> 2);
+    }
+    return n;
+  }
+
+  private static int getPrecision(MzMLBinaryDataInfo binaryDataInfo) {
+    switch (binaryDataInfo.getBitLength()) {
+      case THIRTY_TWO_BIT_FLOAT:
+      case THIRTY_TWO_BIT_INTEGER:
+        return 32;
+      case SIXTY_FOUR_BIT_FLOAT:
+      case SIXTY_FOUR_BIT_INTEGER:
+        return 64;
+      default:
+        throw new IllegalArgumentException(
+            "Precision MUST be specified and be either 32-bit or 64-bit, "
+                + "if MS-NUMPRESS compression was not used");
+    }
+  }
+
+  private static void checkLength(int length, int numPoints, int bytesPerValue)
+      throws MSDKException {
+    if (length < (long) numPoints * bytesPerValue)
+      throw new MSDKException(
+          "Couldn't obtain values. Please make sure the scan/chromatogram passes the Predicate.");
+  }
+
+  /**
+   * Buffers reused by the decoding calls of one thread, they grow as needed up to
+   * {@link #MAX_RETAINED_BUFFER_LENGTH} and are dropped by {@link #release()} when larger
+   */
+  private static class DecodeBuffers {
+
+    final Inflater inflater = new Inflater();
+    private byte[] decoded = new byte[0];
+    private byte[] inflated = new byte[0];
+
+    /** The buffer holding the result of the last {@link #decodeBytes} call */
+    byte[] bytes;
+
+    byte[] decoded(int minLength) {
+      if (decoded.length < minLength)
+        decoded = new byte[minLength];
+      return decoded;
+    }
+
+    /** Grows the buffer if needed, keeping its content */
+    byte[] inflated(int minLength) {
+      if (inflated.length < minLength)
+        inflated = Arrays.copyOf(inflated, minLength);
+      return inflated;
+    }
+
+    /** Called after each decoding call, once the content of the buffers is not used anymore */
+    void release() {
+      bytes = null;
+      if (decoded.length > MAX_RETAINED_BUFFER_LENGTH)
+        decoded = new byte[0];
+      if (inflated.length > MAX_RETAINED_BUFFER_LENGTH)
+        inflated = new byte[0];
+    }
+  }
+
 }
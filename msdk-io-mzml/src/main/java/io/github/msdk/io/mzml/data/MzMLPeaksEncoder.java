@@ -30,6 +30,10 @@ import io.github.msdk.io.mzml.util.MSNumpress;
  */
 public abstract class MzMLPeaksEncoder {
 
+  /** Buffers and deflater reused by all encoding calls of a thread */
+  private static final ThreadLocal<EncodeBuffers> encodeBuffers =
+      ThreadLocal.withInitial(EncodeBuffers::new);
+
   /**
    * <p>
    * encodeDouble.
@@ -43,6 +47,7 @@ public abstract class MzMLPeaksEncoder {
   public static byte[] encodeDouble(double[] data, MzMLCompressionType compression)
       throws MSDKException {
 
+    final EncodeBuffers buffers = encodeBuffers.get();
     byte[] encodedData = null;
     int encodedBytes;
 
@@ -50,38 +55,32 @@ public abstract class MzMLPeaksEncoder {
     switch (compression) {
       case NUMPRESS_LINPRED:
       case NUMPRESS_LINPRED_ZLIB:
-        // Set encodedData's array to the maximum possible size, truncate it later
-        encodedData = new byte[8 + (data.length * 5)];
+        // Use a buffer of the maximum possible size
+        encodedData = buffers.encoded(8 + (data.length * 5));
         encodedBytes = MSNumpress.encodeLinear(data, data.length, encodedData,
             MSNumpress.optimalLinearFixedPoint(data, data.length));
         if (encodedBytes < 0)
           throw new MSDKException("MSNumpress linear encoding failed");
-        encodedData = Arrays.copyOf(encodedData, encodedBytes);
         break;
       case NUMPRESS_POSINT:
       case NUMPRESS_POSINT_ZLIB:
-        encodedData = new byte[data.length * 5];
+        encodedData = buffers.encoded(data.length * 5);
         encodedBytes = MSNumpress.encodePic(data, data.length, encodedData);
         if (encodedBytes < 0)
           throw new MSDKException("MSNumpress positive integer encoding failed");
-        encodedData = Arrays.copyOf(encodedData, encodedBytes);
         break;
       case NUMPRESS_SHLOGF:
       case NUMPRESS_SHLOGF_ZLIB:
-        encodedData = new byte[8 + (data.length * 2)];
+        encodedData = buffers.encoded(8 + (data.length * 2));
         encodedBytes = MSNumpress.encodeSlof(data, data.length, encodedData,
             MSNumpress.optimalSlofFixedPoint(data, data.length));
         if (encodedBytes < 0)
           throw new MSDKException("MSNumpress short floating logarithm encoding failed");
-        encodedData = Arrays.copyOf(encodedData, encodedBytes);
         break;
       default:
-        ByteBuffer buffer = ByteBuffer.allocate(data.length * 8);
-        buffer.order(ByteOrder.LITTLE_ENDIAN);
-        for (double d : data) {
-          buffer.putDouble(d);
-        }
-        encodedData = buffer.array();
+        encodedBytes = data.length * Double.BYTES;
+        encodedData = buffers.encoded(encodedBytes);
+        ByteBuffer.wrap(encodedData).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().put(data);
         break;
     }
 
@@ -91,10 +90,10 @@ public abstract class MzMLPeaksEncoder {
       case NUMPRESS_POSINT_ZLIB:
       case NUMPRESS_SHLOGF_ZLIB:
       case ZLIB:
-        byte[] tmp = ZlibCompress(encodedData);
-        return Base64.getEncoder().encode(tmp);
+        encodedBytes = zlibCompress(encodedData, encodedBytes, buffers);
+        return base64Encode(buffers.compressed, encodedBytes);
       default:
-        return Base64.getEncoder().encode(encodedData);
+        return base64Encode(encodedData, encodedBytes);
     }
 
   }
@@ -112,7 +111,9 @@ public abstract class MzMLPeaksEncoder {
   public static byte[] encodeFloat(float[] data, MzMLCompressionType compression)
       throws MSDKException {
 
+    final EncodeBuffers buffers = encodeBuffers.get();
     byte[] encodedData = null;
+    int encodedBytes;
 
     // MSNumpress compression if required
     switch (compression) {
@@ -124,54 +125,78 @@ public abstract class MzMLPeaksEncoder {
       case NUMPRESS_SHLOGF_ZLIB:
         throw new MSDKException("MSNumpress compression not supported for float values");
       default:
-        ByteBuffer buffer = ByteBuffer.allocate(data.length * 4);
-        buffer.order(ByteOrder.LITTLE_ENDIAN);
-        for (float f : data) {
-          buffer.putFloat(f);
-        }
-        encodedData = buffer.array();
+        encodedBytes = data.length * Float.BYTES;
+        encodedData = buffers.encoded(encodedBytes);
+        ByteBuffer.wrap(encodedData).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().put(data);
         break;
     }
 
     // Zlib Compression if necessary
     switch (compression) {
       case ZLIB:
-        byte[] tmp = ZlibCompress(encodedData);
-        return Base64.getEncoder().encode(tmp);
+        encodedBytes = zlibCompress(encodedData, encodedBytes, buffers);
+        return base64Encode(buffers.compressed, encodedBytes);
       default:
-        return Base64.getEncoder().encode(encodedData);
+        return base64Encode(encodedData, encodedBytes);
     }
 
   }
 
   /**
-   * Compressed source data using the Deflate algorithm.
+   * Compresses source data using the Deflate algorithm, into <code>buffers.compressed</code>.
    * 
    * @param uncompressedData Data to be compressed
-   * @return Compressed data
+   * @param length Number of bytes of <code>uncompressedData</code> to compress
+   * @param buffers Buffers of the calling thread
+   * @return Number of compressed bytes
    */
-  private static byte[] ZlibCompress(byte[] uncompressedData) {
-    byte[] data = null; // Decompress the data
-
-    // create a temporary byte array big enough to hold the compressed data
-    // with the worst compression (the length of the initial (uncompressed) data)
-    // EDIT: if it turns out this byte array was not big enough, then double its size and try again.
-    byte[] temp = new byte[uncompressedData.length / 2];
-    int compressedBytes = temp.length;
-    while (compressedBytes == temp.length) {
-      // compress
-      temp = new byte[temp.length * 2];
-      Deflater compresser = new Deflater();
-      compresser.setInput(uncompressedData);
-      compresser.finish();
-      compressedBytes = compresser.deflate(temp);
+  private static int zlibCompress(byte[] uncompressedData, int length, EncodeBuffers buffers) {
+    final Deflater compresser = buffers.deflater;
+    compresser.reset();
+    compresser.setInput(uncompressedData, 0, length);
+    compresser.finish();
+
+    // Start with the worst compression (the length of the uncompressed data), grow if needed
+    byte[] compressed = buffers.compressed(length + 64);
+    int compressedBytes = 0;
+    while (!compresser.finished()) {
+      if (compressedBytes == compressed.length)
+        compressed = buffers.compressed(compressed.length * 2);
+      compressedBytes +=
+          compresser.deflate(compressed, compressedBytes, compressed.length - compressedBytes);
     }
+    return compressedBytes;
+  }
 
-    // create a new array with the size of the compressed data (compressedBytes)
-    data = new byte[compressedBytes];
-    System.arraycopy(temp, 0, data, 0, compressedBytes);
+  /**
+   * Base64 encodes the first <code>length</code> bytes of <code>data</code> into a new array of the
+   * exact encoded size.
+   */
+  private static byte[] base64Encode(byte[] data, int length) {
+    return Base64.getEncoder().encode(ByteBuffer.wrap(data, 0, length)).array();
+  }
 
-    return data;
+  /**
+   * Buffers reused by the encoding calls of one thread, they only grow
+   */
+  private static class EncodeBuffers {
+
+    final Deflater deflater = new Deflater();
+    private byte[] encoded = new byte[0];
+    byte[] compressed = new byte[0];
+
+    byte[] encoded(int minLength) {
+      if (encoded.length < minLength)
+        encoded = new byte[minLength];
+      return encoded;
+    }
+
+    /** Grows the buffer if needed, keeping its content */
+    byte[] compressed(int minLength) {
+      if (compressed.length < minLength)
+        compressed = Arrays.copyOf(compressed, minLength);
+      return compressed;
+    }
   }
 
 }
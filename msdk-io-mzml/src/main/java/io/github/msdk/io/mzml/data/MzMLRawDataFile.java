@@ -14,6 +14,7 @@
 package io.github.msdk.io.mzml.data;
 
 import java.io.File;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
@@ -25,6 +26,7 @@ import io.github.msdk.datamodel.Chromatogram;
 import io.github.msdk.datamodel.FileType;
 import io.github.msdk.datamodel.MsScan;
 import io.github.msdk.datamodel.RawDataFile;
+import io.github.msdk.datamodel.ScanIndex;
 
 /**
  * <p>
@@ -48,6 +50,10 @@ public class MzMLRawDataFile implements RawDataFile {
 
   private @Nonnull String name;
 
+  private @Nonnull MzMLPeaksCache peaksCache;
+
+  private volatile ScanIndex scanIndex;
+
   /**
    * <p>
    * Constructor for MzMLRawDataFile.
@@ -69,6 +75,7 @@ public class MzMLRawDataFile implements RawDataFile {
     this.defaultInstrumentConfiguration = "unknown";
     this.defaultDataProcessingScan = "unknown";
     this.defaultDataProcessingChromatogram = "unknown";
+    this.peaksCache = MzMLPeaksCache.getDefault();
   }
 
   /** {@inheritDoc} */
@@ -104,7 +111,32 @@ public class MzMLRawDataFile implements RawDataFile {
   @Override
   @Nonnull
   public List<MsScan> getScans() {
-    return ImmutableList.copyOf(msScans);
+    // A view, so that the scans of an indexed file are only parsed when accessed
+    return Collections.unmodifiableList(msScans);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>
+   * The scans do not change once the file is imported, so the index is built on the first call
+   * and cached. For an indexed file, this parses all spectra.
+   * </p>
+   */
+  @Override
+  @Nonnull
+  public ScanIndex getScanIndex() {
+    ScanIndex result = scanIndex;
+    if (result == null) {
+      synchronized (this) {
+        result = scanIndex;
+        if (result == null) {
+          result = new ScanIndex(getScans());
+          scanIndex = result;
+        }
+      }
+    }
+    return result;
   }
 
   /** {@inheritDoc} */
@@ -112,7 +144,7 @@ public class MzMLRawDataFile implements RawDataFile {
   @Override
   @Nonnull
   public List<Chromatogram> getChromatograms() {
-    return ImmutableList.copyOf(chromatograms);
+    return Collections.unmodifiableList(chromatograms);
   }
 
   public String getDefaultInstrumentConfiguration() {
@@ -139,9 +171,42 @@ public class MzMLRawDataFile implements RawDataFile {
     this.defaultDataProcessingChromatogram = defaultDataProcessingChromatogram;
   }
 
+  /**
+   * <p>
+   * Getter for the field <code>peaksCache</code>.
+   * </p>
+   *
+   * @return the {@link io.github.msdk.io.mzml.data.MzMLPeaksCache MzMLPeaksCache} holding the
+   *         decoded data arrays of this file's scans and chromatograms
+   */
+  public @Nonnull MzMLPeaksCache getPeaksCache() {
+    return peaksCache;
+  }
+
+  /**
+   * <p>
+   * Setter for the field <code>peaksCache</code>. Arrays already decoded into the previous cache
+   * are not transferred.
+   * </p>
+   *
+   * @param peaksCache a {@link io.github.msdk.io.mzml.data.MzMLPeaksCache MzMLPeaksCache} object
+   */
+  public void setPeaksCache(@Nonnull MzMLPeaksCache peaksCache) {
+    this.peaksCache = peaksCache;
+  }
+
   /** {@inheritDoc} */
   @Override
-  public void dispose() {}
+  public void dispose() {
+    for (MsScan scan : msScans) {
+      if (scan instanceof MzMLMsScan)
+        ((MzMLMsScan) scan).invalidateCachedValues();
+    }
+    for (Chromatogram chromatogram : chromatograms) {
+      if (chromatogram instanceof MzMLChromatogram)
+        ((MzMLChromatogram) chromatogram).invalidateCachedValues();
+    }
+  }
 
 
 }
@@ -215,7 +215,7 @@ public class ByteBufferInputStream extends InputStream {
       if (rem == 0)
         byteBuffer(++curr).position(0);
       byteBuffer[curr].get(b, offset + read, Math.min(realLength - read, rem));
-      read += Math.min(realLength, rem);
+      read += Math.min(realLength - read, rem);
     }
     return realLength;
   }
@@ -264,6 +264,40 @@ public class ByteBufferInputStream extends InputStream {
     return new ByteBufferInputStream(byteBuffer.clone(), size, curr, new boolean[n]);
   }
 
+  /**
+   * <p>
+   * Returns a view of <code>length</code> bytes starting at <code>position</code>, positioned at
+   * 0. The bytes are not copied unless they span two chunks. The position of this stream is not
+   * modified, so this method can be called from several threads at once.
+   * </p>
+   *
+   * @param position a long.
+   * @param length an int.
+   * @return a {@link java.nio.ByteBuffer} object.
+   */
+  public ByteBuffer region(long position, int length) {
+    if (position < 0 || length < 0 || position + length > size)
+      throw new IndexOutOfBoundsException();
+
+    final int first = (int) (position >>> CHUNK_SHIFT);
+    final int start = (int) (position - ((long) first << CHUNK_SHIFT));
+    if (start + length <= byteBuffer[first].capacity()) {
+      final ByteBuffer region = byteBuffer[first].duplicate();
+      region.limit(start + length).position(start);
+      return region.slice();
+    }
+
+    final ByteBuffer region = ByteBuffer.allocate(length);
+    for (int i = first; region.hasRemaining(); i++) {
+      final ByteBuffer chunk = byteBuffer[i].duplicate();
+      chunk.limit(Math.min(chunk.capacity(), (i == first ? start : 0) + region.remaining()))
+          .position(i == first ? start : 0);
+      region.put(chunk);
+    }
+    region.flip();
+    return region;
+  }
+
   /**
    * <p>constrain.</p>
    *
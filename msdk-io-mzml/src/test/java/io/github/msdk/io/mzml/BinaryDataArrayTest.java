@@ -13,6 +13,7 @@
 
 package io.github.msdk.io.mzml;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
@@ -184,4 +185,36 @@ public class BinaryDataArrayTest {
     Assert.assertArrayEquals(testData32bitFloat, result, 0.0f);
   }
 
+  @Test
+  public void testMappedAndStreamDecoding()
+      throws MSDKException, DataFormatException, IOException {
+    // The binary data starts in the middle of the mapped data, followed by other content
+    String mapped = "<binary>" + compressed64bit + "</binary>";
+    ByteBufferInputStream is =
+        new ByteBufferInputStream(ByteBuffer.wrap(mapped.getBytes(StandardCharsets.UTF_8)));
+
+    MzMLBinaryDataInfo binaryInfo = new MzMLBinaryDataInfo(664, 99);
+    binaryInfo.setBitLength(MzMLBitLength.SIXTY_FOUR_BIT_FLOAT);
+    binaryInfo.setCompressionType(MzMLCompressionType.ZLIB);
+    binaryInfo.setPosition(8);
+
+    // Decoding from the mapped data does not depend on the stream position
+    is.position(100);
+    double[] result = MzMLPeaksDecoder.decodeToDouble(is, binaryInfo, null);
+    Assert.assertArrayEquals(testData64bitFloat, result, 0.0);
+    Assert.assertEquals(100, is.position());
+
+    // The result array is reused when it is large enough
+    float[] buffer = new float[99];
+    Assert.assertSame(buffer, MzMLPeaksDecoder.decodeToFloat(is, binaryInfo, buffer));
+    for (int i = 0; i < testData64bitFloat.length; i++)
+      Assert.assertEquals((float) testData64bitFloat[i], buffer[i], 0.0f);
+
+    // Plain input streams are decoded the same way
+    result = MzMLPeaksDecoder.decodeToDouble(
+        new ByteArrayInputStream(compressed64bit.getBytes(StandardCharsets.UTF_8)), binaryInfo,
+        null);
+    Assert.assertArrayEquals(testData64bitFloat, result, 0.0);
+  }
+
 }
@@ -17,6 +17,7 @@ import java.io.File;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
@@ -487,6 +488,43 @@ public class MzMLFileExportMethodTest {
     newMzMLFile.dispose();
   }
 
+  @Test
+  public void testParallelEncoding() throws MSDKException, IOException {
+
+    // Import the file
+    File inputFile = getResourcePath("SRM.mzML").toFile();
+    RawDataFile rawFile = new MzMLFileImportMethod(inputFile).execute();
+    Assert.assertNotNull(rawFile);
+
+    // Export with a single encoding thread and with several ones
+    File sequentialFile = File.createTempFile("msdk", ".mzML");
+    sequentialFile.deleteOnExit();
+    new MzMLFileExportMethod(rawFile, sequentialFile, MzMLCompressionType.NUMPRESS_POSINT_ZLIB,
+        MzMLCompressionType.ZLIB, 1).execute();
+
+    File parallelFile = File.createTempFile("msdk", ".mzML");
+    parallelFile.deleteOnExit();
+    MzMLFileExportMethod exporter = new MzMLFileExportMethod(rawFile, parallelFile,
+        MzMLCompressionType.NUMPRESS_POSINT_ZLIB, MzMLCompressionType.ZLIB, 4);
+    exporter.execute();
+    Assert.assertEquals(1.0, exporter.getFinishedPercentage(), 0.0001);
+
+    // The files are identical, including the index and checksum
+    Assert.assertArrayEquals(Files.readAllBytes(sequentialFile.toPath()),
+        Files.readAllBytes(parallelFile.toPath()));
+
+    // Canceled before starting
+    File canceledFile = File.createTempFile("msdk", ".mzML");
+    canceledFile.deleteOnExit();
+    exporter = new MzMLFileExportMethod(rawFile, canceledFile, MzMLCompressionType.ZLIB,
+        MzMLCompressionType.ZLIB, 2);
+    exporter.cancel();
+    exporter.execute();
+    Assert.assertFalse(canceledFile.exists());
+
+    rawFile.dispose();
+  }
+
   @Test
   @Ignore("Temporarily ignored, but failing")
   public void testExportFromMzXML() throws Exception {
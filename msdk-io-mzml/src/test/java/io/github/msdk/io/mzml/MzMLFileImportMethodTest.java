@@ -19,6 +19,8 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
@@ -39,6 +41,7 @@ import io.github.msdk.datamodel.MsSpectrumType;
 import io.github.msdk.datamodel.PolarityType;
 import io.github.msdk.datamodel.RawDataFile;
 import io.github.msdk.io.mzml.MzMLFileImportMethod;
+import io.github.msdk.io.mzml.data.MzMLCompressionType;
 import io.github.msdk.io.mzml.data.MzMLMsScan;
 import io.github.msdk.util.MsSpectrumUtil;
 
@@ -646,6 +649,168 @@ public class MzMLFileImportMethodTest {
     rawFile.dispose();
   }
 
+  @Test
+  public void testIndexed() throws Exception {
+
+    // Export the file, so that it has a valid index
+    RawDataFile sourceFile = new MzMLFileImportMethod(getResourcePath("5peptideFT.mzML")
+        .toFile()).execute();
+    File tempFile = File.createTempFile("msdk", ".mzML");
+    tempFile.deleteOnExit();
+    new MzMLFileExportMethod(sourceFile, tempFile, MzMLCompressionType.ZLIB,
+        MzMLCompressionType.ZLIB).execute();
+
+    RawDataFile sequentialFile = new MzMLFileImportMethod(tempFile).execute();
+    MzMLFileImportMethod parser = new MzMLFileImportMethod(tempFile, MzMLImportMode.INDEXED);
+    RawDataFile indexedFile = parser.execute();
+    Assert.assertNotNull(indexedFile);
+    Assert.assertEquals(1.0, parser.getFinishedPercentage(), 0.0001);
+
+    // Read a scan from the middle first
+    MsScan scan5 = indexedFile.getScans().get(4);
+    Assert.assertEquals(Integer.valueOf(5), scan5.getScanNumber());
+    Assert.assertEquals(Integer.valueOf(2), scan5.getMsLevel());
+    Assert.assertEquals(483.4679870605469, scan5.getMzValues()[200], 0.00001);
+
+    assertSameContent(sequentialFile, indexedFile);
+
+    // The same scan instance is returned on every access
+    Assert.assertSame(scan5, indexedFile.getScans().get(4));
+
+    sourceFile.dispose();
+    sequentialFile.dispose();
+    indexedFile.dispose();
+  }
+
+  @Test
+  public void testIndexedWithoutArrays() throws Exception {
+
+    // Export the file, so that it has a valid index
+    RawDataFile sourceFile =
+        new MzMLFileImportMethod(getResourcePath("tiny.pwiz.mzML").toFile()).execute();
+    File tempFile = File.createTempFile("msdk", ".mzML");
+    tempFile.deleteOnExit();
+    new MzMLFileExportMethod(sourceFile, tempFile, MzMLCompressionType.ZLIB,
+        MzMLCompressionType.ZLIB).execute();
+    sourceFile.dispose();
+
+    // Blank out the data arrays of the 2nd spectrum and of the 1st chromatogram, keeping the
+    // length of the file so that its index stays valid
+    String content = new String(Files.readAllBytes(tempFile.toPath()), StandardCharsets.UTF_8);
+    content = blankOut(content, content.indexOf("<spectrum index=\"1\""));
+    content = blankOut(content, content.indexOf("<chromatogram index=\"0\""));
+    Files.write(tempFile.toPath(), content.getBytes(StandardCharsets.UTF_8));
+
+    RawDataFile sequentialFile = new MzMLFileImportMethod(tempFile).execute();
+    RawDataFile indexedFile = new MzMLFileImportMethod(tempFile, MzMLImportMode.INDEXED).execute();
+
+    // The elements without arrays are left out by both import modes
+    Assert.assertEquals(Integer.valueOf(21), indexedFile.getScans().get(1).getScanNumber());
+    Assert.assertEquals(3, indexedFile.getScans().size());
+    Assert.assertEquals(1, indexedFile.getChromatograms().size());
+    assertSameContent(sequentialFile, indexedFile);
+
+    sequentialFile.dispose();
+    indexedFile.dispose();
+  }
+
+  private String blankOut(String content, int elementStart) {
+    final int from = content.indexOf("<binaryDataArrayList", elementStart);
+    final int to = content.indexOf("</binaryDataArrayList>", from) + 22;
+    final char[] blank = new char[to - from];
+    Arrays.fill(blank, ' ');
+    return content.substring(0, from) + new String(blank) + content.substring(to);
+  }
+
+  @Test
+  public void testIndexedFallback() throws MSDKException {
+
+    // The offsets in the index of this file are wrong
+    File inputFile = getResourcePath("tiny.pwiz.err.idx.mzML").toFile();
+    RawDataFile sequentialFile = new MzMLFileImportMethod(inputFile).execute();
+    RawDataFile indexedFile =
+        new MzMLFileImportMethod(inputFile, MzMLImportMode.INDEXED).execute();
+
+    Assert.assertEquals(4, indexedFile.getScans().size());
+    assertSameContent(sequentialFile, indexedFile);
+
+    // This file has no index
+    inputFile = getResourcePath("5peptideFT.mzML").toFile();
+    indexedFile = new MzMLFileImportMethod(inputFile, MzMLImportMode.INDEXED).execute();
+    Assert.assertEquals(7, indexedFile.getScans().size());
+
+    sequentialFile.dispose();
+    indexedFile.dispose();
+  }
+
+  @Test
+  public void testParallel() throws Exception {
+
+    // Files without a valid index are split by scanning for the elements
+    for (String resource : new String[] {"5peptideFT.mzML", "tiny.pwiz.idx.mzML", "SRM.mzML",
+        "mzML_with_UV.mzML", "RawCentriodCidWithMsLevelInRefParamGroup.mzML",
+        "MzValues_Zlib+Numpress.mzML"}) {
+      File inputFile = getResourcePath(resource).toFile();
+      RawDataFile sequentialFile = new MzMLFileImportMethod(inputFile).execute();
+      MzMLFileImportMethod parser =
+          new MzMLFileImportMethod(inputFile, MzMLImportMode.PARALLEL, 3);
+      RawDataFile parallelFile = parser.execute();
+      Assert.assertNotNull(parallelFile);
+      Assert.assertEquals(1.0, parser.getFinishedPercentage(), 0.0001);
+      assertSameContent(sequentialFile, parallelFile);
+      sequentialFile.dispose();
+      parallelFile.dispose();
+    }
+
+    // Exported files are split using their index
+    RawDataFile sourceFile = new MzMLFileImportMethod(getResourcePath("SRM.mzML")
+        .toFile()).execute();
+    File tempFile = File.createTempFile("msdk", ".mzML");
+    tempFile.deleteOnExit();
+    new MzMLFileExportMethod(sourceFile, tempFile, MzMLCompressionType.ZLIB,
+        MzMLCompressionType.ZLIB).execute();
+    RawDataFile parallelFile =
+        new MzMLFileImportMethod(tempFile, MzMLImportMode.PARALLEL, 2).execute();
+    assertSameContent(sourceFile, parallelFile);
+    sourceFile.dispose();
+    parallelFile.dispose();
+
+    // Canceled before starting
+    MzMLFileImportMethod parser = new MzMLFileImportMethod(
+        getResourcePath("5peptideFT.mzML").toFile(), MzMLImportMode.PARALLEL, 2);
+    parser.cancel();
+    Assert.assertNull(parser.execute());
+  }
+
+  private void assertSameContent(RawDataFile expected, RawDataFile actual) {
+    Assert.assertEquals(expected.getScans().size(), actual.getScans().size());
+    for (int i = 0; i < expected.getScans().size(); i++) {
+      MsScan expectedScan = expected.getScans().get(i);
+      MsScan actualScan = actual.getScans().get(i);
+      Assert.assertEquals(expectedScan.getScanNumber(), actualScan.getScanNumber());
+      Assert.assertEquals(expectedScan.getMsLevel(), actualScan.getMsLevel());
+      Assert.assertEquals(expectedScan.getRetentionTime(), actualScan.getRetentionTime());
+      Assert.assertEquals(expectedScan.getPolarity(), actualScan.getPolarity());
+      Assert.assertEquals(expectedScan.getSpectrumType(), actualScan.getSpectrumType());
+      Assert.assertEquals(expectedScan.getIsolations().size(), actualScan.getIsolations().size());
+      Assert.assertArrayEquals(expectedScan.getMzValues(), actualScan.getMzValues(), 0.0);
+      Assert.assertArrayEquals(expectedScan.getIntensityValues(),
+          actualScan.getIntensityValues(), 0f);
+    }
+
+    Assert.assertEquals(expected.getChromatograms().size(), actual.getChromatograms().size());
+    for (int i = 0; i < expected.getChromatograms().size(); i++) {
+      Chromatogram expectedChromatogram = expected.getChromatograms().get(i);
+      Chromatogram actualChromatogram = actual.getChromatograms().get(i);
+      Assert.assertEquals(expectedChromatogram.getChromatogramType(),
+          actualChromatogram.getChromatogramType());
+      Assert.assertArrayEquals(expectedChromatogram.getRetentionTimes(),
+          actualChromatogram.getRetentionTimes(), 0f);
+      Assert.assertArrayEquals(expectedChromatogram.getIntensityValues(),
+          actualChromatogram.getIntensityValues(), 0f);
+    }
+  }
+
   private Predicate<MsScan> getMsScanPredicate(List<Integer> scansToParse) {
     return s -> scansToParse.contains(s.getScanNumber());
   }
@@ -0,0 +1,77 @@
+/*
+ * (C) Copyright 2015-2018 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+package io.github.msdk.io.mzml;
+
+import java.io.File;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.github.msdk.MSDKException;
+import io.github.msdk.datamodel.RawDataFile;
+
+/**
+ * Compares the parsing time of {@link MzMLImportMode#SEQUENTIAL} and
+ * {@link MzMLImportMode#PARALLEL} imports for an increasing number of threads. Usage:
+ * <code>MzMLParallelImportBenchmark file.mzML [numberOfRuns]</code>
+ */
+public class MzMLParallelImportBenchmark {
+
+  public static void main(String[] args) throws MSDKException {
+
+    Logger logger = LoggerFactory.getLogger(MzMLParallelImportBenchmark.class);
+
+    if (args.length < 1) {
+      logger.error("Usage: MzMLParallelImportBenchmark file.mzML [numberOfRuns]");
+      return;
+    }
+
+    File inputFile = new File(args[0]);
+    int numberOfRuns = 5;
+    if (args.length > 1)
+      numberOfRuns = Integer.valueOf(args[1]);
+
+    // Warm up
+    run(inputFile, MzMLImportMode.SEQUENTIAL, 1, 1);
+    run(inputFile, MzMLImportMode.PARALLEL, Runtime.getRuntime().availableProcessors(), 1);
+
+    long sequentialTime = run(inputFile, MzMLImportMode.SEQUENTIAL, 1, numberOfRuns);
+    logger.info("Average run time with SEQUENTIAL import: " + sequentialTime + "ms");
+
+    int cores = Runtime.getRuntime().availableProcessors();
+    for (int parallelism = 1; parallelism < cores * 2; parallelism *= 2) {
+      int threads = Math.min(parallelism, cores);
+      long parallelTime = run(inputFile, MzMLImportMode.PARALLEL, threads, numberOfRuns);
+      logger.info("Average run time with PARALLEL import on " + threads + " threads: "
+          + parallelTime + "ms, speedup " + String.format("%.2f", (double) sequentialTime
+              / Math.max(1, parallelTime)));
+    }
+  }
+
+  /**
+   * Returns the average time in ms to import the file
+   */
+  private static long run(File inputFile, MzMLImportMode importMode, int parallelism,
+      int numberOfRuns) throws MSDKException {
+    long startTime = System.currentTimeMillis();
+    for (int i = 0; i < numberOfRuns; i++) {
+      RawDataFile rawFile =
+          new MzMLFileImportMethod(inputFile, importMode, parallelism).execute();
+      rawFile.dispose();
+    }
+    long endTime = System.currentTimeMillis();
+    return (endTime - startTime) / numberOfRuns;
+  }
+
+}
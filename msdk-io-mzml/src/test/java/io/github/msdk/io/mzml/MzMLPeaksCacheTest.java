@@ -0,0 +1,88 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+package io.github.msdk.io.mzml;
+
+import java.io.File;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import io.github.msdk.MSDKException;
+import io.github.msdk.datamodel.MsScan;
+import io.github.msdk.io.mzml.data.MzMLPeaksCache;
+import io.github.msdk.io.mzml.data.MzMLRawDataFile;
+
+public class MzMLPeaksCacheTest {
+
+  private Path getResourcePath(String resource) throws MSDKException {
+    final URL url = MzMLPeaksCacheTest.class.getClassLoader().getResource(resource);
+    try {
+      return Paths.get(url.toURI()).toAbsolutePath();
+    } catch (URISyntaxException e) {
+      throw new MSDKException(e);
+    }
+  }
+
+  @Test
+  public void testEvictionAndReload() throws MSDKException {
+
+    final File inputFile = getResourcePath("5peptideFT.mzML").toFile();
+
+    MzMLRawDataFile reference = new MzMLFileImportMethod(inputFile).execute();
+    reference.setPeaksCache(new MzMLPeaksCache(Long.MAX_VALUE));
+
+    // Much smaller than the decoded data of the file
+    MzMLRawDataFile rawFile = new MzMLFileImportMethod(inputFile).execute();
+    MzMLPeaksCache cache = new MzMLPeaksCache(20000 * Double.BYTES);
+    rawFile.setPeaksCache(cache);
+
+    List<MsScan> expectedScans = reference.getScans();
+    List<MsScan> scans = rawFile.getScans();
+    Assert.assertEquals(7, scans.size());
+
+    for (int pass = 0; pass < 2; pass++) {
+      for (int i = 0; i < scans.size(); i++) {
+        Assert.assertArrayEquals(expectedScans.get(i).getMzValues(), scans.get(i).getMzValues(),
+            0.0);
+        Assert.assertArrayEquals(expectedScans.get(i).getIntensityValues(),
+            scans.get(i).getIntensityValues(), 0f);
+      }
+    }
+
+    // Evicted arrays were decoded again during the second pass
+    Assert.assertTrue(cache.getEvictionCount() > 0);
+    Assert.assertTrue(cache.getMissCount() > 2 * scans.size());
+
+    // Repeated access to a small scan hits the cache
+    long hits = cache.getHitCount();
+    MsScan scan = scans.get(2);
+    scan.getMzValues();
+    scan.getMzValues();
+    Assert.assertTrue(cache.getHitCount() > hits);
+
+    // Arrays passed by the caller are filled on every call
+    double[] buffer = new double[scan.getNumberOfDataPoints()];
+    Assert.assertSame(buffer, scan.getMzValues(buffer));
+    Assert.assertArrayEquals(expectedScans.get(2).getMzValues(), buffer, 0.0);
+
+    rawFile.dispose();
+    reference.dispose();
+  }
+
+}
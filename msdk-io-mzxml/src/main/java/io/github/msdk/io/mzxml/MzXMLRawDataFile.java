@@ -14,6 +14,7 @@ import io.github.msdk.datamodel.Chromatogram;
 import io.github.msdk.datamodel.FileType;
 import io.github.msdk.datamodel.MsScan;
 import io.github.msdk.datamodel.RawDataFile;
+import io.github.msdk.datamodel.ScanIndex;
 
 /**
  * <p>MzXMLRawDataFile class.</p>
@@ -28,6 +29,10 @@ public class MzXMLRawDataFile implements RawDataFile {
   private final @Nonnull List<MsScan> msScans;
   private final @Nonnull List<Chromatogram> chromatograms;
 
+  // Caches, reset whenever a scan is added or removed
+  private volatile List<MsScan> scanList;
+  private volatile ScanIndex scanIndex;
+
   private @Nonnull String name;
 
   /**
@@ -68,7 +73,34 @@ public class MzXMLRawDataFile implements RawDataFile {
   /** {@inheritDoc} */
   @Override
   public @Nonnull List<MsScan> getScans() {
-    return ImmutableList.copyOf(msScans);
+    List<MsScan> result = scanList;
+    if (result == null) {
+      synchronized (msScans) {
+        result = ImmutableList.copyOf(msScans);
+        scanList = result;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>
+   * The index is cached until a scan is added or removed.
+   * </p>
+   */
+  @Override
+  @Nonnull
+  public ScanIndex getScanIndex() {
+    ScanIndex result = scanIndex;
+    if (result == null) {
+      synchronized (msScans) {
+        result = new ScanIndex(getScans());
+        scanIndex = result;
+      }
+    }
+    return result;
   }
 
   /**
@@ -80,6 +112,8 @@ public class MzXMLRawDataFile implements RawDataFile {
     Preconditions.checkNotNull(scan);
     synchronized (msScans) {
       msScans.add(scan);
+      scanList = null;
+      scanIndex = null;
     }
   }
 
@@ -92,6 +126,8 @@ public class MzXMLRawDataFile implements RawDataFile {
     Preconditions.checkNotNull(scan);
     synchronized (msScans) {
       msScans.remove(scan);
+      scanList = null;
+      scanIndex = null;
     }
   }
 
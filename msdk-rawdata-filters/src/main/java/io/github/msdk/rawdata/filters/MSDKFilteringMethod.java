@@ -13,9 +13,13 @@
 
 package io.github.msdk.rawdata.filters;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -25,6 +29,7 @@ import io.github.msdk.MSDKMethod;
 import io.github.msdk.datamodel.MsScan;
 import io.github.msdk.datamodel.RawDataFile;
 import io.github.msdk.datamodel.SimpleRawDataFile;
+import io.github.msdk.util.ParallelUtil;
 
 /**
  * <p>
@@ -36,11 +41,14 @@ public class MSDKFilteringMethod implements MSDKMethod<RawDataFile> {
   private final Logger logger = LoggerFactory.getLogger(this.getClass());
 
   private final @Nonnull MSDKFilteringAlgorithm filteringAlgorithm;
+  private final @Nullable Supplier<? extends MSDKFilteringAlgorithm> algorithmFactory;
   private final @Nonnull RawDataFile rawDataFile;
+  private final int parallelism;
 
-  private int processedScans = 0, totalScans = 0;
+  private final AtomicInteger processedScans = new AtomicInteger();
+  private volatile int totalScans = 0;
   private SimpleRawDataFile result;
-  private boolean canceled = false;
+  private volatile boolean canceled = false;
 
   /**
    * <p>
@@ -54,7 +62,31 @@ public class MSDKFilteringMethod implements MSDKMethod<RawDataFile> {
   public MSDKFilteringMethod(@Nonnull RawDataFile rawDataFile,
       @Nonnull MSDKFilteringAlgorithm filteringAlgorithm) {
     this.filteringAlgorithm = filteringAlgorithm;
+    this.algorithmFactory = null;
     this.rawDataFile = rawDataFile;
+    this.parallelism = 1;
+  }
+
+  /**
+   * <p>
+   * Constructor for MSDKFilteringMethod which filters the scans on several threads.
+   * </p>
+   *
+   * @param rawDataFile a {@link io.github.msdk.datamodel.RawDataFile} object.
+   * @param algorithmFactory creates a new
+   *        {@link io.github.msdk.rawdata.filters.MSDKFilteringAlgorithm} for each thread, as
+   *        filtering algorithms keep scratch buffers between scans. The filtered scans are added
+   *        in the order of the input scans.
+   * @param parallelism the number of threads used to filter the scans
+   */
+  public MSDKFilteringMethod(@Nonnull RawDataFile rawDataFile,
+      @Nonnull Supplier<? extends MSDKFilteringAlgorithm> algorithmFactory, int parallelism) {
+    if (parallelism < 1)
+      throw new IllegalArgumentException("parallelism must be positive");
+    this.filteringAlgorithm = algorithmFactory.get();
+    this.algorithmFactory = algorithmFactory;
+    this.rawDataFile = rawDataFile;
+    this.parallelism = parallelism;
   }
 
   /** {@inheritDoc} */
@@ -63,7 +95,7 @@ public class MSDKFilteringMethod implements MSDKMethod<RawDataFile> {
     if (totalScans == 0) {
       return null;
     } else {
-      return (float) processedScans / totalScans;
+      return (float) processedScans.get() / totalScans;
     }
   }
 
@@ -80,25 +112,66 @@ public class MSDKFilteringMethod implements MSDKMethod<RawDataFile> {
     List<MsScan> scans = rawDataFile.getScans();
     totalScans = scans.size();
 
-    for (MsScan scan : scans) {
+    List<MsScan> newScans;
+    if (algorithmFactory == null || parallelism == 1 || scans.size() < 2)
+      newScans = filterScans(filteringAlgorithm, scans);
+    else
+      newScans = filterParallel(scans);
+    if (newScans == null)
+      return null;
 
-      if (canceled)
+    // Add the new scans to the created raw data file
+    for (MsScan newScan : newScans)
+      result.addScan(newScan);
+
+    logger.info("Finished filter " + filteringAlgorithm.getClass().getName() + " on raw data file "
+        + rawDataFile.getName());
+    return result;
+  }
+
+  /**
+   * Filter the scans on <code>parallelism</code> threads, each thread using its own algorithm
+   * instance.
+   *
+   * @return the filtered scans, in the order of the input scans, or null if the method was
+   *         canceled
+   */
+  private List<MsScan> filterParallel(List<MsScan> scans) throws MSDKException {
+    final ThreadLocal<MSDKFilteringAlgorithm> algorithms =
+        ThreadLocal.withInitial(algorithmFactory);
+    final List<List<MsScan>> chunks = ParallelUtil.mapChunks(scans.size(), parallelism,
+        (from, to) -> filterScans(algorithms.get(), scans.subList(from, to)));
+
+    final List<MsScan> newScans = new ArrayList<>(scans.size());
+    for (List<MsScan> chunkScans : chunks) {
+      if (chunkScans == null || canceled)
         return null;
+      newScans.addAll(chunkScans);
+    }
+    return newScans;
+  }
 
-      if (scan == null)
-        continue;
+  /**
+   * Filter the given scans, skipping the missing ones.
+   *
+   * @return the filtered scans, or null if the method was canceled
+   */
+  private List<MsScan> filterScans(MSDKFilteringAlgorithm algorithm, List<MsScan> scans) {
+    final List<MsScan> newScans = new ArrayList<>(scans.size());
+    for (MsScan scan : scans) {
 
-      MsScan newScan = filteringAlgorithm.performFilter(scan);
+      if (canceled)
+        return null;
 
-      // Add the new scan to the created raw data file
-      if (newScan != null)
-        result.addScan(newScan);
+      if (scan != null) {
+        MsScan newScan = algorithm.performFilter(scan);
+        if (newScan != null)
+          newScans.add(newScan);
+      }
 
-      processedScans++;
+      processedScans.incrementAndGet();
     }
-    logger.info("Finished filter " + filteringAlgorithm.getClass().getName() + " on raw data file "
-        + rawDataFile.getName());
-    return result;
+    return newScans;
   }
 
   /** {@inheritDoc} */
@@ -108,4 +108,60 @@ public class SGFilterMethodTest {
 
   }
 
+
+  @Test
+  public void testSGFilterParallel() throws Exception {
+
+    // Import the file
+    File inputFile =
+        new File(this.getClass().getClassLoader().getResource("orbitrap_300-600mz.mzML").toURI());
+    Assert.assertTrue("Cannot read test data", inputFile.canRead());
+    MzMLFileImportMethod importer = new MzMLFileImportMethod(inputFile);
+    RawDataFile rawFile = importer.execute();
+    Assert.assertNotNull(rawFile);
+
+    // Execute the filter sequentially and on several threads
+    RawDataFile sequentialFile =
+        new MSDKFilteringMethod(rawFile, new SGFilterAlgorithm(11)).execute();
+    MSDKFilteringMethod filterMethod =
+        new MSDKFilteringMethod(rawFile, () -> new SGFilterAlgorithm(11), 4);
+    RawDataFile parallelFile = filterMethod.execute();
+    Assert.assertNotNull(parallelFile);
+    Assert.assertEquals(1.0, filterMethod.getFinishedPercentage(), 0.0001);
+
+    // The scans should be the same, in the same order
+    List<MsScan> sequentialScans = sequentialFile.getScans();
+    List<MsScan> parallelScans = parallelFile.getScans();
+    Assert.assertEquals(sequentialScans.size(), parallelScans.size());
+    for (int i = 0; i < sequentialScans.size(); i++) {
+      MsScan sequentialScan = sequentialScans.get(i);
+      MsScan parallelScan = parallelScans.get(i);
+      Assert.assertEquals(sequentialScan.getScanNumber(), parallelScan.getScanNumber());
+      Assert.assertEquals(sequentialScan.getNumberOfDataPoints(),
+          parallelScan.getNumberOfDataPoints());
+      Assert.assertArrayEquals(sequentialScan.getMzValues(), parallelScan.getMzValues(), 0.0);
+      Assert.assertArrayEquals(sequentialScan.getIntensityValues(),
+          parallelScan.getIntensityValues(), 0f);
+    }
+
+  }
+
+
+  @Test
+  public void testSGFilterParallelCancel() throws Exception {
+
+    // Import the file
+    File inputFile =
+        new File(this.getClass().getClassLoader().getResource("orbitrap_300-600mz.mzML").toURI());
+    Assert.assertTrue("Cannot read test data", inputFile.canRead());
+    RawDataFile rawFile = new MzMLFileImportMethod(inputFile).execute();
+    Assert.assertNotNull(rawFile);
+
+    MSDKFilteringMethod filterMethod =
+        new MSDKFilteringMethod(rawFile, () -> new SGFilterAlgorithm(11), 4);
+    filterMethod.cancel();
+    Assert.assertNull(filterMethod.execute());
+
+  }
+
 }
@@ -13,9 +13,13 @@
 
 package io.github.msdk.spectra.centroiding;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -25,6 +29,7 @@ import io.github.msdk.MSDKMethod;
 import io.github.msdk.datamodel.MsScan;
 import io.github.msdk.datamodel.RawDataFile;
 import io.github.msdk.datamodel.SimpleRawDataFile;
+import io.github.msdk.util.ParallelUtil;
 
 /**
  * <p>
@@ -36,11 +41,14 @@ public class MSDKCentroidingMethod implements MSDKMethod<RawDataFile> {
   private final Logger logger = LoggerFactory.getLogger(this.getClass());
 
   private final @Nonnull MSDKCentroidingAlgorithm centroidingAlgorithm;
+  private final @Nullable Supplier<? extends MSDKCentroidingAlgorithm> algorithmFactory;
   private final @Nonnull RawDataFile rawDataFile;
-  
-  private int processedScans = 0, totalScans = 0;
+  private final int parallelism;
+
+  private final AtomicInteger processedScans = new AtomicInteger();
+  private volatile int totalScans = 0;
   private SimpleRawDataFile result;
-  private boolean canceled = false;
+  private volatile boolean canceled = false;
 
   /**
    * <p>
@@ -54,7 +62,30 @@ public class MSDKCentroidingMethod implements MSDKMethod<RawDataFile> {
   public MSDKCentroidingMethod(@Nonnull RawDataFile rawDataFile,
       @Nonnull MSDKCentroidingAlgorithm centroidingAlgorithm) {
     this.centroidingAlgorithm = centroidingAlgorithm;
+    this.algorithmFactory = null;
+    this.rawDataFile = rawDataFile;
+    this.parallelism = 1;
+  }
+
+  /**
+   * <p>
+   * Constructor for MSDKCentroidingMethod which centroids the scans on several threads.
+   * </p>
+   *
+   * @param rawDataFile a {@link io.github.msdk.datamodel.RawDataFile} object.
+   * @param algorithmFactory creates a new
+   *        {@link io.github.msdk.spectra.centroiding.MSDKCentroidingAlgorithm} for each thread,
+   *        since an algorithm instance keeps working buffers between scans
+   * @param parallelism the number of threads used to centroid the scans
+   */
+  public MSDKCentroidingMethod(@Nonnull RawDataFile rawDataFile,
+      @Nonnull Supplier<? extends MSDKCentroidingAlgorithm> algorithmFactory, int parallelism) {
+    if (parallelism < 1)
+      throw new IllegalArgumentException("parallelism must be positive");
+    this.centroidingAlgorithm = algorithmFactory.get();
+    this.algorithmFactory = algorithmFactory;
     this.rawDataFile = rawDataFile;
+    this.parallelism = parallelism;
   }
 
   /** {@inheritDoc} */
@@ -63,7 +94,7 @@ public class MSDKCentroidingMethod implements MSDKMethod<RawDataFile> {
     if (totalScans == 0) {
       return null;
     } else {
-      return (float) processedScans / totalScans;
+      return (float) processedScans.get() / totalScans;
     }
   }
 
@@ -80,21 +111,63 @@ public class MSDKCentroidingMethod implements MSDKMethod<RawDataFile> {
     List<MsScan> scans = rawDataFile.getScans();
     totalScans = scans.size();
 
+    List<MsScan> newScans;
+    if (algorithmFactory == null || parallelism == 1 || scans.size() < 2)
+      newScans = centroidScans(centroidingAlgorithm, scans);
+    else
+      newScans = centroidParallel(scans);
+    if (newScans == null)
+      return null;
+
+    // Add the new scans to the created raw data file
+    for (MsScan newScan : newScans)
+      result.addScan(newScan);
+
+    logger.info("Finished centroiding file " + rawDataFile.getName());
+    return result;
+  }
+
+  /**
+   * Centroid the scans on <code>parallelism</code> threads, each thread using its own algorithm
+   * instance.
+   *
+   * @return the centroided scans, in the order of the input scans, or null if the method was
+   *         canceled
+   */
+  private List<MsScan> centroidParallel(List<MsScan> scans) throws MSDKException {
+    final ThreadLocal<MSDKCentroidingAlgorithm> algorithms =
+        ThreadLocal.withInitial(algorithmFactory);
+    final List<List<MsScan>> chunks = ParallelUtil.mapChunks(scans.size(), parallelism,
+        (from, to) -> centroidScans(algorithms.get(), scans.subList(from, to)));
+
+    final List<MsScan> newScans = new ArrayList<>(scans.size());
+    for (List<MsScan> chunkScans : chunks) {
+      if (chunkScans == null || canceled)
+        return null;
+      newScans.addAll(chunkScans);
+    }
+    return newScans;
+  }
+
+  /**
+   * Centroid the given scans.
+   *
+   * @return the centroided scans, or null if the method was canceled
+   */
+  private List<MsScan> centroidScans(MSDKCentroidingAlgorithm algorithm, List<MsScan> scans) {
+    final List<MsScan> newScans = new ArrayList<>(scans.size());
     for (MsScan scan : scans) {
 
       if (canceled)
         return null;
 
-      MsScan newScan = centroidingAlgorithm.centroidScan(scan);
-
-      // Add the new scan to the created raw data file
+      MsScan newScan = algorithm.centroidScan(scan);
       if (newScan != null)
-        result.addScan(newScan);
+        newScans.add(newScan);
 
-      processedScans++;
+      processedScans.incrementAndGet();
     }
-    logger.info("Finished centroiding file " + rawDataFile.getName());
-    return result;
+    return newScans;
   }
 
   /** {@inheritDoc} */
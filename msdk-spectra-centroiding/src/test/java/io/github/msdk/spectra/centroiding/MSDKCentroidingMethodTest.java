@@ -0,0 +1,95 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+package io.github.msdk.spectra.centroiding;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import io.github.msdk.datamodel.FileType;
+import io.github.msdk.datamodel.MsScan;
+import io.github.msdk.datamodel.MsSpectrumType;
+import io.github.msdk.datamodel.RawDataFile;
+import io.github.msdk.datamodel.SimpleMsScan;
+import io.github.msdk.datamodel.SimpleRawDataFile;
+
+public class MSDKCentroidingMethodTest {
+
+  /**
+   * Creates profile scans of gaussian peaks at random m/z values, sampled every 0.001 m/z.
+   */
+  private static RawDataFile createRawDataFile() {
+    Random random = new Random(0);
+    SimpleRawDataFile rawFile =
+        new SimpleRawDataFile("profile", Optional.empty(), FileType.UNKNOWN);
+    for (int s = 0; s < 100; s++) {
+      double mzValues[] = new double[20000];
+      float intensityValues[] = new float[20000];
+      double peakMzs[] = new double[20];
+      for (int p = 0; p < peakMzs.length; p++)
+        peakMzs[p] = 400.0 + random.nextDouble() * 20.0;
+      for (int i = 0; i < mzValues.length; i++) {
+        mzValues[i] = 400.0 + i * 0.001;
+        intensityValues[i] = 100f * random.nextFloat();
+        for (double peakMz : peakMzs) {
+          double distance = (mzValues[i] - peakMz) / 0.003;
+          if (Math.abs(distance) < 10)
+            intensityValues[i] += (float) (1E6 * Math.exp(-distance * distance));
+        }
+      }
+      SimpleMsScan scan = new SimpleMsScan(s + 1);
+      scan.setMsLevel(1);
+      scan.setRetentionTime(s * 0.5f);
+      scan.setSpectrumType(MsSpectrumType.PROFILE);
+      scan.setDataPoints(mzValues, intensityValues, mzValues.length);
+      rawFile.addScan(scan);
+    }
+    return rawFile;
+  }
+
+  @Test
+  public void testCentroidingParallel() throws Exception {
+    RawDataFile rawFile = createRawDataFile();
+
+    // Centroid sequentially and on several threads
+    RawDataFile sequentialFile =
+        new MSDKCentroidingMethod(rawFile, new WaveletCentroidingAlgorithm(5, 0.05)).execute();
+    MSDKCentroidingMethod centroidingMethod =
+        new MSDKCentroidingMethod(rawFile, () -> new WaveletCentroidingAlgorithm(5, 0.05), 4);
+    RawDataFile parallelFile = centroidingMethod.execute();
+    Assert.assertNotNull(parallelFile);
+    Assert.assertEquals(1.0, centroidingMethod.getFinishedPercentage(), 0.0001);
+
+    // The scans should be the same, in the same order
+    List<MsScan> sequentialScans = sequentialFile.getScans();
+    List<MsScan> parallelScans = parallelFile.getScans();
+    Assert.assertEquals(rawFile.getScans().size(), sequentialScans.size());
+    Assert.assertEquals(sequentialScans.size(), parallelScans.size());
+    for (int i = 0; i < sequentialScans.size(); i++) {
+      MsScan sequentialScan = sequentialScans.get(i);
+      MsScan parallelScan = parallelScans.get(i);
+      Assert.assertEquals(sequentialScan.getScanNumber(), parallelScan.getScanNumber());
+      Assert.assertTrue(sequentialScan.getNumberOfDataPoints() > 0);
+      Assert.assertEquals(sequentialScan.getNumberOfDataPoints(),
+          parallelScan.getNumberOfDataPoints());
+      Assert.assertArrayEquals(sequentialScan.getMzValues(), parallelScan.getMzValues(), 0.0);
+      Assert.assertArrayEquals(sequentialScan.getIntensityValues(),
+          parallelScan.getIntensityValues(), 0f);
+    }
+  }
+
+}